@@ -1,5 +1,6 @@
 package PingPongTest;
 
+import rmi.AsyncStub;
 import rmi.RMIException;
 import rmi.Stub;
 
@@ -23,8 +24,15 @@ public class PingPongClient {
         /* Client Use RMI registry to get a reference to the factory */
         /* Generate stub Using The network address of the remote skeleton */
         PingPongFactory factory = Stub.create(PingPongFactory.class, address);
-        /* Use factory to get Reference to the PingPongServer */
-        PingPongServer ping_pong_server = factory.makePingPongServer();
+        /* Use factory to get Reference to the PingPongServer
+           (Pipelined: the First 'ping' is Sent Without Waiting for the Factory's Reply) */
+        PingPongServer ping_pong_server = AsyncStub.of(factory).pipeline(
+                new AsyncStub.Call<PingPongFactory, PingPongServer>() {
+                    @Override
+                    public PingPongServer invoke(PingPongFactory remote) throws RMIException {
+                        return remote.makePingPongServer();
+                    }
+                });
         /* Test the PingPongServer 4 times */
         int fail_count = 0;
         for(int i=0; i<4; i++){
@@ -1,6 +1,7 @@
 package PingPongTest;
 
 import rmi.RMIException;
+import rmi.Remote;
 
 /**
  * The Remote Interface
@@ -8,6 +9,7 @@ import rmi.RMIException;
  * that should create a new PingServer and return it (as a remote object reference).
  */
 
+@Remote
 public interface PingPongFactory{
     public PingPongServer makePingPongServer() throws RMIException;
 }
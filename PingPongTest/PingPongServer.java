@@ -1,11 +1,13 @@
 package PingPongTest;
 
 import rmi.RMIException;
+import rmi.Remote;
 
 /**
  * Implement 'ping' method
  */
 
+@Remote
 public interface PingPongServer {
     public String ping(int idNumber) throws RMIException;
 }
@@ -0,0 +1,129 @@
+package benchmark;
+
+import rmi.*;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures how many calls a Skeleton can hold in flight at once, for each execution mode
+ * ('SkeletonConfig.Execution'): PLATFORM runs every call on its own 'Thread', VIRTUAL on a virtual thread.
+ *
+ * Every call blocks inside the server for 'hold' ms, so when all 'level' calls really are in flight together the
+ * round completes in about 'hold' ms. For each mode the level doubles until a round fails (typically
+ * "unable to create native thread" / OutOfMemoryError for platform threads) or 'max_level' is reached.
+ * The server is the unit tests' 'rmi.HoldServer' (see 'sleep'), so the unit classes must be on the classpath.
+ *
+ * Usage: java -cp .:unit benchmark.ConcurrencyBenchmark [max_level] [hold_ms]
+ */
+public class ConcurrencyBenchmark {
+    public static void main(String[] args) throws Exception {
+        int max_level = args.length > 0 ? Integer.parseInt(args[0]) : 16384;
+        long hold = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+
+        System.out.println("Java "+System.getProperty("java.version")+", hold "+hold+" ms per call");
+        System.out.printf("%-9s %8s %8s %10s %8s %10s %s%n",
+                "mode", "level", "peak", "elapsed", "threads", "heap(MB)", "result");
+
+        int port = 7100;
+        for(SkeletonConfig.Execution execution : SkeletonConfig.Execution.values()){
+            if(execution == SkeletonConfig.Execution.VIRTUAL && !VirtualThreads.isSupported()){
+                System.out.println(execution+": skipped, virtual threads not supported by this Java runtime");
+                continue;
+            }
+            for(int level = 256; level <= max_level; level *= 2){
+                if(!round(execution, level, hold, port++)){
+                    break;
+                }
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Run 'level' concurrent calls against a fresh skeleton
+     * @return true if every call succeeded
+     */
+    private static boolean round(SkeletonConfig.Execution execution, int level, long hold, int port) throws Exception {
+        HoldServer server = new HoldServer();
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", port);
+        Skeleton<HoldInterface> skeleton = new Skeleton<HoldInterface>(HoldInterface.class, server, address);
+            /* Enough Workers and Queue for Every Call, the Thread Model is the Only Limit */
+        skeleton.setConfig(new SkeletonConfig().setExecution(execution)
+                .setWorker_threads(level).setQueue_capacity(level));
+        skeleton.start();
+
+        final HoldInterface stub = Stub.create(HoldInterface.class, address);
+        final CountDownLatch done = new CountDownLatch(level);
+        final AtomicInteger failures = new AtomicInteger();
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        final long millis = hold;
+
+        /* Client Side uses Virtual Threads when it can, so the Client is not the Limit */
+        ThreadFactory clients = VirtualThreads.isSupported() ? VirtualThreads.factory("bench-client-")
+                : new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable task) {
+                        Thread thread = new Thread(task);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                };
+
+        long start = System.nanoTime();
+        int peak_threads = 0;
+        try{
+            for(int i = 0; i < level; i++){
+                clients.newThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try{
+                            stub.sleep(millis);
+                        }
+                        catch (Throwable t){
+                            failures.incrementAndGet();
+                            synchronized (errors){
+                                errors.add(t);
+                            }
+                        }
+                        finally {
+                            done.countDown();
+                        }
+                    }
+                }).start();
+            }
+            while(!done.await(hold / 4 + 1, java.util.concurrent.TimeUnit.MILLISECONDS)){
+                peak_threads = Math.max(peak_threads, ManagementFactory.getThreadMXBean().getThreadCount());
+            }
+        }
+        catch (Throwable t){
+            failures.addAndGet((int) done.getCount());
+            synchronized (errors){
+                errors.add(t);
+            }
+        }
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        Runtime runtime = Runtime.getRuntime();
+        long heap = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+
+        skeleton.stop();
+        ConnectionPool.closeAll();
+
+        String result = "ok";
+        if(failures.get() > 0){
+            Throwable first;
+            synchronized (errors){
+                first = errors.isEmpty() ? null : errors.get(0);
+            }
+            result = failures.get()+" failed"+(first == null ? "" : " ("+first+")");
+        }
+        System.out.printf("%-9s %8d %8d %8d ms %8d %10d %s%n",
+                execution, level, server.resetPeak(), elapsed, peak_threads, heap, result);
+        return failures.get() == 0;
+    }
+}
@@ -0,0 +1,142 @@
+package benchmark;
+
+import rmi.*;
+
+import java.lang.reflect.Method;
+
+/**
+ * Compares the Skeleton's two ways of invoking a decoded call on the server object:
+ * the former reflective path ('getMethod' by name and parameter types, 'Method.invoke', then checking whether the
+ * return type is a remote interface) and the 'DispatchTable' path (an entry looked up by method ID, invoking a
+ * pre-bound method handle, return flags computed beforehand).
+ *
+ * This is a plain timing loop rather than a JMH harness (the project builds with 'javac' alone): every case is
+ * warmed up, then timed over several rounds, and results are folded into a sink so they cannot be optimized away.
+ * Only the best round is reported, as a rough lower bound of the cost per call.
+ *
+ * Usage: java benchmark.DispatchBenchmark [calls_per_round]
+ */
+public class DispatchBenchmark {
+    /** Remote interface of the benchmark server. */
+    public interface CalcInterface {
+        public int add(int a, int b) throws RMIException;
+
+        public String echo(String message) throws RMIException;
+    }
+
+    /** Server of 'CalcInterface'. */
+    public static class CalcServer implements CalcInterface {
+        @Override
+        public int add(int a, int b) {
+            return a + b;
+        }
+
+        @Override
+        public String echo(String message) {
+            return message;
+        }
+    }
+
+    private static final int ROUNDS = 5;
+
+    private static long sink; //Consumes Results
+
+    /** One way of invoking a call. */
+    private interface Invoker {
+        Object invoke(String name, Class<?>[] types, int id, Object[] args) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+
+        final CalcServer server = new CalcServer();
+        Skeleton<CalcInterface> skeleton = new Skeleton<CalcInterface>(CalcInterface.class, server);
+        MethodTable table = MethodTable.of(CalcInterface.class);
+        final DispatchTable dispatch_table = new DispatchTable(table, server, skeleton);
+
+        Invoker reflective = new Invoker() {
+            @Override
+            public Object invoke(String name, Class<?>[] types, int id, Object[] args) throws Exception {
+                Method method = CalcInterface.class.getMethod(name, types);
+                Object result = method.invoke(server, args);
+                if(isRemoteInterface(method.getReturnType())){
+                    throw new AssertionError();
+                }
+                return result;
+            }
+        };
+        Invoker handles = new Invoker() {
+            @Override
+            public Object invoke(String name, Class<?>[] types, int id, Object[] args) throws Exception {
+                DispatchTable.Entry entry = dispatch_table.entry(id);
+                Object result = entry.invoke(args);
+                if(entry.returns_remote){
+                    throw new AssertionError();
+                }
+                return result;
+            }
+        };
+
+        Method add = CalcInterface.class.getMethod("add", int.class, int.class);
+        Method echo = CalcInterface.class.getMethod("echo", String.class);
+
+        System.out.println("Java "+System.getProperty("java.version")+", "+calls+" calls per round, best of "+ROUNDS);
+        System.out.printf("%-12s %-10s %10s%n", "method", "path", "ns/call");
+        run("add(int,int)", add, table.idOf(add), new Object[]{3, 4}, reflective, handles, calls);
+        run("echo(String)", echo, table.idOf(echo), new Object[]{"ping"}, reflective, handles, calls);
+        System.out.println("(sink "+sink+")");
+    }
+
+    private static void run(String label, Method method, int id, Object[] args,
+                            Invoker reflective, Invoker handles, int calls) throws Exception {
+        String name = method.getName();
+        Class<?>[] types = method.getParameterTypes();
+            /* Warm Both Paths up before Timing Either */
+        measure(reflective, name, types, id, args, calls);
+        measure(handles, name, types, id, args, calls);
+        System.out.printf("%-12s %-10s %10.1f%n", label, "reflective", best(reflective, name, types, id, args, calls));
+        System.out.printf("%-12s %-10s %10.1f%n", label, "handles", best(handles, name, types, id, args, calls));
+    }
+
+    private static double best(Invoker invoker, String name, Class<?>[] types, int id, Object[] args, int calls)
+            throws Exception {
+        double best = Double.MAX_VALUE;
+        for(int round = 0; round < ROUNDS; round++){
+            best = Math.min(best, measure(invoker, name, types, id, args, calls));
+        }
+        return best;
+    }
+
+    /* Return the Mean Time per Call (ns) */
+    private static double measure(Invoker invoker, String name, Class<?>[] types, int id, Object[] args, int calls)
+            throws Exception {
+        long start = System.nanoTime();
+        long local = 0;
+        for(int i = 0; i < calls; i++){
+            local += invoker.invoke(name, types, id, args).hashCode();
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += local;
+        return (double) elapsed / calls;
+    }
+
+    /* Same Check as the Skeleton's 'isRemoteInterface' */
+    private static boolean isRemoteInterface(Class<?> c){
+        if(!c.isInterface()){
+            return false;
+        }
+        for(Method m : c.getDeclaredMethods()){
+            boolean containRMIException = false;
+            for(Class<?> exception_type : m.getExceptionTypes()){
+                if(exception_type.getName().equals("rmi.RMIException")){
+                    containRMIException = true;
+                    break;
+                }
+            }
+            if(!containRMIException){
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,11 @@
+/** Performance benchmarks.
+
+    <p>
+    Benchmarks are not part of the main project code and are not run by
+    <code>make test</code>. Each benchmark is a class with a <code>main</code>
+    method, run from the project base directory after compiling all
+    <code>.java</code> files, for example
+    <code>java benchmark.ConcurrencyBenchmark</code>. The
+    <code>benchmark</code> make target runs all of them.
+ */
+package benchmark;
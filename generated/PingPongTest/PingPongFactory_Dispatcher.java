@@ -0,0 +1,27 @@
+package PingPongTest;
+
+/** Skeleton dispatcher of {@link PingPongTest.PingPongFactory}, generated by rmi.RemoteProcessor. */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public final class PingPongFactory_Dispatcher implements rmi.RemoteDispatcher {
+    public static final long FINGERPRINT = -4980510765354343378L;
+
+    @Override
+    public Object dispatch(Object server, int method_id, java.io.DataInput in,
+                           java.io.DataOutputStream reply)
+            throws java.io.IOException, ClassNotFoundException, java.lang.reflect.InvocationTargetException {
+        PingPongTest.PingPongFactory target = (PingPongTest.PingPongFactory) server;
+        switch (method_id) {
+            case 0: {
+                rmi.Protocol.expectArguments(in, 0);
+                try {
+                    return target.makePingPongServer();
+                }
+                catch (Throwable t) {
+                    throw new java.lang.reflect.InvocationTargetException(t);
+                }
+            }
+            default:
+                throw new java.io.IOException("Unknown Method ID " + method_id);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package PingPongTest;
+
+/** Stub of {@link PingPongTest.PingPongFactory}, generated by rmi.RemoteProcessor. */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public final class PingPongFactory_Stub extends rmi.GeneratedStub implements PingPongTest.PingPongFactory {
+    private static final long serialVersionUID = 1L;
+
+    public static final long FINGERPRINT = -4980510765354343378L;
+
+    public PingPongFactory_Stub(rmi.StubInvocationHandler handler) {
+        super(handler);
+    }
+
+    @Override
+    public PingPongTest.PingPongServer makePingPongServer() throws rmi.RMIException {
+        rmi.CallWriter call;
+        try {
+            call = newCall(0, 0);
+        }
+        catch (java.io.IOException e) {
+            throw new rmi.RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+        try {
+            return (PingPongTest.PingPongServer) call(call);
+        }
+        catch (Throwable t) {
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            if (t instanceof rmi.RMIException) throw (rmi.RMIException) t;
+            throw new java.lang.reflect.UndeclaredThrowableException(t);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package PingPongTest;
+
+/** Skeleton dispatcher of {@link PingPongTest.PingPongServer}, generated by rmi.RemoteProcessor. */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public final class PingPongServer_Dispatcher implements rmi.RemoteDispatcher {
+    public static final long FINGERPRINT = -8108992683031924367L;
+
+    @Override
+    public Object dispatch(Object server, int method_id, java.io.DataInput in,
+                           java.io.DataOutputStream reply)
+            throws java.io.IOException, ClassNotFoundException, java.lang.reflect.InvocationTargetException {
+        PingPongTest.PingPongServer target = (PingPongTest.PingPongServer) server;
+        switch (method_id) {
+            case 0: {
+                rmi.Protocol.expectArguments(in, 1);
+                int a0 = rmi.Codec.readInt(in);
+                try {
+                    return target.ping(a0);
+                }
+                catch (Throwable t) {
+                    throw new java.lang.reflect.InvocationTargetException(t);
+                }
+            }
+            default:
+                throw new java.io.IOException("Unknown Method ID " + method_id);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package PingPongTest;
+
+/** Stub of {@link PingPongTest.PingPongServer}, generated by rmi.RemoteProcessor. */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public final class PingPongServer_Stub extends rmi.GeneratedStub implements PingPongTest.PingPongServer {
+    private static final long serialVersionUID = 1L;
+
+    public static final long FINGERPRINT = -8108992683031924367L;
+
+    public PingPongServer_Stub(rmi.StubInvocationHandler handler) {
+        super(handler);
+    }
+
+    @Override
+    public java.lang.String ping(int a0) throws rmi.RMIException {
+        rmi.CallWriter call;
+        try {
+            call = newCall(0, 1);
+            rmi.Codec.writeInt(call, a0);
+        }
+        catch (java.io.IOException e) {
+            throw new rmi.RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+        try {
+            return (java.lang.String) call(call);
+        }
+        catch (Throwable t) {
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            if (t instanceof rmi.RMIException) throw (rmi.RMIException) t;
+            throw new java.lang.reflect.UndeclaredThrowableException(t);
+        }
+    }
+}
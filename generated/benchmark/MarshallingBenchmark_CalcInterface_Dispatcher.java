@@ -0,0 +1,32 @@
+package benchmark;
+
+/** Skeleton dispatcher of {@link benchmark.MarshallingBenchmark.CalcInterface}, generated by rmi.RemoteProcessor. */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public final class MarshallingBenchmark_CalcInterface_Dispatcher implements rmi.RemoteDispatcher {
+    public static final long FINGERPRINT = 192062764793782278L;
+
+    @Override
+    public Object dispatch(Object server, int method_id, java.io.DataInput in,
+                           java.io.DataOutputStream reply)
+            throws java.io.IOException, ClassNotFoundException, java.lang.reflect.InvocationTargetException {
+        benchmark.MarshallingBenchmark.CalcInterface target = (benchmark.MarshallingBenchmark.CalcInterface) server;
+        switch (method_id) {
+            case 0: {
+                rmi.Protocol.expectArguments(in, 2);
+                int a0 = rmi.Codec.readInt(in);
+                long a1 = rmi.Codec.readLong(in);
+                long result;
+                try {
+                    result = target.add(a0, a1);
+                }
+                catch (Throwable t) {
+                    throw new java.lang.reflect.InvocationTargetException(t);
+                }
+                rmi.Codec.writeLong(reply, result);
+                return null;
+            }
+            default:
+                throw new java.io.IOException("Unknown Method ID " + method_id);
+        }
+    }
+}
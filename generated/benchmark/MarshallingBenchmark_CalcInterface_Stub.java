@@ -0,0 +1,35 @@
+package benchmark;
+
+/** Stub of {@link benchmark.MarshallingBenchmark.CalcInterface}, generated by rmi.RemoteProcessor. */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public final class MarshallingBenchmark_CalcInterface_Stub extends rmi.GeneratedStub implements benchmark.MarshallingBenchmark.CalcInterface {
+    private static final long serialVersionUID = 1L;
+
+    public static final long FINGERPRINT = 192062764793782278L;
+
+    public MarshallingBenchmark_CalcInterface_Stub(rmi.StubInvocationHandler handler) {
+        super(handler);
+    }
+
+    @Override
+    public long add(int a0, long a1) throws rmi.RMIException {
+        rmi.CallWriter call;
+        try {
+            call = newCall(0, 2);
+            rmi.Codec.writeInt(call, a0);
+            rmi.Codec.writeLong(call, a1);
+        }
+        catch (java.io.IOException e) {
+            throw new rmi.RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+        try {
+            return callLong(call);
+        }
+        catch (Throwable t) {
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            if (t instanceof rmi.RMIException) throw (rmi.RMIException) t;
+            throw new java.lang.reflect.UndeclaredThrowableException(t);
+        }
+    }
+}
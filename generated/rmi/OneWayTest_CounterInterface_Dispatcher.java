@@ -0,0 +1,64 @@
+package rmi;
+
+/** Skeleton dispatcher of {@link rmi.OneWayTest.CounterInterface}, generated by rmi.RemoteProcessor. */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public final class OneWayTest_CounterInterface_Dispatcher implements rmi.RemoteDispatcher {
+    public static final long FINGERPRINT = -2051574250293392666L;
+
+    @Override
+    public Object dispatch(Object server, int method_id, java.io.DataInput in,
+                           java.io.DataOutputStream reply)
+            throws java.io.IOException, ClassNotFoundException, java.lang.reflect.InvocationTargetException {
+        rmi.OneWayTest.CounterInterface target = (rmi.OneWayTest.CounterInterface) server;
+        switch (method_id) {
+            case 0: {
+                rmi.Protocol.expectArguments(in, 1);
+                int a0 = rmi.Codec.readInt(in);
+                try {
+                    target.add(a0);
+                }
+                catch (Throwable t) {
+                    throw new java.lang.reflect.InvocationTargetException(t);
+                }
+                rmi.Codec.writeValue(reply, null);
+                return null;
+            }
+            case 1: {
+                rmi.Protocol.expectArguments(in, 0);
+                try {
+                    target.block();
+                }
+                catch (Throwable t) {
+                    throw new java.lang.reflect.InvocationTargetException(t);
+                }
+                rmi.Codec.writeValue(reply, null);
+                return null;
+            }
+            case 2: {
+                rmi.Protocol.expectArguments(in, 0);
+                try {
+                    target.fail();
+                }
+                catch (Throwable t) {
+                    throw new java.lang.reflect.InvocationTargetException(t);
+                }
+                rmi.Codec.writeValue(reply, null);
+                return null;
+            }
+            case 3: {
+                rmi.Protocol.expectArguments(in, 0);
+                int result;
+                try {
+                    result = target.total();
+                }
+                catch (Throwable t) {
+                    throw new java.lang.reflect.InvocationTargetException(t);
+                }
+                rmi.Codec.writeInt(reply, result);
+                return null;
+            }
+            default:
+                throw new java.io.IOException("Unknown Method ID " + method_id);
+        }
+    }
+}
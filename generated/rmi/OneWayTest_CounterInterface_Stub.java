@@ -0,0 +1,94 @@
+package rmi;
+
+/** Stub of {@link rmi.OneWayTest.CounterInterface}, generated by rmi.RemoteProcessor. */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public final class OneWayTest_CounterInterface_Stub extends rmi.GeneratedStub implements rmi.OneWayTest.CounterInterface {
+    private static final long serialVersionUID = 1L;
+
+    public static final long FINGERPRINT = -2051574250293392666L;
+
+    public OneWayTest_CounterInterface_Stub(rmi.StubInvocationHandler handler) {
+        super(handler);
+    }
+
+    @Override
+    public void add(int a0) throws rmi.RMIException {
+        rmi.CallWriter call;
+        try {
+            call = newCall(0, 1);
+            rmi.Codec.writeInt(call, a0);
+        }
+        catch (java.io.IOException e) {
+            throw new rmi.RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+        try {
+            callOneWay(call);
+        }
+        catch (Throwable t) {
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            if (t instanceof rmi.RMIException) throw (rmi.RMIException) t;
+            throw new java.lang.reflect.UndeclaredThrowableException(t);
+        }
+    }
+
+    @Override
+    public void block() throws rmi.RMIException {
+        rmi.CallWriter call;
+        try {
+            call = newCall(1, 0);
+        }
+        catch (java.io.IOException e) {
+            throw new rmi.RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+        try {
+            callOneWay(call);
+        }
+        catch (Throwable t) {
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            if (t instanceof rmi.RMIException) throw (rmi.RMIException) t;
+            throw new java.lang.reflect.UndeclaredThrowableException(t);
+        }
+    }
+
+    @Override
+    public void fail() throws rmi.RMIException {
+        rmi.CallWriter call;
+        try {
+            call = newCall(2, 0);
+        }
+        catch (java.io.IOException e) {
+            throw new rmi.RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+        try {
+            callOneWay(call);
+        }
+        catch (Throwable t) {
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            if (t instanceof rmi.RMIException) throw (rmi.RMIException) t;
+            throw new java.lang.reflect.UndeclaredThrowableException(t);
+        }
+    }
+
+    @Override
+    public int total() throws rmi.RMIException {
+        rmi.CallWriter call;
+        try {
+            call = newCall(3, 0);
+        }
+        catch (java.io.IOException e) {
+            throw new rmi.RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+        try {
+            return callInt(call);
+        }
+        catch (Throwable t) {
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            if (t instanceof rmi.RMIException) throw (rmi.RMIException) t;
+            throw new java.lang.reflect.UndeclaredThrowableException(t);
+        }
+    }
+}
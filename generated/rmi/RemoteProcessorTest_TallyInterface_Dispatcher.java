@@ -0,0 +1,66 @@
+package rmi;
+
+/** Skeleton dispatcher of {@link rmi.RemoteProcessorTest.TallyInterface}, generated by rmi.RemoteProcessor. */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public final class RemoteProcessorTest_TallyInterface_Dispatcher implements rmi.RemoteDispatcher {
+    public static final long FINGERPRINT = 5745667713547531484L;
+
+    @Override
+    public Object dispatch(Object server, int method_id, java.io.DataInput in,
+                           java.io.DataOutputStream reply)
+            throws java.io.IOException, ClassNotFoundException, java.lang.reflect.InvocationTargetException {
+        rmi.RemoteProcessorTest.TallyInterface target = (rmi.RemoteProcessorTest.TallyInterface) server;
+        switch (method_id) {
+            case 0: {
+                rmi.Protocol.expectArguments(in, 2);
+                java.lang.String a0 = (java.lang.String) rmi.Codec.readValue(in);
+                char a1 = rmi.Codec.readChar(in);
+                try {
+                    return target.add(a0, a1);
+                }
+                catch (Throwable t) {
+                    throw new java.lang.reflect.InvocationTargetException(t);
+                }
+            }
+            case 1: {
+                rmi.Protocol.expectArguments(in, 3);
+                long a0 = rmi.Codec.readLong(in);
+                int a1 = rmi.Codec.readInt(in);
+                double a2 = rmi.Codec.readDouble(in);
+                long result;
+                try {
+                    result = target.add(a0, a1, a2);
+                }
+                catch (Throwable t) {
+                    throw new java.lang.reflect.InvocationTargetException(t);
+                }
+                rmi.Codec.writeLong(reply, result);
+                return null;
+            }
+            case 2: {
+                rmi.Protocol.expectArguments(in, 1);
+                boolean a0 = rmi.Codec.readBoolean(in);
+                try {
+                    target.reset(a0);
+                }
+                catch (Throwable t) {
+                    throw new java.lang.reflect.InvocationTargetException(t);
+                }
+                rmi.Codec.writeValue(reply, null);
+                return null;
+            }
+            case 3: {
+                rmi.Protocol.expectArguments(in, 1);
+                int[] a0 = (int[]) rmi.Codec.readValue(in);
+                try {
+                    return target.reverse(a0);
+                }
+                catch (Throwable t) {
+                    throw new java.lang.reflect.InvocationTargetException(t);
+                }
+            }
+            default:
+                throw new java.io.IOException("Unknown Method ID " + method_id);
+        }
+    }
+}
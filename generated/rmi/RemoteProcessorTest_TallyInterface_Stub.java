@@ -0,0 +1,101 @@
+package rmi;
+
+/** Stub of {@link rmi.RemoteProcessorTest.TallyInterface}, generated by rmi.RemoteProcessor. */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public final class RemoteProcessorTest_TallyInterface_Stub extends rmi.GeneratedStub implements rmi.RemoteProcessorTest.TallyInterface {
+    private static final long serialVersionUID = 1L;
+
+    public static final long FINGERPRINT = 5745667713547531484L;
+
+    public RemoteProcessorTest_TallyInterface_Stub(rmi.StubInvocationHandler handler) {
+        super(handler);
+    }
+
+    @Override
+    public java.lang.String add(java.lang.String a0, char a1) throws rmi.RMIException {
+        rmi.CallWriter call;
+        try {
+            call = newCall(0, 2);
+            rmi.Codec.writeValue(call, a0);
+            rmi.Codec.writeChar(call, a1);
+        }
+        catch (java.io.IOException e) {
+            throw new rmi.RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+        try {
+            return (java.lang.String) call(call);
+        }
+        catch (Throwable t) {
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            if (t instanceof rmi.RMIException) throw (rmi.RMIException) t;
+            throw new java.lang.reflect.UndeclaredThrowableException(t);
+        }
+    }
+
+    @Override
+    public long add(long a0, int a1, double a2) throws rmi.RMIException {
+        rmi.CallWriter call;
+        try {
+            call = newCall(1, 3);
+            rmi.Codec.writeLong(call, a0);
+            rmi.Codec.writeInt(call, a1);
+            rmi.Codec.writeDouble(call, a2);
+        }
+        catch (java.io.IOException e) {
+            throw new rmi.RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+        try {
+            return callLong(call);
+        }
+        catch (Throwable t) {
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            if (t instanceof rmi.RMIException) throw (rmi.RMIException) t;
+            throw new java.lang.reflect.UndeclaredThrowableException(t);
+        }
+    }
+
+    @Override
+    public void reset(boolean a0) throws rmi.RMIException, java.io.FileNotFoundException {
+        rmi.CallWriter call;
+        try {
+            call = newCall(2, 1);
+            rmi.Codec.writeBoolean(call, a0);
+        }
+        catch (java.io.IOException e) {
+            throw new rmi.RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+        try {
+            callVoid(call);
+        }
+        catch (Throwable t) {
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            if (t instanceof rmi.RMIException) throw (rmi.RMIException) t;
+            if (t instanceof java.io.FileNotFoundException) throw (java.io.FileNotFoundException) t;
+            throw new java.lang.reflect.UndeclaredThrowableException(t);
+        }
+    }
+
+    @Override
+    public int[] reverse(int[] a0) throws rmi.RMIException {
+        rmi.CallWriter call;
+        try {
+            call = newCall(3, 1);
+            rmi.Codec.writeValue(call, a0);
+        }
+        catch (java.io.IOException e) {
+            throw new rmi.RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+        try {
+            return (int[]) call(call);
+        }
+        catch (Throwable t) {
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            if (t instanceof rmi.RMIException) throw (rmi.RMIException) t;
+            throw new java.lang.reflect.UndeclaredThrowableException(t);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package rmi;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * AsyncStub is the asynchronous view of a stub: every remote method can be called without waiting for its result,
+ * which is delivered by a 'CompletableFuture' (see 'StubInvocationHandler.callAsync'). Any number of calls may be
+ * outstanding from one thread; they share the pooled connections of the synchronous stubs.
+ *
+ * A call is described by calling the remote method on the stub passed to a 'Call', e.g.
+ *      CompletableFuture<String> reply = Stub.createAsync(PingPongServer.class, address).call(s -> s.ping(4));
+ * That stub only records which method is called with which arguments (it returns 0, false or null), and the call
+ * is then sent by the AsyncStub. Remote exceptions complete the future exceptionally with the exception raised by
+ * the remote method itself, other failures with an RMIException, as for synchronous calls.
+ * A call returning a remote interface can instead be pipelined (see 'pipeline'), e.g.
+ *      PingPongServer server = AsyncStub.of(factory).pipeline(f -> f.makePingPongServer());
+ *      server.ping(1);
+ * sends both calls at once, without waiting for 'makePingPongServer' to return.
+ */
+public class AsyncStub<T> {
+    /**
+     * Description of an asynchronous call: must call exactly one method of the recording stub 'stub'
+     */
+    public interface Call<T, R> {
+        R invoke(T stub) throws Throwable;
+    }
+
+    /* Method and Arguments Recorded on this Thread by the Current 'call' (or 'CallBatch.add') */
+    static class Recording {
+        Method method;
+        Object[] args;
+        int count; //Number of Remote Methods Called
+    }
+
+    private static final ThreadLocal<Recording> recording = new ThreadLocal<Recording>();
+
+    private final StubInvocationHandler<T> handler;
+
+    private final T recorder; //Proxy Filling the Current Thread's Recording
+
+    @SuppressWarnings("unchecked")
+    private AsyncStub(StubInvocationHandler<T> handler){
+        this.handler = handler;
+        this.recorder = (T) Proxy.newProxyInstance(handler.getRemote_interface_class().getClassLoader(),
+                new Class<?>[]{handler.getRemote_interface_class()}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        Recording current = recording.get();
+                        if(current == null || method.getDeclaringClass() == Object.class){
+                            throw new IllegalStateException("Recording Stub Used Outside of an Asynchronous Call");
+                        }
+                        current.method = method;
+                        current.args = args;
+                        current.count++;
+                        Class<?> return_type = method.getReturnType();
+                        if(return_type.isPrimitive() && return_type != void.class){
+                            /* Zero of the Primitive Type */
+                            return Array.get(Array.newInstance(return_type, 1), 0);
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * Return the asynchronous view of a stub (proxy or generated class, see 'Stub.create')
+     * @throws IllegalArgumentException if 'stub' is not a stub
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> AsyncStub<T> of(T stub) throws IllegalArgumentException {
+        if(stub == null){
+            throw new NullPointerException("Null Stub!");
+        }
+        return new AsyncStub<T>((StubInvocationHandler<T>) StubInvocationHandler.of(stub));
+    }
+
+    public Class<T> getRemote_interface_class(){
+        return handler.getRemote_interface_class();
+    }
+
+    StubInvocationHandler<T> getHandler(){
+        return handler;
+    }
+
+    /**
+     * Send the remote method call described by 'call', without waiting for its result
+     * @return a future completed with the return value of the remote method (boxed if primitive, null if void)
+     * @throws IllegalArgumentException if 'call' does not call exactly one remote method of its stub
+     */
+    @SuppressWarnings("unchecked")
+    public <R> CompletableFuture<R> call(Call<T, R> call) throws IllegalArgumentException {
+        Recording recorded = record(call);
+        return (CompletableFuture<R>) call(recorded.method, recorded.args);
+    }
+
+    /**
+     * Send the remote method call described by 'call', of a method returning a remote interface, without waiting for
+     * its result
+     * @return a promise stub of the remote object the method will return (see 'PromiseStub'): calls made on it before
+     *         that object is returned are sent at once, and run by the Skeleton as soon as it is returned
+     * @throws IllegalArgumentException if 'call' does not call exactly one remote method of its stub, or if that
+     *                                  method does not return a remote interface
+     * @throws RMIException if the call could not be sent
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R pipeline(Call<T, R> call) throws IllegalArgumentException, RMIException {
+        Recording recorded = record(call);
+        Class<?> return_type = recorded.method.getReturnType();
+        if(!Stub.isRemoteInterface(return_type)){
+            throw new IllegalArgumentException("Only Calls Returning a Remote Interface can be Pipelined, not "
+                    +recorded.method);
+        }
+        int method_id = MethodTable.of(handler.getRemote_interface_class()).idOf(recorded.method);
+        return (R) PromiseStub.create(handler, method_id, recorded.args, return_type);
+    }
+
+    /**
+     * Record the remote method call described by 'call', without sending it
+     * @throws IllegalArgumentException if 'call' does not call exactly one remote method of its stub
+     */
+    Recording record(Call<T, ?> call) throws IllegalArgumentException {
+        Recording current = new Recording();
+        Recording outer = recording.get();
+        recording.set(current);
+        try{
+            call.invoke(recorder);
+        }
+        catch (Throwable t){
+            throw new IllegalArgumentException("Asynchronous Call Failed while Being Recorded", t);
+        }
+        finally {
+            recording.set(outer);
+        }
+        if(current.count != 1){
+            throw new IllegalArgumentException("An Asynchronous Call Must Call Exactly One Remote Method, not "
+                    +current.count);
+        }
+        return current;
+    }
+
+    /**
+     * Send a call of 'method' (a method of the remote interface) with the given arguments, without waiting for its
+     * result
+     * @return a future completed with the return value of the remote method (boxed if primitive, null if void)
+     * @throws IllegalArgumentException if 'method' is not a method of the remote interface
+     */
+    public CompletableFuture<Object> call(Method method, Object... args) throws IllegalArgumentException {
+        int method_id = MethodTable.of(handler.getRemote_interface_class()).idOf(method);
+        if(method_id < 0){
+            throw new IllegalArgumentException("Not a Method of "+handler.getRemote_interface_class().getName()
+                    +": "+method);
+        }
+        return handler.callAsync(method_id, args);
+    }
+
+    @Override
+    public String toString(){
+        return "Asynchronous "+handler.toString();
+    }
+}
@@ -0,0 +1,119 @@
+package rmi;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BatchTask serves calls of a BATCH frame (see 'Protocol'): all of them in order, or, when the Skeleton runs the
+ * calls of a batch in parallel (see 'SkeletonConfig.BatchExecution'), a single one of them.
+ * The tasks of one batch share its replies, and the task answering the last call sends them all back in one REPLY.
+ * Each task is admitted by the Skeleton like a single call: refused (or shed) tasks answer their calls with the error.
+ * Batched calls are admitted by the compartments of their methods (see 'Bulkhead') too: a task serving a single call
+ * as that call, and a task serving several calls in order each of them just before it runs, without waiting in the
+ * compartment's queue. A refused call gets the 'OverloadException' as its reply, the other calls are served.
+ */
+public class BatchTask<T> extends CallTask<T> {
+    private final byte[][] calls; //Encoded Calls of the Whole Batch
+
+    private final byte[][] replies; //Encoded Replies, Filled in by the Tasks of the Batch
+
+    private final AtomicInteger unanswered; //Calls of the Batch not Answered Yet
+
+    private final int from; //Calls Served by this Task: 'from' to 'to' - 1
+
+    private final int to;
+
+    private BatchTask(Skeleton<T> skeleton, ServerConnection connection, Frame frame, byte[][] calls, byte[][] replies,
+                      AtomicInteger unanswered, int from, int to){
+        super(skeleton, connection, frame);
+        this.calls = calls;
+        this.replies = replies;
+        this.unanswered = unanswered;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Hand the calls of a BATCH frame to the Skeleton, as one task or as one task per call.
+     * The frame counts as one call of its connection, ended once the batch has been answered.
+     */
+    public static <T> void dispatch(Skeleton<T> skeleton, ServerConnection connection, Frame frame){
+        byte[][] calls;
+        try{
+            calls = Protocol.readBodies(Protocol.openBody(frame.body));
+        }
+        catch (IOException e){
+                /* Only this Batch Fails */
+            RMIException error = new RMIException("Malformed Batch", e);
+            skeleton.service_error(error);
+            new CallTask<T>(skeleton, connection, frame).reject(error);
+            return;
+        }
+        byte[][] replies = new byte[calls.length][];
+        AtomicInteger unanswered = new AtomicInteger(calls.length);
+        if(calls.length <= 1 || skeleton.getConfig().getBatch_execution() == SkeletonConfig.BatchExecution.SEQUENTIAL){
+            skeleton.dispatch(new BatchTask<T>(skeleton, connection, frame, calls, replies, unanswered, 0, calls.length));
+            return;
+        }
+        for(int i = 0; i < calls.length; i++){
+            skeleton.dispatch(new BatchTask<T>(skeleton, connection, frame, calls, replies, unanswered, i, i + 1));
+        }
+    }
+
+    /* The Tasks of a Batch Share its Call ID: a Batch Cannot be Cancelled */
+    @Override
+    protected void track(){
+    }
+
+    /* A Task of One Call is Admitted as that Call, a Task of Several Calls Admits Each One when it Runs it */
+    @Override
+    protected Compartment compartment(){
+        return to - from == 1 ? compartmentOf(calls[from]) : null;
+    }
+
+    @Override
+    protected String describe(){
+        return "Batch of "+(to - from)+" Calls";
+    }
+
+    @Override
+    protected CallTask<?> serve(){
+        begin();
+        try{
+            for(int i = from; i < to; i++){
+                replies[i] = to - from == 1 ? answer(calls[i]) : answerAdmitted(calls[i]);
+            }
+            answered();
+        }
+        finally {
+            end();
+        }
+        return leave();
+    }
+
+    @Override
+    public void reject(RMIException error){
+        byte[] reply_body = errorReply(error);
+        for(int i = from; i < to; i++){
+            replies[i] = reply_body;
+        }
+        answered();
+            /* Refused by the Call Executor after its Compartment Admitted it */
+        leaveAndDispatch();
+    }
+
+    /* The Task Answering the Last Call of the Batch Sends the Replies (the Atomic Update Publishes Them) */
+    private void answered(){
+        if(unanswered.addAndGet(from - to) != 0){
+            return;
+        }
+        byte[] reply_body;
+        try{
+            reply_body = Protocol.encodeBatchReply(replies);
+        }
+        catch (IOException e){
+            reply_body = errorReply(new RMIException("Batch Reply Cannot be Encoded", e));
+        }
+        finish(reply_body);
+    }
+}
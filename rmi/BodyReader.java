@@ -0,0 +1,146 @@
+package rmi;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * BodyReader reads the body of a received frame (see 'Protocol.openBody'), in the same big-endian format as
+ * 'DataInputStream', directly from the body's array.
+ * A DataInputStream (with the ByteArrayInputStream under it) allocates several buffers whether they are used or
+ * not, for every call and every reply; a BodyReader is a single small object, so decoding a call or a reply made of
+ * primitive values allocates nothing else.
+ */
+public class BodyReader extends InputStream implements DataInput {
+    private final byte[] body;
+
+    private int position; //Index of the Next Byte to Read
+
+    public BodyReader(byte[] body){
+        this.body = body;
+    }
+
+    /* Check 'count' More Bytes can be Read, Return the Position of the First One */
+    private int take(int count) throws EOFException {
+        if(body.length - position < count){
+            position = body.length;
+            throw new EOFException("End of Frame Body");
+        }
+        int start = position;
+        position += count;
+        return start;
+    }
+
+    @Override
+    public int read(){
+        return position < body.length ? body[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len){
+        if(len == 0){
+            return 0;
+        }
+        if(position >= body.length){
+            return -1;
+        }
+        int count = Math.min(len, body.length - position);
+        System.arraycopy(body, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available(){
+        return body.length - position;
+    }
+
+    @Override
+    public long skip(long n){
+        long count = Math.max(0, Math.min(n, body.length - position));
+        position += (int) count;
+        return count;
+    }
+
+    @Override
+    public void readFully(byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        System.arraycopy(body, take(len), b, off, len);
+    }
+
+    @Override
+    public int skipBytes(int n){
+        return (int) skip(n);
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return body[take(1)] != 0;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        return body[take(1)];
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return body[take(1)] & 0xFF;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        int i = take(2);
+        return (short) ((body[i] << 8) | (body[i + 1] & 0xFF));
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return readShort() & 0xFFFF;
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        return (char) readShort();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        int i = take(4);
+        return (body[i] << 24) | ((body[i + 1] & 0xFF) << 16) | ((body[i + 2] & 0xFF) << 8) | (body[i + 3] & 0xFF);
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    /**
+     * Not Part of the Protocol (Lines are not Encoded by 'Codec')
+     */
+    @Override
+    public String readLine(){
+        throw new UnsupportedOperationException("Frame Bodies do not Contain Lines");
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return DataInputStream.readUTF(this);
+    }
+}
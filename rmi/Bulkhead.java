@@ -0,0 +1,46 @@
+package rmi;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/** Limits how many calls of a remote method a skeleton runs at once.
+
+    <p>
+    A skeleton runs at most <code>limit</code> calls of the method at a time.
+    Further calls wait, in order, in a queue of <code>queue_capacity</code>
+    calls of their own, without holding one of the skeleton's workers; once
+    that queue is full too, calls are refused with an
+    <code>OverloadException</code>. An expensive method can therefore not take
+    every worker from the other methods of the interface.
+
+    <p>
+    Methods naming the same <code>group</code> share one limit and one queue,
+    across all the interfaces a skeleton serves; they must declare the same
+    limits (the first method read sets them). Without a group, overloaded
+    methods of one name share their limit. Each group counts the calls it
+    refused (see <code>Skeleton.getCompartment</code>).
+
+    <p>
+    The annotation only concerns the skeleton, and is not part of the
+    interface's method table: stubs ignore it. Calls sent in a batch are
+    admitted one by one: those of a batch run in parallel like single calls,
+    those of a batch run in order just before each runs, refused rather than
+    queued when the limit is reached (the batch already holds a worker).
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Bulkhead
+{
+    /** Number of calls of the method (or group) run at once. */
+    int limit();
+
+    /** Number of calls waiting for one of the running calls to return. */
+    int queue_capacity() default 0;
+
+    /** Name of the group sharing the limit, the method's own if empty. */
+    String group() default "";
+}
@@ -0,0 +1,37 @@
+package rmi;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/** Marks an idempotent remote method whose results stubs may reuse.
+
+    <p>
+    A stub keeps the reply to a successful call of the method for
+    <code>ttl</code> milliseconds, and serves later calls with equal arguments
+    (compared in their encoded form) from it instead of calling the skeleton.
+    Each call decodes the kept reply again, so callers never share a returned
+    object. Calls raising an exception are not kept.
+
+    <p>
+    Replies are kept in the <code>ResultCache</code> of the skeleton's address,
+    shared by every stub connecting to it, which holds a bounded number of
+    replies and drops the least recently used ones first. The cache counts its
+    hits and misses, and may be cleared explicitly when the caller knows a
+    result has changed.
+
+    <p>
+    The annotation only concerns stubs, and is not part of the interface's
+    method table: skeletons ignore it. It is ignored on <code>void</code>
+    methods, and on calls sent in a batch.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Cacheable
+{
+    /** Time a reply is reused for, in milliseconds. */
+    long ttl();
+}
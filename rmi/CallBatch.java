@@ -0,0 +1,130 @@
+package rmi;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * CallBatch records calls of a stub's remote methods and sends them to the Skeleton in one frame, so that they cost
+ * one round trip instead of one each (see 'Protocol'). The Skeleton runs them one after the other or in parallel,
+ * as set by its 'SkeletonConfig.BatchExecution', and answers all of them in one reply.
+ *
+ * Calls are described as for 'AsyncStub.call', e.g.
+ *      CallBatch<PingPongServer> batch = CallBatch.of(stub);
+ *      CompletableFuture<String> first = batch.add(s -> s.ping(1));
+ *      CompletableFuture<String> second = batch.add(s -> s.ping(2));
+ *      batch.send();
+ * 'send' completes the future of every call with its own result, or with the exception it raised, before returning.
+ * If the batch fails as a whole (e.g. the connection broke), 'send' throws the RMIException, which also fails every
+ * future. A CallBatch is not thread-safe; once sent it is empty, and may record the next batch.
+ */
+public class CallBatch<T> {
+    private final AsyncStub<T> recorder; //Records the Calls, as for Asynchronous Calls
+
+    private final List<byte[]> calls = new ArrayList<byte[]>(); //Encoded Calls not Sent Yet
+
+    private final List<CompletableFuture<Object>> results = new ArrayList<CompletableFuture<Object>>();
+
+    private CallBatch(AsyncStub<T> recorder){
+        this.recorder = recorder;
+    }
+
+    /**
+     * Return an empty batch of calls of a stub (proxy or generated class, see 'Stub.create')
+     * @throws IllegalArgumentException if 'stub' is not a stub
+     */
+    public static <T> CallBatch<T> of(T stub) throws IllegalArgumentException {
+        return new CallBatch<T>(AsyncStub.of(stub));
+    }
+
+    public Class<T> getRemote_interface_class(){
+        return recorder.getRemote_interface_class();
+    }
+
+    /**
+     * Add the remote method call described by 'call' to the batch
+     * @return a future completed by 'send' with the return value of the remote method (boxed if primitive,
+     *         null if void)
+     * @throws IllegalArgumentException if 'call' does not call exactly one remote method of its stub
+     */
+    @SuppressWarnings("unchecked")
+    public <R> CompletableFuture<R> add(AsyncStub.Call<T, R> call) throws IllegalArgumentException {
+        AsyncStub.Recording recorded = recorder.record(call);
+        return (CompletableFuture<R>) add(recorded.method, recorded.args);
+    }
+
+    /**
+     * Add a call of 'method' (a method of the remote interface) with the given arguments to the batch
+     * @return a future completed by 'send' with the return value of the remote method (boxed if primitive,
+     *         null if void)
+     * @throws IllegalArgumentException if 'method' is not a method of the remote interface
+     */
+    public CompletableFuture<Object> add(Method method, Object... args) throws IllegalArgumentException {
+        int method_id = MethodTable.of(getRemote_interface_class()).idOf(method);
+        if(method_id < 0){
+            throw new IllegalArgumentException("Not a Method of "+getRemote_interface_class().getName()+": "+method);
+        }
+        CompletableFuture<Object> result = new CompletableFuture<Object>();
+        try{
+            calls.add(Protocol.encodeCall(recorder.getHandler().getObject_id(), method_id, args));
+            results.add(result);
+        }
+        catch (IOException e){
+                /* Only this Call Fails, it is not Sent */
+            result.completeExceptionally(new RMIException("Failed to Write Objects to Skeleton Server!", e));
+        }
+        return result;
+    }
+
+    /**
+     * Return the number of calls recorded and not sent yet
+     */
+    public int size(){
+        return calls.size();
+    }
+
+    /**
+     * Send the recorded calls in one batch, and wait for the reply to all of them.
+     * Every call's future is completed before this method returns, and the batch is emptied.
+     * @throws RMIException if the batch failed as a whole
+     */
+    public void send() throws RMIException {
+        if(calls.isEmpty()){
+            return;
+        }
+        byte[][] sent = calls.toArray(new byte[0][]);
+        List<CompletableFuture<Object>> pending = new ArrayList<CompletableFuture<Object>>(results);
+        calls.clear();
+        results.clear();
+
+        byte[][] replies;
+        try{
+            replies = recorder.getHandler().callBatch(sent);
+            if(replies.length != sent.length){
+                throw new RMIException("Batch of "+sent.length+" Calls Answered with "+replies.length+" Replies");
+            }
+        }
+        catch (RMIException e){
+            for(CompletableFuture<Object> result : pending){
+                result.completeExceptionally(e);
+            }
+            throw e;
+        }
+        for(int i = 0; i < replies.length; i++){
+            try{
+                pending.get(i).complete(StubInvocationHandler.result(replies[i]));
+            }
+            catch (Throwable t){
+                    /* Raised by the Remote Method, or RMIException */
+                pending.get(i).completeExceptionally(t);
+            }
+        }
+    }
+
+    @Override
+    public String toString(){
+        return "Batch of "+calls.size()+" Calls, "+recorder.getHandler().toString();
+    }
+}
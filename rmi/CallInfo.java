@@ -0,0 +1,57 @@
+package rmi;
+
+import java.net.InetSocketAddress;
+
+/**
+ * CallInfo describes one call running on a Skeleton when a snapshot of its calls was taken (see 'CallRegistry'):
+ * the method called, the client which called it, and how long it has been running.
+ */
+public class CallInfo {
+    private final String method; //'Interface.method', or a Description of a Batch
+
+    private final InetSocketAddress caller; //Remote Address of the Client's Connection
+
+    private final long start_time; //Time(ms) the Call Started Running
+
+    private final long elapsed; //Time(ms) it had been Running for when the Snapshot was Taken
+
+    CallInfo(String method, InetSocketAddress caller, long start_time, long elapsed){
+        this.method = method;
+        this.caller = caller;
+        this.start_time = start_time;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Return the method called, named 'Interface.method' (or the number of calls, for a batch)
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Return the address of the client which made the call, as seen by the Skeleton
+     */
+    public InetSocketAddress getCaller() {
+        return caller;
+    }
+
+    /**
+     * Return the time(ms) the call started running
+     */
+    public long getStart_time() {
+        return start_time;
+    }
+
+    /**
+     * Return the time(ms) the call had been running for when the snapshot was taken
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return method+" from "+caller+", Running for "+elapsed+" ms";
+    }
+}
@@ -0,0 +1,84 @@
+package rmi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CallRegistry holds the calls running on a Skeleton's workers, from the time a worker starts a call until its
+ * reply has been sent, so that calls stuck in their server methods can be found (see 'snapshot').
+ * Workers register and unregister calls without locking: the calls are kept in a concurrent set, and counted by
+ * striped counters, so that workers do not contend on the registry.
+ */
+public class CallRegistry {
+    private final Set<CallTask<?>> running = ConcurrentHashMap.<CallTask<?>>newKeySet();
+
+    /* Calls Started / Ended Since the Skeleton was Created */
+    private final LongAdder started_calls = new LongAdder();
+    private final LongAdder ended_calls = new LongAdder();
+
+    /* Longest Running First */
+    private static final Comparator<CallInfo> OLDEST_FIRST = new Comparator<CallInfo>() {
+        @Override
+        public int compare(CallInfo a, CallInfo b) {
+            return Long.compare(a.getStart_time(), b.getStart_time());
+        }
+    };
+
+    /**
+     * Register a call a worker starts running
+     */
+    void register(CallTask<?> task){
+        running.add(task);
+        started_calls.increment();
+    }
+
+    /**
+     * Unregister a call once it has ended
+     */
+    void unregister(CallTask<?> task){
+        if(running.remove(task)){
+            ended_calls.increment();
+        }
+    }
+
+    /**
+     * Return the number of calls running
+     */
+    public int getRunning_calls(){
+        return running.size();
+    }
+
+    /**
+     * Return the number of calls which started running since the Skeleton was created
+     */
+    public long getStarted_calls(){
+        return started_calls.sum();
+    }
+
+    /**
+     * Return the number of calls which ended since the Skeleton was created
+     */
+    public long getEnded_calls(){
+        return ended_calls.sum();
+    }
+
+    /**
+     * Describe the calls running now, the longest running first.
+     * The snapshot is weakly consistent: calls starting or ending while it is taken may be left out
+     */
+    public List<CallInfo> snapshot(){
+        long now = System.currentTimeMillis();
+        List<CallInfo> calls = new ArrayList<CallInfo>();
+        for(CallTask<?> task : running){
+            long start_time = task.getStart_time();
+            calls.add(new CallInfo(task.describe(), task.getCaller(), start_time, Math.max(0, now - start_time)));
+        }
+        Collections.sort(calls, OLDEST_FIRST);
+        return calls;
+    }
+}
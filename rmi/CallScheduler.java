@@ -0,0 +1,463 @@
+package rmi;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * CallScheduler is the queue of the calls waiting for a worker of the Skeleton's call executor.
+ * Calls are taken by priority class (see 'Priority'): a call is only taken once no call of a higher class waits,
+ * so a steady flow of interactive calls holds bulk ones back. Within a class, the call with the earliest deadline
+ * (see 'Deadline') is taken first, calls without a deadline after those with one, and calls alike in arrival order.
+ * Tasks other than calls (see 'CallTask') are queued as NORMAL calls without a deadline.
+ *
+ * The queue holds at most 'capacity' calls of all classes together, beyond which the Skeleton's overload policy
+ * applies. For each class, it counts the calls waiting, the calls taken, and the time these waited.
+ */
+public class CallScheduler extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+    private final int capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition not_empty = lock.newCondition();
+    private final Condition not_full = lock.newCondition();
+
+    /* Waiting Calls of each Priority Class, by Ordinal, Guarded by 'lock' */
+    private final List<PriorityQueue<Entry>> queues = new ArrayList<PriorityQueue<Entry>>();
+
+    private int count; //Calls Waiting in All Classes, Guarded by 'lock'
+
+    private long sequence; //Arrival Order of the Next Call, Guarded by 'lock'
+
+    /* Per Class Counters, by Ordinal, Guarded by 'lock' */
+    private final long[] scheduled_calls; //Calls Taken by a Worker
+    private final long[] total_wait; //Time(ns) the Calls Taken Waited
+    private final long[] max_wait; //Longest Time(ns) a Call Taken Waited
+
+    /* Earliest Deadline First, then First Come First Served */
+    private static final Comparator<Entry> URGENCY = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            if(a.deadline != b.deadline){
+                return a.deadline < b.deadline ? -1 : 1;
+            }
+            return Long.compare(a.sequence, b.sequence);
+        }
+    };
+
+    /* One Waiting Call */
+    private static class Entry {
+        final Runnable task;
+        final int priority; //Ordinal of its Class
+        final long deadline; //Time(ms) its Client Stops Waiting, Long.MAX_VALUE for None
+        final long sequence;
+        final long enqueued; //System.nanoTime() when Queued
+
+        Entry(Runnable task, long sequence){
+            this.task = task;
+            Priority priority = Priority.NORMAL;
+            long deadline = 0;
+            if(task instanceof CallTask){
+                priority = ((CallTask<?>) task).getPriority();
+                deadline = ((CallTask<?>) task).getDeadline();
+            }
+            this.priority = priority.ordinal();
+            this.deadline = deadline == 0 ? Long.MAX_VALUE : deadline;
+            this.sequence = sequence;
+            this.enqueued = System.nanoTime();
+        }
+    }
+
+    /**
+     * Create an empty scheduler holding at most 'capacity' calls
+     * @throws IllegalArgumentException if 'capacity' is not positive
+     */
+    public CallScheduler(int capacity){
+        if(capacity <= 0){
+            throw new IllegalArgumentException("Capacity must be Positive");
+        }
+        this.capacity = capacity;
+        int classes = Priority.values().length;
+        for(int i = 0; i < classes; i++){
+            queues.add(new PriorityQueue<Entry>(11, URGENCY));
+        }
+        scheduled_calls = new long[classes];
+        total_wait = new long[classes];
+        max_wait = new long[classes];
+    }
+
+    /* -------- Metrics -------- */
+
+    /**
+     * Return the number of calls of a priority class waiting for a worker
+     */
+    public int getQueued(Priority priority){
+        lock.lock();
+        try{
+            return queues.get(priority.ordinal()).size();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the number of calls of a priority class taken by a worker since the Skeleton was started
+     */
+    public long getScheduled_calls(Priority priority){
+        lock.lock();
+        try{
+            return scheduled_calls[priority.ordinal()];
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the mean time(ms) the calls of a priority class taken by a worker waited for it, 0 if none was taken
+     */
+    public double getMean_wait(Priority priority){
+        lock.lock();
+        try{
+            long calls = scheduled_calls[priority.ordinal()];
+            return calls == 0 ? 0 : total_wait[priority.ordinal()] / 1e6 / calls;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the longest time(ms) a call of a priority class taken by a worker waited for it
+     */
+    public double getMax_wait(Priority priority){
+        lock.lock();
+        try{
+            return max_wait[priority.ordinal()] / 1e6;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /* -------- Queue -------- */
+
+    /* Queue a Call, the Caller Holds 'lock' and Checked there is Room */
+    private void enqueue(Runnable task){
+        Entry entry = new Entry(task, sequence++);
+        queues.get(entry.priority).add(entry);
+        count++;
+        not_empty.signal();
+    }
+
+    /* Take the Most Urgent Call (Counting its Wait if a Worker Takes it), the Caller Holds 'lock', or null if None */
+    private Runnable dequeue(boolean scheduled){
+        for(PriorityQueue<Entry> queue : queues){
+            Entry entry = queue.poll();
+            if(entry != null){
+                count--;
+                not_full.signal();
+                if(scheduled){
+                    long waited = System.nanoTime() - entry.enqueued;
+                    scheduled_calls[entry.priority]++;
+                    total_wait[entry.priority] += waited;
+                    max_wait[entry.priority] = Math.max(max_wait[entry.priority], waited);
+                }
+                return entry.task;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Take a waiting call out of the queue to make room for 'incoming' (see 'SkeletonConfig.OverloadPolicy'):
+     * the call waiting longest in the lowest priority class waiting, unless that class is higher than the class of
+     * 'incoming', which should then be refused itself
+     * @return the call taken out, or null if none was
+     */
+    public Runnable shed(Runnable incoming){
+        int incoming_priority = new Entry(incoming, 0).priority;
+        lock.lock();
+        try{
+            for(int i = queues.size() - 1; i >= incoming_priority; i--){
+                Entry oldest = null;
+                for(Entry entry : queues.get(i)){
+                    if(oldest == null || entry.sequence < oldest.sequence){
+                        oldest = entry;
+                    }
+                }
+                if(oldest != null){
+                    queues.get(i).remove(oldest);
+                    count--;
+                    not_full.signal();
+                    return oldest.task;
+                }
+            }
+            return null;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable task){
+        if(task == null){
+            throw new NullPointerException("Null Task");
+        }
+        lock.lock();
+        try{
+            if(count == capacity){
+                return false;
+            }
+            enqueue(task);
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        if(task == null){
+            throw new NullPointerException("Null Task");
+        }
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try{
+            while(count == capacity){
+                if(nanos <= 0){
+                    return false;
+                }
+                nanos = not_full.awaitNanos(nanos);
+            }
+            enqueue(task);
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        if(task == null){
+            throw new NullPointerException("Null Task");
+        }
+        lock.lockInterruptibly();
+        try{
+            while(count == capacity){
+                not_full.await();
+            }
+            enqueue(task);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(){
+        lock.lock();
+        try{
+            return dequeue(true);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try{
+            while(count == 0){
+                if(nanos <= 0){
+                    return null;
+                }
+                nanos = not_empty.awaitNanos(nanos);
+            }
+            return dequeue(true);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try{
+            while(count == 0){
+                not_empty.await();
+            }
+            return dequeue(true);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek(){
+        lock.lock();
+        try{
+            for(PriorityQueue<Entry> queue : queues){
+                Entry entry = queue.peek();
+                if(entry != null){
+                    return entry.task;
+                }
+            }
+            return null;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size(){
+        lock.lock();
+        try{
+            return count;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity(){
+        lock.lock();
+        try{
+            return capacity - count;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Take a call out of the queue (it was cancelled by its client, see 'Skeleton.withdraw')
+     */
+    @Override
+    public boolean remove(Object task){
+        lock.lock();
+        try{
+            for(PriorityQueue<Entry> queue : queues){
+                for(Entry entry : queue){
+                    if(entry.task == task){
+                        queue.remove(entry);
+                        count--;
+                        not_full.signal();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Object task){
+        lock.lock();
+        try{
+            for(PriorityQueue<Entry> queue : queues){
+                for(Entry entry : queue){
+                    if(entry.task == task){
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> tasks){
+        return drainTo(tasks, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> tasks, int max){
+        if(tasks == this){
+            throw new IllegalArgumentException("Cannot Drain to Itself");
+        }
+        lock.lock();
+        try{
+            int drained = 0;
+            while(drained < max && count > 0){
+                tasks.add(dequeue(false));
+                drained++;
+            }
+            return drained;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return an iterator over a snapshot of the waiting calls, in no particular order;
+     * its 'remove' takes a call out of the queue if it is still waiting
+     */
+    @Override
+    public Iterator<Runnable> iterator(){
+        final List<Runnable> snapshot = new ArrayList<Runnable>();
+        lock.lock();
+        try{
+            for(PriorityQueue<Entry> queue : queues){
+                for(Entry entry : queue){
+                    snapshot.add(entry.task);
+                }
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+        return new Iterator<Runnable>() {
+            private int next = 0;
+            private Runnable last;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.size();
+            }
+
+            @Override
+            public Runnable next() {
+                if(next >= snapshot.size()){
+                    throw new NoSuchElementException();
+                }
+                last = snapshot.get(next++);
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if(last == null){
+                    throw new IllegalStateException();
+                }
+                CallScheduler.this.remove(last);
+                last = null;
+            }
+        };
+    }
+}
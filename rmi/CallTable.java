@@ -0,0 +1,37 @@
+package rmi;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CallTable holds the calls of one client connection which its client may still cancel (see 'Protocol'): every
+ * answered call, from the time it is handed to the Skeleton until its reply is sent, by call ID.
+ * Calls are added by the thread reading the connection's frames, before it reads the next one, and removed by the
+ * threads serving them.
+ */
+public class CallTable {
+    private final ConcurrentHashMap<Integer, CallTask<?>> calls = new ConcurrentHashMap<Integer, CallTask<?>>();
+
+    /**
+     * Register a call dispatched to the Skeleton
+     */
+    public void add(int call_id, CallTask<?> task){
+        calls.put(call_id, task);
+    }
+
+    /**
+     * Forget a call once it has been answered (or dropped)
+     */
+    public void remove(int call_id, CallTask<?> task){
+        calls.remove(call_id, task);
+    }
+
+    /**
+     * Cancel the call of a CANCEL frame, if it has not been answered yet
+     */
+    public void cancel(int call_id){
+        CallTask<?> task = calls.get(call_id);
+        if(task != null){
+            task.cancel();
+        }
+    }
+}
@@ -0,0 +1,518 @@
+package rmi;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * CallTask serves one method call read from a client connection, on the Skeleton's call executor:
+ * it calls the correct method on the server Object implementing Remote Interface,
+ * and sends the return value (or exception) back on the connection, tagged with the call's ID.
+ * One-way calls are not answered; an exception they raise is reported as a service error instead.
+ * Remote objects returned by calls are exported by the Skeleton (see 'ExportTable'), and passed back as stubs.
+ * The call of a PROMISE frame also completes its promise (see 'PromiseTable') with the export of the remote object
+ * it returned, or exceptionally if it did not return one.
+ * A call may be cancelled by its client (see 'CallTable'): it is dropped if it has not started running yet, and its
+ * thread is interrupted otherwise. A SCHEDULED call still queued when its client's deadline has passed is dropped too.
+ * Its priority class and deadline also order it among the calls waiting for a worker (see 'CallScheduler').
+ * Dropped and cancelled calls are not answered, the client has stopped waiting for them.
+ * A call of a method with a '@Bulkhead' is admitted by its 'Compartment' before it is handed to the call executor;
+ * once it ends, the worker which ran it runs the next call waiting in the compartment, if any.
+ * While it runs, the call is registered in the Skeleton's 'CallRegistry'.
+ */
+public class CallTask<T> implements Runnable {
+    protected final Skeleton<T> skeleton;
+
+    protected final ServerConnection connection; //Connection the Call was Read From
+
+    protected final Frame frame;
+
+    private final boolean one_way; //ONEWAY Frame: the Client Expects no Reply
+
+    private final CompletableFuture<ExportTable.Export> promise; //Completed by the Call of a PROMISE Frame, Otherwise null
+
+    private final byte[] call; //Encoded Call: the Frame's Body, Without the Header of a SCHEDULED Frame
+
+    private final long deadline; //Time(ms) the Client Stops Waiting for a SCHEDULED Call, 0 for None
+
+    private final Priority priority; //Class of a SCHEDULED Call, NORMAL for Other Calls
+
+    /* A Task is Run, Cancelled while Queued, or Rejected: Whichever Happens First Moves it out of QUEUED */
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+
+    private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+    private Thread runner; //Thread Running the Call, Guarded by the Lock on this Task
+
+    private boolean cancelled; //Cancelled while Running ('runner' Interrupted), Guarded by the Lock on this Task
+
+    private volatile long start_time; //Time(ms) the Call Started Running
+
+    private Compartment compartment; //Admits the Called Method's Calls, Set when Dispatched
+
+    private volatile boolean no_wait; //Refused, Rather than Waited for, when the Queue is Full (see 'Skeleton.dispatchNow')
+
+    /* Compartment whose Permit the Call Holds, Taken Back Once (by 'leave') */
+    private final AtomicReference<Compartment> permit = new AtomicReference<Compartment>();
+
+    public CallTask(Skeleton<T> skeleton, ServerConnection connection, Frame frame){
+        this(skeleton, connection, frame, null);
+    }
+
+    public CallTask(Skeleton<T> skeleton, ServerConnection connection, Frame frame,
+                    CompletableFuture<ExportTable.Export> promise){
+        this.skeleton = skeleton;
+        this.connection = connection;
+        this.frame = frame;
+        this.one_way = frame.type == Protocol.ONEWAY;
+        this.promise = promise;
+        if(frame.type == Protocol.SCHEDULED && frame.body.length >= 5){
+            ByteBuffer header = ByteBuffer.wrap(frame.body);
+            this.priority = Priority.of(header.get());
+                /* Relative Timeout: the Client's Clock is not Trusted */
+            int timeout = header.getInt();
+            this.deadline = timeout < 0 ? 0 : System.currentTimeMillis() + timeout;
+            this.call = Arrays.copyOfRange(frame.body, 5, frame.body.length);
+        }
+        else{
+            this.priority = Priority.NORMAL;
+            this.deadline = 0;
+            this.call = frame.body;
+        }
+    }
+
+    /**
+     * Return the priority class of the call (see 'Priority')
+     */
+    public Priority getPriority(){
+        return priority;
+    }
+
+    /**
+     * Return the time(ms) the call's client stops waiting for it, or 0 if it has no deadline
+     */
+    public long getDeadline(){
+        return deadline;
+    }
+
+    /**
+     * Return true if the call must be refused, rather than waited for, when the call executor's queue is full
+     */
+    public boolean isNo_wait(){
+        return no_wait;
+    }
+
+    /**
+     * Never wait for room in the call executor's queue for this call, whatever the overload policy
+     */
+    protected void setNo_wait(){
+        no_wait = true;
+    }
+
+    /**
+     * Register the call with its connection before it is dispatched, so that its client may cancel it
+     * (one-way calls get no reply, so they cannot be given up)
+     */
+    protected void track(){
+        if(!one_way){
+            connection.getCalls().add(frame.call_id, this);
+        }
+    }
+
+    /**
+     * Admit the call into the compartment of its method, if it has one (see 'Bulkhead')
+     * @return true if the call may be handed to the call executor, false if it waits in the compartment's queue
+     *         or was refused
+     */
+    protected boolean admit(){
+        compartment = compartment();
+        if(compartment == null){
+            return true;
+        }
+        if(!compartment.admit(this)){
+            return false;
+        }
+        permit.set(compartment);
+        return true;
+    }
+
+    /* Compartment of the Called Method, or null */
+    protected Compartment compartment(){
+        return compartmentOf(call);
+    }
+
+    /* Compartment of the Method an Encoded Call Calls, or null */
+    protected Compartment compartmentOf(byte[] body){
+        if(!skeleton.hasCompartments()){
+            return null;
+        }
+        DispatchTable.Entry entry = entry(body);
+        return entry == null ? null : entry.compartment;
+    }
+
+    /* Method an Encoded Call Calls, Peeked Before it is Served (see 'serveCall'), or null */
+    private DispatchTable.Entry entry(byte[] body){
+        try{
+            BodyReader in = Protocol.openBody(body);
+            int object_id = 0;
+            int method_id = in.readInt();
+            if(method_id < 0){
+                object_id = -method_id;
+                method_id = in.readInt();
+            }
+            ExportTable.Export target = skeleton.exports.get(object_id);
+            return target == null ? null : target.dispatch_table.entry(method_id);
+        }
+        catch (IOException e){
+                /* Malformed, Fails when Served */
+            return null;
+        }
+    }
+
+    /**
+     * Describe the method called, for a snapshot of the running calls (see 'CallRegistry')
+     */
+    protected String describe(){
+        DispatchTable.Entry entry = entry(call);
+        if(entry == null){
+            return "Unknown Method";
+        }
+        return entry.method.getDeclaringClass().getName()+"."+entry.method.getName();
+    }
+
+    /**
+     * Return the address of the client which made the call
+     */
+    public InetSocketAddress getCaller(){
+        return connection.getRemote_address();
+    }
+
+    /**
+     * Return the time(ms) the call started running, 0 if it has not started
+     */
+    public long getStart_time(){
+        return start_time;
+    }
+
+    /* Register the Call in the Skeleton's Registry as it Starts Running */
+    protected void begin(){
+        start_time = System.currentTimeMillis();
+        skeleton.call_registry.register(this);
+    }
+
+    /* Unregister the Call Once it has Ended */
+    protected void end(){
+        skeleton.call_registry.unregister(this);
+    }
+
+    @Override
+    public void run(){
+            /* The Calls a Compartment Permit is Passed on to Run on this Worker */
+        CallTask<?> next = serve();
+        while(next != null){
+            next = next.serve();
+        }
+    }
+
+    /* Run the Call, Unless it was Given Up Meanwhile
+       @return the call waiting in the compartment which the call's permit was passed on to, or null */
+    protected CallTask<?> serve(){
+        if(!state.compareAndSet(QUEUED, RUNNING)){
+                /* Cancelled while Queued (the Permit may have been Passed on to it Meanwhile) */
+            return leave();
+        }
+        if(deadline != 0 && System.currentTimeMillis() >= deadline){
+                /* The Client Stopped Waiting while the Call was Queued */
+            skeleton.expired_calls.incrementAndGet();
+            drop(new RMIException("Call Deadline Passed before it Ran"));
+            return leave();
+        }
+        begin();
+        try{
+            return invoke();
+        }
+        finally {
+            end();
+        }
+    }
+
+    /* Run the Call on the Calling Worker, and Answer it Unless it was Cancelled Meanwhile
+       @return the call waiting in the compartment which the call's permit was passed on to, or null */
+    private CallTask<?> invoke(){
+        synchronized (this){
+            runner = Thread.currentThread();
+        }
+        byte[] reply_body = answer(call);
+        boolean given_up;
+        synchronized (this){
+            runner = null;
+            given_up = cancelled;
+            if(given_up){
+                    /* Not to be Seen by the Worker's Next Task */
+                Thread.interrupted();
+            }
+        }
+        if(given_up){
+            drop(cancelledError());
+            return leave();
+        }
+        breakPromise(new RMIException("Promised Call did not Return a Remote Object"));
+        if(one_way){
+            reportOneWayFailure(reply_body);
+            finish(null);
+        }
+        else{
+            finish(reply_body);
+        }
+        return leave();
+    }
+
+    /* Give Up the Compartment Permit of the Call (if it Holds One), Passing it on to the Next Queued Call */
+    protected CallTask<?> leave(){
+        Compartment held = permit.getAndSet(null);
+        if(held == null){
+            return null;
+        }
+        CallTask<?> next = held.release();
+        if(next != null){
+            next.permit.set(held);
+        }
+        return next;
+    }
+
+    /* A Call Ended Outside of a Worker: the Call its Permit is Passed on to is Handed to the Call Executor */
+    protected void leaveAndDispatch(){
+        CallTask<?> next = leave();
+        if(next != null){
+            skeleton.execute(next);
+        }
+    }
+
+    /**
+     * Serve one encoded call run by this task besides its own (a call of a batch run in order), admitted by the
+     * compartment of its method, if it has one, without waiting: refused if the compartment has no free permit
+     * @return the encoded reply, as 'answer'
+     */
+    protected byte[] answerAdmitted(byte[] body){
+        Compartment held = compartmentOf(body);
+        if(held == null){
+            return answer(body);
+        }
+        if(!held.tryAdmit()){
+            return errorReply(held.refuse());
+        }
+        try{
+            return answer(body);
+        }
+        finally {
+                /* The Call the Permit is Passed on to Runs on Another Worker: this One Goes on with the Batch */
+            CallTask<?> next = held.release();
+            if(next != null){
+                next.permit.set(held);
+                skeleton.execute(next);
+            }
+        }
+    }
+
+    /**
+     * Answer the call with 'error' instead of running it (it was refused by the Skeleton)
+     */
+    public void reject(RMIException error){
+        if(!state.compareAndSet(QUEUED, DONE)){
+            return;
+        }
+        breakPromise(error);
+        finish(one_way ? null : errorReply(error));
+        leaveAndDispatch();
+    }
+
+    /**
+     * Cancel the call, as asked by its client: drop it if it is still queued, otherwise interrupt the thread running it
+     * (the call is then not answered)
+     */
+    public void cancel(){
+        if(state.compareAndSet(QUEUED, DONE)){
+            skeleton.withdraw(this);
+            if(compartment != null){
+                compartment.remove(this);
+            }
+            skeleton.cancelled_calls.incrementAndGet();
+            drop(cancelledError());
+            leaveAndDispatch();
+            return;
+        }
+        synchronized (this){
+            if(runner != null && !cancelled){
+                cancelled = true;
+                skeleton.cancelled_calls.incrementAndGet();
+                runner.interrupt();
+            }
+        }
+    }
+
+    /* Cause of a Call Cancelled by its Client, Breaking its Promise if it is the Call of a PROMISE Frame */
+    private RMIException cancelledError(){
+        return new RMIException(promise != null ? "Promised Call Cancelled by the Client" : "Call Cancelled by the Client");
+    }
+
+    /* End the Call Without Answering it */
+    private void drop(RMIException cause){
+        breakPromise(cause);
+        finish(null);
+    }
+
+    /**
+     * Serve one encoded call
+     * @return the encoded reply carrying its result, its exception, or the error which prevented serving it
+     */
+    protected byte[] answer(byte[] call){
+        try{
+            return serveCall(call);
+        }
+        catch (Exception exception){
+                /* The Call Could not be Decoded or Resolved, Only this Call Fails */
+            RMIException error = new RMIException(exception);
+            skeleton.service_error(error);
+            breakPromise(error);
+            return errorReply(error);
+        }
+    }
+
+    /**
+     * Send the reply of the frame (unless 'reply_body' is null), then count the frame's call as done
+     */
+    protected void finish(byte[] reply_body){
+        try{
+            if(reply_body != null){
+                connection.reply(frame.call_id, reply_body);
+            }
+        }
+        catch (IOException exception){
+                /* Connection Broken, The Client Fails this Call on its Side */
+            if(!connection.isClosing()){
+                skeleton.service_error(new RMIException(exception));
+            }
+        }
+        finally {
+            connection.getCalls().remove(frame.call_id, this);
+            connection.endCall();
+        }
+    }
+
+    /* Reply Refusing a Call with 'error' (Without its Cause, if that Cannot be Encoded) */
+    protected static byte[] errorReply(RMIException error){
+        try{
+            return Protocol.encodeReply(Protocol.ERROR, error);
+        }
+        catch (IOException e){
+            try{
+                return Protocol.encodeReply(Protocol.ERROR, new RMIException(error.getMessage()));
+            }
+            catch (IOException unexpected){
+                    /* An RMIException Without Cause is Always Serializable */
+                throw new Error(unexpected);
+            }
+        }
+    }
+
+    /* Calls Pipelined on the Promise (if any, and not Completed Yet) Fail with 'cause' */
+    private void breakPromise(Throwable cause){
+        if(promise != null){
+            promise.completeExceptionally(cause);
+        }
+    }
+
+    /* Nobody Waits for the Result of a One-Way Call: an Exception it Raised is a Service Error */
+    private void reportOneWayFailure(byte[] reply_body){
+        if(reply_body[0] != Protocol.FAILED){
+            return;
+        }
+        Object exception;
+        try{
+            BodyReader in = Protocol.openBody(reply_body);
+            in.readByte();
+            exception = Codec.readValue(in);
+        }
+        catch (IOException | ClassNotFoundException e){
+            exception = e;
+        }
+        skeleton.service_error(new RMIException("One-Way Call Raised an Exception", (Throwable) exception));
+    }
+
+    /**
+     * Invoke one method call on the server object
+     * @return the encoded reply carrying its result (or exception)
+     */
+    private byte[] serveCall(byte[] call) throws Exception{
+            /* Parse Information Regard Method Call */
+        BodyReader in = Protocol.openBody(call);
+        int object_id = 0; //Skeleton's Server Object, Unless the Call Starts with the Negated ID of an Exported Object
+        int method_id = in.readInt(); //ID of the Method in the Remote Interface's Table
+        if(method_id < 0){
+            object_id = -method_id;
+            method_id = in.readInt();
+        }
+
+            /* Retrieve the required method on the server (Prepared when it was Exported) */
+        ExportTable.Export target = skeleton.exports.get(object_id);
+        if(target == null){
+            throw new RMIException("Unknown Object ID "+object_id+" for "+skeleton.remote_interface_c.getName());
+        }
+        DispatchTable.Entry entry = target.dispatch_table.entry(method_id);
+        if(entry == null){
+            throw new RMIException("Unknown Method ID "+method_id+" for "+target.remote_interface.getName());
+        }
+
+            /* Invoke the Method
+             * Reads the Arguments, and Invokes the underlying method handle (or generated dispatcher),
+             * bound to the object implementing remote Interface, with them
+             * */
+        try{
+                /* Invoke Remote Method Call (Primitive Return Values are Written to the Reply Directly) */
+            ReplyWriter reply = new ReplyWriter(Protocol.SUCCEEDED);
+            Object return_value = entry.invoke(in, reply);
+
+                /* Return The Method Call Result */
+            if(entry.return_type.isPrimitive()){
+                return reply.toByteArray();
+            }
+            else if(entry.returns_remote && return_value != null){
+                /* Passing Stubs as Return Values
+                 * Here 'return_value' will Act as Remote Object Implementing Remote Interface 'return_type',
+                 * Exported by this Skeleton and Served on its Port under a New Object ID
+                 * (the Stub Carries the Address the Client Reached the Skeleton at) */
+                ExportTable.Export export = skeleton.exports.export(entry.return_type, return_value, connection);
+                Object return_stub = Stub.create(entry.return_type, connection.getLocal_address(), export.object_id);
+                Codec.writeValue(reply, return_stub);
+                if(promise != null){
+                    promise.complete(export);
+                }
+            }
+            else{
+                Codec.writeValue(reply, return_value);
+            }
+            return reply.toByteArray();
+        }
+        catch (InvocationTargetException e){//(IllegalAccessException | InvocationTargetException e){
+                /* Send Back the Exception to Client
+                 * If the remote method raises an exception,
+                 * the Stub must raise the same exception,
+                 * */
+            breakPromise(e.getTargetException());
+            return Protocol.encodeReply(Protocol.FAILED, e.getTargetException());
+        }
+        finally{
+                /* The Object may have Changed: Clients Keeping Replies of its Read-Only Methods Drop them First */
+            if(!entry.read_only && !target.watchers.isEmpty()){
+                skeleton.exports.invalidate(target);
+            }
+        }
+    }
+}
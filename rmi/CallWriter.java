@@ -0,0 +1,38 @@
+package rmi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * CallWriter builds the body of a call frame (see 'Protocol'): its header is written when it is created, then the
+ * caller writes the arguments with 'Codec', one by one. Used by 'Protocol.encodeCall' and by generated stubs,
+ * which write each argument with the 'Codec' method of its declared type.
+ */
+public class CallWriter extends DataOutputStream {
+    /**
+     * Start the body of a call of method 'method_id' of the Skeleton's server object, with 'count' arguments
+     */
+    public CallWriter(int method_id, int count) throws IOException {
+        this(0, method_id, count);
+    }
+
+    /**
+     * Start the body of a call of method 'method_id' of the object exported under 'object_id', with 'count' arguments
+     */
+    public CallWriter(int object_id, int method_id, int count) throws IOException {
+        super(new ByteArrayOutputStream());
+        if(object_id != 0){
+            writeInt(-object_id);
+        }
+        writeInt(method_id);
+        writeInt(count);
+    }
+
+    /**
+     * Return the encoded call
+     */
+    public byte[] toByteArray(){
+        return ((ByteArrayOutputStream) out).toByteArray();
+    }
+}
@@ -0,0 +1,425 @@
+package rmi;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Codec is the compact binary encoding of the values carried by call and reply frames (see 'Protocol').
+ *
+ * Every value starts with a one byte tag. Primitives (boxed or not), strings, primitive arrays, String[] and
+ * Object[] are written by hand: raw big-endian numbers, modified UTF-8 strings, length-prefixed arrays.
+ * Any other object falls back to Java serialization, embedded as a length-prefixed blob, so it costs no more than
+ * before, while the common cases no longer carry class descriptors.
+ */
+public class Codec {
+    /* Value Tags */
+    static final byte NULL = 0;
+    static final byte BOOLEAN = 1;
+    static final byte BYTE = 2;
+    static final byte SHORT = 3;
+    static final byte CHAR = 4;
+    static final byte INT = 5;
+    static final byte LONG = 6;
+    static final byte FLOAT = 7;
+    static final byte DOUBLE = 8;
+    static final byte STRING = 9;
+    static final byte BOOLEAN_ARRAY = 10;
+    static final byte BYTE_ARRAY = 11;
+    static final byte SHORT_ARRAY = 12;
+    static final byte CHAR_ARRAY = 13;
+    static final byte INT_ARRAY = 14;
+    static final byte LONG_ARRAY = 15;
+    static final byte FLOAT_ARRAY = 16;
+    static final byte DOUBLE_ARRAY = 17;
+    static final byte STRING_ARRAY = 18;
+    static final byte OBJECT_ARRAY = 19; //Exactly Object[], Elements Encoded One by One
+    static final byte SERIALIZED = 20; //Java Serialization Fallback
+
+    /* Strings up to this Length are Written as Modified UTF-8 (writeUTF Limit is 65535 bytes) */
+    private static final int SHORT_STRING = 65535 / 3;
+
+    /**
+     * Write one value (possibly null)
+     */
+    public static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if(value == null){
+            out.writeByte(NULL);
+        }
+        else if(value instanceof Integer){
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        }
+        else if(value instanceof String){
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        }
+        else if(value instanceof Long){
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        }
+        else if(value instanceof Boolean){
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        }
+        else if(value instanceof Double){
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        }
+        else if(value instanceof Byte){
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        }
+        else if(value instanceof Short){
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        }
+        else if(value instanceof Character){
+            out.writeByte(CHAR);
+            out.writeChar((Character) value);
+        }
+        else if(value instanceof Float){
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        }
+        else if(value.getClass().isArray()){
+            writeArray(out, value);
+        }
+        else{
+            writeSerialized(out, value);
+        }
+    }
+
+    /* Typed Writers, Same Encoding as 'writeValue' for the Boxed Value (Used by Generated Stubs) */
+
+    public static void writeBoolean(DataOutputStream out, boolean value) throws IOException {
+        out.writeByte(BOOLEAN);
+        out.writeBoolean(value);
+    }
+
+    public static void writeByte(DataOutputStream out, byte value) throws IOException {
+        out.writeByte(BYTE);
+        out.writeByte(value);
+    }
+
+    public static void writeShort(DataOutputStream out, short value) throws IOException {
+        out.writeByte(SHORT);
+        out.writeShort(value);
+    }
+
+    public static void writeChar(DataOutputStream out, char value) throws IOException {
+        out.writeByte(CHAR);
+        out.writeChar(value);
+    }
+
+    public static void writeInt(DataOutputStream out, int value) throws IOException {
+        out.writeByte(INT);
+        out.writeInt(value);
+    }
+
+    public static void writeLong(DataOutputStream out, long value) throws IOException {
+        out.writeByte(LONG);
+        out.writeLong(value);
+    }
+
+    public static void writeFloat(DataOutputStream out, float value) throws IOException {
+        out.writeByte(FLOAT);
+        out.writeFloat(value);
+    }
+
+    public static void writeDouble(DataOutputStream out, double value) throws IOException {
+        out.writeByte(DOUBLE);
+        out.writeDouble(value);
+    }
+
+    private static void writeArray(DataOutputStream out, Object value) throws IOException {
+        Class<?> type = value.getClass();
+        if(type == byte[].class){
+            byte[] array = (byte[]) value;
+            out.writeByte(BYTE_ARRAY);
+            out.writeInt(array.length);
+            out.write(array);
+        }
+        else if(type == int[].class){
+            int[] array = (int[]) value;
+            out.writeByte(INT_ARRAY);
+            out.writeInt(array.length);
+            for(int element : array){
+                out.writeInt(element);
+            }
+        }
+        else if(type == long[].class){
+            long[] array = (long[]) value;
+            out.writeByte(LONG_ARRAY);
+            out.writeInt(array.length);
+            for(long element : array){
+                out.writeLong(element);
+            }
+        }
+        else if(type == double[].class){
+            double[] array = (double[]) value;
+            out.writeByte(DOUBLE_ARRAY);
+            out.writeInt(array.length);
+            for(double element : array){
+                out.writeDouble(element);
+            }
+        }
+        else if(type == boolean[].class){
+            boolean[] array = (boolean[]) value;
+            out.writeByte(BOOLEAN_ARRAY);
+            out.writeInt(array.length);
+            for(boolean element : array){
+                out.writeBoolean(element);
+            }
+        }
+        else if(type == short[].class){
+            short[] array = (short[]) value;
+            out.writeByte(SHORT_ARRAY);
+            out.writeInt(array.length);
+            for(short element : array){
+                out.writeShort(element);
+            }
+        }
+        else if(type == char[].class){
+            char[] array = (char[]) value;
+            out.writeByte(CHAR_ARRAY);
+            out.writeInt(array.length);
+            for(char element : array){
+                out.writeChar(element);
+            }
+        }
+        else if(type == float[].class){
+            float[] array = (float[]) value;
+            out.writeByte(FLOAT_ARRAY);
+            out.writeInt(array.length);
+            for(float element : array){
+                out.writeFloat(element);
+            }
+        }
+        else if(type == String[].class){
+            String[] array = (String[]) value;
+            out.writeByte(STRING_ARRAY);
+            out.writeInt(array.length);
+            for(String element : array){
+                if(element == null){
+                    out.writeBoolean(false);
+                }
+                else{
+                    out.writeBoolean(true);
+                    writeString(out, element);
+                }
+            }
+        }
+        else if(type == Object[].class){
+            Object[] array = (Object[]) value;
+            out.writeByte(OBJECT_ARRAY);
+            out.writeInt(array.length);
+            for(Object element : array){
+                writeValue(out, element);
+            }
+        }
+        else{
+                /* Arrays of Other Classes Keep their Exact Type through Serialization */
+            writeSerialized(out, value);
+        }
+    }
+
+    private static void writeSerialized(DataOutputStream out, Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream object_out = new ObjectOutputStream(bytes);
+        object_out.writeObject(value);
+        object_out.close();
+        out.writeByte(SERIALIZED);
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    /* Short Strings as Modified UTF-8, Longer Ones as Raw chars */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if(value.length() <= SHORT_STRING){
+            out.writeBoolean(true);
+            out.writeUTF(value);
+        }
+        else{
+            out.writeBoolean(false);
+            out.writeInt(value.length());
+            out.writeChars(value);
+        }
+    }
+
+    /**
+     * Read one value written by 'writeValue'
+     * @throws ClassNotFoundException if a serialized object's class cannot be found
+     * @throws IOException if the encoding is malformed
+     */
+    public static Object readValue(DataInput in) throws IOException, ClassNotFoundException {
+        byte tag = in.readByte();
+        switch (tag){
+            case NULL: return null;
+            case BOOLEAN: return in.readBoolean();
+            case BYTE: return in.readByte();
+            case SHORT: return in.readShort();
+            case CHAR: return in.readChar();
+            case INT: return in.readInt();
+            case LONG: return in.readLong();
+            case FLOAT: return in.readFloat();
+            case DOUBLE: return in.readDouble();
+            case STRING: return readString(in);
+            case BOOLEAN_ARRAY: {
+                boolean[] array = new boolean[readLength(in, 1)];
+                for(int i = 0; i < array.length; i++){
+                    array[i] = in.readBoolean();
+                }
+                return array;
+            }
+            case BYTE_ARRAY: {
+                byte[] array = new byte[readLength(in, 1)];
+                in.readFully(array);
+                return array;
+            }
+            case SHORT_ARRAY: {
+                short[] array = new short[readLength(in, 2)];
+                for(int i = 0; i < array.length; i++){
+                    array[i] = in.readShort();
+                }
+                return array;
+            }
+            case CHAR_ARRAY: {
+                char[] array = new char[readLength(in, 2)];
+                for(int i = 0; i < array.length; i++){
+                    array[i] = in.readChar();
+                }
+                return array;
+            }
+            case INT_ARRAY: {
+                int[] array = new int[readLength(in, 4)];
+                for(int i = 0; i < array.length; i++){
+                    array[i] = in.readInt();
+                }
+                return array;
+            }
+            case LONG_ARRAY: {
+                long[] array = new long[readLength(in, 8)];
+                for(int i = 0; i < array.length; i++){
+                    array[i] = in.readLong();
+                }
+                return array;
+            }
+            case FLOAT_ARRAY: {
+                float[] array = new float[readLength(in, 4)];
+                for(int i = 0; i < array.length; i++){
+                    array[i] = in.readFloat();
+                }
+                return array;
+            }
+            case DOUBLE_ARRAY: {
+                double[] array = new double[readLength(in, 8)];
+                for(int i = 0; i < array.length; i++){
+                    array[i] = in.readDouble();
+                }
+                return array;
+            }
+            case STRING_ARRAY: {
+                String[] array = new String[readLength(in, 1)];
+                for(int i = 0; i < array.length; i++){
+                    array[i] = in.readBoolean() ? readString(in) : null;
+                }
+                return array;
+            }
+            case OBJECT_ARRAY: {
+                Object[] array = new Object[readLength(in, 1)];
+                for(int i = 0; i < array.length; i++){
+                    array[i] = readValue(in);
+                }
+                return array;
+            }
+            case SERIALIZED: {
+                byte[] bytes = new byte[readLength(in, 1)];
+                in.readFully(bytes);
+                ObjectInputStream object_in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+                return object_in.readObject();
+            }
+            default:
+                throw new IOException("Unknown Value Tag: "+tag);
+        }
+    }
+
+    /* Typed Readers of Values Written for a Parameter of Primitive Type (Used by Generated Dispatchers) */
+
+    public static boolean readBoolean(DataInput in) throws IOException {
+        expectTag(in, BOOLEAN);
+        return in.readBoolean();
+    }
+
+    public static byte readByte(DataInput in) throws IOException {
+        expectTag(in, BYTE);
+        return in.readByte();
+    }
+
+    public static short readShort(DataInput in) throws IOException {
+        expectTag(in, SHORT);
+        return in.readShort();
+    }
+
+    public static char readChar(DataInput in) throws IOException {
+        expectTag(in, CHAR);
+        return in.readChar();
+    }
+
+    public static int readInt(DataInput in) throws IOException {
+        expectTag(in, INT);
+        return in.readInt();
+    }
+
+    public static long readLong(DataInput in) throws IOException {
+        expectTag(in, LONG);
+        return in.readLong();
+    }
+
+    public static float readFloat(DataInput in) throws IOException {
+        expectTag(in, FLOAT);
+        return in.readFloat();
+    }
+
+    public static double readDouble(DataInput in) throws IOException {
+        expectTag(in, DOUBLE);
+        return in.readDouble();
+    }
+
+    private static void expectTag(DataInput in, byte expected) throws IOException {
+        byte tag = in.readByte();
+        if(tag != expected){
+            throw new IOException("Value Tag "+tag+" where "+expected+" was Expected");
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        if(in.readBoolean()){
+            return in.readUTF();
+        }
+        char[] chars = new char[readLength(in, 2)];
+        for(int i = 0; i < chars.length; i++){
+            chars[i] = in.readChar();
+        }
+        return new String(chars);
+    }
+
+    /* Read an Array Length, Rejecting Lengths the Rest of the Frame Cannot Hold */
+    private static int readLength(DataInput in, int element_size) throws IOException {
+        int length = in.readInt();
+        if(length < 0 || (long) length * element_size > available(in)){
+            throw new IOException("Malformed Array Length: "+length);
+        }
+        return length;
+    }
+
+    /* Bytes Left in the Frame Body (Unknown for Other Inputs) */
+    static int available(DataInput in) throws IOException {
+        return in instanceof InputStream ? ((InputStream) in).available() : Integer.MAX_VALUE;
+    }
+}
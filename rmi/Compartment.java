@@ -0,0 +1,140 @@
+package rmi;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compartment enforces one '@Bulkhead' of a Skeleton: the methods of its group run at most 'limit' calls at once.
+ * A call is admitted when it is dispatched, before it takes a worker: beyond the limit it waits in the compartment's
+ * own queue, and beyond that it is refused. A call leaving the compartment passes its permit on to the next queued
+ * call, which the worker that ran it runs next (see 'CallTask').
+ */
+public class Compartment {
+    private final String group;
+
+    private final int limit;
+
+    private final int queue_capacity;
+
+    /* Guarded by the Lock on this Compartment */
+    private int running; //Calls Holding a Permit: Running, or Handed to the Call Executor
+    private final ArrayDeque<CallTask<?>> queue = new ArrayDeque<CallTask<?>>();
+
+    private final AtomicLong rejected_calls = new AtomicLong();
+
+    Compartment(String group, Bulkhead bulkhead){
+        if(bulkhead.limit() <= 0 || bulkhead.queue_capacity() < 0){
+            throw new Error("Invalid Bulkhead of Group "+group+": limit "+bulkhead.limit()
+                    +", queue capacity "+bulkhead.queue_capacity());
+        }
+        this.group = group;
+        this.limit = bulkhead.limit();
+        this.queue_capacity = bulkhead.queue_capacity();
+    }
+
+    /**
+     * Return the name of the group of a method with a '@Bulkhead'
+     */
+    static String groupOf(Method method, Bulkhead bulkhead){
+        if(!bulkhead.group().isEmpty()){
+            return bulkhead.group();
+        }
+        return method.getDeclaringClass().getName()+"."+method.getName();
+    }
+
+    /**
+     * Admit a call: give it a permit, queue it, or refuse it
+     * @return true if the call got a permit and may be handed to the call executor
+     */
+    boolean admit(CallTask<?> task){
+        synchronized (this){
+            if(running < limit){
+                running++;
+                return true;
+            }
+            if(queue.size() < queue_capacity){
+                queue.addLast(task);
+                return false;
+            }
+        }
+        task.reject(refuse());
+        return false;
+    }
+
+    /**
+     * Admit a call run by a worker already (a call of a batch run in order, see 'BatchTask'), which cannot wait
+     * in the queue: give it a permit, or refuse it
+     * @return true if the call got a permit, false if it was refused (see 'refuse')
+     */
+    boolean tryAdmit(){
+        synchronized (this){
+            if(running < limit){
+                running++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Count a refused call
+     * @return the error the call is answered with
+     */
+    OverloadException refuse(){
+        rejected_calls.incrementAndGet();
+        return new OverloadException("Bulkhead "+group+" is Full, Call Refused");
+    }
+
+    /**
+     * Give up the permit of a call which left the compartment
+     * @return the queued call the permit is passed on to, or null if none is waiting
+     */
+    synchronized CallTask<?> release(){
+        CallTask<?> next = queue.pollFirst();
+        if(next == null){
+            running--;
+        }
+        return next;
+    }
+
+    /**
+     * Take a call cancelled by its client out of the queue, if it is waiting there
+     */
+    synchronized void remove(CallTask<?> task){
+        queue.remove(task);
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getQueue_capacity() {
+        return queue_capacity;
+    }
+
+    /**
+     * Return the number of calls of the group running (or handed to the call executor)
+     */
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    /**
+     * Return the number of calls of the group waiting for a permit
+     */
+    public synchronized int getQueued() {
+        return queue.size();
+    }
+
+    /**
+     * Return the number of calls of the group refused because its limit was reached and its queue was full
+     */
+    public long getRejected_calls() {
+        return rejected_calls.get();
+    }
+}
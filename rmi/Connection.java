@@ -0,0 +1,523 @@
+package rmi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Connection is a persistent, multiplexed client-side connection to a Skeleton server.
+ * Connections are kept in a 'ConnectionPool' and shared by every Stub targeting the same address.
+ *
+ * Any number of threads may have calls outstanding on one Connection: each call is tagged with a call_id
+ * (see 'Protocol') and written as one frame, and a reader thread hands every reply to the caller waiting
+ * for that call_id, in whatever order the Skeleton answers.
+ * Calls of a remote interface follow a handshake checking its 'MethodTable' (once per connection and interface).
+ * Calls of one-way methods are not answered; they are coalesced in the output buffer and flushed together.
+ * A batch of calls is sent as one frame and answered by one reply.
+ * Calls may be pipelined on the remote object a promise call will return, before its reply (see 'PromiseStub').
+ * A caller giving up on a call (by completing or cancelling the future of its reply) frees its call ID, and the
+ * Skeleton is told to cancel it by a CANCEL frame, buffered like one-way calls.
+ * Objects whose read-only replies the 'ResultCache' keeps are watched (see 'watch'): the reader thread drops their
+ * replies when the Skeleton says they changed, and every kept read-only reply of the address once the connection
+ * is lost, since the Skeleton can no longer tell it of changes.
+ */
+public class Connection {
+    /* One-Way Calls are Flushed this Long (ms) after the First One Buffered, 0 Flushes Each at Once */
+    private static final int ONE_WAY_LINGER = Integer.getInteger("rmi.oneway.linger_ms", 1);
+
+    private static final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, "rmi-oneway-flusher");
+                    /* Must not keep client JVMs alive */
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final InetSocketAddress address;
+
+    private final Socket socket;
+
+    private final DataOutputStream out; //Shared by all Callers, Guarded by its own Lock
+
+    private final DataInputStream in; //Only Read by the Reader Thread
+
+    private final ConcurrentMap<Integer, CompletableFuture<byte[]>> pending_calls =
+            new ConcurrentHashMap<Integer, CompletableFuture<byte[]>>();
+
+    private final AtomicInteger next_call_id = new AtomicInteger();
+
+    /* Handshake Replies by Table Fingerprint, Guarded by its own Lock */
+    private final Map<Long, CompletableFuture<byte[]>> handshakes = new HashMap<Long, CompletableFuture<byte[]>>();
+
+    private final AtomicInteger in_flight = new AtomicInteger();
+
+    /* Objects Watched on this Connection (WATCH Frames Sent), Until the Skeleton Says they Changed */
+    private final Set<Integer> watched = ConcurrentHashMap.<Integer>newKeySet();
+
+    private volatile boolean closed;
+
+    private boolean flush_scheduled; //One-Way Calls Wait in 'out' for the Flusher, Guarded by the Lock on 'out'
+
+    private volatile long last_used; //Time(ms) when the Last Call Completed
+
+    private volatile boolean reused; //Has This Connection Already Completed a Method Call?
+
+    /**
+     * Open a new connection to the Skeleton Server at 'address' and start its reader thread
+     * @throws IOException if the socket cannot be connected
+     */
+    public Connection(InetSocketAddress address) throws IOException {
+        this.address = address;
+        socket = new Socket(address.getHostName(), address.getPort());
+        try{
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        }
+        catch (IOException e){
+            socket.close();
+            throw e;
+        }
+        last_used = System.currentTimeMillis();
+
+        Thread reader = new Thread("rmi-connection-"+address){
+            @Override
+            public void run(){
+                readReplies();
+            }
+        };
+        /* Must not keep client JVMs alive */
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Send one method call.
+     * @param body the encoded call
+     * @return a future completed with the body of the reply, or exceptionally with the IOException
+     *         which broke the connection. An EOFException means the Skeleton closed the connection
+     *         cleanly without having read the call.
+     * @throws IOException if the call cannot be written
+     */
+    public CompletableFuture<byte[]> send(byte[] body) throws IOException {
+        return send(Protocol.CALL, body);
+    }
+
+    /**
+     * Send one method call of a priority class (see 'Priority') which must complete by 'deadline' (see 'Deadline'),
+     * as a SCHEDULED frame carrying the class and the time left, or as a plain call if 'deadline' is 0 and the class
+     * is NORMAL
+     * @return a future completed with the body of the reply, as for 'send'
+     * @throws DeadlineExceededException if the deadline has already passed
+     * @throws IOException if the call cannot be written
+     */
+    public CompletableFuture<byte[]> send(byte[] body, long deadline, Priority priority)
+            throws IOException, DeadlineExceededException {
+        if(deadline == 0 && priority == Priority.NORMAL){
+            return send(Protocol.CALL, body);
+        }
+        int timeout = -1;
+        if(deadline != 0){
+            long left = deadline - System.currentTimeMillis();
+            if(left <= 0){
+                throw new DeadlineExceededException("Call Deadline Passed before it was Sent");
+            }
+            timeout = (int) Math.min(left, Integer.MAX_VALUE);
+        }
+        return send(Protocol.SCHEDULED, Protocol.encodeScheduled((byte) priority.ordinal(), timeout, body));
+    }
+
+    /**
+     * Wait for the reply of a call until 'deadline' (see 'Deadline', 0 waits without limit).
+     * If the deadline passes first, the call is cancelled (see 'send')
+     * @return the body of the reply
+     * @throws DeadlineExceededException if the deadline passed before the reply arrived
+     * @throws ExecutionException if the connection broke (see 'send')
+     */
+    public static byte[] await(CompletableFuture<byte[]> reply, long deadline)
+            throws DeadlineExceededException, ExecutionException, InterruptedException {
+        if(deadline == 0){
+            return reply.get();
+        }
+        try{
+            return reply.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e){
+            reply.cancel(false);
+            throw new DeadlineExceededException("Call Deadline Passed before its Reply Arrived");
+        }
+    }
+
+    /**
+     * Send several method calls in one frame (see 'Protocol.encodeBatch'), answered by one reply.
+     * @return a future completed with the body of the reply, as for 'send'
+     * @throws IOException if the batch cannot be written
+     */
+    public CompletableFuture<byte[]> sendBatch(byte[] body) throws IOException {
+        return send(Protocol.BATCH, body);
+    }
+
+    /**
+     * Send a call of a method returning a remote interface, whose result the Skeleton keeps for the calls pipelined
+     * on it (see 'sendPipelined') until it is released
+     * @param promise_id call ID reserved by 'reserveCall_id', identifying the promise on this connection
+     * @return a future completed with the body of the reply, as for 'send'
+     * @throws IOException if the call cannot be written
+     */
+    public CompletableFuture<byte[]> sendPromise(int promise_id, byte[] body) throws IOException {
+        return send(Protocol.PROMISE, promise_id, body);
+    }
+
+    /**
+     * Send a call to run on the remote object promised by an earlier 'sendPromise' on this connection
+     * @param fingerprint fingerprint of the 'MethodTable' of the promised object's remote interface
+     * @return a future completed with the body of the reply, as for 'send'
+     * @throws IOException if the call cannot be written
+     */
+    public CompletableFuture<byte[]> sendPipelined(int promise_id, long fingerprint, byte[] body) throws IOException {
+        return send(Protocol.PIPELINED, Protocol.encodePipelined(promise_id, fingerprint, body));
+    }
+
+    /**
+     * Tell the Skeleton that no more calls will be pipelined on a promise (the frame gets no reply)
+     * @throws IOException if the frame cannot be written
+     */
+    public void release(int promise_id) throws IOException {
+        if(closed){
+            throw new EOFException("Connection Closed");
+        }
+        try{
+            synchronized (out){
+                Protocol.writeFrame(out, Protocol.RELEASE, promise_id, new byte[0]);
+            }
+        }
+        catch (IOException e){
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Renew and drop leases on the Skeleton's exported objects (see 'Protocol.encodeLease' and 'LeaseRenewer')
+     * @return a future completed with the body of the reply, as for 'send'
+     * @throws IOException if the frame cannot be written
+     */
+    public CompletableFuture<byte[]> sendLease(byte[] body) throws IOException {
+        return send(Protocol.LEASE, body);
+    }
+
+    /**
+     * Reserve a call ID on this connection, for a promise
+     */
+    public int reserveCall_id(){
+        return next_call_id.incrementAndGet();
+    }
+
+    /**
+     * Send one call of a one-way method, which gets no reply.
+     * The frame is buffered with the one-way calls sent just before or after it, and the buffer is written within
+     * 'rmi.oneway.linger_ms' (or sooner, by the next call expecting a reply or when it is full)
+     * @param body the encoded call
+     * @throws IOException if the call cannot be written
+     */
+    public void sendOneWay(byte[] body) throws IOException {
+        if(closed){
+            throw new EOFException("Connection Closed");
+        }
+        buffer(Protocol.ONEWAY, 0, body);
+        if(in_flight.get() == 0){
+            last_used = System.currentTimeMillis();
+        }
+    }
+
+    /* Buffer a Frame which Gets no Reply, Flushed within 'rmi.oneway.linger_ms' */
+    private void buffer(byte type, int call_id, byte[] body) throws IOException {
+        try{
+            synchronized (out){
+                if(ONE_WAY_LINGER <= 0){
+                    Protocol.writeFrame(out, type, call_id, body);
+                }
+                else{
+                    Protocol.bufferFrame(out, type, call_id, body);
+                    if(!flush_scheduled){
+                        flush_scheduled = true;
+                        flusher.schedule(new Runnable() {
+                            @Override
+                            public void run() {
+                                flushOneWay();
+                            }
+                        }, ONE_WAY_LINGER, TimeUnit.MILLISECONDS);
+                    }
+                }
+            }
+        }
+        catch (IOException e){
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Ask the Skeleton to say when an object changes (see 'ReadOnly'), unless it was already asked on this connection
+     * since the object last changed. Must precede the call whose reply is kept: the frame is buffered, and written
+     * before it
+     * @throws IOException if the frame cannot be written
+     */
+    public void watch(int object_id) throws IOException {
+        if(closed){
+            throw new EOFException("Connection Closed");
+        }
+        if(watched.add(object_id)){
+            buffer(Protocol.WATCH, object_id, new byte[0]);
+        }
+    }
+
+    /* Tell the Skeleton a Call was Given Up (Best Effort: its Reply is Ignored Anyway) */
+    private void cancel(int call_id){
+        if(closed){
+            return;
+        }
+        try{
+            buffer(Protocol.CANCEL, call_id, new byte[0]);
+        }
+        catch (IOException e){
+                /* The Reader Thread Fails Pending Calls */
+        }
+    }
+
+    /* Flusher Thread: Write the Buffered One-Way Calls */
+    private void flushOneWay(){
+        try{
+            synchronized (out){
+                flush_scheduled = false;
+                out.flush();
+            }
+        }
+        catch (IOException e){
+                /* The Reader Thread Fails Pending Calls */
+            close();
+        }
+    }
+
+    /**
+     * Make sure the Skeleton serves calls encoded with 'table': the first caller sends the handshake,
+     * concurrent and later callers wait for (or reuse) its reply.
+     * @throws IOException if the connection broke (see 'send')
+     * @throws RMIException if the Skeleton's remote interface does not match 'table'
+     */
+    public void handshake(MethodTable table) throws IOException, RMIException, InterruptedException {
+        handshake(table, 0);
+    }
+
+    /**
+     * Make sure the Skeleton serves calls encoded with 'table', as 'handshake' does, waiting for it until 'deadline'
+     * (see 'Deadline', 0 waits without limit)
+     * @throws DeadlineExceededException if the deadline passed before the handshake's reply arrived
+     */
+    public void handshake(MethodTable table, long deadline) throws IOException, RMIException, InterruptedException {
+        byte[] body;
+        try{
+            CompletableFuture<byte[]> reply = sendHandshake(table);
+            body = deadline == 0 ? reply.get()
+                    : reply.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e){
+                /* Shared by Every Caller of the Connection: Left Pending */
+            throw new DeadlineExceededException("Call Deadline Passed before the Connection's Handshake");
+        }
+        catch (ExecutionException e){
+            if(e.getCause() instanceof IOException){
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        checkHandshake(body);
+    }
+
+    /**
+     * Send the handshake for 'table' unless it was already sent on this connection, without waiting for its reply
+     * @return a future completed with the body of the reply (see 'send'), to be checked by 'checkHandshake'
+     * @throws IOException if the handshake cannot be written
+     */
+    public CompletableFuture<byte[]> sendHandshake(MethodTable table) throws IOException {
+        synchronized (handshakes){
+            CompletableFuture<byte[]> reply = handshakes.get(table.getFingerprint());
+            if(reply == null){
+                reply = send(Protocol.HELLO, table.encodeHandshake());
+                handshakes.put(table.getFingerprint(), reply);
+            }
+            return reply;
+        }
+    }
+
+    /**
+     * Check the reply to a handshake
+     * @throws IOException if the reply is malformed
+     * @throws RMIException if the Skeleton refused the handshake
+     */
+    public static void checkHandshake(byte[] body) throws IOException, RMIException {
+        BodyReader reply_in = Protocol.openBody(body);
+        if(reply_in.readByte() != Protocol.SUCCEEDED){
+            try{
+                throw (RMIException) Codec.readValue(reply_in);
+            }
+            catch (ClassNotFoundException e){
+                throw new IOException(e);
+            }
+        }
+    }
+
+    private CompletableFuture<byte[]> send(byte type, byte[] body) throws IOException {
+        return send(type, next_call_id.incrementAndGet(), body);
+    }
+
+    private CompletableFuture<byte[]> send(byte type, final int call_id, byte[] body) throws IOException {
+        final CompletableFuture<byte[]> reply = new CompletableFuture<byte[]>();
+        in_flight.incrementAndGet();
+        pending_calls.put(call_id, reply);
+        if(Protocol.isCall(type)){
+            reply.whenComplete(new BiConsumer<byte[], Throwable>() {
+                @Override
+                public void accept(byte[] body, Throwable failure) {
+                        /* Still Pending: Completed by the Caller, not by the Reader Thread */
+                    if(failure != null && completeCall(call_id) != null){
+                        cancel(call_id);
+                    }
+                }
+            });
+        }
+            /* The Reader may have Failed Pending Calls Before this one was Registered */
+        if(closed){
+            completeCall(call_id);
+            throw new EOFException("Connection Closed");
+        }
+        try{
+            synchronized (out){
+                Protocol.writeFrame(out, type, call_id, body);
+            }
+        }
+        catch (IOException e){
+            completeCall(call_id);
+            close();
+            throw e;
+        }
+        return reply;
+    }
+
+    /**
+     * Reader thread body: dispatch replies to the waiting callers until the connection breaks
+     */
+    private void readReplies(){
+        IOException cause;
+        try{
+            while(true){
+                Frame frame = Protocol.readFrame(in);
+                if(frame == null){
+                    cause = new EOFException("Connection Closed by Skeleton Server");
+                    break;
+                }
+                if(frame.type == Protocol.INVALIDATE){
+                        /* Before the Reply of the Call which Changed the Object, if it was Made on this Connection */
+                    watched.remove(frame.call_id);
+                    ResultCache.get(address).invalidate(frame.call_id);
+                    continue;
+                }
+                if(frame.type != Protocol.REPLY){
+                    cause = new IOException("Unexpected Frame Type: "+frame.type);
+                    break;
+                }
+                CompletableFuture<byte[]> reply = completeCall(frame.call_id);
+                if(reply != null){
+                    reused = true;
+                    reply.complete(frame.body);
+                }
+            }
+        }
+        catch (IOException e){
+            cause = e;
+        }
+        close();
+        if(!watched.isEmpty()){
+                /* Changes of the Watched Objects would go Unnoticed */
+            ResultCache.get(address).invalidateRead_only();
+        }
+            /* Fail every Call still Waiting on this Connection */
+        for(Integer call_id : pending_calls.keySet()){
+            CompletableFuture<byte[]> reply = completeCall(call_id);
+            if(reply != null){
+                reply.completeExceptionally(cause);
+            }
+        }
+    }
+
+    private CompletableFuture<byte[]> completeCall(int call_id){
+        CompletableFuture<byte[]> reply = pending_calls.remove(call_id);
+        if(reply != null && in_flight.decrementAndGet() == 0){
+            last_used = System.currentTimeMillis();
+        }
+        return reply;
+    }
+
+    /**
+     * Return true if the connection has already completed at least one call.
+     * A clean close of such a connection is the Skeleton dropping it while idle.
+     */
+    public boolean isReused(){
+        return reused;
+    }
+
+    /**
+     * Return the number of calls written and not yet answered
+     */
+    public int getIn_flight(){
+        return in_flight.get();
+    }
+
+    public long getLast_used(){
+        return last_used;
+    }
+
+    /**
+     * Health Check: the reader thread notices at once when the Skeleton closes the connection
+     * @return true if the connection can carry more method calls
+     */
+    public boolean isHealthy(){
+        return !closed && !socket.isClosed();
+    }
+
+    /**
+     * Close the connection, ignoring any error. Pending calls are failed by the reader thread.
+     */
+    public void close(){
+        closed = true;
+        try{
+            socket.close();
+        }
+        catch (IOException e){
+            /* Nothing left to release */
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package rmi;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ConnectionPool keeps persistent connections to one Skeleton server address.
+ * One pool exists per address and is shared by all Stubs targeting that address.
+ *
+ * > Connections are multiplexed: a call goes to the least loaded healthy connection, and another connection
+ *   is only opened once every open one carries 'max_calls_per_connection' outstanding calls.
+ * > At most 'max_connections' sockets are open to the address at the same time.
+ * > A background reaper thread closes connections which have been idle longer than 'keep_alive' ms.
+ *   A connection handed out by 'acquire' is reserved for its caller until 'release', and is never reaped meanwhile.
+ * > A pool left without connections for 'keep_alive' ms is dropped by the reaper (unless its settings were changed);
+ *   the next 'get' for its address builds a new one.
+ */
+public class ConnectionPool {
+    /* Defaults, can be overridden by system properties */
+    public static final int DEFAULT_MAX_CONNECTIONS = Integer.getInteger("rmi.pool.max_connections", 32);
+    public static final int DEFAULT_MAX_CALLS_PER_CONNECTION = Integer.getInteger("rmi.pool.max_calls_per_connection", 64);
+    public static final long DEFAULT_KEEP_ALIVE = Long.getLong("rmi.pool.keep_alive", 30000L);
+
+    /* All Pools, One per Skeleton Address */
+    private static final ConcurrentMap<InetSocketAddress, ConnectionPool> pools =
+            new ConcurrentHashMap<InetSocketAddress, ConnectionPool>();
+
+    private static Thread reaper; //Shared Idle Connection Reaper (Started Lazily)
+
+    private final InetSocketAddress address;
+
+    private final List<Connection> connections = new ArrayList<Connection>();
+
+    private int opening_connections; //Slots Reserved by Threads Currently Opening a Connection
+
+    /* Connections Handed Out by 'acquire' and not Released yet, with their Number of Holders */
+    private final Map<Connection, Integer> reserved = new HashMap<Connection, Integer>();
+
+    private volatile long last_used = System.currentTimeMillis(); //Time(ms) when the Pool was Last Looked Up or Used
+
+    private volatile boolean dropped; //Removed from 'pools' by the Reaper: Calls go to the Address's Current Pool
+
+    private int max_connections = DEFAULT_MAX_CONNECTIONS;
+
+    private int max_calls_per_connection = DEFAULT_MAX_CALLS_PER_CONNECTION;
+
+    private long keep_alive = DEFAULT_KEEP_ALIVE;
+
+    public ConnectionPool(InetSocketAddress address){
+        this.address = address;
+    }
+
+    /**
+     * Return the pool shared by all stubs connecting to 'address'
+     */
+    public static ConnectionPool get(InetSocketAddress address){
+        ConnectionPool pool = pools.get(address);
+        if(pool == null){
+            ConnectionPool new_pool = new ConnectionPool(address);
+            pool = pools.putIfAbsent(address, new_pool);
+            if(pool == null){
+                pool = new_pool;
+                startReaper();
+            }
+        }
+        pool.last_used = System.currentTimeMillis();
+        return pool;
+    }
+
+    /**
+     * Close every idle connection of every pool.
+     */
+    public static void closeAll(){
+        for(ConnectionPool pool : pools.values()){
+            pool.closeIdle();
+        }
+    }
+
+    public InetSocketAddress getAddress(){
+        return address;
+    }
+
+    public synchronized void setMax_connections(int max_connections){
+        if(max_connections < 1){
+            throw new IllegalArgumentException("A pool needs at least one connection");
+        }
+        this.max_connections = max_connections;
+        notifyAll();
+    }
+
+    public synchronized void setMax_calls_per_connection(int max_calls_per_connection){
+        if(max_calls_per_connection < 1){
+            throw new IllegalArgumentException("A connection carries at least one call");
+        }
+        this.max_calls_per_connection = max_calls_per_connection;
+    }
+
+    public synchronized void setKeep_alive(long keep_alive){
+        this.keep_alive = keep_alive;
+    }
+
+    public synchronized int getOpen_connections(){
+        return connections.size() + opening_connections;
+    }
+
+    /**
+     * Pick the connection for the next call, opening a new one if every open connection is busy enough
+     * and the 'max_connections' bound allows it. The connection is reserved for the caller, who must 'release'
+     * it once its call has been sent (or has failed)
+     * @throws RMIException if a new connection cannot be opened, or the calling thread is interrupted
+     */
+    public Connection acquire() throws RMIException {
+        synchronized (this){
+            last_used = System.currentTimeMillis();
+            while(!dropped){
+                Connection least_loaded = null;
+                Iterator<Connection> it = connections.iterator();
+                while(it.hasNext()){
+                    Connection connection = it.next();
+                        /* Health Check: Drop Connections Closed by the Server */
+                    if(!connection.isHealthy()){
+                        it.remove();
+                        continue;
+                    }
+                    if(least_loaded == null || connection.getIn_flight() < least_loaded.getIn_flight()){
+                        least_loaded = connection;
+                    }
+                }
+                boolean can_open = connections.size() + opening_connections < max_connections;
+                if(least_loaded != null && (least_loaded.getIn_flight() < max_calls_per_connection || !can_open)){
+                    reserve(least_loaded);
+                    return least_loaded;
+                }
+                if(can_open){
+                    /* Reserve a Slot, the Socket is Opened outside the Lock */
+                    opening_connections++;
+                    break;
+                }
+                    /* Every Slot is Reserved by a Thread Still Opening its Connection */
+                try{
+                    wait();
+                }
+                catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    throw new RMIException("Interrupted while Waiting for a Connection to "+address, e);
+                }
+            }
+        }
+        if(dropped){
+                /* Looked Up just Before the Reaper Dropped this Pool */
+            return get(address).acquire();
+        }
+        Connection connection = null;
+        try{
+            connection = new Connection(address);
+            return connection;
+        }
+        catch (IOException e){
+            throw new RMIException("Failed to Connect to Skeleton Server!", e);
+        }
+        finally {
+            synchronized (this){
+                opening_connections--;
+                if(connection != null){
+                    connections.add(connection);
+                    reserve(connection);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    private void reserve(Connection connection){
+        Integer holders = reserved.get(connection);
+        reserved.put(connection, holders == null ? 1 : holders + 1);
+    }
+
+    /**
+     * End the reservation of a connection returned by 'acquire': once it carries no call, the reaper may close it
+     */
+    public void release(Connection connection){
+        synchronized (this){
+            if(!dropped){
+                Integer holders = reserved.get(connection);
+                if(holders == null){
+                        /* Discarded Meanwhile */
+                    return;
+                }
+                if(holders > 1){
+                    reserved.put(connection, holders - 1);
+                }
+                else{
+                    reserved.remove(connection);
+                }
+                last_used = System.currentTimeMillis();
+                return;
+            }
+        }
+            /* Acquired from the Pool this One was Replaced by */
+        get(address).release(connection);
+    }
+
+    /**
+     * Drop a broken connection (I/O error, protocol out of sync)
+     */
+    public void discard(Connection connection){
+        connection.close();
+        synchronized (this){
+            if(!dropped){
+                connections.remove(connection);
+                reserved.remove(connection);
+                notifyAll();
+                return;
+            }
+        }
+        get(address).discard(connection);
+    }
+
+    /**
+     * Close the connections without outstanding calls or reservations which have been idle for longer than
+     * 'keep_alive' ms.
+     */
+    protected void reapIdle(long now){
+        List<Connection> expired = new ArrayList<Connection>();
+        synchronized (this){
+            Iterator<Connection> it = connections.iterator();
+            while(it.hasNext()){
+                Connection connection = it.next();
+                if(!connection.isHealthy()
+                        || (connection.getIn_flight() == 0 && !reserved.containsKey(connection)
+                            && now - connection.getLast_used() >= keep_alive)){
+                    it.remove();
+                    expired.add(connection);
+                }
+            }
+            if(!expired.isEmpty()){
+                notifyAll();
+            }
+        }
+        for(Connection connection : expired){
+            connection.close();
+        }
+    }
+
+    /* Drop this Pool from 'pools' if it has had no Connection for 'keep_alive' ms, and its Settings are the Defaults */
+    private synchronized void dropIfUnused(long now){
+        if(!connections.isEmpty() || opening_connections > 0 || !reserved.isEmpty() || now - last_used < keep_alive
+                || max_connections != DEFAULT_MAX_CONNECTIONS
+                || max_calls_per_connection != DEFAULT_MAX_CALLS_PER_CONNECTION || keep_alive != DEFAULT_KEEP_ALIVE){
+            return;
+        }
+        dropped = true;
+        pools.remove(address, this);
+            /* Threads Waiting in 'acquire' go to the Next Pool */
+        notifyAll();
+    }
+
+    /**
+     * Close every connection of this pool which has no outstanding call or reservation
+     */
+    public void closeIdle(){
+        reapIdle(Long.MAX_VALUE);
+    }
+
+    /**
+     * Start the (daemon) reaper thread shared by all pools, if not running yet
+     */
+    private static synchronized void startReaper(){
+        if(reaper != null){
+            return;
+        }
+        reaper = new Thread("rmi-connection-reaper"){
+            @Override
+            public void run(){
+                while(true){
+                    try{
+                        Thread.sleep(1000);
+                    }
+                    catch (InterruptedException e){
+                        return;
+                    }
+                    long now = System.currentTimeMillis();
+                    for(ConnectionPool pool : pools.values()){
+                        pool.reapIdle(now);
+                        pool.dropIfUnused(now);
+                    }
+                }
+            }
+        };
+        /* Must not keep client JVMs alive */
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+}
@@ -0,0 +1,86 @@
+package rmi;
+
+/**
+ * Deadline bounds the time taken by the remote calls one thread makes within its scope:
+ *      try(Deadline deadline = Deadline.after(200)){
+ *          server.ping(4);
+ *          server.ping(5);
+ *      }
+ * Both calls must complete within 200 ms of the deadline's creation, or fail with a 'DeadlineExceededException'.
+ * Deadlines nest: an inner scope cannot extend the deadline of the scope it is opened in.
+ * A stub may also have a timeout of its own (see 'Stub.withTimeout'), applied to each of its calls; a call made with
+ * both must complete by the earlier of the two.
+ *
+ * The deadline is carried by the call (see 'Protocol'): the Skeleton drops the call if the deadline passes before it
+ * runs, and interrupts it if the client gives up while it runs.
+ * One-way calls are not bounded, as they never wait for the Skeleton.
+ */
+public class Deadline implements AutoCloseable {
+    /* Innermost Scope Opened by each Thread */
+    private static final ThreadLocal<Deadline> current = new ThreadLocal<Deadline>();
+
+    private final long time; //Time(ms) the Calls Must Complete by
+
+    private final Deadline outer; //Scope Restored on 'close', null if None
+
+    private Deadline(long time, Deadline outer){
+        this.time = time;
+        this.outer = outer;
+    }
+
+    /**
+     * Open a scope in which the calling thread's remote calls must complete within 'timeout' ms from now
+     * (or by the deadline of the enclosing scope, if earlier)
+     * @throws IllegalArgumentException if 'timeout' is not positive
+     */
+    public static Deadline after(long timeout){
+        if(timeout <= 0){
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+        Deadline outer = current.get();
+        long time = System.currentTimeMillis() + timeout;
+        if(outer != null){
+            time = Math.min(time, outer.time);
+        }
+        Deadline deadline = new Deadline(time, outer);
+        current.set(deadline);
+        return deadline;
+    }
+
+    /**
+     * Return the time(ms) the calls of this scope must complete by
+     */
+    public long getTime(){
+        return time;
+    }
+
+    /**
+     * Close the scope, restoring the deadline of the enclosing one
+     * @throws IllegalStateException if this is not the calling thread's innermost scope
+     */
+    @Override
+    public void close(){
+        if(current.get() != this){
+            throw new IllegalStateException("Deadline Closed Out of Order, or by Another Thread");
+        }
+        if(outer == null){
+            current.remove();
+        }
+        else{
+            current.set(outer);
+        }
+    }
+
+    /**
+     * Return the time(ms) a call made now by the calling thread must complete by: the earlier of its scope's deadline
+     * and 'timeout' ms from now (0 if the stub has no timeout), or 0 if neither bounds the call
+     */
+    static long of(long timeout){
+        Deadline deadline = current.get();
+        long time = timeout > 0 ? System.currentTimeMillis() + timeout : 0;
+        if(deadline != null && (time == 0 || deadline.time < time)){
+            time = deadline.time;
+        }
+        return time;
+    }
+}
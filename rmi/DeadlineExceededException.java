@@ -0,0 +1,17 @@
+package rmi;
+
+/** RMI exception raised when a call did not complete before its deadline (see 'Deadline').
+ *  The client stopped waiting and asked the Skeleton to cancel the call: the remote method may not have run, or
+ *  may have been interrupted while running, or may have completed without its result being delivered.
+ *  */
+
+public class DeadlineExceededException extends RMIException
+{
+    private static final long serialVersionUID = 1L;
+
+    /** Creates a <code>DeadlineExceededException</code> with the given message string. */
+    public DeadlineExceededException(String message)
+    {
+        super(message);
+    }
+}
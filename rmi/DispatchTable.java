@@ -0,0 +1,187 @@
+package rmi;
+
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * DispatchTable holds, for every method ID of a Skeleton's 'MethodTable', a method handle bound to the server
+ * object and adapted to the uniform signature (Object[])Object, together with what the Skeleton needs to know
+ * about the method's return type. It is built once when the Skeleton is created and never changes, so serving a
+ * call takes an array lookup and one handle invocation, without reflection.
+ * For '@Remote' interfaces compiled with 'RemoteProcessor', calls go through the generated 'RemoteDispatcher'
+ * instead, which also decodes the arguments and encodes primitive return values without boxing them.
+ */
+public class DispatchTable {
+    private static final MethodType SPREAD_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    /* Reflective Fallback for Methods whose Handle cannot be Looked Up */
+    private static final MethodHandle METHOD_INVOKE;
+
+    static {
+        try{
+            METHOD_INVOKE = MethodHandles.lookup().findVirtual(Method.class, "invoke",
+                    MethodType.methodType(Object.class, Object.class, Object[].class));
+        }
+        catch (ReflectiveOperationException e){
+            throw new Error(e);
+        }
+    }
+
+    /**
+     * One method of the remote interface, ready to be invoked on the server object
+     */
+    public static class Entry {
+        public final Method method;
+
+        public final Class<?> return_type;
+
+        public final boolean returns_remote; //Return Values are Passed as Stubs
+
+        public final boolean read_only; //Calls do not Change the Object (see 'ReadOnly')
+
+        public final Compartment compartment; //Admits the Method's Calls (see 'Bulkhead'), or null
+
+        private final Class<?>[] parameter_types;
+
+        private final Class<?>[] argument_types; //Parameter Types, Primitives Boxed
+
+        private final MethodHandle invoker; //(Object[])Object
+
+        private final boolean reflective; //Invoker Wraps Exceptions in InvocationTargetException
+
+        private final int id;
+
+        private final Object server;
+
+        private final RemoteDispatcher dispatcher; //Generated at Compile Time, or null
+
+        Entry(int id, Method method, Object server, boolean returns_remote, boolean read_only, Compartment compartment,
+              RemoteDispatcher dispatcher){
+            this.id = id;
+            this.compartment = compartment;
+            this.server = server;
+            this.dispatcher = dispatcher;
+            this.method = method;
+            this.return_type = method.getReturnType();
+            this.returns_remote = returns_remote;
+            this.read_only = read_only;
+            parameter_types = method.getParameterTypes();
+            argument_types = new Class<?>[parameter_types.length];
+            for(int i = 0; i < parameter_types.length; i++){
+                argument_types[i] = MethodType.methodType(parameter_types[i]).wrap().returnType();
+            }
+            MethodHandle handle;
+            try{
+                handle = unreflect(method);
+            }
+            catch (IllegalAccessException | RuntimeException e){
+                handle = null;
+            }
+            if(handle != null){
+                invoker = handle.bindTo(server).asSpreader(Object[].class, parameter_types.length).asType(SPREAD_TYPE);
+                reflective = false;
+            }
+            else{
+                invoker = METHOD_INVOKE.bindTo(method).bindTo(server);
+                reflective = true;
+            }
+        }
+
+        /* Public Handle, or One Made Accessible (Remote Interface not Public) */
+        private static MethodHandle unreflect(Method method) throws IllegalAccessException {
+            try{
+                return MethodHandles.publicLookup().unreflect(method);
+            }
+            catch (IllegalAccessException e){
+                method.setAccessible(true);
+                return MethodHandles.lookup().unreflect(method);
+            }
+        }
+
+        /**
+         * Read the arguments of a call from its body and invoke the method on the server object,
+         * through the generated dispatcher of the interface if there is one.
+         * A primitive return value, or the null of a void method, is written to 'reply' (the dispatcher writes it
+         * without boxing), an object is returned to be encoded by the caller
+         * @return the object returned by the method, null if its return type is primitive or void
+         * @throws IOException if the arguments are malformed
+         * @throws InvocationTargetException wrapping the exception raised by the method itself
+         */
+        public Object invoke(DataInput in, DataOutputStream reply)
+                throws IOException, ClassNotFoundException, InvocationTargetException {
+            if(dispatcher != null){
+                return dispatcher.dispatch(server, id, in, reply);
+            }
+            Object return_value = invoke(Protocol.readArguments(in));
+            if(return_type.isPrimitive()){
+                Codec.writeValue(reply, return_value);
+                return null;
+            }
+            return return_value;
+        }
+
+        /**
+         * Invoke the method on the server object
+         * @return the return value (boxed, null for void methods)
+         * @throws IllegalArgumentException if the arguments do not fit the method's parameters
+         * @throws InvocationTargetException wrapping the exception raised by the method itself
+         */
+        public Object invoke(Object[] args) throws IllegalArgumentException, InvocationTargetException {
+            if(args.length != argument_types.length){
+                throw new IllegalArgumentException("Wrong Number of Arguments for "+method.getName()
+                        +": "+args.length);
+            }
+            for(int i = 0; i < args.length; i++){
+                if(args[i] == null ? parameter_types[i].isPrimitive()
+                        : !argument_types[i].isInstance(args[i])){
+                    throw new IllegalArgumentException("Wrong Type of Argument "+i+" for "+method.getName());
+                }
+            }
+            try{
+                return (Object) invoker.invokeExact(args);
+            }
+            catch (Throwable t){
+                if(reflective){
+                    if(t instanceof InvocationTargetException){
+                        throw (InvocationTargetException) t;
+                    }
+                        /* Method.invoke Refused the Call Itself */
+                    throw new IllegalArgumentException("Cannot Invoke "+method.getName(), t);
+                }
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+
+    private final Entry[] entries; //Indexed by Method ID
+
+    /**
+     * Build the table of a remote object served by 'skeleton' (its server object, or an object it exported),
+     * implementing the methods of 'table'
+     */
+    public DispatchTable(MethodTable table, Object server, Skeleton<?> skeleton){
+        RemoteDispatcher dispatcher = RemoteClasses.dispatcher(table.getRemote_interface());
+        entries = new Entry[table.size()];
+        for(int id = 0; id < entries.length; id++){
+            Method method = table.method(id);
+            entries[id] = new Entry(id, method, server, skeleton.isRemoteInterface(method.getReturnType()),
+                    table.isReadOnly(id), skeleton.compartment(method), dispatcher);
+        }
+    }
+
+    /**
+     * Return the entry of the method with the given ID, or null if there is none
+     */
+    public Entry entry(int id){
+        if(id < 0 || id >= entries.length){
+            return null;
+        }
+        return entries[id];
+    }
+}
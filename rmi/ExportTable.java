@@ -0,0 +1,369 @@
+package rmi;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ExportTable holds the remote objects served by one Skeleton: its own server object, with object ID 0, and the
+ * remote objects returned by its methods, exported under the next free ID.
+ * An object is exported once per remote interface: returning it again, while it is exported, reuses its export (looked
+ * up by identity, not by 'equals'), so its stubs are equal and its calls reach the same dispatch table.
+ * Exported objects are served on the Skeleton's own port, by its connections and workers: their stubs carry the
+ * Skeleton's address and the object ID, which every call to them starts with (see 'Protocol'), so returning a remote
+ * object costs no thread, no port and no connection.
+ *
+ * Exported objects are leased (see 'Protocol'): every client holding stubs of an object renews its lease on it
+ * (see 'LeaseRenewer'), and drops it once it holds none. An object is unexported once every lease on it has expired
+ * or been dropped; until a client first renews it, the object is held by the lease of the call which returned it,
+ * one per connection it was returned on: a client's renewal only takes over the lease of its own connection.
+ * A background reaper thread, shared by all tables, unexports objects whose leases have expired.
+ *
+ * Each object also records the connections whose clients keep replies of its read-only methods (see 'ReadOnly'):
+ * once a call of another method has run on it, 'invalidate' tells them to drop those replies.
+ */
+public class ExportTable {
+    /**
+     * One remote object, ready to be called
+     */
+    public static class Export {
+        public final int object_id;
+
+        public final Class<?> remote_interface;
+
+        public final Object server; //Object Implementing the Remote Interface
+
+        public final DispatchTable dispatch_table;
+
+        /* Expiry Time(ms) of the Leases on the Object, by Client ID, or by ServerConnection for the Lease of the Calls
+           which Returned it on that Connection (the Server Object is not Leased) */
+        final ConcurrentHashMap<Object, Long> leases = new ConcurrentHashMap<Object, Long>();
+
+        /* Connections Keeping Replies of the Object's Read-Only Methods (WATCH Frames), Until it Changes */
+        final Set<ServerConnection> watchers = ConcurrentHashMap.<ServerConnection>newKeySet();
+
+        Export(int object_id, Class<?> remote_interface, Object server, DispatchTable dispatch_table){
+            this.object_id = object_id;
+            this.remote_interface = remote_interface;
+            this.server = server;
+            this.dispatch_table = dispatch_table;
+        }
+    }
+
+    /* Identity of an Exported Object, as the Remote Interface it is Served as */
+    private static class Identity {
+        final Object server;
+
+        final Class<?> remote_interface;
+
+        Identity(Object server, Class<?> remote_interface){
+            this.server = server;
+            this.remote_interface = remote_interface;
+        }
+
+        @Override
+        public boolean equals(Object other){
+            if(!(other instanceof Identity)){
+                return false;
+            }
+            Identity identity = (Identity) other;
+            return server == identity.server && remote_interface == identity.remote_interface;
+        }
+
+        @Override
+        public int hashCode(){
+            return 31 * System.identityHashCode(server) + remote_interface.hashCode();
+        }
+    }
+
+    /* Tables Holding Leased Objects, Swept by the Reaper */
+    private static final Set<ExportTable> leased = ConcurrentHashMap.newKeySet();
+
+    private static Thread reaper; //Shared Expired Lease Reaper (Started Lazily)
+
+    private final Skeleton<?> skeleton;
+
+    private final ConcurrentHashMap<Integer, Export> exports = new ConcurrentHashMap<Integer, Export>();
+
+    /* The Same Exports, by Object Identity (Removed on Unexport, so the Export's Strong Reference is the Only One) */
+    private final ConcurrentHashMap<Identity, Export> identities = new ConcurrentHashMap<Identity, Export>();
+
+    /* Tables of the Remote Interfaces Served, by Name, for Handshakes */
+    private final ConcurrentHashMap<String, MethodTable> tables = new ConcurrentHashMap<String, MethodTable>();
+
+    private final AtomicInteger next_object_id = new AtomicInteger();
+
+    private final AtomicLong unexported = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong(); //INVALIDATE Frames Sent
+
+    /**
+     * Build the table of 'skeleton', holding its server object
+     */
+    public ExportTable(Skeleton<?> skeleton){
+        this.skeleton = skeleton;
+        add(new Export(0, skeleton.remote_interface_c, skeleton.remoteObject, skeleton.dispatch_table));
+    }
+
+    /**
+     * Export a remote object returned by a method of the Skeleton (or of an object it exported), or reuse its export
+     * if it is still exported as 'remote_interface'. The object is held for the client of 'connection' until it
+     * renews its own lease
+     * @return the export, whose ID the object's stubs must carry
+     */
+    public Export export(Class<?> remote_interface, Object server, ServerConnection connection){
+        Identity identity = new Identity(server, remote_interface);
+        long expiry = System.currentTimeMillis() + skeleton.getConfig().getLease_duration();
+        while(true){
+            Export export = identities.get(identity);
+            if(export == null){
+                MethodTable table = MethodTable.of(remote_interface);
+                export = new Export(next_object_id.incrementAndGet(), remote_interface, server,
+                        new DispatchTable(table, server, skeleton));
+                export.leases.put(connection, expiry);
+                    /* Published Under its Lock, so Calls Finding it in 'identities' Wait Until it is in 'exports' */
+                synchronized (export){
+                    if(identities.putIfAbsent(identity, export) != null){
+                            /* Exported Meanwhile by Another Call: Reuse its Export */
+                        continue;
+                    }
+                    add(export);
+                }
+                leased.add(this);
+                startReaper();
+                return export;
+            }
+            if(export.object_id == 0){
+                return export;
+            }
+            synchronized (export){
+                    /* Unexported Meanwhile: Export it Again */
+                if(exports.get(export.object_id) != export){
+                    identities.remove(identity, export);
+                    continue;
+                }
+                    /* Held Again for this Call's Client, until it Renews its Own Lease */
+                export.leases.put(connection, expiry);
+                return export;
+            }
+        }
+    }
+
+    private void add(Export export){
+        tables.putIfAbsent(export.remote_interface.getName(), MethodTable.of(export.remote_interface));
+        exports.put(export.object_id, export);
+        identities.putIfAbsent(new Identity(export.server, export.remote_interface), export);
+    }
+
+    /**
+     * Return the remote object with the given ID, or null if there is none
+     */
+    public Export get(int object_id){
+        return exports.get(object_id);
+    }
+
+    /**
+     * Return the number of remote objects exported, besides the Skeleton's server object
+     */
+    public int size(){
+        return exports.size() - 1;
+    }
+
+    /**
+     * Return the number of remote objects unexported since the Skeleton was created
+     */
+    public long getUnexported(){
+        return unexported.get();
+    }
+
+    /**
+     * Record that the client of 'connection' keeps replies of the read-only methods of an object, as asked by a
+     * WATCH frame (ignored if the object is not exported)
+     */
+    public void watch(int object_id, ServerConnection connection){
+        Export export = exports.get(object_id);
+        if(export != null){
+            export.watchers.add(connection);
+        }
+    }
+
+    /**
+     * Forget a closed connection, which no longer needs to be told of changed objects
+     */
+    public void unwatch(ServerConnection connection){
+        for(Export export : exports.values()){
+            export.watchers.remove(connection);
+        }
+    }
+
+    /**
+     * Tell every connection watching an object that it changed, once a call of a method which is not read-only has
+     * run on it, and forget them until they watch it again. Must be called before the call's reply is sent, so that
+     * its client reads its own write
+     */
+    public void invalidate(Export export){
+        for(ServerConnection watcher : export.watchers){
+            if(!export.watchers.remove(watcher)){
+                    /* Told by a Concurrent Call */
+                continue;
+            }
+            try{
+                watcher.invalidate(export.object_id);
+                invalidations.incrementAndGet();
+            }
+            catch (IOException e){
+                    /* Broken Connection: its Client Drops its Replies when it Notices */
+            }
+        }
+    }
+
+    /**
+     * Return the number of INVALIDATE frames sent since the Skeleton was created
+     */
+    public long getInvalidations(){
+        return invalidations.get();
+    }
+
+    /**
+     * Renew and drop the leases of a client, as asked by the body of a LEASE frame read from 'connection'.
+     * A renewed lease replaces the lease of the calls which returned the object on that connection, if any
+     * @return the body of the reply: the lease duration, or the error if the body is malformed
+     */
+    public byte[] lease(byte[] body, ServerConnection connection) throws IOException {
+        long client_id;
+        int[] renewed;
+        int[] dropped;
+        try{
+            BodyReader in = Protocol.openBody(body);
+            client_id = in.readLong();
+            renewed = Protocol.readIds(in);
+            dropped = Protocol.readIds(in);
+        }
+        catch (IOException e){
+            return Protocol.encodeReply(Protocol.ERROR, new RMIException("Malformed Lease", e));
+        }
+        int duration = skeleton.getConfig().getLease_duration();
+        long expiry = System.currentTimeMillis() + duration;
+        for(int object_id : renewed){
+            Export export = leasedExport(object_id);
+            if(export != null){
+                synchronized (export){
+                        /* Already Unexported: the Client's Stubs have Outlived their Lease */
+                    if(exports.get(object_id) == export){
+                        export.leases.put(client_id, expiry);
+                        export.leases.remove(connection);
+                    }
+                }
+            }
+        }
+        for(int object_id : dropped){
+            Export export = leasedExport(object_id);
+            if(export != null){
+                synchronized (export){
+                    export.leases.remove(client_id);
+                    if(export.leases.isEmpty()){
+                        unexport(export);
+                    }
+                }
+            }
+        }
+        ReplyWriter out = new ReplyWriter(Protocol.SUCCEEDED);
+        out.writeInt(duration);
+        return out.toByteArray();
+    }
+
+    /* The Server Object is Never Unexported */
+    private Export leasedExport(int object_id){
+        return object_id == 0 ? null : exports.get(object_id);
+    }
+
+    /* Called with the Lock on 'export' Held */
+    private void unexport(Export export){
+        if(exports.remove(export.object_id, export)){
+            identities.remove(new Identity(export.server, export.remote_interface), export);
+            unexported.incrementAndGet();
+        }
+    }
+
+    /**
+     * Unexport the objects whose leases have all expired at time 'now'
+     * @return true if leased objects remain
+     */
+    private boolean expire(long now){
+        for(Export export : exports.values()){
+            if(export.object_id == 0){
+                continue;
+            }
+            synchronized (export){
+                Iterator<Long> expiries = export.leases.values().iterator();
+                while(expiries.hasNext()){
+                    if(expiries.next() < now){
+                        expiries.remove();
+                    }
+                }
+                if(export.leases.isEmpty()){
+                    unexport(export);
+                }
+            }
+        }
+        return size() > 0;
+    }
+
+    /**
+     * Start the (daemon) reaper thread shared by all tables, if not running yet
+     */
+    private static synchronized void startReaper(){
+        if(reaper != null){
+            return;
+        }
+        reaper = new Thread("rmi-lease-reaper"){
+            @Override
+            public void run(){
+                while(true){
+                    try{
+                        Thread.sleep(1000);
+                    }
+                    catch (InterruptedException e){
+                        return;
+                    }
+                    long now = System.currentTimeMillis();
+                    for(ExportTable table : leased){
+                        if(!table.expire(now)){
+                            leased.remove(table);
+                                /* An Object may have been Exported Meanwhile */
+                            if(table.size() > 0){
+                                leased.add(table);
+                            }
+                        }
+                    }
+                }
+            }
+        };
+        /* Must not keep server JVMs alive */
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    /**
+     * Check the handshake sent by a Stub against the table of the remote interface it names
+     * @return null if the Stub's calls can be served, otherwise the exception explaining why not
+     */
+    public RMIException checkHandshake(byte[] body){
+        String name;
+        try{
+            name = Protocol.openBody(body).readUTF();
+        }
+        catch (IOException e){
+            return new RMIException("Malformed Handshake", e);
+        }
+        MethodTable table = tables.get(name);
+        if(table == null){
+            return new RMIException("Stub Interface "+name+" is not Served by the Skeleton Server of "
+                    +skeleton.remote_interface_c.getName());
+        }
+        return table.checkHandshake(body);
+    }
+}
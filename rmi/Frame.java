@@ -0,0 +1,19 @@
+package rmi;
+
+/**
+ * Frame is one message of the Stub/Skeleton wire protocol (see 'Protocol').
+ * It carries its type, the correlation ID of the method call it belongs to, and its encoded body.
+ */
+public class Frame {
+    public final byte type;
+
+    public final int call_id; //Matches a Reply to its Call on a Multiplexed Connection
+
+    public final byte[] body;
+
+    public Frame(byte type, int call_id, byte[] body){
+        this.type = type;
+        this.call_id = call_id;
+        this.body = body;
+    }
+}
@@ -0,0 +1,393 @@
+package rmi;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.net.InetSocketAddress;
+
+/**
+ * GeneratedStub is the superclass of the stub classes generated by 'StubGenerator' (at run time) and by
+ * 'RemoteProcessor' (at compile time).
+ * A generated class implements every method of its remote interface by encoding the call itself, with the
+ * method's ID as a constant and each argument written by the 'Codec' method of its declared type, then calling
+ * the 'call' method matching its return type, instead of going through a proxy's 'InvocationHandler' (which
+ * boxes every primitive argument and return value).
+ * Equality, 'hashCode' and 'toString' are the same as for proxy stubs (and the kinds compare equal).
+ * Run-time classes are hidden classes which cannot be serialized by name, so every generated stub is serialized
+ * as its interface, address and object ID, and becomes a stub again (of whichever kind is available) when deserialized.
+ */
+public abstract class GeneratedStub implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final StubInvocationHandler<?> handler;
+
+    protected GeneratedStub(StubInvocationHandler<?> handler){
+        this.handler = handler;
+    }
+
+    /**
+     * Start encoding a call of method 'method_id' with 'count' arguments, to the object the stub calls
+     */
+    protected final CallWriter newCall(int method_id, int count) throws IOException {
+        return new CallWriter(handler.getObject_id(), method_id, count);
+    }
+
+    /**
+     * Send a call encoded by the stub itself, see 'StubInvocationHandler.call'
+     * @return the object returned by the remote method
+     */
+    protected final Object call(CallWriter call) throws Throwable {
+        return handler.call(call.toByteArray());
+    }
+
+    /**
+     * Send a call of a void method encoded by the stub itself
+     */
+    protected final void callVoid(CallWriter call) throws Throwable {
+        handler.reply(call.toByteArray());
+    }
+
+    /**
+     * Send a call of a one-way method (see 'OneWay') encoded by the stub itself, without waiting for it to run
+     */
+    protected final void callOneWay(CallWriter call) throws RMIException {
+        handler.sendOneWay(call.toByteArray());
+    }
+
+    /* Typed Calls, Decoding the Primitive Return Value without Boxing it */
+
+    protected final boolean callBoolean(CallWriter call) throws Throwable {
+        DataInput in = handler.reply(call.toByteArray());
+        try{
+            return Codec.readBoolean(in);
+        }
+        catch (IOException e){
+            throw StubInvocationHandler.readFailure(e);
+        }
+    }
+
+    protected final byte callByte(CallWriter call) throws Throwable {
+        DataInput in = handler.reply(call.toByteArray());
+        try{
+            return Codec.readByte(in);
+        }
+        catch (IOException e){
+            throw StubInvocationHandler.readFailure(e);
+        }
+    }
+
+    protected final short callShort(CallWriter call) throws Throwable {
+        DataInput in = handler.reply(call.toByteArray());
+        try{
+            return Codec.readShort(in);
+        }
+        catch (IOException e){
+            throw StubInvocationHandler.readFailure(e);
+        }
+    }
+
+    protected final char callChar(CallWriter call) throws Throwable {
+        DataInput in = handler.reply(call.toByteArray());
+        try{
+            return Codec.readChar(in);
+        }
+        catch (IOException e){
+            throw StubInvocationHandler.readFailure(e);
+        }
+    }
+
+    protected final int callInt(CallWriter call) throws Throwable {
+        DataInput in = handler.reply(call.toByteArray());
+        try{
+            return Codec.readInt(in);
+        }
+        catch (IOException e){
+            throw StubInvocationHandler.readFailure(e);
+        }
+    }
+
+    protected final long callLong(CallWriter call) throws Throwable {
+        DataInput in = handler.reply(call.toByteArray());
+        try{
+            return Codec.readLong(in);
+        }
+        catch (IOException e){
+            throw StubInvocationHandler.readFailure(e);
+        }
+    }
+
+    protected final float callFloat(CallWriter call) throws Throwable {
+        DataInput in = handler.reply(call.toByteArray());
+        try{
+            return Codec.readFloat(in);
+        }
+        catch (IOException e){
+            throw StubInvocationHandler.readFailure(e);
+        }
+    }
+
+    protected final double callDouble(CallWriter call) throws Throwable {
+        DataInput in = handler.reply(call.toByteArray());
+        try{
+            return Codec.readDouble(in);
+        }
+        catch (IOException e){
+            throw StubInvocationHandler.readFailure(e);
+        }
+    }
+
+    /* Helpers of the Classes Generated at Run Time ('StubGenerator'), whose Bytecode Neither Branches nor Catches:
+       'beginCall', a 'put' per Argument, then the 'end' Method Matching the Return Type */
+
+    protected final CallWriter beginCall(int method_id, int count) throws RMIException {
+        try{
+            return newCall(method_id, count);
+        }
+        catch (IOException e){
+            throw new RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+    }
+
+    protected final void put(CallWriter call, boolean value) throws RMIException {
+        try{
+            Codec.writeBoolean(call, value);
+        }
+        catch (IOException e){
+            throw new RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+    }
+
+    protected final void put(CallWriter call, byte value) throws RMIException {
+        try{
+            Codec.writeByte(call, value);
+        }
+        catch (IOException e){
+            throw new RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+    }
+
+    protected final void put(CallWriter call, short value) throws RMIException {
+        try{
+            Codec.writeShort(call, value);
+        }
+        catch (IOException e){
+            throw new RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+    }
+
+    protected final void put(CallWriter call, char value) throws RMIException {
+        try{
+            Codec.writeChar(call, value);
+        }
+        catch (IOException e){
+            throw new RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+    }
+
+    protected final void put(CallWriter call, int value) throws RMIException {
+        try{
+            Codec.writeInt(call, value);
+        }
+        catch (IOException e){
+            throw new RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+    }
+
+    protected final void put(CallWriter call, long value) throws RMIException {
+        try{
+            Codec.writeLong(call, value);
+        }
+        catch (IOException e){
+            throw new RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+    }
+
+    protected final void put(CallWriter call, float value) throws RMIException {
+        try{
+            Codec.writeFloat(call, value);
+        }
+        catch (IOException e){
+            throw new RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+    }
+
+    protected final void put(CallWriter call, double value) throws RMIException {
+        try{
+            Codec.writeDouble(call, value);
+        }
+        catch (IOException e){
+            throw new RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+    }
+
+    protected final void put(CallWriter call, Object value) throws RMIException {
+        try{
+            Codec.writeValue(call, value);
+        }
+        catch (IOException e){
+            throw new RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+    }
+
+    protected final void endVoid(int method_id, CallWriter call) throws Throwable {
+        try{
+            callVoid(call);
+        }
+        catch (Throwable t){
+            throw declared(method_id, t);
+        }
+    }
+
+    protected final void endOneWay(int method_id, CallWriter call) throws RMIException {
+        callOneWay(call);
+    }
+
+    protected final Object endValue(int method_id, CallWriter call) throws Throwable {
+        try{
+            return call(call);
+        }
+        catch (Throwable t){
+            throw declared(method_id, t);
+        }
+    }
+
+    protected final boolean endBoolean(int method_id, CallWriter call) throws Throwable {
+        try{
+            return callBoolean(call);
+        }
+        catch (Throwable t){
+            throw declared(method_id, t);
+        }
+    }
+
+    protected final byte endByte(int method_id, CallWriter call) throws Throwable {
+        try{
+            return callByte(call);
+        }
+        catch (Throwable t){
+            throw declared(method_id, t);
+        }
+    }
+
+    protected final short endShort(int method_id, CallWriter call) throws Throwable {
+        try{
+            return callShort(call);
+        }
+        catch (Throwable t){
+            throw declared(method_id, t);
+        }
+    }
+
+    protected final char endChar(int method_id, CallWriter call) throws Throwable {
+        try{
+            return callChar(call);
+        }
+        catch (Throwable t){
+            throw declared(method_id, t);
+        }
+    }
+
+    protected final int endInt(int method_id, CallWriter call) throws Throwable {
+        try{
+            return callInt(call);
+        }
+        catch (Throwable t){
+            throw declared(method_id, t);
+        }
+    }
+
+    protected final long endLong(int method_id, CallWriter call) throws Throwable {
+        try{
+            return callLong(call);
+        }
+        catch (Throwable t){
+            throw declared(method_id, t);
+        }
+    }
+
+    protected final float endFloat(int method_id, CallWriter call) throws Throwable {
+        try{
+            return callFloat(call);
+        }
+        catch (Throwable t){
+            throw declared(method_id, t);
+        }
+    }
+
+    protected final double endDouble(int method_id, CallWriter call) throws Throwable {
+        try{
+            return callDouble(call);
+        }
+        catch (Throwable t){
+            throw declared(method_id, t);
+        }
+    }
+
+    /* Exception Thrown for 't', Raised by a Call of Method 'method_id': as it is if Unchecked or Declared by the Method,
+       Wrapped Otherwise (as by Proxies) */
+    private Throwable declared(int method_id, Throwable t){
+        if(t instanceof RuntimeException || t instanceof Error){
+            return t;
+        }
+        for(Class<?> type : MethodTable.of(handler.getRemote_interface_class()).method(method_id).getExceptionTypes()){
+            if(type.isInstance(t)){
+                return t;
+            }
+        }
+        return new UndeclaredThrowableException(t);
+    }
+
+    @Override
+    public boolean equals(Object other){
+        if(other == null){
+            return false;
+        }
+        try{
+            return handler.toString().equals(StubInvocationHandler.of(other).toString());
+        }
+        catch (IllegalArgumentException e){
+                /* Not a Stub */
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode(){
+        return handler.toString().hashCode();
+    }
+
+    @Override
+    public String toString(){
+        return handler.toString();
+    }
+
+    protected Object writeReplace() throws ObjectStreamException {
+        return new SerializedStub(handler.getRemote_interface_class(), handler.get_Address(), handler.getObject_id());
+    }
+
+    /* Serialized Form of a Generated Stub */
+    private static class SerializedStub implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Class<?> remote_interface_class;
+
+        private final InetSocketAddress address;
+
+        private final int object_id;
+
+        SerializedStub(Class<?> remote_interface_class, InetSocketAddress address, int object_id){
+            this.remote_interface_class = remote_interface_class;
+            this.address = address;
+            this.object_id = object_id;
+        }
+
+        private Object readResolve() throws ObjectStreamException {
+            Object stub = Stub.create(remote_interface_class, address, object_id);
+                /* A Received Stub of an Exported Object Holds a Lease on it */
+            LeaseRenewer.hold(StubInvocationHandler.of(stub));
+            return stub;
+        }
+    }
+}
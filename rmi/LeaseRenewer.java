@@ -0,0 +1,279 @@
+package rmi;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.InetSocketAddress;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * LeaseRenewer holds this client's leases on the remote objects exported by Skeletons (see 'ExportTable'): one lease
+ * per object this client holds stubs of, taken when the first of them is received.
+ *
+ * > A background thread renews all the leases held on one Skeleton in one LEASE frame (see 'Protocol'), halfway
+ *   through the shortest lease duration the Skeletons granted.
+ * > Once every stub of an object has been garbage collected, its lease is dropped in the next LEASE frame sent to
+ *   its Skeleton, which unexports the object unless other clients still hold it.
+ * > A new lease is renewed at once, so an object passed on by the client which received it stays exported.
+ * If a Skeleton cannot be reached, or does not answer within half the lease duration it last granted, its leases are
+ * renewed again at the next round; objects whose leases expire meanwhile are unexported, and calls on their stubs
+ * fail with an RMIException.
+ */
+public class LeaseRenewer {
+    /* Renewal Interval Before Any Skeleton has Granted a Lease */
+    private static final long DEFAULT_RENEWAL = Long.getLong("rmi.dgc.lease_ms", 60000L) / 2;
+
+    /* Identifies this Client's Leases on every Skeleton (Never 0, Reserved by 'ExportTable') */
+    private static final long CLIENT_ID = newClient_id();
+
+    private static final ScheduledExecutorService renewer = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, "rmi-lease-renewer");
+                    /* Must not keep client JVMs alive */
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /* Live Stubs of each Leased Object, by Skeleton Address and Object ID, Guarded by its own Lock */
+    private static final Map<InetSocketAddress, Map<Integer, Integer>> held =
+            new HashMap<InetSocketAddress, Map<Integer, Integer>>();
+
+    /* Handlers of the Live Stubs, Enqueued in 'collected' once Garbage Collected */
+    private static final Set<HeldStub> stubs = ConcurrentHashMap.newKeySet();
+
+    private static final ReferenceQueue<StubInvocationHandler<?>> collected =
+            new ReferenceQueue<StubInvocationHandler<?>>();
+
+    private static ScheduledFuture<?> next_round; //Guarded by the Lock on 'held'
+
+    private static long next_round_time; //Time(ms) 'next_round' Runs at
+
+    /* Lease Duration(ms) Last Granted by each Skeleton, Only Used by the Renewer Thread */
+    private static final Map<InetSocketAddress, Integer> durations = new HashMap<InetSocketAddress, Integer>();
+
+    /* Weak Reference to the Handler of a Stub Holding a Lease */
+    private static class HeldStub extends WeakReference<StubInvocationHandler<?>> {
+        final InetSocketAddress address;
+
+        final int object_id;
+
+        HeldStub(StubInvocationHandler<?> handler){
+            super(handler, collected);
+            this.address = handler.get_Address();
+            this.object_id = handler.getObject_id();
+        }
+    }
+
+    private static long newClient_id(){
+        long client_id = 0;
+        SecureRandom random = new SecureRandom();
+        while(client_id == 0){
+            client_id = random.nextLong();
+        }
+        return client_id;
+    }
+
+    /**
+     * Hold a lease on the object a received stub calls, until the stub is garbage collected.
+     * Stubs of a Skeleton's own server object (object ID 0) are not leased.
+     */
+    static void hold(StubInvocationHandler<?> handler){
+        if(handler.getObject_id() == 0){
+            return;
+        }
+        stubs.add(new HeldStub(handler));
+        synchronized (held){
+            Map<Integer, Integer> objects = held.get(handler.get_Address());
+            if(objects == null){
+                objects = new HashMap<Integer, Integer>();
+                held.put(handler.get_Address(), objects);
+            }
+            Integer count = objects.get(handler.getObject_id());
+            objects.put(handler.getObject_id(), count == null ? 1 : count + 1);
+            if(count == null){
+                    /* New Lease: Renew it Now */
+                schedule(0);
+            }
+        }
+    }
+
+    /**
+     * Return the number of objects this client holds leases on
+     */
+    public static int getLeased_objects(){
+        synchronized (held){
+            int count = 0;
+            for(Map<Integer, Integer> objects : held.values()){
+                count += objects.size();
+            }
+            return count;
+        }
+    }
+
+    /* Called with the Lock on 'held' Held: Run a Round within 'delay' ms */
+    private static void schedule(long delay){
+        long time = System.currentTimeMillis() + delay;
+        if(next_round != null && next_round_time <= time){
+            return;
+        }
+        if(next_round != null){
+            next_round.cancel(false);
+        }
+        next_round_time = time;
+        next_round = renewer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                round();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /* Renewer Thread: Renew the Leases Held on every Skeleton, Dropping Those of Collected Stubs */
+    private static void round(){
+        Map<InetSocketAddress, List<Integer>> dropped = new HashMap<InetSocketAddress, List<Integer>>();
+        Map<InetSocketAddress, List<Integer>> renewed = new HashMap<InetSocketAddress, List<Integer>>();
+        synchronized (held){
+            next_round = null;
+            Reference<? extends StubInvocationHandler<?>> reference;
+            while((reference = collected.poll()) != null){
+                HeldStub stub = (HeldStub) reference;
+                stubs.remove(stub);
+                Map<Integer, Integer> objects = held.get(stub.address);
+                int count = objects.get(stub.object_id) - 1;
+                if(count > 0){
+                    objects.put(stub.object_id, count);
+                    continue;
+                }
+                objects.remove(stub.object_id);
+                if(objects.isEmpty()){
+                    held.remove(stub.address);
+                }
+                if(!dropped.containsKey(stub.address)){
+                    dropped.put(stub.address, new ArrayList<Integer>());
+                }
+                dropped.get(stub.address).add(stub.object_id);
+            }
+            for(Map.Entry<InetSocketAddress, Map<Integer, Integer>> objects : held.entrySet()){
+                renewed.put(objects.getKey(), new ArrayList<Integer>(objects.getValue().keySet()));
+            }
+        }
+
+        Set<InetSocketAddress> addresses = new HashSet<InetSocketAddress>(renewed.keySet());
+        addresses.addAll(dropped.keySet());
+        long interval = Long.MAX_VALUE;
+        for(InetSocketAddress address : addresses){
+            try{
+                int duration = lease(address, renewed.get(address), dropped.get(address));
+                interval = Math.min(interval, Math.max(1, duration / 2));
+            }
+            catch (RMIException e){
+                    /* Skeleton Unreachable: Renewed Again at the Next Round, Dropped Leases Expire */
+            }
+        }
+
+        synchronized (held){
+            if(!held.isEmpty()){
+                schedule(interval == Long.MAX_VALUE ? DEFAULT_RENEWAL : interval);
+            }
+        }
+    }
+
+    /**
+     * Send one LEASE frame to the Skeleton at 'address', and wait for its reply for at most half the lease duration
+     * it last granted (a reply arriving later could not renew the leases in time)
+     * @return the lease duration(ms) granted by the Skeleton
+     */
+    private static int lease(InetSocketAddress address, List<Integer> renewed, List<Integer> dropped)
+            throws RMIException {
+        byte[] body;
+        try{
+            body = Protocol.encodeLease(CLIENT_ID, toArray(renewed), toArray(dropped));
+        }
+        catch (IOException e){
+            throw new RMIException("Failed to Write Lease", e);
+        }
+        Integer granted = durations.get(address);
+        long wait = granted == null ? DEFAULT_RENEWAL : Math.max(1, granted / 2);
+        ConnectionPool pool = ConnectionPool.get(address);
+        while(true){
+            Connection connection = pool.acquire();
+                /* A Stale Connection is Retried, as for Method Calls */
+            boolean stale_retry = connection.isReused();
+            CompletableFuture<byte[]> reply = null;
+            try{
+                reply = connection.sendLease(body);
+                BodyReader in = Protocol.openBody(reply.get(wait, TimeUnit.MILLISECONDS));
+                if(in.readByte() != Protocol.SUCCEEDED){
+                    throw (RMIException) Codec.readValue(in);
+                }
+                int duration = in.readInt();
+                durations.put(address, duration);
+                return duration;
+            }
+            catch (TimeoutException e){
+                    /* Unanswered: the Connection is Taken for Broken, as a Stale One */
+                reply.cancel(false);
+                pool.discard(connection);
+                if(stale_retry){
+                    continue;
+                }
+                throw new RMIException("Skeleton Server did not Answer the Lease in Time", e);
+            }
+            catch (IOException e){
+                pool.discard(connection);
+                if(stale_retry){
+                    continue;
+                }
+                throw new RMIException("Failed to Renew Leases", e);
+            }
+            catch (ExecutionException e){
+                pool.discard(connection);
+                if(stale_retry && e.getCause() instanceof EOFException){
+                    continue;
+                }
+                throw new RMIException("Failed to Renew Leases", e.getCause());
+            }
+            catch (ClassNotFoundException e){
+                throw new RMIException("Failed to Renew Leases", e);
+            }
+            catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new RMIException("Interrupted while Renewing Leases", e);
+            }
+            finally {
+                pool.release(connection);
+            }
+        }
+    }
+
+    private static int[] toArray(List<Integer> ids){
+        if(ids == null){
+            return new int[0];
+        }
+        int[] array = new int[ids.size()];
+        for(int i = 0; i < array.length; i++){
+            array[i] = ids.get(i);
+        }
+        return array;
+    }
+}
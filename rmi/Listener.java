@@ -0,0 +1,34 @@
+package rmi;
+
+/**
+ * Listener is the listening side of a Skeleton server: it accepts connections from clients(Stubs)
+ * and owns the connections it accepted. Implemented by 'ListenerThread' and 'NioListenerThread'.
+ */
+public interface Listener {
+    /**
+     * Stop accepting connections, the listening thread exits soon after
+     */
+    void terminate();
+
+    /**
+     * Stop serving new calls on the accepted connections: calls read from now on are refused,
+     * and each connection is closed once its outstanding calls have been answered
+     */
+    void closeConnections();
+
+    /**
+     * Wait until every accepted connection has been closed, for at most 'timeout' ms
+     * @return true if they all have been closed
+     */
+    boolean awaitConnections(long timeout) throws InterruptedException;
+
+    /**
+     * Close every accepted connection at once, without waiting for its outstanding calls
+     * (their replies are not sent)
+     */
+    void abortConnections();
+
+    boolean isAlive();
+
+    void join() throws InterruptedException;
+}
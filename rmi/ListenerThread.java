@@ -3,17 +3,25 @@ package rmi;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ListenerThread is the listening thread at Skeleton server side, accepting connections from client(Stub)
  * @ Chenxuan Weng & Zeyu Sun
  */
-public  class ListenerThread<T> extends Thread{
+public  class ListenerThread<T> extends Thread implements Listener{
     private ServerSocket socket;
 
     private Skeleton<T> skeleton; //Related Skeleton (Listen on Connections on This Skeleton Server)
 
-    protected boolean stop_status;
+    /* Service Threads of the Connections this Listener Accepted, each Removes Itself Once its Connection is Closed.
+       Added and Removed Without Locking, the Set's Monitor is only Notified of Removals (for Threads Waiting on it) */
+    private final Set<ServiceThread<T>> service_threads = ConcurrentHashMap.<ServiceThread<T>>newKeySet();
+
+    protected volatile boolean stop_status;
 
     public ListenerThread(ServerSocket skeleton_server_socket, Skeleton<T> skeleton){
         this.socket = skeleton_server_socket;
@@ -21,7 +29,13 @@ public  class ListenerThread<T> extends Thread{
         stop_status = false; // Skeleton's stop method has not been called
     }
 
+    @Override
     public synchronized void terminate() {
+        stop_status = true;
+        synchronized (service_threads){
+                /* Wake the Listening Thread up if it Waits for a Free Connection Slot */
+            service_threads.notifyAll();
+        }
         try {
             if(!this.socket.isClosed()){
                 this.socket.close();
@@ -30,6 +44,66 @@ public  class ListenerThread<T> extends Thread{
             e.printStackTrace();
         }
     }
+    /**
+     * Stop serving new calls on all kept-alive client connections (one per Service Thread)
+     */
+    @Override
+    public void closeConnections() {
+        for(ServiceThread<T> thread : serviceThreads()){
+            thread.shutdown();
+        }
+    }
+
+    /**
+     * Wait for every Service Thread to exit, for at most 'timeout' ms
+     */
+    @Override
+    public boolean awaitConnections(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (service_threads){
+            while(!service_threads.isEmpty()){
+                long left = deadline - System.currentTimeMillis();
+                if(left <= 0){
+                    return false;
+                }
+                service_threads.wait(left);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void abortConnections() {
+        for(ServiceThread<T> thread : serviceThreads()){
+            thread.abort();
+        }
+    }
+
+    /* Copy of the Set: Service Threads Remove Themselves from it when they Exit */
+    private List<ServiceThread<T>> serviceThreads(){
+        return new ArrayList<ServiceThread<T>>(service_threads);
+    }
+
+    /**
+     * Forget the Service Thread of a closed connection, freeing its connection slot
+     */
+    void remove(ServiceThread<T> thread){
+        service_threads.remove(thread);
+        synchronized (service_threads){
+            service_threads.notifyAll();
+        }
+    }
+
+    /* Wait while the Skeleton serves 'max_connections' connections, further clients wait in the accept backlog */
+    private void awaitConnectionSlot() throws InterruptedException {
+        int max_connections = skeleton.getConfig().getMax_connections();
+        synchronized (service_threads){
+            while(!stop_status && service_threads.size() >= max_connections){
+                service_threads.wait(1000);
+            }
+        }
+    }
+
         /* One of the way to create a new thread of execution is
            to declare a class to be a subclass of Thread.
            This subclass should override the run method of class Thread.
@@ -43,13 +117,18 @@ public  class ListenerThread<T> extends Thread{
                 /* Run the Skeleton MultiThread Server */
             while(true){
                 try{
+                    awaitConnectionSlot();
+                    if(stop_status){
+                        break;
+                    }
                         /* Listening for connections (Method Call)
                            And Create Service Thread to handle the Remote Method Call When connections areaccepted.
                          */
                     Socket connection = this.socket.accept();
                     System.out.println("New Connection!");
-                    ServiceThread<T> service_thread = new ServiceThread(connection, this.skeleton);
-                    service_thread.start();
+                    ServiceThread<T> service_thread = new ServiceThread<T>(connection, this.skeleton, this);
+                    service_threads.add(service_thread);
+                    service_thread.start(skeleton.service_thread_factory);
                 }
                 catch(Exception e){
                     if(stop_status == true){
@@ -67,7 +146,7 @@ public  class ListenerThread<T> extends Thread{
                     else{
                         // Skeleton Server Has to Stop
                         // The Listener Thread needs to exits
-                        skeleton.stopped(e);
+                        skeleton.listenerFailed(this, e);
                         break;
                     }
                 }
@@ -0,0 +1,255 @@
+package rmi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MethodTable maps the methods of a remote interface to the int IDs sent in call frames (see 'Protocol').
+ * The methods are sorted by signature (name and parameter types) and a method's ID is its index, so Stub and
+ * Skeleton derive the same table independently and the Skeleton resolves a call with one array lookup.
+ * The fingerprint of the table (interface name, every signature with its return type, and which methods are
+ * one-way or read-only) is checked once per connection, in the handshake which precedes the first call of a Stub: a Stub
+ * compiled against another version of the interface is refused before any ID can reach the wrong method. Static methods are not remote.
+ * Tables are built once per interface and shared.
+ */
+public class MethodTable {
+    /* Marks One-Way Methods in the Description of the Table (Shared with 'RemoteProcessor') */
+    static final String ONE_WAY = " oneway";
+
+    /* Marks Read-Only Methods in the Description of the Table (Shared with 'RemoteProcessor') */
+    static final String READ_ONLY = " readonly";
+
+    private static final ConcurrentHashMap<Class<?>, MethodTable> tables = new ConcurrentHashMap<Class<?>, MethodTable>();
+
+    private final Class<?> remote_interface;
+
+    private final Method[] methods; //Sorted by Signature, Indexed by ID
+
+    private final boolean[] one_way; //Calls of '@OneWay' void Methods Get no Reply, Indexed by ID
+
+    private final boolean[] read_only; //'@ReadOnly' Methods do not Change their Object (see 'Stub.withNearCache')
+
+    private final boolean has_read_only;
+
+    private final long[] cache_ttl; //Time(ms) Stubs Reuse Replies of '@Cacheable' Methods, 0 if not Cached, Indexed by ID
+
+    private final boolean has_cacheable;
+
+    private final Map<Method, Integer> ids = new HashMap<Method, Integer>();
+
+    private final Map<String, Integer> signature_ids = new HashMap<String, Integer>();
+
+    private final long fingerprint;
+
+    private MethodTable(Class<?> remote_interface){
+        this.remote_interface = remote_interface;
+            /* One Method per Signature: Keep the Most Specific Return Type of Overridden Methods */
+        TreeMap<String, Method> sorted = new TreeMap<String, Method>();
+        for(Method method : remote_interface.getMethods()){
+            if(Modifier.isStatic(method.getModifiers())){
+                continue;
+            }
+            String signature = signature(method);
+            Method other = sorted.get(signature);
+            if(other == null || other.getReturnType().isAssignableFrom(method.getReturnType())){
+                sorted.put(signature, method);
+            }
+        }
+        methods = sorted.values().toArray(new Method[0]);
+
+        one_way = new boolean[methods.length];
+        read_only = new boolean[methods.length];
+        boolean any_read_only = false;
+        cache_ttl = new long[methods.length];
+        boolean any_cacheable = false;
+        StringBuilder description = new StringBuilder(remote_interface.getName());
+        for(int id = 0; id < methods.length; id++){
+            String signature = signature(methods[id]);
+            signature_ids.put(signature, id);
+            description.append('\n').append(methods[id].getReturnType().getName()).append(' ').append(signature);
+            one_way[id] = methods[id].getReturnType() == void.class && methods[id].isAnnotationPresent(OneWay.class);
+            if(one_way[id]){
+                description.append(ONE_WAY);
+            }
+            read_only[id] = methods[id].getReturnType() != void.class && methods[id].isAnnotationPresent(ReadOnly.class);
+            if(read_only[id]){
+                description.append(READ_ONLY);
+                any_read_only = true;
+            }
+                /* Only Concerns Stubs: not Part of the Description */
+            Cacheable cacheable = methods[id].getAnnotation(Cacheable.class);
+            if(cacheable != null && methods[id].getReturnType() != void.class){
+                cache_ttl[id] = Math.max(0, cacheable.ttl());
+                any_cacheable |= cache_ttl[id] > 0;
+            }
+        }
+        for(Method method : remote_interface.getMethods()){
+            if(!Modifier.isStatic(method.getModifiers())){
+                ids.put(method, signature_ids.get(signature(method)));
+            }
+        }
+        has_read_only = any_read_only;
+        has_cacheable = any_cacheable;
+        fingerprint = fingerprint(description.toString());
+    }
+
+    /**
+     * Return the table of 'remote_interface'
+     */
+    public static MethodTable of(Class<?> remote_interface){
+        MethodTable table = tables.get(remote_interface);
+        if(table == null){
+            MethodTable created = new MethodTable(remote_interface);
+            table = tables.putIfAbsent(remote_interface, created);
+            if(table == null){
+                table = created;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Return the ID of 'method', or -1 if it is not a method of the remote interface
+     */
+    public int idOf(Method method){
+        Integer id = ids.get(method);
+        if(id == null){
+                /* Same Signature Declared by Another Interface */
+            id = signature_ids.get(signature(method));
+        }
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Return the method with the given ID, or null if there is none
+     */
+    public Method method(int id){
+        if(id < 0 || id >= methods.length){
+            return null;
+        }
+        return methods[id];
+    }
+
+    /**
+     * Return true if calls of the method with the given ID are one-way (see 'OneWay')
+     */
+    public boolean isOneWay(int id){
+        return id >= 0 && id < one_way.length && one_way[id];
+    }
+
+    /**
+     * Return true if the method with the given ID does not change its object (see 'ReadOnly')
+     */
+    public boolean isReadOnly(int id){
+        return id >= 0 && id < read_only.length && read_only[id];
+    }
+
+    /**
+     * Return true if some method of the table is read-only, so that calls of the others change their object
+     */
+    public boolean hasRead_only(){
+        return has_read_only;
+    }
+
+    /**
+     * Return the time(ms) stubs reuse the replies to calls of the method with the given ID for (see 'Cacheable'),
+     * 0 if they are not reused
+     */
+    public long cacheTtl(int id){
+        return id >= 0 && id < cache_ttl.length ? cache_ttl[id] : 0;
+    }
+
+    /**
+     * Return true if stubs reuse the replies of some method of the table for a time (see 'Cacheable')
+     */
+    public boolean hasCacheable(){
+        return has_cacheable;
+    }
+
+    /**
+     * Return the number of methods, their IDs are 0 to size - 1
+     */
+    public int size(){
+        return methods.length;
+    }
+
+    public Class<?> getRemote_interface() {
+        return remote_interface;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Encode the body of the handshake frame announcing this table
+     */
+    public byte[] encodeHandshake() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(remote_interface.getName());
+        out.writeLong(fingerprint);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Check the handshake sent by a Stub against this table
+     * @return null if the Stub's calls can be served, otherwise the exception explaining why not
+     */
+    public RMIException checkHandshake(byte[] body) {
+        try{
+            BodyReader in = Protocol.openBody(body);
+            String name = in.readUTF();
+            long stub_fingerprint = in.readLong();
+            if(stub_fingerprint != fingerprint){
+                return new RMIException("Stub Interface "+name+" does not Match Remote Interface "
+                        +remote_interface.getName()+" of the Skeleton Server");
+            }
+            return null;
+        }
+        catch (IOException e){
+            return new RMIException("Malformed Handshake", e);
+        }
+    }
+
+    /* Name and Parameter Types, e.g. "ping(int,java.lang.String)" */
+    private static String signature(Method method){
+        StringBuilder signature = new StringBuilder(method.getName()).append('(');
+        Class<?>[] parameter_types = method.getParameterTypes();
+        for(int i = 0; i < parameter_types.length; i++){
+            if(i > 0){
+                signature.append(',');
+            }
+            signature.append(parameter_types[i].getName());
+        }
+        return signature.append(')').toString();
+    }
+
+    /* First 8 Bytes of the SHA-256 Digest (Also Computed by 'RemoteProcessor' from the Same Description) */
+    static long fingerprint(String description){
+        try{
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(description.getBytes(StandardCharsets.UTF_8));
+            long fingerprint = 0;
+            for(byte b : Arrays.copyOf(digest, 8)){
+                fingerprint = (fingerprint << 8) | (b & 0xff);
+            }
+            return fingerprint;
+        }
+        catch (NoSuchAlgorithmException e){
+                /* Every Java Platform Provides SHA-256 */
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package rmi;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+/**
+ * NioConnection is one client connection of the NIO engine, owned by a 'NioReactorThread'.
+ * The reactor reads bytes into 'read_buffer' and cuts them into frames; every complete call frame is handed
+ * to the Skeleton's worker pool as a 'CallTask' (or 'BatchTask's). Worker threads write replies straight to the channel when it
+ * can take them, otherwise the reply is queued and flushed by the reactor once the channel becomes writable.
+ * Once the Skeleton is stopping, calls still read from the connection are refused, and it is closed as soon as the
+ * calls read before have been answered.
+ */
+public class NioConnection<T> implements ServerConnection {
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private final SocketChannel channel;
+
+    private final NioReactorThread<T> reactor;
+
+    private final Skeleton<T> skeleton;
+
+    private SelectionKey key; //Set by the Reactor once the Channel is Registered
+
+    private ByteBuffer read_buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE); //Reactor Thread Only
+
+    private boolean verified; //A Handshake Succeeded, Calls may be Served (Reactor Thread Only)
+
+    private final PromiseTable promises = new PromiseTable(); //Results Kept for Pipelined Calls (Reactor Thread Only)
+
+    private final CallTable calls = new CallTable(); //Calls the Client may Cancel
+
+    /* Guarded by the Lock on this Connection */
+    private final ArrayDeque<ByteBuffer> write_queue = new ArrayDeque<ByteBuffer>();
+    private int in_flight; //Calls Read and not yet Answered
+    private boolean closing; //Skeleton is Stopping, Close the Connection Once Idle
+    private boolean input_closed; //Client Closed its Side, Close Once Idle
+    private boolean closed;
+
+    private volatile long last_active;
+
+    private final InetSocketAddress remote_address; //Kept, the Channel no Longer Knows it Once Closed
+
+    public NioConnection(SocketChannel channel, NioReactorThread<T> reactor, Skeleton<T> skeleton){
+        this.channel = channel;
+        this.reactor = reactor;
+        this.skeleton = skeleton;
+        this.last_active = System.currentTimeMillis();
+        this.remote_address = (InetSocketAddress) channel.socket().getRemoteSocketAddress();
+    }
+
+    public void setKey(SelectionKey key){
+        this.key = key;
+    }
+
+    /**
+     * Reactor thread: read what the client sent and dispatch every complete call frame
+     */
+    public void handleRead() throws IOException {
+        int count = channel.read(read_buffer);
+        if(count < 0){
+                /* Client Closed the Connection: Answer Outstanding Calls, then Close */
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            synchronized (this){
+                input_closed = true;
+                closeIfDone();
+            }
+            return;
+        }
+        last_active = System.currentTimeMillis();
+
+        read_buffer.flip();
+        int needed = 0;
+        while(true){
+            int length = Protocol.peekFrameLength(read_buffer);
+            if(length < 0){
+                break;
+            }
+            Frame frame = Protocol.decodeFrame(read_buffer);
+            if(frame == null){
+                    /* Frame not Complete Yet */
+                needed = 4 + length;
+                break;
+            }
+            if(frame.type == Protocol.HELLO){
+                handshake(frame);
+                continue;
+            }
+            if(frame.type == Protocol.RELEASE){
+                promises.release(frame.call_id);
+                continue;
+            }
+            if(frame.type == Protocol.LEASE){
+                reply(frame.call_id, skeleton.exports.lease(frame.body, this));
+                continue;
+            }
+            if(frame.type == Protocol.CANCEL){
+                calls.cancel(frame.call_id);
+                continue;
+            }
+            if(frame.type == Protocol.WATCH){
+                skeleton.exports.watch(frame.call_id, this);
+                continue;
+            }
+            if(!Protocol.isCall(frame.type)){
+                throw new IOException("Unexpected Frame Type: "+frame.type);
+            }
+            if(!verified){
+                RMIException refused = new RMIException("Call Sent Before the Connection's Handshake");
+                if(frame.type == Protocol.ONEWAY){
+                    skeleton.service_error(refused);
+                }
+                else{
+                    reply(frame.call_id, Protocol.encodeReply(Protocol.ERROR, refused));
+                }
+                continue;
+            }
+            if(!beginCall()){
+                refuse(frame);
+                continue;
+            }
+            if(frame.type == Protocol.BATCH){
+                BatchTask.dispatch(skeleton, this, frame);
+            }
+            else if(frame.type == Protocol.PROMISE){
+                skeleton.dispatch(new CallTask<T>(skeleton, this, frame, promises.create(frame.call_id)));
+            }
+            else if(frame.type == Protocol.PIPELINED){
+                promises.pipeline(skeleton, this, frame);
+            }
+            else{
+                skeleton.dispatch(new CallTask<T>(skeleton, this, frame));
+            }
+        }
+        read_buffer.compact();
+            /* Grow the Buffer for Frames Larger than its Capacity */
+        if(needed > read_buffer.capacity()){
+            ByteBuffer larger = ByteBuffer.allocate(needed);
+            read_buffer.flip();
+            larger.put(read_buffer);
+            read_buffer = larger;
+        }
+    }
+
+    /* Refuse a call read while the Skeleton is stopping, its client may retry it on another server */
+    private void refuse(Frame frame) throws IOException {
+        if(frame.type != Protocol.ONEWAY){
+            reply(frame.call_id, Protocol.encodeReply(Protocol.ERROR,
+                    new RMIException("Skeleton Server is Stopping, Call Refused")));
+        }
+    }
+
+    /* Answer a Stub's handshake, calls are served once one handshake has succeeded */
+    private void handshake(Frame frame) throws IOException {
+        RMIException mismatch = skeleton.exports.checkHandshake(frame.body);
+        if(mismatch == null){
+            verified = true;
+            reply(frame.call_id, Protocol.encodeReply(Protocol.SUCCEEDED, null));
+        }
+        else{
+            reply(frame.call_id, Protocol.encodeReply(Protocol.ERROR, mismatch));
+        }
+    }
+
+    /**
+     * Reactor thread: flush queued replies once the channel is writable
+     */
+    public synchronized void handleWrite() throws IOException {
+        while(!write_queue.isEmpty()){
+            ByteBuffer buffer = write_queue.peekFirst();
+            channel.write(buffer);
+            if(buffer.hasRemaining()){
+                return;
+            }
+            write_queue.pollFirst();
+        }
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        closeIfDone();
+    }
+
+    /**
+     * Send the reply of a call (worker thread)
+     */
+    @Override
+    public void reply(int call_id, byte[] body) throws IOException {
+        write(Protocol.encodeFrame(Protocol.REPLY, call_id, body));
+    }
+
+    /**
+     * Send an INVALIDATE frame (worker thread), queued with the replies
+     */
+    @Override
+    public void invalidate(int object_id) throws IOException {
+        write(Protocol.encodeFrame(Protocol.INVALIDATE, object_id, new byte[0]));
+    }
+
+    /* Write a Frame at Once, or Queue it for the Reactor if Earlier Frames are Still Queued */
+    private void write(ByteBuffer buffer) throws IOException {
+        synchronized (this){
+            if(closed){
+                throw new IOException("Connection Closed");
+            }
+            if(write_queue.isEmpty()){
+                channel.write(buffer);
+                if(!buffer.hasRemaining()){
+                    last_active = System.currentTimeMillis();
+                    return;
+                }
+            }
+            write_queue.addLast(buffer);
+            if(write_queue.size() == 1){
+                /* Socket Buffer is Full, Let the Reactor Finish the Write */
+                reactor.requestWrite(this);
+            }
+        }
+    }
+
+    /**
+     * Reactor thread: start waiting for the channel to become writable
+     */
+    public synchronized void enableWrite(){
+        if(key.isValid() && !write_queue.isEmpty()){
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private synchronized boolean beginCall(){
+        if(closing){
+            return false;
+        }
+        in_flight++;
+        return true;
+    }
+
+    @Override
+    public synchronized void endCall(){
+        in_flight--;
+        last_active = System.currentTimeMillis();
+        closeIfDone();
+    }
+
+    @Override
+    public synchronized boolean isClosing(){
+        return closing;
+    }
+
+    @Override
+    public CallTable getCalls(){
+        return calls;
+    }
+
+    @Override
+    public InetSocketAddress getLocal_address(){
+        return new InetSocketAddress(channel.socket().getLocalAddress(), channel.socket().getLocalPort());
+    }
+
+    @Override
+    public InetSocketAddress getRemote_address(){
+        return remote_address;
+    }
+
+    /**
+     * Reactor thread: the Skeleton is stopping, refuse further calls and close once those read have been answered
+     */
+    public synchronized void shutdown(){
+        closing = true;
+        closeIfDone();
+    }
+
+    /**
+     * Reactor thread: the Skeleton stopped waiting for the outstanding calls, close at once (their replies fail)
+     */
+    public synchronized void abort(){
+        closing = true;
+        close();
+    }
+
+    /**
+     * Reactor thread: close the connection if it has been idle for longer than 'idle_timeout' ms
+     */
+    public synchronized void closeIfIdle(long now, long idle_timeout){
+        if(in_flight == 0 && write_queue.isEmpty() && now - last_active >= idle_timeout){
+            close();
+        }
+    }
+
+    /* Close once no Call is Outstanding, if no further Call will be Read */
+    private void closeIfDone(){
+        if((closing || input_closed) && in_flight == 0 && write_queue.isEmpty()){
+            close();
+        }
+    }
+
+    /**
+     * Close the channel, ignoring any error
+     */
+    public synchronized void close(){
+        closed = true;
+        if(key != null){
+            key.cancel();
+        }
+        try{
+            channel.close();
+        }
+        catch (IOException e){
+            /* Nothing left to release */
+        }
+        skeleton.exports.unwatch(this);
+    }
+}
@@ -0,0 +1,138 @@
+package rmi;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * NioListenerThread is the listening thread of the NIO engine (see 'SkeletonConfig.Engine').
+ * Instead of starting a Service Thread per connection, it spreads the accepted connections over a small,
+ * fixed set of 'NioReactorThread's, which frame the calls and hand them to the Skeleton's bounded worker pool.
+ * Errors are reported through 'listen_error' and 'stopped' exactly as by 'ListenerThread'.
+ */
+public class NioListenerThread<T> extends Thread implements Listener {
+    private final ServerSocketChannel server_channel;
+
+    private final Skeleton<T> skeleton; //Related Skeleton (Listen on Connections on This Skeleton Server)
+
+    private final Selector selector;
+
+    private final List<NioReactorThread<T>> reactors = new ArrayList<NioReactorThread<T>>();
+
+    protected volatile boolean stop_status;
+
+    public NioListenerThread(ServerSocketChannel server_channel, Skeleton<T> skeleton) throws IOException {
+        super("rmi-nio-listener-"+server_channel.socket().getLocalPort());
+        this.server_channel = server_channel;
+        this.skeleton = skeleton;
+        this.selector = Selector.open();
+        for(int i = 0; i < skeleton.getConfig().getReactor_threads(); i++){
+            reactors.add(new NioReactorThread<T>(skeleton, "rmi-nio-reactor-"+server_channel.socket().getLocalPort()+"-"+i));
+        }
+        stop_status = false; // Skeleton's stop method has not been called
+    }
+
+    @Override
+    public void terminate() {
+        stop_status = true;
+        try {
+            server_channel.close();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+        selector.wakeup();
+    }
+
+    @Override
+    public void closeConnections() {
+        for(NioReactorThread<T> reactor : reactors){
+            reactor.shutdownConnections();
+        }
+    }
+
+    @Override
+    public boolean awaitConnections(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        for(NioReactorThread<T> reactor : reactors){
+                /* Each Reactor Exits Once its Connections are All Closed */
+            long left = deadline - System.currentTimeMillis();
+            if(left > 0){
+                reactor.join(left);
+            }
+            if(reactor.isAlive()){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void abortConnections() {
+        for(NioReactorThread<T> reactor : reactors){
+            reactor.abortConnections();
+        }
+    }
+
+    @Override
+    public void run(){
+        for(NioReactorThread<T> reactor : reactors){
+            reactor.start();
+        }
+        int next_reactor = 0;
+        try{
+            while(true){
+                try{
+                    if(server_channel.isBlocking()){
+                        server_channel.configureBlocking(false);
+                        server_channel.register(selector, SelectionKey.OP_ACCEPT);
+                    }
+                    selector.select();
+                    if(stop_status){
+                        break;
+                    }
+                    selector.selectedKeys().clear();
+                        /* Accept Every Pending Connection, Round Robin over the Reactors */
+                    SocketChannel channel;
+                    while((channel = server_channel.accept()) != null){
+                        channel.configureBlocking(false);
+                        channel.socket().setTcpNoDelay(true);
+                        reactors.get(next_reactor).register(channel);
+                        next_reactor = (next_reactor + 1) % reactors.size();
+                    }
+                }
+                catch(Exception e){
+                    if(stop_status){
+                            /* Skeleton's 'stop' is called, the Skeleton Server needs to stop */
+                        break;
+                    }
+                        /* Exceptions may occur at the top level in the listening and service threads. */
+                    else if(skeleton.listen_error(e)){
+                            /* The Server Needs to Resume Accepting Connections Now */
+                        continue;
+                    }
+                    else{
+                            /* Skeleton Server Has to Stop */
+                        skeleton.listenerFailed(this, e);
+                        break;
+                    }
+                }
+            }
+        }
+        finally {
+                /* Close the Listening Channel (its Key is Dropped when the Selector Closes) */
+            try {
+                server_channel.close();
+                selector.close();
+            }
+            catch (IOException e){
+                System.out.println("CLose of the Skeleton Server Socket failed!");
+                e.printStackTrace();
+            }
+        }
+    }
+}
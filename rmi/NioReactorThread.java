@@ -0,0 +1,174 @@
+package rmi;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * NioReactorThread is an I/O reactor of the NIO engine: one Selector multiplexing many client connections.
+ * It reads and frames the calls of its connections, and flushes the replies which could not be written
+ * directly by the worker threads. Other threads hand it work through its task queue.
+ */
+public class NioReactorThread<T> extends Thread {
+    private static final long SELECT_TIMEOUT = 1000; //Idle Connections are Checked this Often (ms)
+
+    private final Skeleton<T> skeleton;
+
+    private final Selector selector;
+
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+    private boolean stopping; //Reactor Thread Only
+
+    public NioReactorThread(Skeleton<T> skeleton, String name) throws IOException {
+        super(name);
+        this.skeleton = skeleton;
+        this.selector = Selector.open();
+    }
+
+    /* Run 'task' on the reactor thread */
+    private void execute(Runnable task){
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Take over a newly accepted (non-blocking) channel
+     */
+    public void register(final SocketChannel channel){
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                NioConnection<T> connection = new NioConnection<T>(channel, NioReactorThread.this, skeleton);
+                if(stopping){
+                    connection.close();
+                    return;
+                }
+                try{
+                    connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+                }
+                catch (IOException e){
+                    connection.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Flush the queued replies of 'connection' once its channel is writable
+     */
+    public void requestWrite(final NioConnection<T> connection){
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                connection.enableWrite();
+            }
+        });
+    }
+
+    /**
+     * Stop serving new calls on all connections (calls read from now on are refused),
+     * the reactor exits once they are all closed
+     */
+    public void shutdownConnections(){
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                stopping = true;
+                for(SelectionKey key : selector.keys()){
+                    ((NioConnection<?>) key.attachment()).shutdown();
+                }
+            }
+        });
+    }
+
+    /**
+     * Close all connections at once, without waiting for their outstanding calls, the reactor then exits
+     */
+    public void abortConnections(){
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                stopping = true;
+                for(SelectionKey key : selector.keys()){
+                    ((NioConnection<?>) key.attachment()).abort();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void run(){
+        long last_idle_check = System.currentTimeMillis();
+        try{
+            while(true){
+                selector.select(SELECT_TIMEOUT);
+
+                Runnable task;
+                while((task = tasks.poll()) != null){
+                    task.run();
+                }
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while(it.hasNext()){
+                    SelectionKey key = it.next();
+                    it.remove();
+                    NioConnection<?> connection = (NioConnection<?>) key.attachment();
+                    try{
+                        if(key.isValid() && key.isReadable()){
+                            connection.handleRead();
+                        }
+                        if(key.isValid() && key.isWritable()){
+                            connection.handleWrite();
+                        }
+                    }
+                    catch (CancelledKeyException e){
+                            /* Closed by a Worker Thread Meanwhile */
+                        connection.close();
+                    }
+                    catch (IOException e){
+                            /* an exception occurs at the top level in the service of a connection */
+                        if(!connection.isClosing()){
+                            skeleton.service_error(new RMIException(e));
+                        }
+                        connection.close();
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                if(now - last_idle_check >= SELECT_TIMEOUT){
+                    last_idle_check = now;
+                    for(SelectionKey key : selector.keys()){
+                        ((NioConnection<?>) key.attachment()).closeIfIdle(now, skeleton.getConfig().getIdle_timeout());
+                    }
+                }
+
+                if(stopping){
+                        /* Let the Selector Drop the Keys of Closed Channels */
+                    selector.selectNow();
+                    if(selector.keys().isEmpty()){
+                        break;
+                    }
+                }
+            }
+        }
+        catch (IOException e){
+            skeleton.service_error(new RMIException(e));
+        }
+        finally {
+            for(SelectionKey key : selector.keys()){
+                ((NioConnection<?>) key.attachment()).close();
+            }
+            try{
+                selector.close();
+            }
+            catch (IOException e){
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package rmi;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/** Marks a <code>void</code> remote method as one-way (fire-and-forget).
+
+    <p>
+    A stub writes a call of a one-way method and returns at once, without
+    waiting for the skeleton to run it, and the skeleton sends no reply.
+    Consecutive one-way calls are coalesced into few network writes. The caller
+    is therefore not told when the call runs, nor whether the method raised an
+    exception (the skeleton reports it through <code>service_error</code>);
+    failures to write the call are still raised as <code>RMIException</code>.
+
+    <p>
+    The annotation is ignored on methods which return a value. Whether a method
+    is one-way is part of the interface's method table, so a stub and a
+    skeleton disagreeing about it do not pass their handshake.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface OneWay
+{
+}
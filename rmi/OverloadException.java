@@ -0,0 +1,17 @@
+package rmi;
+
+/** RMI exception raised when a Skeleton server is overloaded.
+ *  The call was refused (or dropped from the Skeleton's queue) before the remote method ran,
+ *  so it is always safe to retry later.
+ *  */
+
+public class OverloadException extends RMIException
+{
+    private static final long serialVersionUID = 1L;
+
+    /** Creates an <code>OverloadException</code> with the given message string. */
+    public OverloadException(String message)
+    {
+        super(message);
+    }
+}
@@ -0,0 +1,25 @@
+package rmi;
+
+/**
+ * Priority class of a remote call, set by its caller on the stub making it (see 'Stub.withPriority').
+ * Calls waiting for a worker of the Skeleton are served by class (see 'CallScheduler'): a call of a class is only
+ * taken once no call of a higher class waits, so interactive calls overtake bulk ones under load.
+ */
+public enum Priority {
+    /* Calls a user waits for, served before all others */
+    INTERACTIVE,
+    /* Default class of every call */
+    NORMAL,
+    /* Background work, served only while no call of another class waits */
+    BULK;
+
+    private static final Priority[] classes = values();
+
+    /**
+     * Return the class of a given ordinal, as carried by a SCHEDULED frame (see 'Protocol'),
+     * or NORMAL if the ordinal is unknown
+     */
+    public static Priority of(int ordinal){
+        return ordinal >= 0 && ordinal < classes.length ? classes[ordinal] : NORMAL;
+    }
+}
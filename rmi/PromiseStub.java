@@ -0,0 +1,207 @@
+package rmi;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/**
+ * PromiseStub is the invocation handler of a promise stub: the stand-in for the remote object a call will return,
+ * given by 'AsyncStub.pipeline' as soon as that call is sent.
+ *
+ * Until the promised result arrives, calls on the promise stub are pipelined: sent on the connection of the promised
+ * call and run by its Skeleton on the returned object as soon as it has been returned (see 'Protocol'), so a chain of
+ * dependent calls costs one round trip, and no connection to the returned object's own Skeleton. Once the result has
+ * arrived, the promise is released and calls go to the returned stub itself.
+ * Calls on a promise whose call failed throw an RMIException caused by that failure.
+ * A call on a promise stub waits no longer than its deadline (see 'Deadline'), with the timeout of the stub which
+ * made the promised call.
+ * A promise stub is only equal to itself.
+ */
+public class PromiseStub<R> implements InvocationHandler {
+    private final Class<R> remote_interface_class; //Interface of the Promised Object
+
+    private final StubInvocationHandler<?> origin; //Stub which Made the Promised Call
+
+    private final Connection connection; //Connection of the Promised Call, Carrying the Pipelined Calls
+
+    private final int promise_id; //Call ID of the Promised Call
+
+    private final CompletableFuture<Object> result = new CompletableFuture<Object>(); //Stub Returned by the Call
+
+    private boolean released; //Calls go to the Returned Stub, Guarded by the Lock on this Handler
+
+    private PromiseStub(Class<R> remote_interface_class, StubInvocationHandler<?> origin, Connection connection,
+                        int promise_id){
+        this.remote_interface_class = remote_interface_class;
+        this.origin = origin;
+        this.connection = connection;
+        this.promise_id = promise_id;
+    }
+
+    /**
+     * Send the call of a method returning 'remote_interface_class' (with the given ID in the table of the origin's
+     * remote interface) as a promise, without waiting for its result
+     * @return the promise stub
+     * @throws RMIException if the call could not be sent
+     */
+    @SuppressWarnings("unchecked")
+    static <R> R create(StubInvocationHandler<?> origin, int method_id, Object[] args, Class<R> remote_interface_class)
+            throws RMIException{
+        byte[] call;
+        try{
+            call = Protocol.encodeCall(origin.getObject_id(), method_id, args);
+        }
+        catch (IOException e){
+            throw new RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+        MethodTable table = MethodTable.of(origin.getRemote_interface_class());
+        ConnectionPool pool = ConnectionPool.get(origin.get_Address());
+        while(true){
+            Connection connection = pool.acquire();
+                /* A Stale Connection is Retried, as for Synchronous Calls */
+            boolean stale_retry = connection.isReused();
+            try{
+                connection.handshake(table);
+                int promise_id = connection.reserveCall_id();
+                PromiseStub<R> promise = new PromiseStub<R>(remote_interface_class, origin, connection, promise_id);
+                promise.keep(connection.sendPromise(promise_id, call));
+                return (R) Proxy.newProxyInstance(remote_interface_class.getClassLoader(),
+                        new Class<?>[]{remote_interface_class}, promise);
+            }
+            catch (IOException e){
+                pool.discard(connection);
+                if(stale_retry){
+                    continue;
+                }
+                    throw new RMIException("Failed to Write Objects to Skeleton Server!", e);
+            }
+            catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new RMIException("Interrupted while Waiting for the Skeleton Server", e);
+            }
+            finally {
+                pool.release(connection);
+            }
+        }
+    }
+
+    /* Once the Promised Call is Answered: Keep its Result, then Release the Promise on the Skeleton
+       (on the Common Pool, Never Writing from the Connection's Reader Thread) */
+    private void keep(CompletableFuture<byte[]> reply){
+        reply.whenCompleteAsync(new BiConsumer<byte[], Throwable>() {
+            @Override
+            public void accept(byte[] reply_body, Throwable failure) {
+                if(failure != null){
+                    result.completeExceptionally(new RMIException("Failed when Retrieving Results From Skeleton Server!",
+                            failure));
+                }
+                else{
+                    try{
+                        result.complete(StubInvocationHandler.result(reply_body));
+                    }
+                    catch (Throwable t){
+                            /* Raised by the Remote Method, or RMIException */
+                        result.completeExceptionally(t);
+                    }
+                }
+                release();
+            }
+        });
+    }
+
+    /* Calls Pipelined Before the Release are Written Before it, so the Skeleton Knows their Promise */
+    private synchronized void release(){
+        released = true;
+        try{
+            connection.release(promise_id);
+        }
+        catch (IOException e){
+                /* Connection Broken, the Skeleton Forgot the Promise with it */
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable{
+        if(method.getDeclaringClass() == Object.class){
+            switch (method.getName()){
+                case "toString":
+                    return toString();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+            }
+        }
+
+        long deadline = Deadline.of(origin.getTimeout());
+        MethodTable table = MethodTable.of(remote_interface_class);
+        byte[] call;
+        try{
+                /* Addressed to Object 0: the Skeleton Runs it on the Promised Object */
+            call = Protocol.encodeCall(table.idOf(method), args);
+        }
+        catch (IOException e){
+            throw new RMIException("Failed to Write Objects to Skeleton Server!", e);
+        }
+        CompletableFuture<byte[]> reply = null;
+        synchronized (this){
+            if(!released){
+                try{
+                    reply = connection.sendPipelined(promise_id, table.getFingerprint(), call);
+                }
+                catch (IOException e){
+                        /* Connection Broken: Wait for the Outcome of the Promised Call Instead */
+                }
+            }
+        }
+
+        if(reply != null){
+            try{
+                return StubInvocationHandler.result(Connection.await(reply, deadline));
+            }
+            catch (ExecutionException e){
+                throw new RMIException("Failed when Retrieving Results From Skeleton Server!", e.getCause());
+            }
+            catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new RMIException("Interrupted while Waiting for the Skeleton Server", e);
+            }
+        }
+
+            /* Promise Released: Call the Returned Stub */
+        Object stub;
+        try{
+            if(deadline == 0){
+                stub = result.get();
+            }
+            else{
+                stub = result.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            }
+        }
+        catch (TimeoutException e){
+            throw new DeadlineExceededException("Call Deadline Passed before the Promised Result Arrived");
+        }
+        catch (ExecutionException e){
+            throw new RMIException("Call on a Broken Promise", e.getCause());
+        }
+        catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new RMIException("Interrupted while Waiting for the Skeleton Server", e);
+        }
+        if(stub == null){
+            throw new RMIException("Promised Call Returned null");
+        }
+        return StubInvocationHandler.of(stub).invoke(stub, method, args);
+    }
+
+    @Override
+    public String toString(){
+        return "Promise of "+remote_interface_class.getName()+" from "+origin.toString();
+    }
+}
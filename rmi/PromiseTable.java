@@ -0,0 +1,97 @@
+package rmi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * PromiseTable holds the promises of one client connection (see 'Protocol'): for every PROMISE frame read, the future
+ * export of the remote object its call returns, until the client releases it.
+ * A call pipelined on a promise is dispatched to that object as soon as the promised call has returned, without
+ * waiting for the client to receive the result; it fails with an RMIException if the promised call failed.
+ * A call pipelined on a promise not kept yet is dispatched by the worker keeping it, which must not wait for the
+ * other workers: if the call executor is saturated, the call is refused with an OverloadException whatever the
+ * overload policy.
+ * Only used by the thread reading the connection's frames, which keeps pipelined calls after their promise.
+ */
+public class PromiseTable {
+    private final Map<Integer, CompletableFuture<ExportTable.Export>> promises =
+            new HashMap<Integer, CompletableFuture<ExportTable.Export>>();
+
+    /**
+     * Register the promise of a PROMISE frame
+     * @return the future completed by the frame's 'CallTask'
+     */
+    public CompletableFuture<ExportTable.Export> create(int promise_id){
+        CompletableFuture<ExportTable.Export> promise = new CompletableFuture<ExportTable.Export>();
+        promises.put(promise_id, promise);
+        return promise;
+    }
+
+    /**
+     * Forget a promise, once the client has sent every call pipelined on it (RELEASE frame)
+     */
+    public void release(int promise_id){
+        promises.remove(promise_id);
+    }
+
+    /**
+     * Dispatch the call of a PIPELINED frame once its promise is kept, or answer it with the error.
+     * The frame counts as one call of its connection, ended once the call has been answered.
+     */
+    public <T> void pipeline(final Skeleton<T> skeleton, final ServerConnection connection, final Frame frame){
+        final int promise_id;
+        final long fingerprint;
+        final byte[] body;
+        try{
+            BodyReader in = Protocol.openBody(frame.body);
+            promise_id = in.readInt();
+            fingerprint = in.readLong();
+            body = new byte[in.available()];
+            in.readFully(body);
+        }
+        catch (IOException e){
+            RMIException error = new RMIException("Malformed Pipelined Call", e);
+            skeleton.service_error(error);
+            new CallTask<T>(skeleton, connection, frame).reject(error);
+            return;
+        }
+        CompletableFuture<ExportTable.Export> promise = promises.get(promise_id);
+        if(promise == null){
+            new CallTask<T>(skeleton, connection, frame).reject(
+                    new RMIException("Call Pipelined on Unknown Promise "+promise_id));
+            return;
+        }
+            /* Kept Already: Dispatched by this Thread, Like a Call Read from the Connection */
+        final boolean kept = promise.isDone();
+        promise.whenComplete(new BiConsumer<ExportTable.Export, Throwable>() {
+            @Override
+            public void accept(ExportTable.Export result, Throwable failure) {
+                if(failure != null){
+                    new CallTask<T>(skeleton, connection, frame).reject(
+                            new RMIException("Call Pipelined on a Broken Promise", failure));
+                }
+                else if(MethodTable.of(result.remote_interface).getFingerprint() != fingerprint){
+                    new CallTask<T>(skeleton, connection, frame).reject(
+                            new RMIException("Pipelined Call does not Match Remote Interface "
+                            +result.remote_interface.getName()+" of the Promised Object"));
+                }
+                else{
+                        /* Run the Call on the Promised Object, Addressed by its Object ID */
+                    byte[] call = ByteBuffer.allocate(4 + body.length).putInt(-result.object_id).put(body).array();
+                    CallTask<T> task = new CallTask<T>(skeleton, connection, new Frame(Protocol.CALL, frame.call_id, call));
+                    if(kept){
+                        skeleton.dispatch(task);
+                    }
+                    else{
+                            /* Run by the Worker which Kept the Promise: Never Wait for Another Worker */
+                        skeleton.dispatchNow(task);
+                    }
+                }
+            }
+        });
+    }
+}
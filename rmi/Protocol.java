@@ -0,0 +1,406 @@
+package rmi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+
+/**
+ * Protocol describes the framed wire format spoken between Stubs and Skeletons.
+ *
+ * Every message is a frame:
+ *      int length | byte type | int call_id | body (length - 5 bytes)
+ *
+ * A Stub tags each CALL with a call_id unique on its connection, and the Skeleton answers with a REPLY
+ * carrying the same call_id. Many threads can therefore share one connection: calls are written
+ * back to back without waiting, and the Skeleton may answer them in any order.
+ *
+ * Bodies are encoded with 'Codec':
+ *      CALL:   [int -object_id] | int method_id | int argument count | values
+ *      REPLY:  byte status | value
+ * where method_id identifies the method in the remote interface's 'MethodTable'.
+ * The Skeleton's own server object is object 0, and its calls start with the method_id. A remote object returned by
+ * a call is exported by the Skeleton under a new object ID (see 'ExportTable') and returned as a stub carrying the
+ * Skeleton's address and that ID: calls to it are served on the same port, and start with the negated object ID,
+ * method IDs never being negative.
+ *
+ * Before its first call for a remote interface, a Stub sends a HELLO frame on the connection
+ * (interface name | long table fingerprint, see 'MethodTable'). The Skeleton answers with a REPLY
+ * (SUCCEEDED, or ERROR if its table differs) and refuses calls on connections which did not pass a handshake.
+ *
+ * Calls of one-way methods (see 'OneWay') are sent as ONEWAY frames, with the same body as a CALL: the Skeleton
+ * runs them and sends nothing back.
+ *
+ * Several calls can be sent in one BATCH frame, answered by one REPLY:
+ *      BATCH:  int count | (int length | call body) for each call
+ *      REPLY:  byte status | int count | (int length | reply body) for each call, in the order of the calls
+ * The status is ERROR (followed by RMIException) if the batch as a whole could not be served, and SUCCEEDED otherwise,
+ * whether its calls succeeded or not. Calls of one-way methods are answered like others when batched.
+ *
+ * Calls can be pipelined on the remote object returned by a call not answered yet (see 'AsyncStub.pipeline'):
+ *      PROMISE:    same body as a CALL, of a method returning a remote interface. Answered like a CALL, and the
+ *                  Skeleton also keeps the returned object, under the frame's call_id (the promise ID)
+ *      PIPELINED:  int promise_id | long fingerprint of the returned interface's table | call body, answered by a
+ *                  REPLY once the call has run on the returned object (ERROR if the promised call failed)
+ *      RELEASE:    empty, call_id is the promise ID: no more calls will be pipelined on it, not answered
+ * The PIPELINED frames follow the PROMISE frame on the same connection, so a chain of dependent calls costs one
+ * round trip.
+ *
+ * A client holds a lease on every exported object it has a stub of (see 'LeaseRenewer'), and renews all its leases on
+ * one Skeleton in one LEASE frame (not a call, so no handshake is needed):
+ *      LEASE:  long client_id | int count | object IDs renewed | int count | object IDs dropped by the client
+ *      REPLY:  SUCCEEDED | int lease duration (ms), the leases renewed expire unless renewed again within it
+ * The Skeleton unexports an object once every lease on it has expired or been dropped (see 'ExportTable').
+ *
+ * A call made with a deadline (see 'Deadline'), or a priority class other than NORMAL (see 'Priority'), is sent as a
+ * SCHEDULED frame, answered like a CALL:
+ *      SCHEDULED:  byte priority class | int timeout (ms left when the call was sent, -1 if none) | call body
+ * The Skeleton serves waiting calls by priority class, then by earliest deadline (see 'CallScheduler').
+ * The timeout is relative, so the Skeleton's clock need not agree with the client's. The Skeleton drops the call,
+ * without answering it, if it is still queued when the timeout has run out. A client which gives up waiting for a
+ * call sends a CANCEL frame (empty, call_id is the call given up, not answered): the Skeleton drops the call if it is
+ * still queued, and interrupts the thread running it otherwise.
+ *
+ * A client keeping the replies to calls of '@ReadOnly' methods (see 'Stub.withNearCache') first sends a WATCH frame
+ * (empty, call_id is the ID of the object called, not answered), once per object and connection. After a method
+ * which is not read-only has run on a watched object, and before its reply is sent, the Skeleton sends an INVALIDATE
+ * frame (empty, call_id is the object ID) on every connection watching it and forgets them: the client drops the
+ * replies it kept for the object, and watches it again before its next call.
+ */
+public class Protocol {
+    /* Frame Types */
+    public static final byte CALL = 1;
+    public static final byte REPLY = 2;
+    public static final byte HELLO = 3; //Handshake, Answered by a REPLY
+    public static final byte ONEWAY = 4; //Call of a One-Way Method, not Answered (call_id is 0)
+    public static final byte BATCH = 5; //Several Calls, Answered by One REPLY
+    public static final byte PROMISE = 6; //Call whose Returned Remote Object is Kept for Pipelined Calls
+    public static final byte PIPELINED = 7; //Call on the Remote Object a PROMISE Returns
+    public static final byte RELEASE = 8; //End of the Calls Pipelined on a PROMISE, not Answered
+    public static final byte LEASE = 9; //Renewal of a Client's Leases on Exported Objects, Answered by a REPLY
+    public static final byte SCHEDULED = 10; //Call with a Priority Class and Deadline, Answered Like a CALL Unless the Deadline Passed
+    public static final byte CANCEL = 11; //The Client Gave Up a Call, not Answered
+    public static final byte WATCH = 12; //The Client Keeps Replies of an Object's Read-Only Methods, not Answered
+    public static final byte INVALIDATE = 13; //Sent by the Skeleton: Replies Kept for an Object are Out of Date
+
+    /* Reply Status */
+    public static final byte SUCCEEDED = 0; //Followed by the Return Value
+    public static final byte FAILED = 1; //Followed by the Exception the Remote Method Raised
+    public static final byte ERROR = 2; //Call could not be Served (Followed by RMIException)
+
+    public static final int HEADER_LENGTH = 5; //type + call_id
+
+    /* Larger Frames are Treated as a Corrupted Stream */
+    public static final int MAX_FRAME_LENGTH = Integer.getInteger("rmi.max_frame_length", 64 << 20);
+
+    /* Time(ms) the Rest of a Frame may Take to Arrive once its First Byte was Read */
+    public static final int FRAME_TIMEOUT = Integer.getInteger("rmi.frame_timeout_ms", 30000);
+
+    /**
+     * Return true if frames of the given type carry calls to serve (all but HELLO, REPLY, RELEASE, LEASE, CANCEL,
+     * WATCH and INVALIDATE)
+     */
+    public static boolean isCall(byte type){
+        return type == CALL || type == ONEWAY || type == BATCH || type == PROMISE || type == PIPELINED
+                || type == SCHEDULED;
+    }
+
+    /**
+     * Write one frame, the caller must hold the lock on 'out' if the stream is shared.
+     */
+    public static void writeFrame(DataOutputStream out, byte type, int call_id, byte[] body) throws IOException {
+        bufferFrame(out, type, call_id, body);
+        out.flush();
+    }
+
+    /**
+     * Write one frame without flushing 'out', so that following frames may be sent in the same network write
+     */
+    public static void bufferFrame(DataOutputStream out, byte type, int call_id, byte[] body) throws IOException {
+        out.writeInt(HEADER_LENGTH + body.length);
+        out.writeByte(type);
+        out.writeInt(call_id);
+        out.write(body);
+    }
+
+    /**
+     * Read one frame.
+     * @return the frame read, or null if the peer closed the connection between two frames
+     * @throws java.net.SocketTimeoutException if no frame started before the socket timeout
+     *                                         (nothing has been consumed from the stream in that case)
+     * @throws IOException if the connection broke, the frame is malformed, or the rest of a started frame did not
+     *                     arrive within FRAME_TIMEOUT (the connection must then be closed)
+     */
+    public static Frame readFrame(DataInputStream in) throws IOException {
+        return readFrame(in, FRAME_TIMEOUT);
+    }
+
+    /**
+     * Read one frame, whose rest must arrive within 'frame_timeout' ms of its first byte, see 'readFrame'
+     */
+    static Frame readFrame(DataInputStream in, long frame_timeout) throws IOException {
+            /* Only the First Byte may Time Out: the Rest of a Started Frame is Waited for (see 'readFully') */
+        int first = in.read();
+        if(first < 0){
+            return null;
+        }
+        long deadline = System.currentTimeMillis() + frame_timeout;
+        byte[] prefix = new byte[3];
+        readFully(in, prefix, deadline);
+        int length = (first << 24) | ((prefix[0] & 0xff) << 16) | ((prefix[1] & 0xff) << 8) | (prefix[2] & 0xff);
+        if(length < HEADER_LENGTH || length > MAX_FRAME_LENGTH){
+            throw new IOException("Malformed Frame Length: "+length);
+        }
+        byte[] header = new byte[HEADER_LENGTH];
+        readFully(in, header, deadline);
+        byte type = header[0];
+        int call_id = ByteBuffer.wrap(header, 1, 4).getInt();
+        byte[] body = new byte[length - HEADER_LENGTH];
+        readFully(in, body, deadline);
+        return new Frame(type, call_id, body);
+    }
+
+    /* Fill 'buffer' from the Stream, Keeping the Bytes Read so Far when the Socket Times Out Midway
+       ('DataInput.readFully' Loses them, Leaving the Stream Inside the Frame), Until the Frame's 'deadline'.
+       The Deadline is Checked when the Socket Times Out, so a Stalled Frame Fails at the First Timeout Past it */
+    private static void readFully(InputStream in, byte[] buffer, long deadline) throws IOException {
+        int read = 0;
+        while(read < buffer.length){
+            try{
+                int count = in.read(buffer, read, buffer.length - read);
+                if(count < 0){
+                    throw new EOFException("Connection Closed Inside a Frame");
+                }
+                read += count;
+            }
+            catch (SocketTimeoutException e){
+                if(System.currentTimeMillis() >= deadline){
+                        /* Not a SocketTimeoutException: the Stream is Inside the Frame, the Connection is Lost */
+                    throw new IOException("Frame Not Completed in Time by the Peer");
+                }
+                    /* The Frame has Started: Wait for the Rest of it */
+            }
+        }
+    }
+
+    /**
+     * Encode one frame into a buffer ready to be written to a channel (NIO engine)
+     */
+    public static ByteBuffer encodeFrame(byte type, int call_id, byte[] body){
+        ByteBuffer buffer = ByteBuffer.allocate(4 + HEADER_LENGTH + body.length);
+        buffer.putInt(HEADER_LENGTH + body.length);
+        buffer.put(type);
+        buffer.putInt(call_id);
+        buffer.put(body);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Return the length of the next frame in 'buffer' (in read mode), without consuming anything
+     * @return the frame length (excluding its 4 byte length prefix), or -1 if the prefix is not complete yet
+     * @throws IOException if the frame is malformed
+     */
+    public static int peekFrameLength(ByteBuffer buffer) throws IOException {
+        if(buffer.remaining() < 4){
+            return -1;
+        }
+        int length = buffer.getInt(buffer.position());
+        if(length < HEADER_LENGTH || length > MAX_FRAME_LENGTH){
+            throw new IOException("Malformed Frame Length: "+length);
+        }
+        return length;
+    }
+
+    /**
+     * Decode the next frame of 'buffer' (in read mode) if it has been received completely (NIO engine)
+     * @return the frame, or null if more bytes are needed (nothing is consumed in that case)
+     * @throws IOException if the frame is malformed
+     */
+    public static Frame decodeFrame(ByteBuffer buffer) throws IOException {
+        int length = peekFrameLength(buffer);
+        if(length < 0 || buffer.remaining() < 4 + length){
+            return null;
+        }
+        buffer.getInt();
+        byte type = buffer.get();
+        int call_id = buffer.getInt();
+        byte[] body = new byte[length - HEADER_LENGTH];
+        buffer.get(body);
+        return new Frame(type, call_id, body);
+    }
+
+    /**
+     * Encode the body of a call frame to the Skeleton's own server object
+     */
+    public static byte[] encodeCall(int method_id, Object[] args) throws IOException {
+        return encodeCall(0, method_id, args);
+    }
+
+    /**
+     * Encode the body of a call frame to the remote object exported under 'object_id'
+     */
+    public static byte[] encodeCall(int object_id, int method_id, Object[] args) throws IOException {
+        int count = args == null ? 0 : args.length;
+        CallWriter out = new CallWriter(object_id, method_id, count);
+        for(int i = 0; i < count; i++){
+            Codec.writeValue(out, args[i]);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Encode the body of a reply frame
+     */
+    public static byte[] encodeReply(byte status, Object value) throws IOException {
+        ReplyWriter out = new ReplyWriter(status);
+        Codec.writeValue(out, value);
+        return out.toByteArray();
+    }
+
+    /**
+     * Encode the body of a batch frame, from the encoded calls it carries
+     */
+    public static byte[] encodeBatch(byte[][] calls) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeBodies(out, calls);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encode the reply to a batch frame, from the encoded replies to its calls
+     */
+    public static byte[] encodeBatchReply(byte[][] replies) throws IOException {
+        ReplyWriter out = new ReplyWriter(SUCCEEDED);
+        writeBodies(out, replies);
+        return out.toByteArray();
+    }
+
+    /**
+     * Read the bodies carried by a batch frame, or by a successful reply to one (following its status)
+     */
+    public static byte[][] readBodies(DataInput in) throws IOException {
+        int count = in.readInt();
+        if(count < 0 || count > Codec.available(in) / 4){
+            throw new IOException("Malformed Batch Count: "+count);
+        }
+        byte[][] bodies = new byte[count][];
+        for(int i = 0; i < count; i++){
+            int length = in.readInt();
+            if(length < 0 || length > Codec.available(in)){
+                throw new IOException("Malformed Batch Body Length: "+length);
+            }
+            bodies[i] = new byte[length];
+            in.readFully(bodies[i]);
+        }
+        return bodies;
+    }
+
+    /**
+     * Encode the body of a pipelined frame, from the encoded call to run on the object promised by 'promise_id'
+     */
+    public static byte[] encodePipelined(int promise_id, long fingerprint, byte[] call) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(12 + call.length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(promise_id);
+        out.writeLong(fingerprint);
+        out.write(call);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encode the body of a lease frame, renewing the client's leases on the objects 'renewed' and dropping its leases
+     * on the objects 'dropped'
+     */
+    public static byte[] encodeLease(long client_id, int[] renewed, int[] dropped) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + 4 * (renewed.length + dropped.length));
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(client_id);
+        writeIds(out, renewed);
+        writeIds(out, dropped);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encode the body of a SCHEDULED frame: an encoded call of a priority class (its ordinal), which must be served
+     * within 'timeout' ms (-1 if it has no deadline)
+     */
+    public static byte[] encodeScheduled(byte priority, int timeout, byte[] call){
+        return ByteBuffer.allocate(5 + call.length).put(priority).putInt(timeout).put(call).array();
+    }
+
+    /**
+     * Read one list of object IDs of a lease frame, following its client ID
+     */
+    public static int[] readIds(DataInput in) throws IOException {
+        int count = in.readInt();
+        if(count < 0 || count > Codec.available(in) / 4){
+            throw new IOException("Malformed Object ID Count: "+count);
+        }
+        int[] ids = new int[count];
+        for(int i = 0; i < count; i++){
+            ids[i] = in.readInt();
+        }
+        return ids;
+    }
+
+    private static void writeIds(DataOutputStream out, int[] ids) throws IOException {
+        out.writeInt(ids.length);
+        for(int id : ids){
+            out.writeInt(id);
+        }
+    }
+
+    private static void writeBodies(DataOutputStream out, byte[][] bodies) throws IOException {
+        out.writeInt(bodies.length);
+        for(byte[] body : bodies){
+            out.writeInt(body.length);
+            out.write(body);
+        }
+    }
+
+    /**
+     * Open a frame body written by 'encodeCall' or 'encodeReply'
+     */
+    public static BodyReader openBody(byte[] body) throws IOException {
+        if(body.length == 0){
+            throw new EOFException("Empty Frame Body");
+        }
+        return new BodyReader(body);
+    }
+
+    /**
+     * Read the argument count of a call body, following its method ID, and check it is 'count'
+     * (used by generated dispatchers, which read the arguments themselves)
+     */
+    public static void expectArguments(DataInput in, int count) throws IOException {
+        int sent = in.readInt();
+        if(sent != count){
+            throw new IOException("Wrong Number of Arguments: "+sent+" instead of "+count);
+        }
+    }
+
+    /**
+     * Read the arguments of a call body, following its method ID
+     */
+    public static Object[] readArguments(DataInput in) throws IOException, ClassNotFoundException {
+        int count = in.readInt();
+        if(count < 0 || count > Codec.available(in)){
+            throw new IOException("Malformed Argument Count: "+count);
+        }
+        Object[] args = new Object[count];
+        for(int i = 0; i < count; i++){
+            args[i] = Codec.readValue(in);
+        }
+        return args;
+    }
+}
@@ -0,0 +1,32 @@
+package rmi;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/** Marks a remote method which does not change the state of its object.
+
+    <p>
+    Stubs created by <code>Stub.withNearCache</code> keep the reply to a
+    successful call of a read-only method, and serve later calls with equal
+    arguments from it, for as long as the object is not changed. The skeleton
+    records which connections keep replies for each object. Every other method
+    of the interface is taken to change its object: once such a call has run,
+    the skeleton tells those connections to drop their replies for the object
+    before it answers the call. A client therefore reads its own writes, and
+    other clients drop their replies as soon as the skeleton's message
+    reaches them.
+
+    <p>
+    The annotation is ignored on <code>void</code> methods. Whether a method is
+    read-only is part of the interface's method table, so a stub and a
+    skeleton disagreeing about it do not pass their handshake.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReadOnly
+{
+}
@@ -0,0 +1,27 @@
+package rmi;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/** Marks a remote interface whose stub class and skeleton dispatcher are
+    generated at compile time.
+
+    <p>
+    When the sources are compiled with <code>RemoteProcessor</code>, every
+    interface carrying this annotation gets two classes in its package:
+    <code>&lt;Name&gt;_Stub</code>, used by <code>Stub.create</code>, and
+    <code>&lt;Name&gt;_Dispatcher</code>, used by <code>Skeleton</code>
+    (nested interfaces are named after their enclosing classes, joined by
+    underscores). Neither uses reflection when calls are made. Interfaces
+    without the annotation, or compiled without the processor, keep working
+    with run-time stubs and method handles.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Remote
+{
+}
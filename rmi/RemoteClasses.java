@@ -0,0 +1,95 @@
+package rmi;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RemoteClasses finds the classes generated at compile time by 'RemoteProcessor' for '@Remote' interfaces.
+ * A generated class is only used if its fingerprint matches the interface's current 'MethodTable', so classes
+ * left over from an older version of the interface are ignored. Lookups are done once per interface.
+ */
+public class RemoteClasses {
+    private static final Object NONE = new Object(); //Marks Interfaces without (Usable) Generated Class
+
+    /* Stub Constructor Handles (StubInvocationHandler)GeneratedStub, or NONE */
+    private static final ConcurrentHashMap<Class<?>, Object> stubs = new ConcurrentHashMap<Class<?>, Object>();
+
+    /* Dispatchers, or NONE */
+    private static final ConcurrentHashMap<Class<?>, Object> dispatchers = new ConcurrentHashMap<Class<?>, Object>();
+
+    /**
+     * Return the name of the class generated for 'c' with the given suffix ("_Stub" or "_Dispatcher")
+     */
+    public static String generatedName(Class<?> c, String suffix){
+        String flat = c.getName().substring(c.getPackageName().isEmpty() ? 0 : c.getPackageName().length() + 1);
+        return (c.getPackageName().isEmpty() ? "" : c.getPackageName()+".")+flat.replace('$', '_')+suffix;
+    }
+
+    /**
+     * Return a new instance of the stub class generated for 'c', or null if there is none
+     */
+    public static <T> T newStub(Class<T> c, StubInvocationHandler<T> handler){
+        Object constructor = stubs.get(c);
+        if(constructor == null){
+            constructor = NONE;
+            Class<?> stub_class = find(c, "_Stub");
+            if(stub_class != null && c.isAssignableFrom(stub_class) && GeneratedStub.class.isAssignableFrom(stub_class)){
+                try{
+                    constructor = MethodHandles.publicLookup().findConstructor(stub_class,
+                            MethodType.methodType(void.class, StubInvocationHandler.class));
+                }
+                catch (ReflectiveOperationException e){
+                    constructor = NONE;
+                }
+            }
+            stubs.put(c, constructor);
+        }
+        if(constructor == NONE){
+            return null;
+        }
+        try{
+            return c.cast(((MethodHandle) constructor).invoke(handler));
+        }
+        catch (Throwable t){
+            return null;
+        }
+    }
+
+    /**
+     * Return the dispatcher generated for 'c', or null if there is none
+     */
+    public static RemoteDispatcher dispatcher(Class<?> c){
+        Object dispatcher = dispatchers.get(c);
+        if(dispatcher == null){
+            dispatcher = NONE;
+            Class<?> dispatcher_class = find(c, "_Dispatcher");
+            if(dispatcher_class != null && RemoteDispatcher.class.isAssignableFrom(dispatcher_class)){
+                try{
+                    dispatcher = dispatcher_class.getConstructor().newInstance();
+                }
+                catch (ReflectiveOperationException e){
+                    dispatcher = NONE;
+                }
+            }
+            dispatchers.put(c, dispatcher);
+        }
+        return dispatcher == NONE ? null : (RemoteDispatcher) dispatcher;
+    }
+
+    /* Load the Generated Class, if 'c' is Annotated and the Class Matches its Method Table */
+    private static Class<?> find(Class<?> c, String suffix){
+        if(!c.isAnnotationPresent(Remote.class)){
+            return null;
+        }
+        try{
+            Class<?> generated = Class.forName(generatedName(c, suffix), true, c.getClassLoader());
+            long fingerprint = generated.getField("FINGERPRINT").getLong(null);
+            return fingerprint == MethodTable.of(c).getFingerprint() ? generated : null;
+        }
+        catch (ReflectiveOperationException | LinkageError e){
+            return null;
+        }
+    }
+}
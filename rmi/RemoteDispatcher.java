@@ -0,0 +1,26 @@
+package rmi;
+
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * RemoteDispatcher is implemented by the skeleton dispatchers generated by 'RemoteProcessor' for '@Remote'
+ * interfaces: a switch over the method IDs of the interface's 'MethodTable', each case reading the arguments with
+ * the 'Codec' method of their declared type and calling the server object directly.
+ * Generated classes also declare the table fingerprint they were generated for, as
+ * 'public static final long FINGERPRINT'.
+ */
+public interface RemoteDispatcher {
+    /**
+     * Read the arguments of a call (following its method ID in 'in') and invoke the method on 'server'.
+     * A primitive return value, or the null of a void method, is written to 'reply' without boxing it
+     * @return the object returned by the method, to be encoded by the caller; null if the return type is primitive
+     *         or void (the value was written to 'reply')
+     * @throws IOException if the arguments are malformed, or the method ID is unknown
+     * @throws InvocationTargetException wrapping the exception raised by the method itself
+     */
+    Object dispatch(Object server, int method_id, DataInput in, DataOutputStream reply)
+            throws IOException, ClassNotFoundException, InvocationTargetException;
+}
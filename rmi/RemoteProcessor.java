@@ -0,0 +1,360 @@
+package rmi;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * RemoteProcessor is the annotation processor generating, for every '@Remote' interface, its stub class
+ * ('GeneratedStub' subclass) and skeleton dispatcher ('RemoteDispatcher'), in the interface's package.
+ *
+ * Method IDs and the table fingerprint are derived exactly as by 'MethodTable' at run time, and written into both
+ * classes. Arguments and return values of primitive types are encoded and decoded with the typed 'Codec' methods
+ * (no boxing), others with 'Codec.writeValue' / 'readValue'; the bytes on the wire are the same as for run-time stubs,
+ * so every kind of stub talks to every kind of skeleton.
+ *
+ * Usage: javac -processor rmi.RemoteProcessor ... (with the compiled 'rmi' package on the class path)
+ */
+@SupportedAnnotationTypes("rmi.Remote")
+public class RemoteProcessor extends AbstractProcessor {
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for(Element element : round.getElementsAnnotatedWith(Remote.class)){
+            if(element.getKind() != ElementKind.INTERFACE){
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "@Remote must annotate a remote interface", element);
+                continue;
+            }
+            try{
+                generate((TypeElement) element);
+            }
+            catch (IOException e){
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Cannot write generated classes: "+e.getMessage(), element);
+            }
+        }
+        return true;
+    }
+
+    /* One Method of the Interface, as Seen by 'MethodTable' */
+    private static class RemoteMethod {
+        String name;
+        TypeMirror return_type;
+        boolean one_way; //'@OneWay' void Method, as in 'MethodTable'
+        boolean read_only; //'@ReadOnly' Method Returning a Value, as in 'MethodTable'
+        List<TypeMirror> parameter_types = new ArrayList<TypeMirror>();
+        List<TypeMirror> thrown_types = new ArrayList<TypeMirror>();
+    }
+
+    private void generate(TypeElement remote) throws IOException {
+            /* Methods Sorted by Signature, Keeping the Most Specific Return Type (as 'MethodTable') */
+        TreeMap<String, RemoteMethod> sorted = new TreeMap<String, RemoteMethod>();
+        TypeElement object = processingEnv.getElementUtils().getTypeElement("java.lang.Object");
+        for(ExecutableElement element : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(remote))){
+            if(element.getEnclosingElement().equals(object) || element.getModifiers().contains(Modifier.STATIC)
+                    || element.getModifiers().contains(Modifier.PRIVATE)){
+                continue;
+            }
+            RemoteMethod method = new RemoteMethod();
+            method.name = element.getSimpleName().toString();
+            method.return_type = erasure(element.getReturnType());
+            method.one_way = method.return_type.getKind() == TypeKind.VOID
+                    && element.getAnnotation(OneWay.class) != null;
+            method.read_only = method.return_type.getKind() != TypeKind.VOID
+                    && element.getAnnotation(ReadOnly.class) != null;
+            for(Element parameter : element.getParameters()){
+                method.parameter_types.add(erasure(parameter.asType()));
+            }
+            for(TypeMirror thrown : element.getThrownTypes()){
+                method.thrown_types.add(erasure(thrown));
+            }
+            String signature = signature(method);
+            RemoteMethod other = sorted.get(signature);
+            if(other == null || processingEnv.getTypeUtils().isAssignable(method.return_type, other.return_type)){
+                sorted.put(signature, method);
+            }
+        }
+
+        StringBuilder description = new StringBuilder(binaryName(remote));
+        for(Map.Entry<String, RemoteMethod> entry : sorted.entrySet()){
+            description.append('\n').append(className(entry.getValue().return_type)).append(' ').append(entry.getKey());
+            if(entry.getValue().one_way){
+                description.append(MethodTable.ONE_WAY);
+            }
+            if(entry.getValue().read_only){
+                description.append(MethodTable.READ_ONLY);
+            }
+        }
+        long fingerprint = MethodTable.fingerprint(description.toString());
+
+        PackageElement package_element = processingEnv.getElementUtils().getPackageOf(remote);
+        String package_name = package_element.isUnnamed() ? "" : package_element.getQualifiedName().toString();
+        String flat_name = binaryName(remote).substring(package_name.isEmpty() ? 0 : package_name.length() + 1)
+                .replace('$', '_');
+        List<RemoteMethod> methods = new ArrayList<RemoteMethod>(sorted.values());
+
+        write(remote, package_name, flat_name+"_Stub", stubSource(remote, package_name, flat_name+"_Stub", methods, fingerprint));
+        write(remote, package_name, flat_name+"_Dispatcher",
+                dispatcherSource(remote, package_name, flat_name+"_Dispatcher", methods, fingerprint));
+    }
+
+    private void write(TypeElement remote, String package_name, String class_name, String source) throws IOException {
+        String qualified_name = package_name.isEmpty() ? class_name : package_name+"."+class_name;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualified_name, remote).openWriter()){
+            writer.write(source);
+        }
+    }
+
+    private String stubSource(TypeElement remote, String package_name, String class_name, List<RemoteMethod> methods,
+                              long fingerprint){
+        StringBuilder out = header(package_name);
+        out.append("/** Stub of {@link ").append(remote.getQualifiedName()).append("}, generated by rmi.RemoteProcessor. */\n");
+        out.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        out.append("public final class ").append(class_name).append(" extends rmi.GeneratedStub implements ")
+                .append(remote.getQualifiedName()).append(" {\n");
+        out.append("    private static final long serialVersionUID = 1L;\n\n");
+        out.append("    public static final long FINGERPRINT = ").append(fingerprint).append("L;\n\n");
+        out.append("    public ").append(class_name).append("(rmi.StubInvocationHandler handler) {\n");
+        out.append("        super(handler);\n");
+        out.append("    }\n");
+        for(int id = 0; id < methods.size(); id++){
+            RemoteMethod method = methods.get(id);
+            if(isObjectMethod(method)){
+                    /* Served Locally by GeneratedStub */
+                continue;
+            }
+            out.append("\n    @Override\n    public ").append(method.return_type).append(' ').append(method.name).append('(');
+            for(int i = 0; i < method.parameter_types.size(); i++){
+                out.append(i > 0 ? ", " : "").append(method.parameter_types.get(i)).append(" a").append(i);
+            }
+            out.append(')');
+            for(int i = 0; i < method.thrown_types.size(); i++){
+                out.append(i > 0 ? ", " : " throws ").append(method.thrown_types.get(i));
+            }
+            out.append(" {\n");
+            String[] argument_codecs = new String[method.parameter_types.size()];
+            for(int i = 0; i < argument_codecs.length; i++){
+                argument_codecs[i] = codec(method.parameter_types.get(i));
+            }
+            String[] exception_types = new String[method.thrown_types.size()];
+            for(int i = 0; i < exception_types.length; i++){
+                exception_types[i] = method.thrown_types.get(i).toString();
+            }
+            appendBody(out, id, argument_codecs, method.return_type.toString(),
+                    method.one_way ? "OneWay" : codec(method.return_type), exception_types);
+            out.append("    }\n");
+        }
+        out.append("}\n");
+        return out.toString();
+    }
+
+    /**
+     * Append the body of a stub method: encode the call of method 'id', writing
+     * argument 'a<i>' with the 'Codec' method named by 'argument_codecs[i]', send it with the 'call' method of
+     * 'GeneratedStub' named by 'return_codec' ("OneWay" for one-way methods), and rethrow the exceptions the method
+     * may raise
+     */
+    private static void appendBody(StringBuilder out, int id, String[] argument_codecs, String return_type,
+                           String return_codec, String[] exception_types){
+        out.append("        rmi.CallWriter call;\n");
+        out.append("        try {\n");
+        out.append("            call = newCall(").append(id).append(", ").append(argument_codecs.length).append(");\n");
+        for(int i = 0; i < argument_codecs.length; i++){
+            out.append("            rmi.Codec.write").append(argument_codecs[i]).append("(call, a").append(i).append(");\n");
+        }
+        out.append("        }\n");
+        out.append("        catch (java.io.IOException e) {\n");
+        out.append("            throw new rmi.RMIException(\"Failed to Write Objects to Skeleton Server!\", e);\n");
+        out.append("        }\n");
+        out.append("        try {\n");
+        if(return_codec.equals("Void") || return_codec.equals("OneWay")){
+            out.append("            call").append(return_codec).append("(call);\n");
+        }
+        else if(return_codec.equals("Value")){
+            out.append("            return (").append(return_type).append(") call(call);\n");
+        }
+        else{
+            out.append("            return call").append(return_codec).append("(call);\n");
+        }
+        out.append("        }\n");
+        out.append("        catch (Throwable t) {\n");
+        out.append("            if (t instanceof RuntimeException) throw (RuntimeException) t;\n");
+        out.append("            if (t instanceof Error) throw (Error) t;\n");
+        for(String exception_type : exception_types){
+            out.append("            if (t instanceof ").append(exception_type).append(") throw (").append(exception_type)
+                    .append(") t;\n");
+        }
+        out.append("            throw new java.lang.reflect.UndeclaredThrowableException(t);\n");
+        out.append("        }\n");
+    }
+
+    private String dispatcherSource(TypeElement remote, String package_name, String class_name,
+                                    List<RemoteMethod> methods, long fingerprint){
+        StringBuilder out = header(package_name);
+        out.append("/** Skeleton dispatcher of {@link ").append(remote.getQualifiedName())
+                .append("}, generated by rmi.RemoteProcessor. */\n");
+        out.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        out.append("public final class ").append(class_name).append(" implements rmi.RemoteDispatcher {\n");
+        out.append("    public static final long FINGERPRINT = ").append(fingerprint).append("L;\n\n");
+        out.append("    @Override\n");
+        out.append("    public Object dispatch(Object server, int method_id, java.io.DataInput in,\n");
+        out.append("                           java.io.DataOutputStream reply)\n");
+        out.append("            throws java.io.IOException, ClassNotFoundException, ")
+                .append("java.lang.reflect.InvocationTargetException {\n");
+        out.append("        ").append(remote.getQualifiedName()).append(" target = (")
+                .append(remote.getQualifiedName()).append(") server;\n");
+        out.append("        switch (method_id) {\n");
+        for(int id = 0; id < methods.size(); id++){
+            RemoteMethod method = methods.get(id);
+            int count = method.parameter_types.size();
+            out.append("            case ").append(id).append(": {\n");
+            out.append("                rmi.Protocol.expectArguments(in, ").append(count).append(");\n");
+            for(int i = 0; i < count; i++){
+                TypeMirror type = method.parameter_types.get(i);
+                out.append("                ").append(type).append(" a").append(i).append(" = ");
+                if(type.getKind().isPrimitive()){
+                    out.append("rmi.Codec.read").append(codec(type)).append("(in);\n");
+                }
+                else{
+                    out.append('(').append(type).append(") rmi.Codec.readValue(in);\n");
+                }
+            }
+            StringBuilder call = new StringBuilder("target.").append(method.name).append('(');
+            for(int i = 0; i < count; i++){
+                call.append(i > 0 ? ", " : "").append('a').append(i);
+            }
+            call.append(')');
+            String codec = codec(method.return_type);
+            if(codec.equals("Value")){
+                out.append("                try {\n");
+                out.append("                    return ").append(call).append(";\n");
+                out.append("                }\n");
+                out.append("                catch (Throwable t) {\n");
+                out.append("                    throw new java.lang.reflect.InvocationTargetException(t);\n");
+                out.append("                }\n");
+            }
+            else{
+                    /* Primitive Result Written to the Reply, after the Method Returned */
+                if(!codec.equals("Void")){
+                    out.append("                ").append(method.return_type).append(" result;\n");
+                }
+                out.append("                try {\n");
+                out.append("                    ").append(codec.equals("Void") ? "" : "result = ").append(call).append(";\n");
+                out.append("                }\n");
+                out.append("                catch (Throwable t) {\n");
+                out.append("                    throw new java.lang.reflect.InvocationTargetException(t);\n");
+                out.append("                }\n");
+                if(codec.equals("Void")){
+                    out.append("                rmi.Codec.writeValue(reply, null);\n");
+                }
+                else{
+                    out.append("                rmi.Codec.write").append(codec).append("(reply, result);\n");
+                }
+                out.append("                return null;\n");
+            }
+            out.append("            }\n");
+        }
+        out.append("            default:\n");
+        out.append("                throw new java.io.IOException(\"Unknown Method ID \" + method_id);\n");
+        out.append("        }\n");
+        out.append("    }\n");
+        out.append("}\n");
+        return out.toString();
+    }
+
+    private StringBuilder header(String package_name){
+        StringBuilder out = new StringBuilder();
+        if(!package_name.isEmpty()){
+            out.append("package ").append(package_name).append(";\n\n");
+        }
+        return out;
+    }
+
+    private TypeMirror erasure(TypeMirror type){
+        return processingEnv.getTypeUtils().erasure(type);
+    }
+
+    /* 'equals', 'hashCode' or 'toString' Redeclared by the Interface */
+    private boolean isObjectMethod(RemoteMethod method){
+        String signature = signature(method);
+        return signature.equals("equals(java.lang.Object)") || signature.equals("hashCode()")
+                || signature.equals("toString()");
+    }
+
+    /* Same as 'MethodTable': Name and Parameter Class Names, e.g. "ping(int,java.lang.String)" */
+    private String signature(RemoteMethod method){
+        StringBuilder signature = new StringBuilder(method.name).append('(');
+        for(int i = 0; i < method.parameter_types.size(); i++){
+            if(i > 0){
+                signature.append(',');
+            }
+            signature.append(className(method.parameter_types.get(i)));
+        }
+        return signature.append(')').toString();
+    }
+
+    /* What 'Class.getName' Returns for the (Erased) Type */
+    private String className(TypeMirror type){
+        switch (type.getKind()){
+            case ARRAY:
+                return "["+descriptor(((ArrayType) type).getComponentType());
+            case DECLARED:
+                return binaryName((TypeElement) ((DeclaredType) type).asElement());
+            default:
+                    /* Primitives and void */
+                return type.toString();
+        }
+    }
+
+    private String descriptor(TypeMirror type){
+        switch (type.getKind()){
+            case BOOLEAN: return "Z";
+            case BYTE: return "B";
+            case SHORT: return "S";
+            case CHAR: return "C";
+            case INT: return "I";
+            case LONG: return "J";
+            case FLOAT: return "F";
+            case DOUBLE: return "D";
+            case ARRAY: return "["+descriptor(((ArrayType) type).getComponentType());
+            default: return "L"+className(erasure(type))+";";
+        }
+    }
+
+    private String binaryName(TypeElement element){
+        return processingEnv.getElementUtils().getBinaryName(element).toString();
+    }
+
+    /* Suffix of the Codec Method for the Type, as 'StubGenerator.codec' */
+    private String codec(TypeMirror type){
+        if(type.getKind() == TypeKind.VOID){
+            return "Void";
+        }
+        return StubGenerator.codec(type.toString(), type.getKind().isPrimitive());
+    }
+}
@@ -0,0 +1,27 @@
+package rmi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * ReplyWriter builds the body of a reply frame (see 'Protocol'): its status is written when it is created, then
+ * the Skeleton (or a generated dispatcher) writes the value with 'Codec'. Primitive return values are written with
+ * the 'Codec' method of their type, without boxing them.
+ */
+public class ReplyWriter extends DataOutputStream {
+    /**
+     * Start the body of a reply with the given status ('Protocol.SUCCEEDED', 'FAILED' or 'ERROR')
+     */
+    public ReplyWriter(byte status) throws IOException {
+        super(new ByteArrayOutputStream());
+        writeByte(status);
+    }
+
+    /**
+     * Return the encoded reply
+     */
+    public byte[] toByteArray(){
+        return ((ByteArrayOutputStream) out).toByteArray();
+    }
+}
@@ -0,0 +1,345 @@
+package rmi;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ResultCache keeps the replies to calls of '@Cacheable' methods made to one Skeleton server address, so that
+ * stubs serve repeated calls with equal arguments without a round trip (see 'Cacheable').
+ * One cache exists per address and is shared by all Stubs targeting that address, like 'ConnectionPool'.
+ *
+ * > A reply is keyed by the remote interface and the encoded call (object ID, method ID and arguments), and
+ *   expires 'ttl' ms after it was received.
+ * > At most 'max_entries' replies are kept: the least recently used one is dropped to make room for a new one.
+ * > Only replies of successful calls are kept, as encoded bodies: each hit decodes a fresh return value.
+ * > Replies of '@ReadOnly' methods called by near-cache stubs (see 'Stub.withNearCache') do not expire: they are
+ *   dropped when the Skeleton says their object changed (see 'Connection.watch'), or when a call of this client
+ *   changes it. A reply is only kept if no invalidation happened since its call was sent ('getGeneration'), so a
+ *   reply overtaken by the news of a change is not kept.
+ */
+public class ResultCache {
+    /* Default, can be overridden by a system property */
+    public static final int DEFAULT_MAX_ENTRIES = Integer.getInteger("rmi.cache.max_entries", 1024);
+
+    /* All Caches, One per Skeleton Address */
+    private static final ConcurrentMap<InetSocketAddress, ResultCache> caches =
+            new ConcurrentHashMap<InetSocketAddress, ResultCache>();
+
+    private final InetSocketAddress address;
+
+        /* Least Recently Used First */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+    private int max_entries = DEFAULT_MAX_ENTRIES;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions; //Replies Dropped to Make Room, or Found Expired
+
+    private long invalidations; //Objects the Skeleton Said had Changed
+
+    private volatile long generation; //Number of Invalidations, Written with the Lock Held
+
+    /* An Encoded Call to an Object Implementing 'remote_interface' */
+    private static final class Key {
+        final Class<?> remote_interface;
+        final int object_id;
+        final int method_id;
+        final byte[] call;
+        final int hash;
+
+        Key(Class<?> remote_interface, int object_id, int method_id, byte[] call){
+            this.remote_interface = remote_interface;
+            this.object_id = object_id;
+            this.method_id = method_id;
+            this.call = call;
+            this.hash = 31 * remote_interface.hashCode() + Arrays.hashCode(call);
+        }
+
+        @Override
+        public boolean equals(Object other){
+            if(!(other instanceof Key)){
+                return false;
+            }
+            Key key = (Key) other;
+            return remote_interface == key.remote_interface && Arrays.equals(call, key.call);
+        }
+
+        @Override
+        public int hashCode(){
+            return hash;
+        }
+    }
+
+    /* The Reply Body of a Successful Call, and the Time(ms) it Expires */
+    private static final class Entry {
+        final byte[] reply;
+        final long expiry;
+        final boolean read_only; //Kept Until its Object Changes, 'expiry' is Long.MAX_VALUE
+
+        Entry(byte[] reply, long expiry, boolean read_only){
+            this.reply = reply;
+            this.expiry = expiry;
+            this.read_only = read_only;
+        }
+    }
+
+    public ResultCache(InetSocketAddress address){
+        this.address = address;
+    }
+
+    /**
+     * Return the cache shared by all stubs connecting to 'address'
+     */
+    public static ResultCache get(InetSocketAddress address){
+        ResultCache cache = caches.get(address);
+        if(cache == null){
+            ResultCache new_cache = new ResultCache(address);
+            cache = caches.putIfAbsent(address, new_cache);
+            if(cache == null){
+                cache = new_cache;
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Return the cache used by a stub (the cache of its skeleton's address)
+     * @throws IllegalArgumentException if 'stub' is not a stub
+     */
+    public static ResultCache of(Object stub){
+        return get(StubInvocationHandler.of(stub).get_Address());
+    }
+
+    public InetSocketAddress getAddress(){
+        return address;
+    }
+
+    public synchronized void setMax_entries(int max_entries){
+        if(max_entries < 0){
+            throw new IllegalArgumentException("Negative Cache Size");
+        }
+        this.max_entries = max_entries;
+        evict();
+    }
+
+    public synchronized int getMax_entries(){
+        return max_entries;
+    }
+
+    /**
+     * Return the number of replies kept (some of which may have expired)
+     */
+    public synchronized int getSize(){
+        return entries.size();
+    }
+
+    /**
+     * Return the number of calls served from the cache
+     */
+    public synchronized long getHits(){
+        return hits;
+    }
+
+    /**
+     * Return the number of calls of cacheable methods which had to be sent to the skeleton
+     */
+    public synchronized long getMisses(){
+        return misses;
+    }
+
+    /**
+     * Return the number of replies dropped to make room for others, or because they expired
+     */
+    public synchronized long getEvictions(){
+        return evictions;
+    }
+
+    /**
+     * Return the number of times the Skeleton said an object whose replies were kept had changed
+     */
+    public synchronized long getInvalidations(){
+        return invalidations;
+    }
+
+    /**
+     * Return the number of invalidations so far, to be passed to 'storeRead_only' by a call about to be sent
+     */
+    long getGeneration(){
+        return generation;
+    }
+
+    /**
+     * Return the body of the unexpired reply kept for a call, or null if the call has to be sent
+     */
+    synchronized byte[] lookup(Class<?> remote_interface, byte[] call){
+        Key key = key(remote_interface, call);
+        Entry entry = key == null ? null : entries.get(key);
+        if(entry != null && entry.expiry - System.currentTimeMillis() <= 0){
+            entries.remove(key);
+            evictions++;
+            entry = null;
+        }
+        if(entry == null){
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.reply;
+    }
+
+    /**
+     * Keep the reply to a call for 'ttl' ms, if the call succeeded
+     */
+    synchronized void store(Class<?> remote_interface, byte[] call, byte[] reply, long ttl){
+        if(ttl <= 0 || max_entries == 0 || reply.length == 0 || reply[0] != Protocol.SUCCEEDED){
+            return;
+        }
+        Key key = key(remote_interface, call);
+        if(key != null){
+            entries.put(key, new Entry(reply, System.currentTimeMillis() + ttl, false));
+            evict();
+        }
+    }
+
+    /**
+     * Keep the reply to a call of a read-only method until its object changes, if the call succeeded and nothing
+     * was invalidated since 'generation' was read, before the call was sent
+     */
+    synchronized void storeRead_only(Class<?> remote_interface, byte[] call, byte[] reply, long generation){
+        if(generation != this.generation || max_entries == 0 || reply.length == 0 || reply[0] != Protocol.SUCCEEDED){
+            return;
+        }
+        Key key = key(remote_interface, call);
+        if(key != null){
+            entries.put(key, new Entry(reply, Long.MAX_VALUE, true));
+            evict();
+        }
+    }
+
+    /**
+     * Drop every reply kept
+     */
+    public synchronized void invalidateAll(){
+        entries.clear();
+        generation++;
+    }
+
+    /**
+     * Drop the replies to calls of 'method', whichever object was called
+     */
+    public synchronized void invalidateMethod(Method method){
+        Iterator<Key> it = entries.keySet().iterator();
+        while(it.hasNext()){
+            Key key = it.next();
+            if(method.getDeclaringClass().isAssignableFrom(key.remote_interface)
+                    && MethodTable.of(key.remote_interface).idOf(method) == key.method_id){
+                it.remove();
+            }
+        }
+        generation++;
+    }
+
+    /**
+     * Drop the replies to calls made to the object a stub calls, whichever method was called
+     * @throws IllegalArgumentException if 'stub' is not a stub of this cache's address
+     */
+    public void invalidateStub(Object stub){
+        StubInvocationHandler<?> handler = StubInvocationHandler.of(stub);
+        if(!address.equals(handler.get_Address())){
+            throw new IllegalArgumentException("Stub of Another Address: "+handler.get_Address());
+        }
+        invalidate(handler.getRemote_interface_class(), handler.getObject_id());
+    }
+
+    /**
+     * Drop the replies to calls made to an object, whichever method was called
+     */
+    synchronized void invalidate(Class<?> remote_interface, int object_id){
+        Iterator<Key> it = entries.keySet().iterator();
+        while(it.hasNext()){
+            Key key = it.next();
+            if(key.remote_interface == remote_interface && key.object_id == object_id){
+                it.remove();
+            }
+        }
+        generation++;
+    }
+
+    /**
+     * Drop the replies to calls made to an object the Skeleton said had changed (an INVALIDATE frame)
+     */
+    synchronized void invalidate(int object_id){
+        Iterator<Key> it = entries.keySet().iterator();
+        while(it.hasNext()){
+            if(it.next().object_id == object_id){
+                it.remove();
+            }
+        }
+        invalidations++;
+        generation++;
+    }
+
+    /**
+     * Drop the replies of read-only methods, once the Skeleton can no longer say when their objects change
+     */
+    synchronized void invalidateRead_only(){
+        Iterator<Entry> it = entries.values().iterator();
+        while(it.hasNext()){
+            if(it.next().read_only){
+                it.remove();
+            }
+        }
+        generation++;
+    }
+
+    /**
+     * Return the ID of the method an encoded call calls, or -1 if the call is malformed
+     */
+    static int methodId(byte[] call){
+        try{
+            BodyReader in = Protocol.openBody(call);
+            int method_id = in.readInt();
+            return method_id < 0 ? in.readInt() : method_id;
+        }
+        catch (IOException e){
+            return -1;
+        }
+    }
+
+    /* Key of an Encoded Call (see 'Protocol.encodeCall'), null if it is Malformed */
+    private static Key key(Class<?> remote_interface, byte[] call){
+        try{
+            BodyReader in = Protocol.openBody(call);
+            int object_id = 0;
+            int method_id = in.readInt();
+            if(method_id < 0){
+                object_id = -method_id;
+                method_id = in.readInt();
+            }
+            return new Key(remote_interface, object_id, method_id, call);
+        }
+        catch (IOException e){
+            return null;
+        }
+    }
+
+    /* Drop the Least Recently Used Replies Beyond 'max_entries' */
+    private void evict(){
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while(entries.size() > max_entries && it.hasNext()){
+            it.next();
+            it.remove();
+            evictions++;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package rmi;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * ServerConnection is the Skeleton's side of one client connection, as seen by the 'CallTask's
+ * serving the calls read from it. Implemented by 'ServiceThread' and 'NioConnection'.
+ */
+public interface ServerConnection {
+    /**
+     * Send the reply of a call, replies of concurrent calls may be sent from several threads
+     */
+    void reply(int call_id, byte[] body) throws IOException;
+
+    /**
+     * Tell the client that an object it keeps replies of has changed (an INVALIDATE frame, see 'Protocol'),
+     * may be called from several threads like 'reply'
+     */
+    void invalidate(int object_id) throws IOException;
+
+    /**
+     * Called once for every call read from the connection, after its reply has been sent (or has failed)
+     */
+    void endCall();
+
+    /**
+     * Return the address at which the client reached the Skeleton (the connection's local address), which stubs of
+     * the remote objects returned to it carry
+     */
+    InetSocketAddress getLocal_address();
+
+    /**
+     * Return the address of the client at the other end of the connection
+     */
+    InetSocketAddress getRemote_address();
+
+    /**
+     * Return the calls read from the connection which the client may still cancel
+     */
+    CallTable getCalls();
+
+    /**
+     * Return true if the connection is being closed by the stopping Skeleton
+     */
+    boolean isClosing();
+}
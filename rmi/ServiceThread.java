@@ -1,122 +1,273 @@
 package rmi;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Additional Service threads are created when connections are accepted.
- * These Threads will read and parse method calls(name & arguments) forwarded by Stub Object
- * (Stub will open a single connection per method call
- * Then call the correct methods on the server Object implementing Remote Interface
- * When a method returns, the return value (or exception) is sent over the network to the client
+ * These Threads will read the method call frames(name & arguments) forwarded by Stub Objects
+ * (Stubs keep their connections open in a 'ConnectionPool' and multiplex concurrent calls on them, see 'Protocol')
+ * Every call is handed to the Skeleton's call executor as a 'CallTask' (the calls of a batch frame as 'BatchTask's),
+ * which calls the correct method on the server Object implementing Remote Interface. When a method returns, the return value (or exception) is sent back to the
+ * client in a reply frame tagged with the call's ID, so calls on one connection may complete out of order.
+ * The Thread serves the connection until the client closes it, it stays idle for longer than the Skeleton's
+ * idle timeout, or the Skeleton is stopped; it then waits for its outstanding calls before closing it.
+ * While the Skeleton is stopping, calls still read from the connection are refused, and the connection is closed
+ * as soon as the calls read before have been answered (or at once, if the Skeleton stops waiting for them).
  */
-public class ServiceThread<T> extends Thread{
+public class ServiceThread<T> extends Thread implements ServerConnection{
     private Socket connection;
     private Skeleton<T> skeleton; //Related Skeleton (Connect to this Skeleton Server)
-//    private T remoteObject; // Object Implementing RemoteInterface
 
-    /* Register this Service Thread in 'service_thread_list' */
-    public ServiceThread(Socket connection_socket, Skeleton<T> skeleton){
+    private ListenerThread<T> listener; //Listener which Accepted the Connection, and Tracks this Thread
+
+    private DataOutputStream out; //Shared by all Calls of the Connection, Guarded by its own Lock
+
+    private Thread runner = this; //Thread Running the Loop: Itself, or a Virtual Thread (VIRTUAL Execution)
+
+    private int in_flight; //Calls Read and not yet Answered
+    private boolean closing; //Skeleton is Stopping, Close the Connection Once Idle
+    private boolean aborted; //Skeleton Stopped Waiting for the Calls in Flight, the Connection is Closed
+
+    private boolean verified; //A Handshake Succeeded, Calls may be Served (Reading Loop Only)
+
+    private final PromiseTable promises = new PromiseTable(); //Results Kept for Pipelined Calls (Reading Loop Only)
+
+    private final CallTable calls = new CallTable(); //Calls the Client may Cancel
+
+    /* Registered by the Listener, this Thread Removes Itself Once its Connection is Closed */
+    public ServiceThread(Socket connection_socket, Skeleton<T> skeleton, ListenerThread<T> listener){
         this.connection = connection_socket;
         this.skeleton = skeleton;
-//        this.remoteObject = remoteObject;
-        this.skeleton.service_thread_list.add(this);
+        this.listener = listener;
+    }
+
+    /**
+     * Start serving the connection, on this thread or on a new thread made by 'factory' (if not null)
+     */
+    public void start(ThreadFactory factory){
+        if(factory != null){
+            runner = factory.newThread(this);
+        }
+        runner.start();
+    }
+
+    /**
+     * Wait until the connection is closed and its loop has exited
+     */
+    public void awaitTermination() throws InterruptedException {
+        runner.join();
+    }
+
+    /**
+     * Called by the Skeleton when it stops: further calls read from the connection are refused,
+     * and it is closed once its outstanding calls have been answered.
+     */
+    public synchronized void shutdown(){
+        closing = true;
+        closeIfDone();
+    }
+
+    /**
+     * Called by the Skeleton when it stops waiting for the outstanding calls: the connection is closed at once,
+     * their replies fail
+     */
+    public synchronized void abort(){
+        closing = true;
+        aborted = true;
+        notifyAll();
+        try{
+            connection.close();
+        }
+        catch (IOException e){
+            /* Nothing left to release */
+        }
+    }
+
+    /* Close the Connection (Unblocking the Reading Loop) if the Skeleton is Stopping and no Call is Outstanding */
+    private void closeIfDone(){
+        if(closing && in_flight == 0){
+            try{
+                connection.close();
+            }
+            catch (IOException e){
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private synchronized boolean beginCall(){
+        if(closing){
+            return false;
+        }
+        in_flight++;
+        return true;
+    }
+
+    @Override
+    public synchronized void endCall(){
+        in_flight--;
+        closeIfDone();
+        notifyAll();
+    }
+
+    private synchronized boolean hasCallsInFlight(){
+        return in_flight > 0;
+    }
+
+    @Override
+    public synchronized boolean isClosing(){
+        return closing;
+    }
+
+    @Override
+    public CallTable getCalls(){
+        return calls;
+    }
+
+    @Override
+    public InetSocketAddress getLocal_address(){
+        return new InetSocketAddress(connection.getLocalAddress(), connection.getLocalPort());
+    }
+
+    @Override
+    public InetSocketAddress getRemote_address(){
+        return (InetSocketAddress) connection.getRemoteSocketAddress();
+    }
+
+    /* Wait until every call read from the connection has been answered */
+    private synchronized void awaitCalls(){
+        while(in_flight > 0 && !aborted){
+            try{
+                wait();
+            }
+            catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
     }
+
+    /* Refuse a call read while the Skeleton is stopping, its client may retry it on another server */
+    private void refuse(Frame frame) throws IOException {
+        if(frame.type != Protocol.ONEWAY){
+            reply(frame.call_id, Protocol.encodeReply(Protocol.ERROR,
+                    new RMIException("Skeleton Server is Stopping, Call Refused")));
+        }
+    }
+
+    /* Answer a Stub's handshake, calls are served once one handshake has succeeded */
+    private void handshake(Frame frame) throws IOException {
+        RMIException mismatch = skeleton.exports.checkHandshake(frame.body);
+        if(mismatch == null){
+            verified = true;
+            reply(frame.call_id, Protocol.encodeReply(Protocol.SUCCEEDED, null));
+        }
+        else{
+            reply(frame.call_id, Protocol.encodeReply(Protocol.ERROR, mismatch));
+        }
+    }
+
     /* override the run method of class Thread */
     @Override
     public void run(){
-            /* Arguments & Results Transmition
-             * Serialize the Communication
-             * */
-        ObjectOutputStream out = null;
-        ObjectInputStream in = null;
-
+        DataInputStream in = null;
 
         try{
-                /* Ensure the out stream is created first, and be flushed before creating input stream
-                   To Avoid Deadlock
-                 */
-            out = new ObjectOutputStream(connection.getOutputStream());
-            out.flush();
-            in = new ObjectInputStream(connection.getInputStream());
-                /* Parse Information Regard Method Call */
-            String method_name = (String)in.readObject(); // Name of the Method
-            Class<?>[] args_type = (Class<?>[]) in.readObject(); //Type for each Argument
-            Object[] args = (Object[]) in.readObject(); //Arguments
-
-                /* Retrieve the required method on the server */
-            Method method = skeleton.remote_interface_c.getMethod(method_name, args_type);
-
-            Class return_type = method.getReturnType();
-
-                /* Invoke the Method
-                 * Invokes the underlying method represented by this Method object(method),
-                 * on the specified object (object implementing remote Interface) with the specified parameters
-                 * */
-            try{
-                    /* Invoke Remote Method Call */
-                Object return_value = method.invoke(skeleton.remoteObject, args);
-
-                    /* Return The Method Call Result */
-
-                out.writeObject("Remote Method Call Succeeded!");
-                if(skeleton.isRemoteInterface(return_type)){
-                    /* Passing Stubs as Return Values
-                     * Here 'return_value' will Act as Remote Object Implementing Remote Interface 'return_type'
-                     * And Using Random Address Here*/
-                    Skeleton result_skeleton = new Skeleton(return_type, return_value);
-                    result_skeleton.start();
-                    Object return_stub = Stub.create(return_type, result_skeleton.getSkeleton_address());
-                    out.writeObject(return_stub);
+            out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+            in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+                /* Idle Keep-Alive Connection is Closed after the Skeleton's idle timeout */
+            connection.setSoTimeout(skeleton.getConfig().getIdle_timeout());
+
+                /* Read Method Calls until the Connection is Closed */
+            while(true){
+                Frame frame;
+                try{
+                    frame = Protocol.readFrame(in);
+                }
+                catch (SocketTimeoutException e){
+                    if(hasCallsInFlight()){
+                        continue;
+                    }
+                        /* Client Left the Connection Idle Too Long */
+                    break;
+                }
+                if(frame == null){
+                        /* Client Closed the Connection */
+                    break;
+                }
+                if(frame.type == Protocol.HELLO){
+                    handshake(frame);
+                    continue;
+                }
+                if(frame.type == Protocol.RELEASE){
+                    promises.release(frame.call_id);
+                    continue;
+                }
+                if(frame.type == Protocol.LEASE){
+                    reply(frame.call_id, skeleton.exports.lease(frame.body, this));
+                    continue;
+                }
+                if(frame.type == Protocol.CANCEL){
+                    calls.cancel(frame.call_id);
+                    continue;
+                }
+                if(frame.type == Protocol.WATCH){
+                    skeleton.exports.watch(frame.call_id, this);
+                    continue;
+                }
+                if(!Protocol.isCall(frame.type)){
+                    throw new IOException("Unexpected Frame Type: "+frame.type);
+                }
+                if(!verified){
+                    RMIException refused = new RMIException("Call Sent Before the Connection's Handshake");
+                    if(frame.type == Protocol.ONEWAY){
+                        skeleton.service_error(refused);
+                    }
+                    else{
+                        reply(frame.call_id, Protocol.encodeReply(Protocol.ERROR, refused));
+                    }
+                    continue;
+                }
+                if(!beginCall()){
+                    refuse(frame);
+                    continue;
+                }
+                if(frame.type == Protocol.BATCH){
+                    BatchTask.dispatch(skeleton, this, frame);
+                }
+                else if(frame.type == Protocol.PROMISE){
+                    skeleton.dispatch(new CallTask<T>(skeleton, this, frame, promises.create(frame.call_id)));
+                }
+                else if(frame.type == Protocol.PIPELINED){
+                    promises.pipeline(skeleton, this, frame);
                 }
                 else{
-                    out.writeObject(return_value);
+                    skeleton.dispatch(new CallTask<T>(skeleton, this, frame));
                 }
             }
-            catch (InvocationTargetException e){//(IllegalAccessException | InvocationTargetException e){
-                    /* Send Back the Exception to Client
-                     * If the remote method raises an exception,
-                     * the Stub must raise the same exception,
-                     * */
-                out.writeObject("Remote Method Call Failed!");
-                out.writeObject(e.getTargetException());
-            }
 
         }
         catch(Exception exception){
-                /* an exception occurs at the top level in a service thread */
-            skeleton.service_error(new RMIException((exception)));
+                /* an exception occurs at the top level in a service thread
+                   (Not Reported if the Connection was Closed by the Stopping Skeleton) */
+            if(!isClosing()){
+                skeleton.service_error(new RMIException((exception)));
+            }
         }
         finally {
             // executed when the try block is exited
-                /* service method's result has been returned
-                   Close the Serializable Streams
+                /* Outstanding method calls' results have been returned
                    Close the Connection
                  */
-            skeleton.service_thread_list.remove(this);
-            try{
-                if(out != null){
-                    out.flush();
-                    out.close();
-                }
-            }
-            catch (IOException e){
-                System.out.println("Out Stream Close Exception");
-                e.printStackTrace();
-            }
-            try{
-                if(in != null){
-                    in.close();
-                }
-            }
-            catch (IOException e){
-                System.out.println("In Stream Close Exception");
-                e.printStackTrace();
-            }
+            awaitCalls();
             try{
                 this.connection.close();
             }
@@ -124,9 +275,32 @@ public class ServiceThread<T> extends Thread{
                 System.out.println("Connection Close");
                 e.printStackTrace();
             }
+            skeleton.exports.unwatch(this);
+                /* A Connection Slot is Free Again */
+            listener.remove(this);
         }
 
 
     }
 
+    /**
+     * Send a reply frame, replies of concurrent calls are written one at a time
+     */
+    @Override
+    public void reply(int call_id, byte[] body) throws IOException {
+        synchronized (out){
+            Protocol.writeFrame(out, Protocol.REPLY, call_id, body);
+        }
+    }
+
+    /**
+     * Send an INVALIDATE frame, written between replies like them
+     */
+    @Override
+    public void invalidate(int object_id) throws IOException {
+        synchronized (out){
+            Protocol.writeFrame(out, Protocol.INVALIDATE, object_id, new byte[0]);
+        }
+    }
+
 }
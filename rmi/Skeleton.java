@@ -5,8 +5,19 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import java.net.*;
+import java.nio.channels.ServerSocketChannel;
 
 import java.lang.reflect.*;
 
@@ -33,6 +44,22 @@ import java.lang.reflect.*;
     The skeleton's response to these exceptions can be customized by deriving
     a class from <code>Skeleton</code> and overriding <code>listen_error</code>
     or <code>service_error</code>.
+
+    <p>
+    Connections are served by the engine selected in the skeleton's
+    <code>SkeletonConfig</code>: a thread per connection (the default), or a
+    few NIO reactor threads. Both engines hand calls to a bounded worker pool
+    and queue, and refuse calls beyond them as set by the configured
+    <code>OverloadPolicy</code> (the caller then gets an
+    <code>OverloadException</code>). Queued calls are served by the priority
+    class their callers gave them, then by earliest deadline (see
+    <code>CallScheduler</code>). Both engines honour the same
+    <code>start</code>, <code>stop</code> and error reporting contract.
+
+    <p>
+    Remote objects returned by the server object's methods are exported by the
+    skeleton itself, and served on its port (see <code>ExportTable</code>),
+    until no client holds a lease on them anymore.
 */
 public class Skeleton<T>
 {
@@ -45,12 +72,48 @@ public class Skeleton<T>
 
     protected T remoteObject; //Object implementing the remote interface ('Server' Class' )
 
+    protected MethodTable method_table; //Resolves the Method IDs of Incoming Calls
+
+    protected DispatchTable dispatch_table; //Invokes the Methods of 'remoteObject' by ID
+
+    protected ExportTable exports; //'remoteObject' and the Remote Objects Returned by Calls, by Object ID
+
     protected InetSocketAddress skeleton_address; //The address at which the skeleton is to run
 
     protected ServerSocket skeleton_server_socket; //Used by Skeleton Server to listen for Clients
 
-    private ListenerThread<T> listener;
-    protected final List<ServiceThread> service_thread_list = new LinkedList<ServiceThread>(); //List for All Service Threads Created
+    private Listener listener; //Listening Thread of the Configured Engine, null Once Stopped
+
+    private int draining; //Stopped Runs whose Calls are Still Draining (see 'stop'), Guarded by the Lock on this Skeleton
+
+    /* Executes the Method Calls Read by Service Threads, Calls on One Connection Run Concurrently */
+    protected ExecutorService call_executor;
+
+    /* Queue of the Call Executor, null without One (see 'createCallExecutor') */
+    private volatile CallScheduler scheduler;
+
+    private static final long WORKER_KEEP_ALIVE = 60000; //Idle Workers Exit after this Delay (ms)
+    private static final long BLOCK_RECHECK = 100; //Blocked Dispatch Checks for Shutdown this Often (ms)
+
+    /* Calls Refused / Dropped by the Overload Policy */
+    private final AtomicLong rejected_calls = new AtomicLong();
+    private final AtomicLong shed_calls = new AtomicLong();
+
+    /* Calls Given Up by their Clients: Cancelled, or Dropped since their Deadline Passed while Queued */
+    protected final AtomicLong cancelled_calls = new AtomicLong();
+    protected final AtomicLong expired_calls = new AtomicLong();
+
+    /* Calls Running on the Workers, of All Runs of this Skeleton */
+    protected final CallRegistry call_registry = new CallRegistry();
+
+    /* Bulkheads of the Methods Served, by Group (see 'Bulkhead'), Created with their Dispatch Tables */
+    private final ConcurrentHashMap<String, Compartment> compartments = new ConcurrentHashMap<String, Compartment>();
+
+    /* Creates the Threads Running Service Threads' Loops (null: Service Threads Run as Themselves) */
+    protected ThreadFactory service_thread_factory;
+
+    /* Settings of this Skeleton Server, Read When it is Started */
+    protected SkeletonConfig config = new SkeletonConfig();
 
     /* -------- Helper Functions -------- */
 
@@ -61,6 +124,261 @@ public class Skeleton<T>
         return skeleton_address;
     }
 
+    /**
+     * Return the settings of this skeleton server
+     */
+    public SkeletonConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Replace the settings of this skeleton server, they take effect at the next 'start'
+     */
+    public synchronized void setConfig(SkeletonConfig config) {
+        if(config == null){
+            throw new NullPointerException("Null Config");
+        }
+        this.config = config;
+    }
+
+    /**
+     * Create the executor running method calls, its threads are named after the skeleton's port.
+     * Both engines hand calls to at most 'worker_threads' workers (platform threads, or virtual threads with
+     * VIRTUAL execution); calls arriving while all of them are busy wait in a queue of 'queue_capacity' calls.
+     * Once the queue is full too, the configured 'OverloadPolicy' decides which call is refused.
+     * Queued calls are taken by priority class, then by earliest deadline (see 'CallScheduler').
+     */
+    protected ExecutorService createCallExecutor(){
+        final int port = skeleton_address.getPort();
+        ThreadFactory factory;
+        if(config.getExecution() == SkeletonConfig.Execution.VIRTUAL){
+            factory = VirtualThreads.factory("rmi-call-"+port+"-");
+        }
+        else{
+            factory = new ThreadFactory() {
+                private int count = 0;
+
+                @Override
+                public synchronized Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, "rmi-call-"+port+"-"+(count++));
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+        }
+        scheduler = config.getQueue_capacity() == 0 ? null : new CallScheduler(config.getQueue_capacity());
+        BlockingQueue<Runnable> queue = scheduler == null ? new SynchronousQueue<Runnable>() : scheduler;
+        int workers = config.getWorker_threads();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, WORKER_KEEP_ALIVE, TimeUnit.MILLISECONDS,
+                queue, factory, new OverloadHandler(config.getOverload_policy()));
+            /* Idle Workers Exit, a Quiet Skeleton Holds no Threads */
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Hand a call read from a connection to the call executor.
+     * If the call is refused, its caller gets an 'OverloadException' right away
+     * (or an 'RMIException' if the skeleton is stopping).
+     */
+    protected void dispatch(CallTask<T> task){
+        task.track();
+        if(task.admit()){
+            execute(task);
+        }
+    }
+
+    /**
+     * Hand a call to the call executor as 'dispatch' does, but never wait for room in its queue: under the BLOCK
+     * policy, a call finding the queue full is refused as under REJECT. Used by call workers, which would otherwise
+     * wait for workers busy with calls that may be waiting for them (see 'PromiseTable.pipeline')
+     */
+    protected void dispatchNow(CallTask<T> task){
+        task.setNo_wait();
+        dispatch(task);
+    }
+
+    /**
+     * Hand a call admitted by its compartment (if any) to the call executor, refusing it as 'dispatch' does
+     */
+    protected void execute(CallTask<?> task){
+        try{
+            call_executor.execute(task);
+        }
+        catch (RejectedExecutionException e){
+            if(call_executor.isShutdown()){
+                task.reject(new RMIException("Skeleton Server is Stopping"));
+            }
+            else{
+                rejected_calls.incrementAndGet();
+                task.reject(new OverloadException("Skeleton Server is Overloaded, Call Refused"));
+            }
+        }
+    }
+
+    /**
+     * Return the compartment enforcing the '@Bulkhead' of a method of the remote objects served, or null if the method
+     * has none
+     * @throws Error if the bulkhead's limits are invalid
+     */
+    protected Compartment compartment(Method method){
+        Bulkhead bulkhead = method.getAnnotation(Bulkhead.class);
+        if(bulkhead == null){
+            return null;
+        }
+        String group = Compartment.groupOf(method, bulkhead);
+        Compartment compartment = compartments.get(group);
+        if(compartment == null){
+            compartments.putIfAbsent(group, new Compartment(group, bulkhead));
+            compartment = compartments.get(group);
+        }
+        return compartment;
+    }
+
+    /**
+     * Return true if some method served has a '@Bulkhead', whose calls must be admitted by its compartment
+     */
+    protected boolean hasCompartments(){
+        return !compartments.isEmpty();
+    }
+
+    /**
+     * Return the compartment of a bulkhead group (see 'Bulkhead'), with its counters, or null if no method served
+     * belongs to that group. A method's own group is named after its interface and its name: 'Interface.method'
+     */
+    public Compartment getCompartment(String group){
+        return compartments.get(group);
+    }
+
+    /**
+     * Take a call cancelled by its client out of the call executor's queue, making room for other calls
+     */
+    protected void withdraw(CallTask<T> task){
+        if(call_executor instanceof ThreadPoolExecutor){
+            ((ThreadPoolExecutor) call_executor).remove(task);
+        }
+    }
+
+    /**
+     * Return the number of remote objects exported by this skeleton (returned by its methods), served on its port,
+     * which clients still hold leases on
+     */
+    public int getExported_objects() {
+        return exports.size();
+    }
+
+    /**
+     * Return the number of exported objects unexported because no client held a lease on them anymore
+     */
+    public long getUnexported_objects() {
+        return exports.getUnexported();
+    }
+
+    /**
+     * Return the number of times a client was told to drop the replies it kept for an object which changed
+     * (see 'ReadOnly')
+     */
+    public long getSent_invalidations() {
+        return exports.getInvalidations();
+    }
+
+    /**
+     * Return the number of calls refused because the workers and the queue were all busy
+     */
+    public long getRejected_calls() {
+        return rejected_calls.get();
+    }
+
+    /**
+     * Return the number of queued calls dropped (SHED_OLDEST policy) to make room for newer ones
+     */
+    public long getShed_calls() {
+        return shed_calls.get();
+    }
+
+    /**
+     * Return the queue of calls waiting for a worker, with its metrics per priority class (see 'CallScheduler'),
+     * or null if the skeleton was never started, or has no queue ('queue_capacity' of 0)
+     */
+    public CallScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Return the registry of the calls running on this skeleton's workers, with a snapshot of them (method, caller,
+     * start time and elapsed time) to find stuck calls
+     */
+    public CallRegistry getCall_registry() {
+        return call_registry;
+    }
+
+    /**
+     * Return the number of calls cancelled by their clients, while queued or running
+     */
+    public long getCancelled_calls() {
+        return cancelled_calls.get();
+    }
+
+    /**
+     * Return the number of calls dropped because their deadline passed while they were queued
+     */
+    public long getExpired_calls() {
+        return expired_calls.get();
+    }
+
+    /* Applies the Overload Policy to Calls the Call Executor Cannot Take */
+    private class OverloadHandler implements RejectedExecutionHandler {
+        private final SkeletonConfig.OverloadPolicy policy;
+
+        OverloadHandler(SkeletonConfig.OverloadPolicy policy){
+            this.policy = policy;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if(executor.isShutdown()){
+                throw new RejectedExecutionException("Call Executor is Shut Down");
+            }
+            switch (policy){
+                case BLOCK:
+                    if(task instanceof CallTask && ((CallTask<?>) task).isNo_wait()){
+                        throw new RejectedExecutionException("Call Executor is Saturated");
+                    }
+                        /* Wait for Room in the Queue, Checking for Shutdown Now and Then */
+                    try{
+                        while(!executor.getQueue().offer(task, BLOCK_RECHECK, TimeUnit.MILLISECONDS)){
+                            if(executor.isShutdown()){
+                                throw new RejectedExecutionException("Call Executor is Shut Down");
+                            }
+                        }
+                    }
+                    catch (InterruptedException e){
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted While Waiting for a Worker");
+                    }
+                        /* Workers may All have Timed Out Meanwhile */
+                    executor.prestartCoreThread();
+                    return;
+                case SHED_OLDEST:
+                        /* The Scheduler Keeps Calls of a Class Higher than the New One's */
+                    BlockingQueue<Runnable> queue = executor.getQueue();
+                    Runnable oldest = queue instanceof CallScheduler ? ((CallScheduler) queue).shed(task) : queue.poll();
+                    if(oldest != null){
+                        if(oldest instanceof CallTask){
+                            shed_calls.incrementAndGet();
+                            ((CallTask<?>) oldest).reject(new OverloadException("Skeleton Server is Overloaded, Call Shed"));
+                        }
+                        executor.execute(task);
+                        return;
+                    }
+                        /* Nothing Queued to Drop (No Queue, or Only More Urgent Calls) */
+                    throw new RejectedExecutionException("Call Executor is Saturated");
+                default:
+                    throw new RejectedExecutionException("Call Executor is Saturated");
+            }
+        }
+    }
+
     /**
      *
      * All constructors of Skeleton Must reject interfaces which are not remote interfaces
@@ -117,7 +435,10 @@ public class Skeleton<T>
         if(!isRemoteInterface(c)) throw new  Error("Interface: "+c.getSimpleName()+" does not represent a remote interface");
 
         this.remote_interface_c = c;
+        method_table = MethodTable.of(c);
         remoteObject = server;
+        dispatch_table = new DispatchTable(method_table, server, this);
+        exports = new ExportTable(this);
         skeleton_address = null;
     }
 
@@ -149,11 +470,16 @@ public class Skeleton<T>
         if(!isRemoteInterface(c)) throw new  Error("Interface: "+c.getSimpleName()+" does not represent a remote interface");
 
         this.remote_interface_c = c;
+        method_table = MethodTable.of(c);
         remoteObject = server;
+        dispatch_table = new DispatchTable(method_table, server, this);
+        exports = new ExportTable(this);
         skeleton_address = address;
     }
 
-    /** Called when the listening thread exits.
+    /** Called when the skeleton has stopped: once the listening thread has
+        exited, and the calls already read have been drained (see
+        <code>stop</code>).
 
         <p>
         The listening thread may exit due to a top-level exception, or due to a
@@ -166,43 +492,19 @@ public class Skeleton<T>
         during this call.
 
         <p>
-        The default implementation does nothing.
+        The default implementation reports how the skeleton stopped.
 
         @param cause The exception that stopped the skeleton, or
                      <code>null</code> if the skeleton stopped normally.
      */
     protected void stopped(Throwable cause)
     {
-        System.out.println("For Debug: Enter stopped()");
         if(cause == null){
             System.out.println("The Skeleton Stopped Normally");
         }
         else{
-            throw new Error("The Skeleton Stooped Due to: ", cause);
+            System.out.println("The Skeleton Stopped Due to: "+cause);
         }
-        /* Handle All Current Service Threads */
-        /* Service Threads may continue running until their invocations of the service method return. */
-        synchronized (service_thread_list){
-            /* synchronized methods enable a simple strategy for preventing thread interference and memory consistency errors:
-               if an object is visible to more than one thread, all reads or writes to that object's variables
-               are done through synchronized methods.
-             */
-            if(service_thread_list != null){
-                for(ServiceThread thread : service_thread_list){
-                    try{
-                        /* Waits for this thread to die. */
-                        thread.join();
-                    }
-                    catch (InterruptedException exception){
-                        /*  if any thread has interrupted the current thread.
-                            The interrupted status of the current thread is cleared when this exception is thrown.
-                         */
-                        exception.printStackTrace();
-                    }
-                }
-            }
-        }
-        System.out.println("For Debug: Leave stopped()");
     }
 
     /** Called when an exception occurs at the top level in the listening
@@ -257,6 +559,11 @@ public class Skeleton<T>
             throw new RMIException("The Skeleton Server has Already been Started and has not since Stopped!");
         }
 
+        if(config.getExecution() == SkeletonConfig.Execution.VIRTUAL && !VirtualThreads.isSupported()){
+            throw new RMIException("VIRTUAL execution needs virtual threads, not supported by Java "
+                    +System.getProperty("java.version"));
+        }
+
         /* If the constructor doesn't specify The address at which the skeleton is to run.
            Then Choose the address Here
          */
@@ -282,14 +589,35 @@ public class Skeleton<T>
 //            else{
 //                System.out.println("Skeleton Server Address(Passed in)(port): "+skeleton_address.getPort());
 //            }
-            if((skeleton_server_socket == null) || skeleton_server_socket.isClosed()) {
+            boolean nio = config.getEngine() == SkeletonConfig.Engine.NIO;
+            if((skeleton_server_socket == null) || skeleton_server_socket.isClosed()
+                    || nio != (skeleton_server_socket.getChannel() != null)) {
                 /* Create new Server Socket Based on Skeleton_Address's Port Number (Bound to it)*/
-                skeleton_server_socket = new ServerSocket(skeleton_address.getPort());
+                if(nio){
+                    ServerSocketChannel channel = ServerSocketChannel.open();
+                    channel.bind(new InetSocketAddress(skeleton_address.getPort()));
+                    skeleton_server_socket = channel.socket();
+                }
+                else{
+                    skeleton_server_socket = new ServerSocket(skeleton_address.getPort());
+                }
             }
 
-            listener = new ListenerThread<T>(skeleton_server_socket, this);
+            call_executor = createCallExecutor();
+            service_thread_factory = config.getExecution() == SkeletonConfig.Execution.VIRTUAL
+                    ? VirtualThreads.factory("rmi-service-"+skeleton_address.getPort()+"-") : null;
             /* Start Listening Thread */
-            listener.start();
+            if(nio){
+                NioListenerThread<T> nio_listener =
+                        new NioListenerThread<T>(skeleton_server_socket.getChannel(), this);
+                listener = nio_listener;
+                nio_listener.start();
+            }
+            else{
+                ListenerThread<T> thread_listener = new ListenerThread<T>(skeleton_server_socket, this);
+                listener = thread_listener;
+                thread_listener.start();
+            }
 
         }
         catch (IOException exception){
@@ -302,34 +630,117 @@ public class Skeleton<T>
     /** Stops the skeleton server, if it is already running.
 
         <p>
-        The listening thread terminates. Threads created to service connections
-        may continue running until their invocations of the <code>service</code>
-        method return. The server stops at some later time; the method
-        <code>stopped</code> is called at that point. The server may then be
-        restarted.
+        The listening thread terminates, and the skeleton stops accepting
+        connections, before this method returns; the skeleton may then be
+        restarted at once. The calls already read from kept-alive connections
+        are drained in the background: they may run for up to the configured
+        drain timeout (see <code>SkeletonConfig</code>), while further calls
+        read from these connections are refused. Each connection is closed once
+        its calls have been answered. Calls still running after the drain
+        timeout are interrupted, and their connections closed. The server stops
+        at that point; the method <code>stopped</code> is called then.
      */
-    public synchronized void stop()
+    public void stop()
     {
         System.out.println("For Debug: Stop Called");
-        /* Check if the Listening Thread(Skeleton Server) is still running */
-        if(listener != null && listener.isAlive()){
-            /* Terminate The Listener */
-            listener.stop_status = true;
-            try {
-                listener.terminate();
-                listener.join();
-                /* Stop the Skeleton Server */
-                /* Wait for Service Threads to Finish
-                 * stopped is called Here.
-                 * Pass "null" cause Here for skeleton stopped normally.
-                 * */
-                stopped(null);
+        Listener stopping;
+        synchronized (this){
+            /* Check if the Listening Thread(Skeleton Server) is still running */
+            if(listener == null || !listener.isAlive()){
+                return;
+            }
+            stopping = listener;
+            /* Stop Accepting, and Refuse Further Calls on Kept-Alive Connections Now */
+            stopping.terminate();
+            stopping.closeConnections();
+            drain(stopping, null);
+        }
+        /* The Listening Thread Exits at Once (Outside the Lock: 'start' is not Held up by it), and Releases the Port
+           for the Next 'start' as it Does */
+        try{
+            stopping.join();
+        }
+        catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Called by a listening thread which stops due to 'cause' (see 'listen_error'): the skeleton stops as by 'stop',
+     * unless it was stopped meanwhile
+     */
+    void listenerFailed(Listener failed, Throwable cause){
+        synchronized (this){
+            if(listener != failed){
+                return;
+            }
+            drain(failed, cause);
+        }
+    }
+
+    /* Drain the Calls of a Stopped Run on a New Thread, then Call 'stopped': Neither 'start' nor 'stop' Wait for it.
+       The Caller Holds the Lock on this Skeleton */
+    private void drain(final Listener stopping, final Throwable cause){
+        final ExecutorService executor = call_executor;
+        final long drain_timeout = config.getDrain_timeout();
+        listener = null;
+        draining++;
+        Thread drainer = new Thread("rmi-drain-"+skeleton_address.getPort()) {
+            @Override
+            public void run() {
+                try{
+                        /* No Connection is Accepted Once the Listening Thread has Exited */
+                    stopping.join();
+                        /* Further Calls are Refused (also on Connections Accepted while 'stop' was Called),
+                           Calls Already Read Complete */
+                    stopping.closeConnections();
+                    executor.shutdown();
+                    if(!stopping.awaitConnections(drain_timeout)){
+                        abort(stopping, executor);
+                    }
+                }
+                catch (InterruptedException e){
+                    abort(stopping, executor);
+                }
+                finally {
+                    synchronized (Skeleton.this){
+                        draining--;
+                        stopped(cause);
+                        Skeleton.this.notifyAll();
+                    }
+                }
             }
-           catch (InterruptedException exception){//| IOException exception){
-                exception.printStackTrace();
-           }
+        };
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /* Calls Outlived the Drain Timeout: Close their Connections First, so that no Reply is Sent Once they are
+       Interrupted, then Interrupt them, and End those Still Queued */
+    private static void abort(Listener stopping, ExecutorService executor){
+        stopping.abortConnections();
+        for(Runnable task : executor.shutdownNow()){
+            if(task instanceof CallTask){
+                ((CallTask<?>) task).reject(new RMIException("Skeleton Server Stopped"));
+            }
+        }
+    }
+
+    /**
+     * Wait until every stopped run of this skeleton has drained its calls, and 'stopped' has been called,
+     * for at most 'timeout' ms
+     * @return true if no run is draining anymore
+     */
+    public synchronized boolean awaitStopped(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while(draining > 0){
+            long left = deadline - System.currentTimeMillis();
+            if(left <= 0){
+                return false;
+            }
+            wait(left);
         }
-        System.out.println("For Debug: Stop Ended");
+        return true;
     }
 
 }
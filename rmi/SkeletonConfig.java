@@ -0,0 +1,256 @@
+package rmi;
+
+/**
+ * SkeletonConfig holds the tunable settings of a Skeleton server.
+ * A configuration is read when the Skeleton is started, changes take effect at the next 'start'.
+ */
+public class SkeletonConfig {
+    /**
+     * Engine serving the Skeleton's connections
+     */
+    public enum Engine {
+        /* A 'ListenerThread' blocks in accept() and starts one 'ServiceThread' per accepted connection */
+        THREAD_PER_CONNECTION,
+        /* A 'NioListenerThread' accepts connections and spreads them over a few 'NioReactorThread's,
+           which read and write frames on non-blocking channels */
+        NIO
+    }
+
+    /* Default Engine can be Overridden by a System Property */
+    /**
+     * Kind of threads running connections and method calls
+     */
+    public enum Execution {
+        /* Platform (OS) threads: every connection's Service Thread and every call runs on its own 'Thread' */
+        PLATFORM,
+        /* Virtual threads (Java 21+): connections and calls run on cheap virtual threads, so blocking
+           server methods (like ones calling 'wait') no longer tie up an OS thread each */
+        VIRTUAL
+    }
+
+    /**
+     * What the Skeleton does with a call arriving while all workers are busy and the call queue is full
+     */
+    public enum OverloadPolicy {
+        /* Refuse the new call at once, its caller gets an 'OverloadException' */
+        REJECT,
+        /* Stop reading calls until the queue has room again: the connection's reader (and, for the NIO engine,
+           its whole reactor) blocks, so TCP flow control pushes back on the clients */
+        BLOCK,
+        /* Drop the call which has waited longest in the lowest priority class waiting (its caller gets an
+           'OverloadException') and queue the new one, unless only calls of a higher class than its own wait */
+        SHED_OLDEST
+    }
+
+    /**
+     * How the calls of a batch (see 'CallBatch') are run
+     */
+    public enum BatchExecution {
+        /* One after the other on one worker, in batch order: each call sees the effects of the previous ones */
+        SEQUENTIAL,
+        /* Each call on its own worker, at the same time (each is admitted, or refused, like a single call) */
+        PARALLEL
+    }
+
+    private Engine engine = Engine.valueOf(System.getProperty("rmi.skeleton.engine", Engine.THREAD_PER_CONNECTION.name()));
+
+    /* Default Execution can be Overridden by a System Property */
+    private Execution execution = Execution.valueOf(System.getProperty("rmi.skeleton.execution", Execution.PLATFORM.name()));
+
+    /* I/O Reactor Threads of the NIO Engine */
+    private int reactor_threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /* Workers Running Method Calls (0: Default of the Execution Mode) */
+    private int worker_threads = 0;
+
+    /* Calls Waiting for a Free Worker */
+    private int queue_capacity = 1024;
+
+    private OverloadPolicy overload_policy = OverloadPolicy.REJECT;
+
+    /* Connections Served at Once by the Thread-per-Connection Engine, the Listening Thread Stops Accepting Beyond */
+    private int max_connections = 4096;
+
+    /* Default Batch Execution can be Overridden by a System Property */
+    private BatchExecution batch_execution = BatchExecution.valueOf(
+            System.getProperty("rmi.skeleton.batch_execution", BatchExecution.SEQUENTIAL.name()));
+
+    /* Keep-Alive Connections Left Idle for Longer than This (ms) are Closed by the Server */
+    private int idle_timeout = 60000;
+
+    /* Exported Objects are Unexported Unless a Client Renews its Lease within This (ms), see 'ExportTable' */
+    private int lease_duration = Integer.getInteger("rmi.dgc.lease_ms", 60000);
+
+    /* Calls Still Running This Long (ms) after 'Skeleton.stop' are Interrupted, and their Connections Closed */
+    private int drain_timeout = Integer.getInteger("rmi.skeleton.drain_ms", 30000);
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public SkeletonConfig setEngine(Engine engine) {
+        if(engine == null){
+            throw new NullPointerException("Null Engine");
+        }
+        this.engine = engine;
+        return this;
+    }
+
+    public Execution getExecution() {
+        return execution;
+    }
+
+    /**
+     * Select the kind of threads running connections and calls.
+     * VIRTUAL needs a Java runtime with virtual threads, 'Skeleton.start' fails otherwise.
+     */
+    public SkeletonConfig setExecution(Execution execution) {
+        if(execution == null){
+            throw new NullPointerException("Null Execution");
+        }
+        this.execution = execution;
+        return this;
+    }
+
+    public int getReactor_threads() {
+        return reactor_threads;
+    }
+
+    public SkeletonConfig setReactor_threads(int reactor_threads) {
+        if(reactor_threads < 1){
+            throw new IllegalArgumentException("At least one reactor thread is needed");
+        }
+        this.reactor_threads = reactor_threads;
+        return this;
+    }
+
+    /**
+     * Return the number of workers running method calls at the same time.
+     * Unless set, 256 platform threads, or 65536 virtual threads.
+     */
+    public int getWorker_threads() {
+        if(worker_threads > 0){
+            return worker_threads;
+        }
+        return execution == Execution.VIRTUAL ? 65536 : 256;
+    }
+
+    public SkeletonConfig setWorker_threads(int worker_threads) {
+        if(worker_threads < 1){
+            throw new IllegalArgumentException("At least one worker thread is needed");
+        }
+        this.worker_threads = worker_threads;
+        return this;
+    }
+
+    public int getQueue_capacity() {
+        return queue_capacity;
+    }
+
+    /**
+     * Set the number of calls which may wait for a free worker, 0 for no queue
+     */
+    public SkeletonConfig setQueue_capacity(int queue_capacity) {
+        if(queue_capacity < 0){
+            throw new IllegalArgumentException("Negative queue capacity");
+        }
+        this.queue_capacity = queue_capacity;
+        return this;
+    }
+
+    public OverloadPolicy getOverload_policy() {
+        return overload_policy;
+    }
+
+    public SkeletonConfig setOverload_policy(OverloadPolicy overload_policy) {
+        if(overload_policy == null){
+            throw new NullPointerException("Null Overload Policy");
+        }
+        this.overload_policy = overload_policy;
+        return this;
+    }
+
+    public int getMax_connections() {
+        return max_connections;
+    }
+
+    public SkeletonConfig setMax_connections(int max_connections) {
+        if(max_connections < 1){
+            throw new IllegalArgumentException("At least one connection is needed");
+        }
+        this.max_connections = max_connections;
+        return this;
+    }
+
+    public BatchExecution getBatch_execution() {
+        return batch_execution;
+    }
+
+    /**
+     * Select how the calls of a batch are run, takes effect for the next batches received
+     */
+    public SkeletonConfig setBatch_execution(BatchExecution batch_execution) {
+        if(batch_execution == null){
+            throw new NullPointerException("Null Batch Execution");
+        }
+        this.batch_execution = batch_execution;
+        return this;
+    }
+
+    /**
+     * Return the time(ms) a kept-alive client connection may stay idle before the server closes it.
+     */
+    public int getIdle_timeout() {
+        return idle_timeout;
+    }
+
+    /**
+     * Set the time(ms) a kept-alive client connection may stay idle before the server closes it.
+     * Should be longer than the client pools' keep-alive, so that clients close idle connections first.
+     */
+    public SkeletonConfig setIdle_timeout(int idle_timeout) {
+        if(idle_timeout <= 0){
+            throw new IllegalArgumentException("Idle timeout must be positive");
+        }
+        this.idle_timeout = idle_timeout;
+        return this;
+    }
+
+    /**
+     * Return the time(ms) an exported object's lease lasts unless its client renews it.
+     */
+    public int getLease_duration() {
+        return lease_duration;
+    }
+
+    /**
+     * Set the time(ms) an exported object's lease lasts, takes effect for the next leases granted.
+     * Clients renew their leases halfway through.
+     */
+    public SkeletonConfig setLease_duration(int lease_duration) {
+        if(lease_duration <= 0){
+            throw new IllegalArgumentException("Lease duration must be positive");
+        }
+        this.lease_duration = lease_duration;
+        return this;
+    }
+
+    /**
+     * Return the time(ms) a stopping Skeleton lets the calls it already read finish, before interrupting them.
+     */
+    public int getDrain_timeout() {
+        return drain_timeout;
+    }
+
+    /**
+     * Set the time(ms) a stopping Skeleton lets the calls it already read finish (see 'Skeleton.stop'),
+     * 0 to interrupt them at once. Read when the Skeleton is stopped.
+     */
+    public SkeletonConfig setDrain_timeout(int drain_timeout) {
+        if(drain_timeout < 0){
+            throw new IllegalArgumentException("Negative drain timeout");
+        }
+        this.drain_timeout = drain_timeout;
+        return this;
+    }
+}
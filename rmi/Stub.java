@@ -19,6 +19,11 @@ import java.net.*;
     same interface and carry the same remote server address - and would
     therefore connect to the same skeleton. Stubs are serializable.
 
+    <p>
+    Remote objects returned by remote methods are served by the skeleton of
+    the method, on its own port: their stubs also carry the ID under which the
+    skeleton exported them, and are only equal to stubs of the same object.
+
  */
 public abstract class Stub
 {
@@ -37,7 +42,7 @@ public abstract class Stub
      * Check whether interface'smethods are all marked as throwing RMIException.
      * @return true or false
      */
-    private static <T>boolean isRemoteInterface(Class<T> c){
+    static <T>boolean isRemoteInterface(Class<T> c){
         if(!c.isInterface()){ //Determines if the specified Class object represents an interface type
             return false;
         }
@@ -58,6 +63,26 @@ public abstract class Stub
     }
 
 
+    /**
+     * Create the stub object: an instance of the class generated for 'c' at compile time (see 'RemoteProcessor')
+     * or at run time (see 'StubGenerator') when there is one, a proxy object otherwise. All kinds behave the same.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T newStub(Class<T> c, InetSocketAddress address, int object_id){
+        StubInvocationHandler<T> handler = new StubInvocationHandler<T>(c, address, object_id);
+        T stub = RemoteClasses.newStub(c, handler);
+        if(stub == null){
+            stub = StubGenerator.newStub(c, handler);
+        }
+        if(stub == null){
+            /* A proxy instance is an instance of a proxy class.
+               Each proxy instance has an associated invocation handler objec
+             */
+            stub = (T) Proxy.newProxyInstance(c.getClassLoader(), new Class<?>[]{c}, handler);
+        }
+        return stub;
+    }
+
     /** Creates a stub, given a skeleton with an assigned adress.
 
         <p>
@@ -103,14 +128,9 @@ public abstract class Stub
 
         /* Unkonwn Host Exception */
 
-        /* Get Proxy for Remote interface T */
+        /* Get Stub (Generated Class or Proxy) for Remote interface T */
         try{
-            /* A proxy instance is an instance of a proxy class.
-               Each proxy instance has an associated invocation handler objec
-             */
-            InvocationHandler handler = new StubInvocationHandler<T>(c, skeleton.getSkeleton_address());
-            T stub = (T) Proxy.newProxyInstance(c.getClassLoader(), new Class[]{c}, handler);
-            return stub;
+            return newStub(c, skeleton.getSkeleton_address(), 0);
         }
         catch(Exception e){
             throw new Error("Object(Stub) implementing interface: "+c.getCanonicalName()+" Cannot be Dynamically Created!");
@@ -166,9 +186,7 @@ public abstract class Stub
         /* Generating the new Address(HostName Overrided) For Stub */
         InetSocketAddress new_address = new InetSocketAddress(hostname, skeleton.getSkeleton_address().getPort());
         try{
-            InvocationHandler handler = new StubInvocationHandler<T>(c, new_address);
-            T stub = (T) Proxy.newProxyInstance(c.getClassLoader(), new Class[]{c}, handler);
-            return stub;
+            return newStub(c, new_address, 0);
         }
         catch(Exception e){
             throw new Error("Object(Stub) implementing interface: "+c.getCanonicalName()+" Cannot be Dynamically Created!");
@@ -193,6 +211,15 @@ public abstract class Stub
                       this interface cannot be dynamically created.
      */
     public static <T> T create(Class<T> c, InetSocketAddress address)
+    {
+        return create(c, address, 0);
+    }
+
+    /**
+     * Create the stub of the remote object exported under 'object_id' by the skeleton at 'address' (see 'ExportTable'),
+     * 0 being the skeleton's own server object
+     */
+    static <T> T create(Class<T> c, InetSocketAddress address, int object_id)
     {
         if(c == null || address == null){
             throw new NullPointerException("Null Arguments!");
@@ -200,11 +227,9 @@ public abstract class Stub
 
         if(!isRemoteInterface(c)) throw new  Error("Interface: "+c.getSimpleName()+" does not represent a remote interface");
 
-        /* Get Proxy for Remote interface T */
+        /* Get Stub (Generated Class or Proxy) for Remote interface T */
         try{
-            InvocationHandler handler = new StubInvocationHandler<T>(c, address);
-            T stub = (T) Proxy.newProxyInstance(c.getClassLoader(), new Class[]{c}, handler);
-            return stub;
+            return newStub(c, address, object_id);
         }
         catch(Exception e){
             throw new Error("Object(Stub) implementing interface: "+c.getCanonicalName()+" Cannot be Dynamically Created!");
@@ -212,4 +237,125 @@ public abstract class Stub
     }
 
 
+    /** Creates a stub of the same remote object as an existing stub, whose
+        calls must each complete within the given time.
+
+        <p>
+        A call which does not complete in time fails with a
+        <code>DeadlineExceededException</code>, and the skeleton is told to
+        cancel it (see {@link Deadline}). The new stub keeps the priority
+        class and near cache of the original one, and is equal to it; the
+        timeout is not transmitted with it.
+
+        @param stub The stub whose remote object the new stub calls.
+        @param timeout The time each call may take, in milliseconds.
+        @return The stub created.
+        @throws NullPointerException If <code>stub</code> is <code>null</code>.
+        @throws IllegalArgumentException If <code>stub</code> is not a stub, or
+                                         <code>timeout</code> is not positive.
+     */
+    public static <T> T withTimeout(T stub, long timeout)
+    {
+        if(stub == null){
+            throw new NullPointerException("Null Stub!");
+        }
+        if(timeout <= 0){
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+        T timed = derive(stub);
+        StubInvocationHandler.of(timed).setTimeout(timeout);
+        return timed;
+    }
+
+    /** Creates a stub of the same remote object as an existing stub, whose
+        calls are of the given priority class.
+
+        <p>
+        Calls waiting for a worker of the skeleton are served by priority
+        class, then by earliest deadline (see {@link Priority}). The new stub
+        keeps the timeout and near cache of the original one, and is equal to
+        it; the priority class is not transmitted with it.
+
+        @param stub The stub whose remote object the new stub calls.
+        @param priority The priority class of the new stub's calls.
+        @return The stub created.
+        @throws NullPointerException If <code>stub</code> or
+                                     <code>priority</code> is
+                                     <code>null</code>.
+        @throws IllegalArgumentException If <code>stub</code> is not a stub.
+     */
+    public static <T> T withPriority(T stub, Priority priority)
+    {
+        if(stub == null){
+            throw new NullPointerException("Null Stub!");
+        }
+        if(priority == null){
+            throw new NullPointerException("Null Priority!");
+        }
+        T prioritized = derive(stub);
+        StubInvocationHandler.of(prioritized).setPriority(priority);
+        return prioritized;
+    }
+
+    /** Creates a stub of the same remote object as an existing stub, which
+        keeps the results of its calls to read-only methods.
+
+        <p>
+        The new stub serves calls of methods marked {@link ReadOnly} from the
+        replies kept for the same arguments, until the object changes: the
+        skeleton then tells the client, which drops the object's replies (see
+        {@link ResultCache}). The new stub keeps the timeout and priority class
+        of the original one, and is equal to it; the near cache is not
+        transmitted with it.
+
+        @param stub The stub whose remote object the new stub calls.
+        @return The stub created.
+        @throws NullPointerException If <code>stub</code> is <code>null</code>.
+        @throws IllegalArgumentException If <code>stub</code> is not a stub.
+     */
+    public static <T> T withNearCache(T stub)
+    {
+        if(stub == null){
+            throw new NullPointerException("Null Stub!");
+        }
+        T cached = derive(stub);
+        StubInvocationHandler.of(cached).setNear_cache(true);
+        return cached;
+    }
+
+    /* New Stub of the Same Remote Object as 'stub', with its Call Settings (Timeout, Priority Class, Near Cache) */
+    @SuppressWarnings("unchecked")
+    private static <T> T derive(T stub){
+        StubInvocationHandler<T> handler = (StubInvocationHandler<T>) StubInvocationHandler.of(stub);
+        T derived = newStub(handler.getRemote_interface_class(), handler.get_Address(), handler.getObject_id());
+        StubInvocationHandler<?> derived_handler = StubInvocationHandler.of(derived);
+        derived_handler.setTimeout(handler.getTimeout());
+        derived_handler.setPriority(handler.getPriority());
+        derived_handler.setNear_cache(handler.isNear_cache());
+            /* Keeps the Object's Lease, as Long as the Stub is Held */
+        LeaseRenewer.hold(derived_handler);
+        return derived;
+    }
+
+
+    /** Creates an asynchronous stub, given the address of a remote server.
+
+        <p>
+        Each remote method of the returned stub may be called without waiting
+        for its result, which is delivered by a
+        <code>CompletableFuture</code> (see {@link AsyncStub}). The
+        asynchronous view of an existing stub is given by
+        <code>AsyncStub.of</code>.
+
+        @param c A <code>Class</code> object representing the interface
+                 implemented by the remote object.
+        @param address The network address of the remote skeleton.
+        @return The asynchronous stub created.
+        @throws NullPointerException If any argument is <code>null</code>.
+        @throws Error If <code>c</code> does not represent a remote interface.
+     */
+    public static <T> AsyncStub<T> createAsync(Class<T> c, InetSocketAddress address)
+    {
+        return AsyncStub.of(create(c, address));
+    }
 }
@@ -0,0 +1,463 @@
+package rmi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * StubGenerator generates a concrete stub class per remote interface, used by 'Stub.create' instead of a proxy.
+ * The class extends 'GeneratedStub' and implements each interface method with a monomorphic body calling the
+ * remote method by its constant ID, so the JIT can inline the whole call path. Primitive arguments and return
+ * values are encoded and decoded with the 'Codec' methods of their types, without boxing.
+ *
+ * The class file is written directly and defined as a hidden class of this package, so generation needs no compiler
+ * and takes about a millisecond: it is done on the first 'create' for an interface. Every method body has the
+ * same straight-line shape (the 'GeneratedStub' helpers do the branching and exception handling), so the class needs
+ * neither stack map frames nor exception tables:
+ *      call = beginCall(id, count); put(call, a0); ...; return endInt(id, call)   (or endValue + checkcast, ...)
+ *
+ * Generation is skipped, and stubs stay proxies, when the interface or a type in its signatures is not accessible
+ * from this package, or when the class cannot be defined. Property 'rmi.stub.generator' = on (default) | off.
+ */
+public class StubGenerator {
+    private static final boolean ENABLED = !System.getProperty("rmi.stub.generator", "on").equals("off");
+
+    private static final Object FAILED = new Object(); //Marks Interfaces whose Class Cannot be Generated
+
+    /* Constructor Handle (StubInvocationHandler)GeneratedStub by Interface, or FAILED */
+    private static final ConcurrentHashMap<Class<?>, Object> constructors = new ConcurrentHashMap<Class<?>, Object>();
+
+    private static final String SUPER = "rmi/GeneratedStub";
+    private static final String CALL_WRITER = "Lrmi/CallWriter;";
+
+    /**
+     * Return a new instance of the generated stub class of 'c', or null if there is none
+     */
+    public static <T> T newStub(Class<T> c, StubInvocationHandler<T> handler){
+        if(!ENABLED){
+            return null;
+        }
+        Object constructor = constructors.get(c);
+        if(constructor == null){
+            constructor = generate(c);
+        }
+        if(!(constructor instanceof MethodHandle)){
+            return null;
+        }
+        try{
+            return c.cast(((MethodHandle) constructor).invoke(handler));
+        }
+        catch (Throwable t){
+            return null;
+        }
+    }
+
+    /**
+     * Generate and define the stub class of 'c' now (whatever 'rmi.stub.generator' says), unless it was already
+     * generated
+     * @return true if stubs of 'c' can be instances of a generated class
+     */
+    public static boolean prepare(Class<?> c){
+        Object constructor = constructors.get(c);
+        if(constructor instanceof MethodHandle){
+            return true;
+        }
+        return generate(c) instanceof MethodHandle;
+    }
+
+    /* Generate the Class and Record its Constructor (or FAILED) */
+    private static synchronized Object generate(Class<?> c){
+        Object constructor = constructors.get(c);
+        if(constructor != null){
+            return constructor;
+        }
+        try{
+            constructor = define(c);
+        }
+        catch (Throwable t){
+            constructor = null;
+        }
+        if(constructor == null){
+                /* Proxies Serve this Interface */
+            constructor = FAILED;
+        }
+        constructors.put(c, constructor);
+        return constructor;
+    }
+
+    private static MethodHandle define(Class<?> c) throws Exception {
+        byte[] bytes = classFile(c, "rmi/GeneratedStub_"+c.getName().replaceAll("[^A-Za-z0-9]", "_"));
+        if(bytes == null){
+            return null;
+        }
+        MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+        if(!c.isAssignableFrom(lookup.lookupClass())){
+                /* Interface Name Resolved to Another Class (Other Class Loader) */
+            return null;
+        }
+        return lookup.findConstructor(lookup.lookupClass(),
+                MethodType.methodType(void.class, StubInvocationHandler.class))
+                .asType(MethodType.methodType(GeneratedStub.class, StubInvocationHandler.class));
+    }
+
+    /**
+     * Return the class file of the stub class of 'c', with the internal name 'class_name' in this package,
+     * or null if the interface cannot be implemented from this package
+     */
+    static byte[] classFile(Class<?> c, String class_name) throws IOException {
+        if(!c.isInterface() || !accessible(c)){
+            return null;
+        }
+        MethodTable table = MethodTable.of(c);
+        ConstantPool pool = new ConstantPool();
+        int this_class = pool.classRef(class_name);
+        int super_class = pool.classRef(SUPER);
+        int remote_interface = pool.classRef(internalName(c));
+        int code = pool.utf8("Code");
+
+        ByteArrayOutputStream methods_bytes = new ByteArrayOutputStream();
+        DataOutputStream methods = new DataOutputStream(methods_bytes);
+        int method_count = 0;
+
+            /* Constructor: super(handler) */
+        Code constructor = new Code();
+        constructor.op(0x2a); //aload_0
+        constructor.op(0x2b); //aload_1
+        constructor.op(0xb7).u2(pool.methodRef(SUPER, "<init>", "(Lrmi/StubInvocationHandler;)V")); //invokespecial
+        constructor.op(0xb1); //return
+        constructor.write(methods, 0, pool.utf8("<init>"), pool.utf8("(Lrmi/StubInvocationHandler;)V"), code, 2, 2);
+        method_count++;
+
+            /* Every Method Declared by the Interface (or Inherited), Once per Descriptor: Overridden Methods with
+               Another Return Type Must be Implemented Too */
+        Set<String> implemented = new HashSet<String>();
+        for(Method method : c.getMethods()){
+            if(Modifier.isStatic(method.getModifiers()) || isObjectMethod(method)){
+                    /* Not Remote, or Served Locally by GeneratedStub */
+                continue;
+            }
+            String descriptor = descriptor(method);
+            if(!implemented.add(method.getName()+descriptor)){
+                continue;
+            }
+            Class<?> return_type = method.getReturnType();
+            Class<?>[] parameter_types = method.getParameterTypes();
+            if(!accessible(return_type)){
+                return null;
+            }
+            int id = table.idOf(method);
+            int call_slot = 1;
+            for(Class<?> parameter_type : parameter_types){
+                if(!accessible(parameter_type)){
+                    return null;
+                }
+                call_slot += slots(parameter_type);
+            }
+            if(call_slot > 255 || id < 0){
+                return null;
+            }
+            Code body = new Code();
+                /* call = beginCall(id, count) */
+            body.op(0x2a);
+            body.pushInt(pool, id);
+            body.pushInt(pool, parameter_types.length);
+            body.op(0xb6).u2(pool.methodRef(SUPER, "beginCall", "(II)"+CALL_WRITER)); //invokevirtual
+            body.op(0x3a).u1(call_slot); //astore
+                /* put(call, a<i>) */
+            int slot = 1;
+            for(Class<?> parameter_type : parameter_types){
+                body.op(0x2a);
+                body.op(0x19).u1(call_slot); //aload
+                body.op(loadOpcode(parameter_type)).u1(slot);
+                String value = parameter_type.isPrimitive() ? typeDescriptor(parameter_type) : "Ljava/lang/Object;";
+                body.op(0xb6).u2(pool.methodRef(SUPER, "put", "("+CALL_WRITER+value+")V"));
+                slot += slots(parameter_type);
+            }
+                /* return end<Type>(id, call) */
+            String end = table.isOneWay(id) ? "OneWay" : codec(return_type.getName(), return_type.isPrimitive());
+            String end_type = return_type.isPrimitive() ? typeDescriptor(return_type) : "Ljava/lang/Object;";
+            body.op(0x2a);
+            body.pushInt(pool, id);
+            body.op(0x19).u1(call_slot);
+            body.op(0xb6).u2(pool.methodRef(SUPER, "end"+end, "(I"+CALL_WRITER+")"+end_type));
+            if(!return_type.isPrimitive() && return_type != Object.class){
+                body.op(0xc0).u2(pool.classRef(return_type.isArray()
+                        ? typeDescriptor(return_type) : internalName(return_type))); //checkcast
+            }
+            body.op(returnOpcode(return_type));
+            body.write(methods, Modifier.PUBLIC, pool.utf8(method.getName()), pool.utf8(descriptor), code,
+                    4, call_slot + 1);
+            method_count++;
+        }
+
+        ByteArrayOutputStream class_bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(class_bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0); //Minor Version
+        out.writeShort(52); //Java 8: Straight-Line Code Needs no Stack Map Frames
+        pool.write(out);
+        out.writeShort(0x0010 | 0x0020); //ACC_FINAL | ACC_SUPER
+        out.writeShort(this_class);
+        out.writeShort(super_class);
+        out.writeShort(1);
+        out.writeShort(remote_interface);
+        out.writeShort(0); //Fields
+        out.writeShort(method_count);
+        methods.flush();
+        methods_bytes.writeTo(out);
+        out.writeShort(0); //Class Attributes
+        out.flush();
+        return class_bytes.toByteArray();
+    }
+
+    /**
+     * Return the suffix of the 'Codec' (and 'GeneratedStub' call) method for a type: "Int" for int, "Void" for
+     * void, ..., "Value" for any reference type
+     */
+    static String codec(String type_name, boolean primitive){
+        if(!primitive){
+            return "Value";
+        }
+        return Character.toUpperCase(type_name.charAt(0))+type_name.substring(1);
+    }
+
+    /* 'equals', 'hashCode' or 'toString' Redeclared by the Interface */
+    private static boolean isObjectMethod(Method method){
+        try{
+            Object.class.getMethod(method.getName(), method.getParameterTypes());
+            return true;
+        }
+        catch (NoSuchMethodException e){
+            return false;
+        }
+    }
+
+    /* Can a Class of this Package Name the Type? */
+    private static boolean accessible(Class<?> type){
+        while(type.isArray()){
+            type = type.getComponentType();
+        }
+        if(type.isPrimitive()){
+            return true;
+        }
+        if(type.isHidden()){
+            return false;
+        }
+        for(Class<?> enclosing = type; enclosing != null; enclosing = enclosing.getDeclaringClass()){
+            boolean same_package = enclosing.getPackageName().equals(StubGenerator.class.getPackageName())
+                    && enclosing.getClassLoader() == StubGenerator.class.getClassLoader();
+            if(Modifier.isPrivate(enclosing.getModifiers())
+                    || (!Modifier.isPublic(enclosing.getModifiers()) && !same_package)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String internalName(Class<?> type){
+        return type.getName().replace('.', '/');
+    }
+
+    private static String typeDescriptor(Class<?> type){
+        if(type.isArray()){
+            return internalName(type);
+        }
+        if(!type.isPrimitive()){
+            return "L"+internalName(type)+";";
+        }
+        switch (type.getName()){
+            case "boolean": return "Z";
+            case "byte": return "B";
+            case "short": return "S";
+            case "char": return "C";
+            case "int": return "I";
+            case "long": return "J";
+            case "float": return "F";
+            case "double": return "D";
+            default: return "V";
+        }
+    }
+
+    private static String descriptor(Method method){
+        StringBuilder descriptor = new StringBuilder("(");
+        for(Class<?> parameter_type : method.getParameterTypes()){
+            descriptor.append(typeDescriptor(parameter_type));
+        }
+        return descriptor.append(')').append(typeDescriptor(method.getReturnType())).toString();
+    }
+
+    private static int slots(Class<?> type){
+        return type == long.class || type == double.class ? 2 : 1;
+    }
+
+    /* iload, lload, fload, dload or aload */
+    private static int loadOpcode(Class<?> type){
+        if(type == long.class){
+            return 0x16;
+        }
+        if(type == float.class){
+            return 0x17;
+        }
+        if(type == double.class){
+            return 0x18;
+        }
+        return type.isPrimitive() ? 0x15 : 0x19;
+    }
+
+    /* return, ireturn, lreturn, freturn, dreturn or areturn */
+    private static int returnOpcode(Class<?> type){
+        if(type == void.class){
+            return 0xb1;
+        }
+        if(type == long.class){
+            return 0xad;
+        }
+        if(type == float.class){
+            return 0xae;
+        }
+        if(type == double.class){
+            return 0xaf;
+        }
+        return type.isPrimitive() ? 0xac : 0xb0;
+    }
+
+    /* Constant Pool of the Class File, Entries Shared by Value */
+    private static class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+        private int count = 1; //Index 0 is Unused
+
+        int utf8(String value) throws IOException {
+            Integer index = indexes.get("U"+value);
+            if(index == null){
+                out.writeByte(1);
+                out.writeUTF(value);
+                index = add("U"+value);
+            }
+            return index;
+        }
+
+        int integer(int value) throws IOException {
+            Integer index = indexes.get("I"+value);
+            if(index == null){
+                out.writeByte(3);
+                out.writeInt(value);
+                index = add("I"+value);
+            }
+            return index;
+        }
+
+        int classRef(String internal_name) throws IOException {
+            Integer index = indexes.get("C"+internal_name);
+            if(index == null){
+                int name = utf8(internal_name);
+                out.writeByte(7);
+                out.writeShort(name);
+                index = add("C"+internal_name);
+            }
+            return index;
+        }
+
+        int methodRef(String owner, String name, String descriptor) throws IOException {
+            String key = "M"+owner+"."+name+descriptor;
+            Integer index = indexes.get(key);
+            if(index == null){
+                int owner_index = classRef(owner);
+                int name_index = utf8(name);
+                int descriptor_index = utf8(descriptor);
+                out.writeByte(12); //NameAndType
+                out.writeShort(name_index);
+                out.writeShort(descriptor_index);
+                int name_and_type = add("N"+name+descriptor);
+                out.writeByte(10); //Methodref
+                out.writeShort(owner_index);
+                out.writeShort(name_and_type);
+                index = add(key);
+            }
+            return index;
+        }
+
+        private int add(String key) throws IOException {
+            if(count >= 0xffff){
+                throw new IOException("Constant Pool Full");
+            }
+            indexes.put(key, count);
+            return count++;
+        }
+
+        void write(DataOutputStream class_file) throws IOException {
+            out.flush();
+            class_file.writeShort(count);
+            bytes.writeTo(class_file);
+        }
+    }
+
+    /* Bytecode of One Method */
+    private static class Code {
+        private final List<Byte> bytes = new ArrayList<Byte>();
+
+        Code op(int opcode){
+            return u1(opcode);
+        }
+
+        Code u1(int value){
+            bytes.add((byte) value);
+            return this;
+        }
+
+        Code u2(int value){
+            return u1(value >> 8).u1(value);
+        }
+
+        /* iconst_<n>, bipush, sipush or ldc_w */
+        void pushInt(ConstantPool pool, int value) throws IOException {
+            if(value >= -1 && value <= 5){
+                op(0x03 + value);
+            }
+            else if(value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE){
+                op(0x10).u1(value);
+            }
+            else if(value >= Short.MIN_VALUE && value <= Short.MAX_VALUE){
+                op(0x11).u2(value);
+            }
+            else{
+                op(0x13).u2(pool.integer(value));
+            }
+        }
+
+        /* method_info with a Single Code Attribute */
+        void write(DataOutputStream out, int access, int name, int descriptor, int code_attribute,
+                   int max_stack, int max_locals) throws IOException {
+            out.writeShort(access);
+            out.writeShort(name);
+            out.writeShort(descriptor);
+            out.writeShort(1);
+            out.writeShort(code_attribute);
+            out.writeInt(2 + 2 + 4 + bytes.size() + 2 + 2);
+            out.writeShort(max_stack);
+            out.writeShort(max_locals);
+            out.writeInt(bytes.size());
+            for(byte b : bytes){
+                out.writeByte(b);
+            }
+            out.writeShort(0); //Exception Table
+            out.writeShort(0); //Attributes
+        }
+    }
+}
@@ -9,15 +9,23 @@ package rmi;
  * and the $$$marshalling of arguments$$$ will be done in their invocation handlers.
  */
 
+import java.io.DataInput;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.net.InetSocketAddress;
-import java.net.Socket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 /**
  * Each proxy instance has an associated invocation handler object,
@@ -25,15 +33,46 @@ import java.net.Socket;
  *
  */
 public class StubInvocationHandler<T> implements InvocationHandler, Serializable {
+    /* Fails Asynchronous Calls whose Deadline Passed, Cancelled Tasks are Removed at Once */
+    private static final ScheduledThreadPoolExecutor deadlines = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, "rmi-call-deadlines");
+                    /* Must not keep client JVMs alive */
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    static {
+        deadlines.setRemoveOnCancelPolicy(true);
+    }
 
     private Class<T> remote_interface_class;
 
     private InetSocketAddress skeleton_address;
 
+    private int object_id; //Object Exported by the Skeleton (see 'ExportTable'), 0 for its Server Object
+
+    /* Time(ms) Each Call Must Complete within (see 'Deadline'), 0 for None. A Setting of this Client's Stub Only */
+    private transient long timeout;
+
+    /* Priority Class of Each Call (see 'Priority'). A Setting of this Client's Stub Only, like 'timeout' */
+    private transient Priority priority = Priority.NORMAL;
+
+    /* Keep Replies of Read-Only Methods Until the Skeleton Says their Object Changed (see 'ReadOnly'), like 'timeout' */
+    private transient boolean near_cache;
+
     public StubInvocationHandler(Class<T> remote_interface_class, InetSocketAddress address){
+        this(remote_interface_class, address, 0);
+    }
+
+    public StubInvocationHandler(Class<T> remote_interface_class, InetSocketAddress address, int object_id){
             /* Match to Corresponding Skeleton */
         this.remote_interface_class = remote_interface_class;
         this.skeleton_address = address;
+        this.object_id = object_id;
     }
 
     public Class<T> getRemote_interface_class(){
@@ -44,6 +83,44 @@ public class StubInvocationHandler<T> implements InvocationHandler, Serializable
         return this.skeleton_address;
     }
 
+    public int getObject_id(){
+        return this.object_id;
+    }
+
+    public long getTimeout(){
+        return this.timeout;
+    }
+
+    /* Set by 'Stub.withTimeout' on a New Stub Only, Before it is Shared */
+    void setTimeout(long timeout){
+        this.timeout = timeout;
+    }
+
+    public Priority getPriority(){
+        return this.priority;
+    }
+
+    /* Set by 'Stub.withPriority' on a New Stub Only, Before it is Shared */
+    void setPriority(Priority priority){
+        this.priority = priority;
+    }
+
+    public boolean isNear_cache(){
+        return this.near_cache;
+    }
+
+    /* Set by 'Stub.withNearCache' on a New Stub Only, Before it is Shared */
+    void setNear_cache(boolean near_cache){
+        this.near_cache = near_cache;
+    }
+
+    /* A Received Stub of an Exported Object Holds a Lease on it (see 'LeaseRenewer') */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        priority = Priority.NORMAL;
+        LeaseRenewer.hold(this);
+    }
+
     /**
      *
      * The 'toString' method should report:
@@ -55,10 +132,33 @@ public class StubInvocationHandler<T> implements InvocationHandler, Serializable
      * @throws IllegalArgumentException  if the argument is not a proxy instance
      */
     private String toStringHelper(Object proxy) throws IllegalArgumentException{
-        @SuppressWarnings("unchecked")
-        StubInvocationHandler<T> stubProxy = (StubInvocationHandler<T>) Proxy.getInvocationHandler(proxy);
-        return "Remote Interface: "+stubProxy.getRemote_interface_class().getName()+" Host: "
-                +stubProxy.get_Address().getHostName()+":"+stubProxy.get_Address().getPort();
+        return of(proxy).toString();
+    }
+
+    /**
+     * Return the invocation handler of a stub: a proxy object, or an instance of a generated stub class
+     * @throws IllegalArgumentException if 'stub' is neither
+     */
+    public static StubInvocationHandler<?> of(Object stub) throws IllegalArgumentException{
+        if(stub instanceof GeneratedStub){
+            return ((GeneratedStub) stub).handler;
+        }
+        InvocationHandler handler = Proxy.getInvocationHandler(stub);
+        if(!(handler instanceof StubInvocationHandler)){
+            throw new IllegalArgumentException("Not a Stub");
+        }
+        return (StubInvocationHandler<?>) handler;
+    }
+
+    /**
+     * Report the name of the remote interface, the address of the skeleton and the exported object called (if not the
+     * skeleton's server object), shared by all equal stubs
+     */
+    @Override
+    public String toString(){
+        String object = object_id == 0 ? "" : " Object: "+object_id;
+        return "Remote Interface: "+remote_interface_class.getName()+" Host: "
+                +skeleton_address.getHostName()+":"+skeleton_address.getPort()+object;
     }
 
     /**
@@ -75,7 +175,8 @@ public class StubInvocationHandler<T> implements InvocationHandler, Serializable
                they implement the same remote interface and connect to the same skeleton
              */
         Object other_proxy = args[0];
-        if(other_proxy instanceof Proxy){
+        if(other_proxy instanceof GeneratedStub ||
+                (other_proxy instanceof Proxy && Proxy.getInvocationHandler(other_proxy) instanceof StubInvocationHandler)){
                 /* We Only Need to Compare two Proxy objects' String Representation */
             return toStringHelper(proxy).equals(toStringHelper(other_proxy));
         }
@@ -110,93 +211,491 @@ public class StubInvocationHandler<T> implements InvocationHandler, Serializable
 //            String method_name = method.getName();
 //            String return_type = method.getReturnType().getName();
 
-            /* Deal with 'toString', 'hashCode', 'equal' Method First */
-        try{
-            if (method.equals(Object.class.getMethod("toString"))) {
-                return toStringHelper(proxy);
-            }
-            else if (method.equals(Object.class.getMethod("hashCode"))) {
-                return hashCodeHelper(proxy);
-            }
-            else if (method.equals(Object.class.getMethod("equals", Object.class))) {
-                return equalHelper(proxy, method, args);
+            /* Deal with 'toString', 'hashCode', 'equal' Method First
+               (the Only Methods of 'Object' Dispatched to the Handler) */
+        if(method.getDeclaringClass() == Object.class){
+            switch (method.getName()){
+                case "toString":
+                    return toStringHelper(proxy);
+                case "hashCode":
+                    return hashCodeHelper(proxy);
+                case "equals":
+                    return equalHelper(proxy, method, args);
             }
-
         }
-        catch(NoSuchMethodException e){
-            e.printStackTrace();
+
+        MethodTable table = MethodTable.of(remote_interface_class);
+        int method_id = table.idOf(method);
+        if(table.isOneWay(method_id)){
+            sendOneWay(encode(method_id, args));
+            return null;
         }
+        return call(encode(method_id, args));
+    }
 
+    /**
+     * Call the remote method with the given ID (see 'MethodTable') on the skeleton, and wait for its result.
+     * Shared by proxy stubs and generated stub classes.
+     * @return the return value of the remote method
+     * @throws Throwable the exception raised by the remote method, or an RMIException if the call failed
+     */
+    public Object call(int method_id, Object[] args) throws Throwable{
             /*
-                > Build the Connection Between Stub & Skeleton
-                > Open Stream with skeleton for method call invocation and response
-                > Send method and parameters to skeleton, receive return-value or exception from skeleton.
+                > Encode the method call as one frame body
+                > Send it on a Pooled Connection to the Skeleton (Shared with Other Callers, Opened Only if Needed)
+                > Wait for the Reply carrying the Same Call ID, return the return-value or throw the exception
              */
-        Socket connection = null  ;//= new Socket(skeleton_address.getHostName(), skeleton_address.getPort());
-        ObjectOutputStream outStream = null;
-        ObjectInputStream inStream = null;
-        Object return_value = null;
-        Object error_info = null;
+        return call(encode(method_id, args));
+    }
 
-        try{
-            connection = new Socket(skeleton_address.getHostName(), skeleton_address.getPort());
-            outStream = new ObjectOutputStream(connection.getOutputStream());
-            outStream.flush();
+    /* Encode a Call to the Stub's Object, see 'Protocol.encodeCall' */
+    private byte[] encode(int method_id, Object[] args) throws RMIException{
+        try {
+            return Protocol.encodeCall(object_id, method_id, args);
         }
         catch (IOException e){
-            System.out.println("Failed to Connect to Skeleton Server!");
-            throw new RMIException("Failed to Connect to Skeleton Server!");
+            System.out.println("Failed to Write Objects to Skeleton Server!");
+            throw new RMIException("Failed to Write Objects to Skeleton Server!", e);
         }
+    }
 
-            /* Send Method Call to remote Interface */
-        try {
-            outStream.writeObject(method.getName());
-            outStream.writeObject(method.getParameterTypes());
-            outStream.writeObject(args);
+    /**
+     * Send an encoded call of a one-way method (see 'OneWay') to the skeleton, without waiting for it to run.
+     * Only blocks to open a connection or for its handshake
+     * @throws RMIException if the call could not be written
+     */
+    public void sendOneWay(byte[] call) throws RMIException{
+        MethodTable table = MethodTable.of(remote_interface_class);
+        ConnectionPool pool = ConnectionPool.get(skeleton_address);
+        while(true){
+            Connection connection = pool.acquire();
+            boolean stale_retry = connection.isReused();
+            try {
+                connection.handshake(table);
+                connection.sendOneWay(call);
+                return;
+            }
+            catch (IOException e){
+                pool.discard(connection);
+                if(stale_retry){
+                    continue;
+                }
+                System.out.println("Failed to Write Objects to Skeleton Server!");
+                throw new RMIException("Failed to Write Objects to Skeleton Server!", e);
+            }
+            catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new RMIException("Interrupted while Waiting for the Skeleton Server", e);
+            }
+            finally {
+                pool.release(connection);
+            }
+        }
+    }
+
+    /**
+     * Send an encoded call (see 'Protocol.encodeCall' and 'CallWriter') to the skeleton, and wait for its result
+     * @return the return value of the remote method
+     * @throws Throwable the exception raised by the remote method, or an RMIException if the call failed
+     */
+    public Object call(byte[] call) throws Throwable{
+        DataInput inStream = reply(call);
+        try{
+            return Codec.readValue(inStream);
+        }
+        catch (IOException | ClassNotFoundException e){
+            throw readFailure(e);
+        }
+    }
+
+    /**
+     * Send an encoded call to the skeleton, and wait for its reply.
+     * Lets generated stubs decode a primitive return value with the 'Codec' method of its type, without boxing it
+     * @return the reply of a successful call, positioned at the return value
+     * @throws Throwable the exception raised by the remote method, or an RMIException if the call failed
+     */
+    public DataInput reply(byte[] call) throws Throwable{
+        MethodTable table = MethodTable.of(remote_interface_class);
+        if(!table.hasCacheable() && !table.hasRead_only()){
+            return decode(exchange(call, false, false));
+        }
+            /* Reuse a Kept Reply, or Keep this One */
+        int method_id = ResultCache.methodId(call);
+        byte[] reply_body = kept(table, method_id, call);
+        if(reply_body == null){
+            long generation = ResultCache.get(skeleton_address).getGeneration();
+            reply_body = exchange(call, false, watches(table, method_id));
+            received(table, method_id, call, reply_body, generation);
+        }
+        return decode(reply_body);
+    }
+
+    /* Keep Replies of the Method until its Object Changes? (see 'ReadOnly') */
+    private boolean watches(MethodTable table, int method_id){
+        return near_cache && table.isReadOnly(method_id);
+    }
+
+    /* The Reply Kept for a Call (see 'ResultCache'), or null if it must be Sent */
+    private byte[] kept(MethodTable table, int method_id, byte[] call){
+        if(!watches(table, method_id) && table.cacheTtl(method_id) == 0){
+            return null;
+        }
+        return ResultCache.get(skeleton_address).lookup(remote_interface_class, call);
+    }
+
+    /* Keep the Reply to a Call if its Method is Cached, or Drop the Replies Kept for its Object if it Changed it.
+       'generation' was Read from the Cache Before the Call was Sent */
+    private void received(MethodTable table, int method_id, byte[] call, byte[] reply_body, long generation){
+        ResultCache cache = ResultCache.get(skeleton_address);
+        if(watches(table, method_id)){
+            cache.storeRead_only(remote_interface_class, call, reply_body, generation);
+            return;
+        }
+        if(table.hasRead_only() && !table.isReadOnly(method_id)){
+                /* Read its Own Write, even if the Skeleton's INVALIDATE Comes on Another Connection */
+            cache.invalidate(remote_interface_class, object_id);
+        }
+        long ttl = table.cacheTtl(method_id);
+        if(ttl != 0){
+            cache.store(remote_interface_class, call, reply_body, ttl);
+        }
+    }
+
+    /**
+     * Send encoded calls to the skeleton in one batch frame (see 'CallBatch'), and wait for the reply to all of them
+     * @return the encoded replies to the calls, in the same order (see 'result')
+     * @throws RMIException if the batch failed as a whole
+     */
+    public byte[][] callBatch(byte[][] calls) throws RMIException{
+        byte[] batch;
+        try{
+            batch = Protocol.encodeBatch(calls);
         }
         catch (IOException e){
             System.out.println("Failed to Write Objects to Skeleton Server!");
-            throw new RMIException("Failed to Write Objects to Skeleton Server!");
+            throw new RMIException("Failed to Write Objects to Skeleton Server!", e);
         }
+        try{
+            return Protocol.readBodies(decode(exchange(batch, true, false)));
+        }
+        catch (RMIException e){
+            throw e;
+        }
+        catch (IOException e){
+            throw readFailure(e);
+        }
+        catch (Throwable t){
+                /* A Batch Reply only Carries an RMIException */
+            throw new RMIException("Unexpected Batch Reply From Skeleton Server", t);
+        }
+    }
 
-            /* Receive Results From Skeleton */
+    /**
+     * Decode one encoded reply returned by 'callBatch'
+     * @return the return value of the remote method
+     * @throws Throwable the exception raised by the remote method, or an RMIException if the call failed
+     */
+    public static Object result(byte[] reply_body) throws Throwable{
+        DataInput inStream = decode(reply_body);
         try{
-            inStream = new ObjectInputStream(connection.getInputStream());
-                /* Fail Or Success ? */
-            Object result_status = inStream.readObject();
+            return Codec.readValue(inStream);
+        }
+        catch (IOException | ClassNotFoundException e){
+            throw readFailure(e);
+        }
+    }
 
-                /* Success */
-            if(result_status.equals("Remote Method Call Succeeded!")){
-                return_value = inStream.readObject();
+    /* Send a Call (or Batch) on a Pooled Connection after its Handshake, and Wait for the Body of its Reply
+       (Until the Call's Deadline, if any: a Batch Carries no Deadline, but its Caller Stops Waiting All the Same).
+       If 'watch', the Connection First Watches the Stub's Object (see 'Connection.watch') */
+    private byte[] exchange(byte[] body, boolean batch, boolean watch) throws RMIException{
+        MethodTable table = MethodTable.of(remote_interface_class);
+        ConnectionPool pool = ConnectionPool.get(skeleton_address);
+        long deadline = Deadline.of(timeout);
+        while(true){
+            Connection connection = pool.acquire();
+                /* A Reused Connection may have been Closed by the Server while Idle,
+                   In that case the Call was never Served and is Retried on Another Connection */
+            boolean stale_retry = connection.isReused();
+            CompletableFuture<byte[]> reply = null;
+            try {
+                connection.handshake(table, deadline);
+                if(watch){
+                    connection.watch(object_id);
+                }
+                reply = batch ? connection.sendBatch(body) : connection.send(body, deadline, priority);
+                return Connection.await(reply, deadline);
             }
-                /* Failure */
-            else if(result_status.equals("Remote Method Call Failed!")){
-                System.out.println("Remote Method Call Failed...!");
-                    /* Read Error Information */
-                error_info = inStream.readObject();
-//                    System.out.println("In Stub: "+(Exception)error_info);
-//                    throw (Exception) error_info;
+            catch (IOException e){
+                pool.discard(connection);
+                if(stale_retry){
+                    continue;
+                }
+                System.out.println("Failed to Write Objects to Skeleton Server!");
+                throw new RMIException("Failed to Write Objects to Skeleton Server!", e);
+            }
+            catch (ExecutionException e){
+                pool.discard(connection);
+                if(stale_retry && e.getCause() instanceof EOFException){
+                    continue;
+                }
+                System.out.println("Failed when Retrieving Results From Skeleton Server!");
+                throw new RMIException("Failed when Retrieving Results From Skeleton Server!", e.getCause());
+            }
+            catch (InterruptedException e){
+                    /* The Caller Gave Up the Call */
+                if(reply != null){
+                    reply.cancel(false);
+                }
+                Thread.currentThread().interrupt();
+                throw new RMIException("Interrupted while Waiting for the Skeleton Server", e);
+            }
+            finally {
+                pool.release(connection);
             }
         }
+    }
+
+    /**
+     * Send the remote method call with the given ID (see 'MethodTable') without waiting for its result.
+     * The calling thread only blocks if a new connection has to be opened; the Skeleton's reply is decoded, and
+     * the future completed, on a thread of the common pool (never on the connection's reader thread, so dependent
+     * actions may make blocking calls themselves).
+     * The call's deadline (see 'Deadline') is taken when it is made; cancelling the future, or completing it, before
+     * the reply arrives cancels the call on the Skeleton
+     * @return a future completed with the return value of the remote method, or exceptionally with the exception
+     *         raised by the remote method, or an RMIException if the call failed
+     */
+    public CompletableFuture<Object> callAsync(int method_id, Object[] args){
+        CompletableFuture<Object> result = new CompletableFuture<Object>();
+        byte[] call;
+        try {
+            call = encode(method_id, args);
+            if(MethodTable.of(remote_interface_class).isOneWay(method_id)){
+                    /* Nothing to Wait for: Done Once Written */
+                sendOneWay(call);
+                result.complete(null);
+                return result;
+            }
+        }
+        catch (RMIException e){
+            result.completeExceptionally(e);
+            return result;
+        }
+        MethodTable table = MethodTable.of(remote_interface_class);
+        long generation = 0;
+        if(table.hasCacheable() || table.hasRead_only()){
+            byte[] reply_body = kept(table, method_id, call);
+            if(reply_body != null){
+                try{
+                    result.complete(Codec.readValue(decode(reply_body)));
+                }
+                catch (IOException | ClassNotFoundException e){
+                    result.completeExceptionally(readFailure(e));
+                }
+                catch (Throwable t){
+                    result.completeExceptionally(t);
+                }
+                return result;
+            }
+            generation = ResultCache.get(skeleton_address).getGeneration();
+        }
+        long deadline = Deadline.of(timeout);
+        if(deadline != 0){
+                /* Failed on the Common Pool (the Call's CANCEL is Written by Dependent Actions) */
+            final ScheduledFuture<?> expiry = deadlines.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ForkJoinPool.commonPool().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            result.completeExceptionally(
+                                    new DeadlineExceededException("Call Deadline Passed before its Reply Arrived"));
+                        }
+                    });
+                }
+            }, Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                /* Answered First: Drop the Task, which Holds the Future */
+            result.whenComplete(new BiConsumer<Object, Throwable>() {
+                @Override
+                public void accept(Object value, Throwable failure) {
+                    expiry.cancel(false);
+                }
+            });
+        }
+        sendAsync(call, result, deadline, generation);
+        return result;
+    }
+
+    /* Send the Call on a Pooled Connection (after its Handshake), Retrying Stale Connections as 'reply' does.
+       'generation' was Read from the 'ResultCache' Before the Call was First Sent */
+    private void sendAsync(final byte[] call, final CompletableFuture<Object> result, final long deadline,
+                           final long generation){
+        final MethodTable table = MethodTable.of(remote_interface_class);
+        final int method_id = ResultCache.methodId(call);
+        final ConnectionPool pool = ConnectionPool.get(skeleton_address);
+        final Connection connection;
+        final CompletableFuture<byte[]> handshake;
+        try{
+            connection = pool.acquire();
+        }
+        catch (RMIException e){
+            result.completeExceptionally(e);
+            return;
+        }
+        final boolean stale_retry = connection.isReused();
+        try{
+            handshake = connection.sendHandshake(MethodTable.of(remote_interface_class));
+        }
         catch (IOException e){
-            System.out.println("Failed when Retrieving Results From Skeleton Server!");
-            throw new RMIException("Failed when Retrieving Results From Skeleton Server!");
+            pool.release(connection);
+            failAsync(call, result, deadline, generation, pool, connection, stale_retry, e, true);
+            return;
+        }
+        BiConsumer<byte[], Throwable> after_handshake = new BiConsumer<byte[], Throwable>() {
+            @Override
+            public void accept(byte[] handshake_body, Throwable failure) {
+                final CompletableFuture<byte[]> reply;
+                try{
+                    if(failure != null){
+                        throw failure;
+                    }
+                    Connection.checkHandshake(handshake_body);
+                    if(result.isDone()){
+                            /* Given Up (or Timed Out) during the Handshake */
+                        return;
+                    }
+                    if(watches(table, method_id)){
+                        connection.watch(object_id);
+                    }
+                    reply = connection.send(call, deadline, priority);
+                }
+                catch (IOException e){
+                    failAsync(call, result, deadline, generation, pool, connection, stale_retry, e, true);
+                    return;
+                }
+                catch (Throwable t){
+                    result.completeExceptionally(t);
+                    return;
+                }
+                finally {
+                        /* Sent (or Given Up): the Call in Flight now Keeps the Connection Open */
+                    pool.release(connection);
+                }
+                    /* A Result Completed Before the Reply (Cancelled, Timed Out) Cancels the Call */
+                result.whenComplete(new BiConsumer<Object, Throwable>() {
+                    @Override
+                    public void accept(Object value, Throwable failure) {
+                        if(failure != null){
+                            reply.cancel(false);
+                        }
+                    }
+                });
+                reply.whenCompleteAsync(new BiConsumer<byte[], Throwable>() {
+                    @Override
+                    public void accept(byte[] reply_body, Throwable failure) {
+                        if(result.isDone()){
+                            return;
+                        }
+                        if(failure != null){
+                            failAsync(call, result, deadline, generation, pool, connection, stale_retry, failure,
+                                    false);
+                            return;
+                        }
+                        if(table.hasCacheable() || table.hasRead_only()){
+                            received(table, method_id, call, reply_body, generation);
+                        }
+                        DataInput inStream;
+                        try{
+                            inStream = decode(reply_body);
+                        }
+                        catch (Throwable t){
+                                /* Raised by the Remote Method, or RMIException */
+                            result.completeExceptionally(t);
+                            return;
+                        }
+                        try{
+                            result.complete(Codec.readValue(inStream));
+                        }
+                        catch (IOException | ClassNotFoundException e){
+                            result.completeExceptionally(readFailure(e));
+                        }
+                    }
+                });
+            }
+        };
+            /* Usually Done Already: Send on the Calling Thread. Otherwise Never Write from the Reader Thread */
+        if(handshake.isDone()){
+            handshake.whenComplete(after_handshake);
+        }
+        else{
+            handshake.whenCompleteAsync(after_handshake);
+        }
+    }
+
+    /* Connection Failure of an Asynchronous Call: Same Retry Rule and Exceptions as 'reply' */
+    private void failAsync(byte[] call, CompletableFuture<Object> result, long deadline, long generation,
+                           ConnectionPool pool, Connection connection, boolean stale_retry, Throwable failure,
+                           boolean before_reply){
+        pool.discard(connection);
+        if(stale_retry && (before_reply || failure instanceof EOFException)){
+            sendAsync(call, result, deadline, generation);
+        }
+        else if(before_reply){
+            result.completeExceptionally(new RMIException("Failed to Write Objects to Skeleton Server!", failure));
         }
+        else{
+            result.completeExceptionally(new RMIException("Failed when Retrieving Results From Skeleton Server!",
+                    failure));
+        }
+    }
 
-        if(error_info != null){
-            throw (Exception) error_info;
+    /**
+     * Decode the reply to a call
+     * @return the reply of a successful call, positioned at the return value
+     * @throws Throwable the exception raised by the remote method, or an RMIException if the call failed
+     */
+    private static DataInput decode(byte[] reply_body) throws Throwable{
+            /* Decode Results From Skeleton */
+        BodyReader inStream;
+        byte result_status;
+        try{
+            inStream = Protocol.openBody(reply_body);
+                /* Fail Or Success ? */
+            result_status = inStream.readByte();
+        }
+        catch (IOException e){
+            throw readFailure(e);
         }
 
-            /* Close Connection for This Method Call */
+            /* Success: the Caller Reads the Return Value */
+        if(result_status == Protocol.SUCCEEDED){
+            return inStream;
+        }
+        Object result;
         try{
-            inStream.close();
-            outStream.close();
-            connection.close();
+            result = Codec.readValue(inStream);
+        }
+        catch (IOException | ClassNotFoundException e){
+            throw readFailure(e);
         }
-        catch(Exception e){
-            throw new RMIException("Can't close network I/O stream or client socket.");
+            /* Failure: Remote Method Raised an Exception */
+        if(result_status == Protocol.FAILED){
+            System.out.println("Remote Method Call Failed...!");
+            throw (Throwable) result;
         }
+            /* Error: Skeleton Could not Serve the Call */
+        else if(result_status == Protocol.ERROR){
+            throw (RMIException) result;
+        }
+        throw new RMIException("Unexpected Reply Status From Skeleton Server: "+result_status);
+    }
 
-        return return_value;
+    /**
+     * Return the exception raised when a reply cannot be decoded
+     */
+    static RMIException readFailure(Exception e){
+        System.out.println("Failed when Retrieving Results From Skeleton Server!");
+        return new RMIException("Failed when Retrieving Results From Skeleton Server!", e);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+package rmi;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * VirtualThreads gives access to virtual threads (Java 21+) while the library itself still builds for older runtimes.
+ * The 'Thread.ofVirtual()' builder is looked up once through method handles; on runtimes without virtual threads
+ * 'isSupported' returns false and the other methods throw UnsupportedOperationException.
+ */
+public class VirtualThreads {
+    private static final MethodHandle of_virtual; //Thread.ofVirtual()
+    private static final MethodHandle builder_name; //Thread.Builder.name(String, long)
+    private static final MethodHandle builder_factory; //Thread.Builder.factory()
+    private static final MethodHandle per_task_executor; //Executors.newThreadPerTaskExecutor(ThreadFactory)
+
+    static {
+        MethodHandle of = null;
+        MethodHandle name = null;
+        MethodHandle factory = null;
+        MethodHandle executor = null;
+        try{
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Class<?> of_virtual_builder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            of = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(of_virtual_builder));
+            name = lookup.findVirtual(builder, "name", MethodType.methodType(builder, String.class, long.class));
+            factory = lookup.findVirtual(builder, "factory", MethodType.methodType(ThreadFactory.class));
+            executor = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+                /* Preview Builds (Java 19/20) Expose the API but Refuse to Use it */
+            of.invoke();
+        }
+        catch (Throwable t){
+            of = null;
+        }
+        of_virtual = of;
+        builder_name = name;
+        builder_factory = factory;
+        per_task_executor = executor;
+    }
+
+    /**
+     * Return true if this Java runtime can create virtual threads
+     */
+    public static boolean isSupported(){
+        return of_virtual != null;
+    }
+
+    /**
+     * Return a factory of virtual threads named 'prefix' followed by a counter
+     */
+    public static ThreadFactory factory(String prefix){
+        if(!isSupported()){
+            throw new UnsupportedOperationException("Virtual threads are not supported by Java "
+                    +System.getProperty("java.version"));
+        }
+        try{
+            Object builder = of_virtual.invoke();
+            builder = builder_name.invoke(builder, prefix, 0L);
+            return (ThreadFactory) builder_factory.invoke(builder);
+        }
+        catch (Throwable t){
+            throw new UnsupportedOperationException("Cannot create virtual threads", t);
+        }
+    }
+
+    /**
+     * Return an executor running every task on its own new virtual thread
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix){
+        ThreadFactory factory = factory(prefix);
+        try{
+            return (ExecutorService) per_task_executor.invoke(factory);
+        }
+        catch (Throwable t){
+            throw new UnsupportedOperationException("Cannot create virtual threads", t);
+        }
+    }
+}
@@ -8,6 +8,27 @@ import test.*;
     Tests run are:
     <ul>
     <li>{@link rmi.SampleUnitTest}</li>
+    <li>{@link rmi.ConnectionPoolTest}</li>
+    <li>{@link rmi.NioEngineTest}</li>
+    <li>{@link rmi.OverloadTest}</li>
+    <li>{@link rmi.CodecTest}</li>
+    <li>{@link rmi.FrameTimeoutTest}</li>
+    <li>{@link rmi.MethodTableTest}</li>
+    <li>{@link rmi.StubGeneratorTest}</li>
+    <li>{@link rmi.RemoteProcessorTest}</li>
+    <li>{@link rmi.AsyncStubTest}</li>
+    <li>{@link rmi.OneWayTest}</li>
+    <li>{@link rmi.BatchTest}</li>
+    <li>{@link rmi.PipelineTest}</li>
+    <li>{@link rmi.ExportTest}</li>
+    <li>{@link rmi.LeaseTest}</li>
+    <li>{@link rmi.DeadlineTest}</li>
+    <li>{@link rmi.BulkheadTest}</li>
+    <li>{@link rmi.PriorityTest}</li>
+    <li>{@link rmi.DrainTest}</li>
+    <li>{@link rmi.CallRegistryTest}</li>
+    <li>{@link rmi.CacheTest}</li>
+    <li>{@link rmi.NearCacheTest}</li>
     </ul>
  */
 public class UnitTests
@@ -21,7 +42,28 @@ public class UnitTests
         // Create the test list, the series object, and run the test series.
         @SuppressWarnings("unchecked")
         Class<? extends Test>[]     tests =
-            new Class[] {rmi.SampleUnitTest.class};
+            new Class[] {rmi.SampleUnitTest.class,
+                         rmi.ConnectionPoolTest.class,
+                         rmi.NioEngineTest.class,
+                         rmi.OverloadTest.class,
+                         rmi.CodecTest.class,
+                         rmi.FrameTimeoutTest.class,
+                         rmi.MethodTableTest.class,
+                         rmi.StubGeneratorTest.class,
+                         rmi.RemoteProcessorTest.class,
+                         rmi.AsyncStubTest.class,
+                         rmi.OneWayTest.class,
+                         rmi.BatchTest.class,
+                         rmi.PipelineTest.class,
+                         rmi.ExportTest.class,
+                         rmi.LeaseTest.class,
+                         rmi.DeadlineTest.class,
+                         rmi.BulkheadTest.class,
+                         rmi.PriorityTest.class,
+                         rmi.DrainTest.class,
+                         rmi.CallRegistryTest.class,
+                         rmi.CacheTest.class,
+                         rmi.NearCacheTest.class};
         Series                      series = new Series(tests);
         SeriesReport                report = series.run(3, System.out);
 
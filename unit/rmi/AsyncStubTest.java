@@ -0,0 +1,192 @@
+package rmi;
+
+import test.*;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/** Unit test for asynchronous stubs.
+
+    <p>
+    The test sends several calls from one thread, which the server only answers
+    once all of them have arrived, then checks their results, that a remote
+    exception completes its future with the original exception, and that a
+    dependent action may make a blocking call.
+ */
+public class AsyncStubTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking asynchronous stubs";
+
+    /** Number of calls outstanding at the same time. */
+    private static final int    CALLS = 8;
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress           address;
+    /** Skeleton used in the test. */
+    private Skeleton<GatherInterface>   skeleton;
+
+    /** Remote interface used by the test. */
+    public interface GatherInterface
+    {
+        public int gather(int value) throws RMIException, InterruptedException;
+
+        public int square(int value) throws RMIException;
+
+        public void fail(String message) throws RMIException,
+                                                FileNotFoundException;
+    }
+
+    /** Server object for <code>GatherInterface</code>. */
+    private static class GatherServer implements GatherInterface
+    {
+        /** Released when every call has arrived. */
+        private final CountDownLatch    arrived = new CountDownLatch(CALLS);
+
+        @Override
+        public int gather(int value) throws InterruptedException
+        {
+            arrived.countDown();
+
+            if(!arrived.await(10, TimeUnit.SECONDS))
+                return -1;
+
+            return value;
+        }
+
+        @Override
+        public int square(int value)
+        {
+            return value * value;
+        }
+
+        @Override
+        public void fail(String message) throws FileNotFoundException
+        {
+            throw new FileNotFoundException(message);
+        }
+    }
+
+    /** Starts the test skeleton. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7007);
+        skeleton = new Skeleton<GatherInterface>(GatherInterface.class,
+                                                 new GatherServer(), address);
+
+        try
+        {
+            skeleton.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeleton", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        try
+        {
+            final GatherInterface               stub =
+                Stub.create(GatherInterface.class, address);
+            AsyncStub<GatherInterface>          async =
+                Stub.createAsync(GatherInterface.class, address);
+            List<CompletableFuture<Integer>>    replies =
+                new ArrayList<CompletableFuture<Integer>>();
+
+            for(int i = 0; i < CALLS; ++i)
+            {
+                final int   value = i;
+
+                replies.add(async.call(
+                    new AsyncStub.Call<GatherInterface, Integer>()
+                    {
+                        @Override
+                        public Integer invoke(GatherInterface remote)
+                            throws Throwable
+                        {
+                            return remote.gather(value);
+                        }
+                    }));
+            }
+
+            for(int i = 0; i < CALLS; ++i)
+            {
+                if(replies.get(i).get(20, TimeUnit.SECONDS) != i)
+                    throw new TestFailed("calls were not outstanding together");
+            }
+
+            CompletableFuture<Object>   failure = AsyncStub.of(stub).call(
+                GatherInterface.class.getMethod("fail", String.class),
+                "missing");
+
+            try
+            {
+                failure.get(10, TimeUnit.SECONDS);
+                throw new TestFailed("remote exception not raised");
+            }
+            catch(ExecutionException e)
+            {
+                if(!(e.getCause() instanceof FileNotFoundException) ||
+                   !"missing".equals(e.getCause().getMessage()))
+                {
+                    throw new TestFailed("wrong remote exception raised",
+                                         e.getCause());
+                }
+            }
+
+            CompletableFuture<Integer>  chained = async.call(
+                new AsyncStub.Call<GatherInterface, Integer>()
+                {
+                    @Override
+                    public Integer invoke(GatherInterface remote)
+                        throws Throwable
+                    {
+                        return remote.square(3);
+                    }
+                }).thenApply(new java.util.function.Function<Integer, Integer>()
+                {
+                    @Override
+                    public Integer apply(Integer value)
+                    {
+                        try
+                        {
+                            return stub.square(value);
+                        }
+                        catch(RMIException e)
+                        {
+                            throw new CompletionException(e);
+                        }
+                    }
+                });
+
+            if(chained.get(10, TimeUnit.SECONDS) != 81)
+                throw new TestFailed("incorrect result from dependent call");
+        }
+        catch(TestFailed e) { throw e; }
+        catch(TimeoutException e)
+        {
+            throw new TestFailed("asynchronous call not completed", e);
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when using stub", t);
+        }
+    }
+
+    /** Stops the skeleton. */
+    @Override
+    protected void clean()
+    {
+        skeleton.stop();
+        ConnectionPool.closeAll();
+    }
+}
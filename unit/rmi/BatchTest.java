@@ -0,0 +1,261 @@
+package rmi;
+
+import test.*;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/** Unit test for batches of calls.
+
+    <p>
+    The test sends a batch to a skeleton running batched calls sequentially,
+    and checks that the calls ran in order on one thread, and that an exception
+    raised by one call completes only its own future. It then sends a batch to
+    a skeleton running batched calls in parallel, whose calls only return once
+    all of them have arrived.
+ */
+public class BatchTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking batches of calls";
+
+    /** Number of calls in the parallel batch. */
+    private static final int    CALLS = 8;
+
+    /** Address of the skeleton running batched calls sequentially. */
+    private InetSocketAddress           sequential_address;
+    /** Address of the skeleton running batched calls in parallel. */
+    private InetSocketAddress           parallel_address;
+    /** Skeleton running batched calls sequentially. */
+    private Skeleton<LedgerInterface>   sequential;
+    /** Skeleton running batched calls in parallel. */
+    private Skeleton<LedgerInterface>   parallel;
+
+    /** Remote interface used by the test. */
+    public interface LedgerInterface
+    {
+        public int deposit(int amount) throws RMIException;
+
+        public String thread() throws RMIException;
+
+        public int gather(int value) throws RMIException, InterruptedException;
+
+        public void fail(String message) throws RMIException,
+                                                FileNotFoundException;
+    }
+
+    /** Server object for <code>LedgerInterface</code>. */
+    private static class LedgerServer implements LedgerInterface
+    {
+        /** Sum of the deposits. */
+        private int                     balance = 0;
+        /** Released when every call of the parallel batch has arrived. */
+        private final CountDownLatch    arrived = new CountDownLatch(CALLS);
+
+        @Override
+        public synchronized int deposit(int amount)
+        {
+            balance += amount;
+            return balance;
+        }
+
+        @Override
+        public String thread()
+        {
+            return Thread.currentThread().getName();
+        }
+
+        @Override
+        public int gather(int value) throws InterruptedException
+        {
+            arrived.countDown();
+
+            if(!arrived.await(10, TimeUnit.SECONDS))
+                return -1;
+
+            return value;
+        }
+
+        @Override
+        public void fail(String message) throws FileNotFoundException
+        {
+            throw new FileNotFoundException(message);
+        }
+    }
+
+    /** Starts the test skeletons. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        sequential_address = new InetSocketAddress("127.0.0.1", 7009);
+        parallel_address = new InetSocketAddress("127.0.0.1", 7010);
+        sequential = new Skeleton<LedgerInterface>(LedgerInterface.class,
+                                                   new LedgerServer(),
+                                                   sequential_address);
+        parallel = new Skeleton<LedgerInterface>(LedgerInterface.class,
+                                                 new LedgerServer(),
+                                                 parallel_address);
+
+        sequential.getConfig().setBatch_execution(
+            SkeletonConfig.BatchExecution.SEQUENTIAL);
+        parallel.getConfig().setBatch_execution(
+            SkeletonConfig.BatchExecution.PARALLEL);
+
+        try
+        {
+            sequential.start();
+            parallel.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeletons", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        try
+        {
+            checkSequential();
+            checkParallel();
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when using batch", t);
+        }
+    }
+
+    /** Sends a batch to the skeleton running batched calls sequentially.
+
+        @throws TestFailed If a result is incorrect.
+     */
+    private void checkSequential() throws Throwable
+    {
+        CallBatch<LedgerInterface>  batch =
+            CallBatch.of(Stub.create(LedgerInterface.class,
+                                     sequential_address));
+        CompletableFuture<Integer>  first = batch.add(
+            new AsyncStub.Call<LedgerInterface, Integer>()
+            {
+                @Override
+                public Integer invoke(LedgerInterface remote) throws Throwable
+                {
+                    return remote.deposit(1);
+                }
+            });
+        CompletableFuture<String>   first_thread = batch.add(
+            new AsyncStub.Call<LedgerInterface, String>()
+            {
+                @Override
+                public String invoke(LedgerInterface remote) throws Throwable
+                {
+                    return remote.thread();
+                }
+            });
+        CompletableFuture<Object>   failure = batch.add(
+            LedgerInterface.class.getMethod("fail", String.class), "batch");
+        CompletableFuture<Integer>  second = batch.add(
+            new AsyncStub.Call<LedgerInterface, Integer>()
+            {
+                @Override
+                public Integer invoke(LedgerInterface remote) throws Throwable
+                {
+                    return remote.deposit(2);
+                }
+            });
+        CompletableFuture<String>   second_thread = batch.add(
+            new AsyncStub.Call<LedgerInterface, String>()
+            {
+                @Override
+                public String invoke(LedgerInterface remote) throws Throwable
+                {
+                    return remote.thread();
+                }
+            });
+
+        if(first.isDone() || batch.size() != 5)
+            throw new TestFailed("calls sent before the batch");
+
+        batch.send();
+
+        if(batch.size() != 0)
+            throw new TestFailed("batch not emptied when sent");
+
+        if(first.getNow(null) != 1 || second.getNow(null) != 3)
+            throw new TestFailed("batched calls did not run in order");
+
+        if(!first_thread.getNow("").equals(second_thread.getNow(null)))
+            throw new TestFailed("sequential batch ran on several threads");
+
+        try
+        {
+            failure.getNow(null);
+            throw new TestFailed("remote exception not raised");
+        }
+        catch(CompletionException e)
+        {
+            if(!(e.getCause() instanceof FileNotFoundException) ||
+               !"batch".equals(e.getCause().getMessage()))
+            {
+                throw new TestFailed("wrong remote exception raised",
+                                     e.getCause());
+            }
+        }
+
+            // An empty batch is not sent.
+        batch.send();
+    }
+
+    /** Sends a batch to the skeleton running batched calls in parallel.
+
+        @throws TestFailed If a result is incorrect.
+     */
+    private void checkParallel() throws Throwable
+    {
+        CallBatch<LedgerInterface>  batch =
+            CallBatch.of(Stub.create(LedgerInterface.class, parallel_address));
+        List<CompletableFuture<Integer>>    replies =
+            new ArrayList<CompletableFuture<Integer>>();
+
+        for(int i = 0; i < CALLS; ++i)
+        {
+            final int   value = i;
+
+            replies.add(batch.add(
+                new AsyncStub.Call<LedgerInterface, Integer>()
+                {
+                    @Override
+                    public Integer invoke(LedgerInterface remote)
+                        throws Throwable
+                    {
+                        return remote.gather(value);
+                    }
+                }));
+        }
+
+        batch.send();
+
+        for(int i = 0; i < CALLS; ++i)
+        {
+            if(replies.get(i).getNow(null) != i)
+                throw new TestFailed("parallel batch did not run its calls " +
+                                     "at the same time");
+        }
+    }
+
+    /** Stops the skeletons. */
+    @Override
+    protected void clean()
+    {
+        sequential.stop();
+        parallel.stop();
+        ConnectionPool.closeAll();
+    }
+}
@@ -0,0 +1,237 @@
+package rmi;
+
+import test.*;
+import java.net.*;
+import java.util.concurrent.*;
+
+/** Unit test for per-method concurrency limits.
+
+    <p>
+    The test serves an interface whose two slow methods share a bulkhead
+    group running one call at a time, with a queue of one call. While a slow
+    call runs and another waits in the group's queue, a third slow call must be
+    refused with an <code>OverloadException</code>, counted by the group and
+    not by the skeleton, and calls of the unlimited method must still be served
+    at once. The queued call must run once the first one has returned.
+    Calls sent in a batch, run in order or in parallel, must be admitted one by
+    one as well: with the group full, a batched slow call must be refused in its
+    slot while the rest of the batch is served.
+ */
+public class BulkheadTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking per-method bulkheads";
+
+    /** Name of the bulkhead group of the slow methods. */
+    private static final String GROUP = "slow";
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress           address;
+    /** Server object used by the skeleton. */
+    private BulkheadServer              server;
+    /** Skeleton used in the test. */
+    private Skeleton<BulkheadInterface> skeleton;
+
+    /** Remote interface used by the test. */
+    public interface BulkheadInterface
+    {
+        @Bulkhead(limit = 1, queue_capacity = 1, group = GROUP)
+        public void slow() throws RMIException;
+        @Bulkhead(limit = 1, queue_capacity = 1, group = GROUP)
+        public void slower() throws RMIException;
+        public int fast() throws RMIException;
+    }
+
+    /** Server object for <code>BulkheadInterface</code>, whose slow methods
+        are held until the test releases them. */
+    private static class BulkheadServer extends HoldServer
+        implements BulkheadInterface
+    {
+        @Override
+        public void slow()
+        {
+            hold();
+        }
+
+        @Override
+        public void slower()
+        {
+            hold();
+        }
+
+        @Override
+        public int fast()
+        {
+            return 1;
+        }
+    }
+
+    /** Starts the test skeleton. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7015);
+        server = new BulkheadServer();
+        skeleton = new Skeleton<BulkheadInterface>(BulkheadInterface.class,
+                                                   server, address);
+        skeleton.setConfig(new SkeletonConfig().setWorker_threads(4));
+
+        try
+        {
+            skeleton.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeleton", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        BulkheadInterface   stub = Stub.create(BulkheadInterface.class,
+                                               address);
+        Compartment         compartment = skeleton.getCompartment(GROUP);
+
+        if(compartment == null || compartment.getLimit() != 1)
+            throw new TestFailed("bulkhead group not created");
+
+        try
+        {
+            HoldServer.Holder   running = slow(stub);
+            server.awaitEntered(1);
+
+            HoldServer.Holder   queued = slow(stub);
+            while(compartment.getQueued() == 0)
+                Thread.sleep(10);
+
+            try
+            {
+                stub.slower();
+                throw new TestFailed("call accepted by a full bulkhead");
+            }
+            catch(OverloadException e) { }
+
+            if(compartment.getRejected_calls() != 1 ||
+               skeleton.getRejected_calls() != 0)
+            {
+                throw new TestFailed("refused call not counted by its group");
+            }
+
+            if(stub.fast() != 1)
+                throw new TestFailed("unlimited method not served");
+
+            server.release();
+            running.join();
+            queued.join();
+
+            if(running.error != null || queued.error != null)
+                throw new TestFailed("admitted call failed");
+
+            server.awaitEntered(2);
+
+                // Permits are given back just after the replies are sent.
+            for(int i = 0; i < 100 && compartment.getRunning() != 0; ++i)
+                Thread.sleep(10);
+
+            if(compartment.getRunning() != 0 || compartment.getQueued() != 0)
+                throw new TestFailed("bulkhead permits not given back");
+
+            // Fill the group again, then send batches past its limit.
+            server.hold(true);
+            running = slow(stub);
+            server.awaitEntered(3);
+
+            queued = slow(stub);
+            while(compartment.getQueued() == 0)
+                Thread.sleep(10);
+
+            for(SkeletonConfig.BatchExecution execution :
+                    SkeletonConfig.BatchExecution.values())
+            {
+                skeleton.getConfig().setBatch_execution(execution);
+                batch(stub, compartment);
+            }
+
+            server.release();
+            running.join();
+            queued.join();
+
+            if(running.error != null || queued.error != null)
+                throw new TestFailed("admitted call failed");
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when calling " +
+                                 "limited methods", t);
+        }
+    }
+
+    /** Sends a batch calling <code>slower</code>, then <code>fast</code>,
+        while the bulkhead group is full.
+
+        @throws TestFailed If the slow call is not refused in its slot, or the
+                           fast one is not served.
+     */
+    private void batch(BulkheadInterface stub, Compartment compartment)
+        throws Throwable
+    {
+        long                        rejected = compartment.getRejected_calls();
+        CallBatch<BulkheadInterface> batch = CallBatch.of(stub);
+        CompletableFuture<Object>   refused = batch.add(
+            BulkheadInterface.class.getMethod("slower"));
+        CompletableFuture<Object>   served = batch.add(
+            BulkheadInterface.class.getMethod("fast"));
+
+        batch.send();
+
+        try
+        {
+            refused.join();
+            throw new TestFailed("batched call accepted by a full bulkhead");
+        }
+        catch(CompletionException e)
+        {
+            if(!(e.getCause() instanceof OverloadException))
+                throw new TestFailed("batched call refused with the wrong " +
+                                     "error", e.getCause());
+        }
+
+        if(!Integer.valueOf(1).equals(served.join()))
+            throw new TestFailed("rest of the batch not served");
+
+        if(compartment.getRejected_calls() != rejected + 1)
+            throw new TestFailed("refused batched call not counted by its " +
+                                 "group");
+    }
+
+    /** Starts a thread calling <code>slow</code>. */
+    private HoldServer.Holder slow(final BulkheadInterface stub)
+    {
+        HoldServer.Holder   holder = new HoldServer.Holder()
+        {
+            @Override
+            protected void call() throws Throwable
+            {
+                stub.slow();
+            }
+        };
+
+        holder.start();
+        return holder;
+    }
+
+    /** Stops the skeleton and lets slow calls return. */
+    @Override
+    protected void clean()
+    {
+        server.release();
+        skeleton.stop();
+        ConnectionPool.closeAll();
+    }
+}
@@ -0,0 +1,251 @@
+package rmi;
+
+import test.*;
+import java.io.*;
+import java.net.*;
+
+/** Unit test for the client-side result cache.
+
+    <p>
+    The test calls a cacheable method of a server which counts its calls, and
+    checks that repeated calls with equal arguments are served from the cache
+    until the reply expires or is invalidated, that calls with other arguments
+    and calls raising an exception are sent to the server, that the cache keeps
+    at most its maximum number of replies, and that an asynchronous stub shares
+    the cache. The cache's hit and miss counts are checked along the way.
+ */
+public class CacheTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking the client result cache";
+
+    /** Time replies of <code>read</code> are reused for, in milliseconds. */
+    private static final int    TTL = 300;
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress       address;
+    /** Server object used by the skeleton. */
+    private StoreServer             server;
+    /** Skeleton used in the test. */
+    private Skeleton<StoreInterface> skeleton;
+    /** Cache of the skeleton's address. */
+    private ResultCache             cache;
+
+    /** Remote interface used by the test. */
+    public interface StoreInterface
+    {
+        @Cacheable(ttl = TTL)
+        public int read(int key) throws RMIException, FileNotFoundException;
+
+        public void write(int key, int value) throws RMIException;
+    }
+
+    /** Server object for <code>StoreInterface</code>. */
+    private static class StoreServer implements StoreInterface
+    {
+        /** Stored values, indexed by key. */
+        private final int[]     values = new int[4];
+        /** Number of calls to <code>read</code>. */
+        private int             reads = 0;
+
+        /** Raises <code>FileNotFoundException</code> for a negative key. */
+        @Override
+        public synchronized int read(int key) throws FileNotFoundException
+        {
+            ++reads;
+            if(key < 0)
+                throw new FileNotFoundException("no key " + key);
+
+            return values[key];
+        }
+
+        @Override
+        public synchronized void write(int key, int value)
+        {
+            values[key] = value;
+        }
+
+        synchronized int reads()
+        {
+            return reads;
+        }
+    }
+
+    /** Starts the test skeleton. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7019);
+        server = new StoreServer();
+        skeleton = new Skeleton<StoreInterface>(StoreInterface.class, server,
+                                                address);
+        cache = ResultCache.get(address);
+
+        try
+        {
+            skeleton.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeleton", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        StoreInterface  stub = Stub.create(StoreInterface.class, address);
+
+        try
+        {
+            checkReused(stub);
+            checkFailures(stub);
+            checkBounded(stub);
+            checkAsync();
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when calling a " +
+                                 "cacheable method", t);
+        }
+    }
+
+    /** Checks that a reply is reused until it expires or is invalidated. */
+    private void checkReused(StoreInterface stub) throws Throwable
+    {
+        stub.write(1, 10);
+        expect(stub.read(1), 10, 1);
+        expect(stub.read(1), 10, 1);
+        expect(stub.read(2), 0, 2);
+
+        if(cache.getHits() != 1 || cache.getMisses() != 2)
+            throw new TestFailed("wrong hit and miss counts: " +
+                                 cache.getHits() + ", " + cache.getMisses());
+
+            // The cache is not told of the write: the old value is reused.
+        stub.write(1, 11);
+        expect(stub.read(1), 10, 2);
+
+        cache.invalidateMethod(StoreInterface.class.getMethod("read",
+                                                              int.class));
+        expect(stub.read(1), 11, 3);
+
+        stub.write(1, 12);
+        cache.invalidateStub(stub);
+        expect(stub.read(1), 12, 4);
+
+        stub.write(1, 13);
+        Thread.sleep(TTL + 100);
+        expect(stub.read(1), 13, 5);
+    }
+
+    /** Checks that calls raising an exception are not kept. */
+    private void checkFailures(StoreInterface stub) throws Throwable
+    {
+        int             reads = server.reads();
+
+        for(int i = 0; i < 2; ++i)
+        {
+            try
+            {
+                stub.read(-1);
+                throw new TestFailed("exception of a cacheable method lost");
+            }
+            catch(FileNotFoundException e) { }
+        }
+
+        if(server.reads() != reads + 2)
+            throw new TestFailed("failed call served from the cache");
+    }
+
+    /** Checks that the cache drops the least recently used replies. */
+    private void checkBounded(StoreInterface stub) throws Throwable
+    {
+        cache.invalidateAll();
+        cache.setMax_entries(2);
+
+        try
+        {
+            int         reads = server.reads();
+            long        evictions = cache.getEvictions();
+
+            stub.read(0);
+            stub.read(1);
+            stub.read(0);
+            stub.read(2);
+
+            if(cache.getSize() != 2 || cache.getEvictions() != evictions + 1)
+                throw new TestFailed("cache not bounded");
+
+                // 0 was used more recently than 1, which has been dropped.
+            stub.read(0);
+            if(server.reads() != reads + 3)
+                throw new TestFailed("recently used reply dropped");
+
+            stub.read(1);
+            if(server.reads() != reads + 4)
+                throw new TestFailed("least recently used reply kept");
+        }
+        finally
+        {
+            cache.setMax_entries(ResultCache.DEFAULT_MAX_ENTRIES);
+        }
+    }
+
+    /** Checks that an asynchronous stub is served from the same cache. */
+    private void checkAsync() throws Throwable
+    {
+        AsyncStub<StoreInterface>   async =
+            Stub.createAsync(StoreInterface.class, address);
+
+        cache.invalidateAll();
+        int             reads = server.reads();
+
+        AsyncStub.Call<StoreInterface, Integer>     read =
+            new AsyncStub.Call<StoreInterface, Integer>()
+            {
+                @Override
+                public Integer invoke(StoreInterface remote) throws Throwable
+                {
+                    return remote.read(3);
+                }
+            };
+
+        Integer         first = async.call(read).get();
+        Integer         second = async.call(read).get();
+
+        if(!Integer.valueOf(0).equals(first) || !first.equals(second))
+            throw new TestFailed("wrong asynchronous results");
+
+        if(server.reads() != reads + 1)
+            throw new TestFailed("asynchronous call not served from the " +
+                                 "cache");
+    }
+
+    /** Checks the value returned by <code>read</code>, and the number of calls
+        the server has served. */
+    private void expect(int value, int expected, int reads) throws TestFailed
+    {
+        if(value != expected)
+            throw new TestFailed("read returned " + value + " instead of " +
+                                 expected);
+
+        if(server.reads() != reads)
+            throw new TestFailed("server read " + server.reads() +
+                                 " times instead of " + reads);
+    }
+
+    /** Stops the skeleton and clears the cache. */
+    @Override
+    protected void clean()
+    {
+        skeleton.stop();
+        cache.invalidateAll();
+        ConnectionPool.closeAll();
+    }
+}
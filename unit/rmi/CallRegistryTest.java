@@ -0,0 +1,146 @@
+package rmi;
+
+import test.*;
+import java.net.*;
+import java.util.*;
+
+/** Unit test for the registry of running calls.
+
+    <p>
+    The test holds two calls in a server method, and checks that a snapshot
+    of the skeleton's running calls describes both: the method called, the
+    client's address, and a running time at least as long as the test waited.
+    Once the calls have returned, the registry must be empty and must have
+    counted them.
+ */
+public class CallRegistryTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking the running call registry";
+
+    /** Time the test lets the calls run before taking a snapshot, in
+        milliseconds. */
+    private static final int    WAIT = 100;
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress       address;
+    /** Server object used by the skeleton. */
+    private HoldServer              server;
+    /** Skeleton used in the test. */
+    private Skeleton<HoldInterface> skeleton;
+
+    /** Starts the test skeleton. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7018);
+        server = new HoldServer();
+        skeleton = new Skeleton<HoldInterface>(HoldInterface.class, server,
+                                               address);
+
+        try
+        {
+            skeleton.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeleton", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        HoldInterface   stub = Stub.create(HoldInterface.class, address);
+        CallRegistry    registry = skeleton.getCall_registry();
+        String          method = HoldInterface.class.getName() + ".hold";
+
+        try
+        {
+            HoldServer.Holder[] holders = new HoldServer.Holder[] {
+                new HoldServer.Holder(stub), new HoldServer.Holder(stub)};
+
+            for(HoldServer.Holder holder : holders)
+                holder.start();
+
+            server.awaitEntered(holders.length);
+            Thread.sleep(WAIT);
+
+            List<CallInfo>  calls = registry.snapshot();
+
+            if(calls.size() != holders.length ||
+               registry.getRunning_calls() != holders.length)
+            {
+                throw new TestFailed("running calls not registered");
+            }
+
+            for(CallInfo call : calls)
+            {
+                if(!call.getMethod().equals(method))
+                    throw new TestFailed("wrong method in snapshot: " +
+                                         call.getMethod());
+
+                if(call.getCaller() == null ||
+                   !call.getCaller().getAddress().isLoopbackAddress())
+                {
+                    throw new TestFailed("wrong caller in snapshot: " +
+                                         call.getCaller());
+                }
+
+                if(call.getElapsed() < WAIT ||
+                   call.getStart_time() + call.getElapsed() >
+                       System.currentTimeMillis())
+                {
+                    throw new TestFailed("wrong running time in snapshot: " +
+                                         call);
+                }
+            }
+
+            if(calls.get(0).getStart_time() > calls.get(1).getStart_time())
+                throw new TestFailed("snapshot not sorted by start time");
+
+            server.release();
+            for(HoldServer.Holder holder : holders)
+            {
+                holder.join();
+                if(holder.error != null)
+                    throw new TestFailed("held call failed", holder.error);
+            }
+
+                // Calls are unregistered just after their replies are sent.
+            for(int i = 0; i < 100 && registry.getRunning_calls() != 0; ++i)
+                Thread.sleep(10);
+
+            if(registry.getRunning_calls() != 0 ||
+               !registry.snapshot().isEmpty())
+            {
+                throw new TestFailed("ended calls still registered");
+            }
+
+            if(registry.getStarted_calls() != holders.length ||
+               registry.getEnded_calls() != holders.length)
+            {
+                throw new TestFailed("calls not counted by the registry");
+            }
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when inspecting " +
+                                 "running calls", t);
+        }
+    }
+
+    /** Stops the skeleton and lets held calls return. */
+    @Override
+    protected void clean()
+    {
+        server.release();
+        skeleton.stop();
+        ConnectionPool.closeAll();
+    }
+}
@@ -0,0 +1,122 @@
+package rmi;
+
+import test.*;
+import java.io.*;
+import java.util.Arrays;
+
+/** Unit test for the binary value codec.
+
+    <p>
+    The test encodes primitives, strings, arrays and a serializable object,
+    checks that they decode to equal values of the same type (also when read
+    from a frame body), that typed primitive writes match boxed ones, and that
+    a call with a single <code>int</code> argument stays small.
+ */
+public class CodecTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking binary value codec";
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        char[]      long_string = new char[70000];
+        Arrays.fill(long_string, 'é');
+
+        Object[]    values = {null, true, (byte)-3, (short)300, 'x', 42,
+                              -7L, 1.5f, 2.25, "ping", "",
+                              new String(long_string),
+                              new boolean[] {true, false},
+                              new byte[] {1, 2, 3}, new short[] {4, 5},
+                              new char[] {'a', 'b'}, new int[] {6, 7, 8},
+                              new long[] {9L}, new float[] {0.5f},
+                              new double[] {0.25}, new String[] {"a", null},
+                              new Object[] {1, "b", null, new int[] {2}},
+                              new Integer[] {3, 4},
+                              new java.util.ArrayList<String>(
+                                  Arrays.asList("c", "d"))};
+
+        try
+        {
+            for(Object value : values)
+            {
+                Object  decoded = roundTrip(value);
+
+                if(value == null ? decoded != null
+                                 : !value.getClass().equals(decoded.getClass())
+                                   || !Arrays.deepEquals(new Object[] {value},
+                                                         new Object[] {decoded}))
+                {
+                    throw new TestFailed("value " + value + " decoded as " +
+                                         decoded);
+                }
+            }
+
+            CallWriter  typed = new CallWriter(1, 3);
+            Codec.writeInt(typed, 42);
+            Codec.writeDouble(typed, 2.25);
+            Codec.writeChar(typed, 'x');
+
+            if(!Arrays.equals(typed.toByteArray(), Protocol.encodeCall(
+                   1, new Object[] {42, 2.25, 'x'})))
+            {
+                throw new TestFailed("typed and boxed encodings differ");
+            }
+
+            BodyReader  arguments = Protocol.openBody(typed.toByteArray());
+            arguments.readInt();
+            Protocol.expectArguments(arguments, 3);
+
+            if(Codec.readInt(arguments) != 42 ||
+               Codec.readDouble(arguments) != 2.25 ||
+               Codec.readChar(arguments) != 'x')
+            {
+                throw new TestFailed("typed values decoded incorrectly");
+            }
+
+            byte[]  call = Protocol.encodeCall(1, new Object[] {42});
+
+            if(call.length > 16)
+                throw new TestFailed("call with one int argument takes " +
+                                     call.length + " bytes");
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception in codec", t);
+        }
+    }
+
+    /** Encodes and decodes one value. */
+    private Object roundTrip(Object value) throws Exception
+    {
+        ByteArrayOutputStream   bytes = new ByteArrayOutputStream();
+        DataOutputStream        out = new DataOutputStream(bytes);
+
+        Codec.writeValue(out, value);
+        out.flush();
+
+        DataInputStream         in = new DataInputStream(
+            new ByteArrayInputStream(bytes.toByteArray()));
+        Object                  decoded = Codec.readValue(in);
+
+        if(in.available() != 0)
+            throw new TestFailed("value " + value + " not read completely");
+
+        BodyReader              body = new BodyReader(bytes.toByteArray());
+        Object                  read = Codec.readValue(body);
+
+        if(body.available() != 0 ||
+           !Arrays.deepEquals(new Object[] {decoded}, new Object[] {read}))
+        {
+            throw new TestFailed("value " + value + " read differently " +
+                                 "from a frame body");
+        }
+
+        return decoded;
+    }
+}
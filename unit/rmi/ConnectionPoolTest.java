@@ -0,0 +1,183 @@
+package rmi;
+
+import test.*;
+import java.net.*;
+
+/** Unit test for <code>ConnectionPool</code>.
+
+    <p>
+    Consecutive calls made through two different stubs for the same skeleton
+    must share a single pooled connection, concurrent calls which can only
+    complete together must all be carried by that connection, a connection
+    handed out by the pool must not be closed as idle until it is released, and
+    a call made after the skeleton has been restarted must transparently replace
+    the stale connection.
+ */
+public class ConnectionPoolTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking stub connection pooling";
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress       address;
+    /** Skeleton used in the test. */
+    private Skeleton<EchoInterface> skeleton;
+
+    /** Remote interface used by the test. */
+    public interface EchoInterface
+    {
+        public int echo(int value) throws RMIException;
+
+        public void gather() throws RMIException;
+    }
+
+    /** Server object returning its argument. */
+    private static class EchoServer implements EchoInterface
+    {
+        /** Number of callers still expected by <code>gather</code>. */
+        private int     missing = CALLERS;
+
+        @Override
+        public int echo(int value)
+        {
+            return value;
+        }
+
+        /** Returns once <code>CALLERS</code> threads are inside the method. */
+        @Override
+        public synchronized void gather()
+        {
+            --missing;
+            notifyAll();
+
+            while(missing > 0)
+            {
+                try
+                {
+                    wait();
+                }
+                catch(InterruptedException e) { }
+            }
+        }
+    }
+
+    /** Number of threads calling <code>gather</code> concurrently. */
+    private static final int        CALLERS = 8;
+
+    /** Starts the test skeleton. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7001);
+        skeleton = new Skeleton<EchoInterface>(EchoInterface.class,
+                                               new EchoServer(), address);
+
+        try
+        {
+            skeleton.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeleton", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        EchoInterface   first = Stub.create(EchoInterface.class, address);
+        EchoInterface   second = Stub.create(EchoInterface.class, address);
+        ConnectionPool  pool = ConnectionPool.get(address);
+
+        try
+        {
+            for(int i = 0; i < 10; ++i)
+            {
+                if(first.echo(i) != i || second.echo(-i) != -i)
+                    throw new TestFailed("incorrect result from stub");
+            }
+
+            if(pool.getOpen_connections() != 1)
+            {
+                throw new TestFailed("sequential calls opened " +
+                                     pool.getOpen_connections() +
+                                     " connections");
+            }
+
+            // All calls to gather block until the last one arrives, so they
+            // must be in flight together on the single pooled connection.
+            Thread[]    callers = new Thread[CALLERS - 1];
+
+            for(int i = 0; i < callers.length; ++i)
+            {
+                callers[i] = new Thread(new Runnable() {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            second.gather();
+                        }
+                        catch(Throwable t)
+                        {
+                            failure(new TestFailed("concurrent call failed",
+                                                   t));
+                        }
+                    }
+                });
+                callers[i].start();
+            }
+
+            first.gather();
+
+            for(Thread caller : callers)
+                caller.join();
+
+            if(pool.getOpen_connections() != 1)
+            {
+                throw new TestFailed("concurrent calls opened " +
+                                     pool.getOpen_connections() +
+                                     " connections");
+            }
+
+            // A connection handed out by the pool is not closed as idle before
+            // its holder releases it.
+            Connection  reserved = pool.acquire();
+
+            pool.closeIdle();
+
+            if(!reserved.isHealthy())
+                throw new TestFailed("reserved connection closed as idle");
+
+            pool.release(reserved);
+            pool.closeIdle();
+
+            if(reserved.isHealthy())
+                throw new TestFailed("released idle connection not closed");
+
+            // Restart the skeleton: the pooled connection is now stale.
+            skeleton.stop();
+            skeleton.start();
+
+            if(first.echo(42) != 42)
+                throw new TestFailed("incorrect result after restart");
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when using stub", t);
+        }
+    }
+
+    /** Stops the skeleton. */
+    @Override
+    protected void clean()
+    {
+        skeleton.stop();
+        ConnectionPool.closeAll();
+    }
+}
@@ -0,0 +1,290 @@
+package rmi;
+
+import test.*;
+import java.net.*;
+import java.util.concurrent.*;
+
+/** Unit test for call deadlines and their cancellation.
+
+    <p>
+    The test runs a skeleton with a single worker. It checks that a call
+    through a stub with a timeout fails with a
+    <code>DeadlineExceededException</code> once the timeout has run out, and
+    that the skeleton interrupts the method still running it. It then checks
+    that a call whose deadline passes while it is queued behind a busy worker
+    is never run, that an asynchronous call times out in the same way, and
+    that the stub's connection is still usable afterwards.
+ */
+public class DeadlineTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking call deadlines";
+
+    /** Timeout of the calls which must fail, in milliseconds. */
+    private static final int    TIMEOUT = 200;
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress       address;
+    /** Server object used by the skeleton. */
+    private SlowServer              server;
+    /** Skeleton used in the test. */
+    private Skeleton<SlowInterface> skeleton;
+
+    /** Remote interface used by the test. */
+    public interface SlowInterface
+    {
+        public void hold() throws RMIException;
+        public int count() throws RMIException;
+    }
+
+    /** Server object for <code>SlowInterface</code>. */
+    private static class SlowServer implements SlowInterface
+    {
+        /** Number of calls to <code>count</code>. */
+        private int         counted = 0;
+        /** Number of calls which entered <code>hold</code>. */
+        private int         entered = 0;
+        /** Number of calls to <code>hold</code> which were interrupted. */
+        private int         interrupted = 0;
+        /** Whether calls to <code>hold</code> may return. */
+        private boolean     released = false;
+
+        /** Returns once the test releases the call, or once it is
+            interrupted. */
+        @Override
+        public synchronized void hold()
+        {
+            ++entered;
+            notifyAll();
+
+            while(!released)
+            {
+                try
+                {
+                    wait();
+                }
+                catch(InterruptedException e)
+                {
+                    ++interrupted;
+                    notifyAll();
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public synchronized int count()
+        {
+            return ++counted;
+        }
+
+        /** Waits until <code>count</code> calls entered <code>hold</code>. */
+        synchronized void awaitEntered(int count) throws InterruptedException
+        {
+            while(entered < count)
+                wait();
+        }
+
+        /** Waits until <code>count</code> calls were interrupted, or for at
+            most one second. */
+        synchronized boolean awaitInterrupted(int count)
+            throws InterruptedException
+        {
+            long    end = System.currentTimeMillis() + 1000;
+
+            while(interrupted < count && System.currentTimeMillis() < end)
+                wait(end - System.currentTimeMillis());
+
+            return interrupted >= count;
+        }
+
+        /** Lets held calls return, or makes the next ones hold. */
+        synchronized void hold(boolean held)
+        {
+            released = !held;
+            notifyAll();
+        }
+    }
+
+    /** Starts the test skeleton. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7014);
+        server = new SlowServer();
+        skeleton = new Skeleton<SlowInterface>(SlowInterface.class, server,
+                                               address);
+        skeleton.setConfig(new SkeletonConfig().setWorker_threads(1));
+
+        try
+        {
+            skeleton.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeleton", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        try
+        {
+            SlowInterface   stub = Stub.create(SlowInterface.class, address);
+
+            checkInterrupted(stub);
+            checkQueued(stub);
+            checkAsync(stub);
+
+            if(stub.count() != 2)
+                throw new TestFailed("stub unusable after timed out calls");
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when calling with " +
+                                 "deadlines", t);
+        }
+    }
+
+    /** Calls a method which does not return in time, through a stub with a
+        timeout.
+
+        @throws TestFailed If the call does not time out, or the method is not
+                           interrupted.
+     */
+    private void checkInterrupted(SlowInterface stub) throws Throwable
+    {
+        SlowInterface   timed = Stub.withTimeout(stub, TIMEOUT);
+
+        if(!timed.equals(stub))
+            throw new TestFailed("stub with a timeout not equal to its " +
+                                 "original");
+
+        long            start = System.currentTimeMillis();
+
+        try
+        {
+            timed.hold();
+            throw new TestFailed("call returned before the test released it");
+        }
+        catch(DeadlineExceededException e) { }
+
+        if(System.currentTimeMillis() - start > 10 * TIMEOUT)
+            throw new TestFailed("timed out call failed late");
+
+        if(!server.awaitInterrupted(1))
+            throw new TestFailed("method of a timed out call not interrupted");
+
+        if(skeleton.getCancelled_calls() != 1)
+            throw new TestFailed("cancelled call not counted");
+    }
+
+    /** Makes a call with a deadline while the only worker is busy.
+
+        @throws TestFailed If the queued call does not time out, or runs once
+                           the worker is free.
+     */
+    private void checkQueued(final SlowInterface stub) throws Throwable
+    {
+        Thread          holder = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    stub.hold();
+                }
+                catch(RMIException e) { }
+            }
+        };
+
+        holder.start();
+        server.awaitEntered(2);
+
+        Deadline        deadline = Deadline.after(TIMEOUT);
+
+        try
+        {
+            stub.count();
+            throw new TestFailed("queued call returned before its worker " +
+                                 "was free");
+        }
+        catch(DeadlineExceededException e)
+        {
+            if(System.currentTimeMillis() < deadline.getTime())
+                throw new TestFailed("queued call given up before its " +
+                                     "deadline");
+        }
+        finally
+        {
+            deadline.close();
+        }
+
+            // The worker must not be freed before the cancellation arrives.
+        for(int i = 0; i < 100 && skeleton.getCancelled_calls() < 2; ++i)
+            Thread.sleep(10);
+
+        server.hold(false);
+        holder.join();
+
+        if(stub.count() != 1)
+            throw new TestFailed("call run after its deadline passed");
+    }
+
+    /** Makes an asynchronous call which does not return in time.
+
+        @throws TestFailed If the call does not time out.
+     */
+    private void checkAsync(SlowInterface stub) throws Throwable
+    {
+        server.hold(true);
+
+        CompletableFuture<Object>   result;
+
+            // Only the making of the call is in the deadline's scope.
+        Deadline                    deadline = Deadline.after(TIMEOUT);
+
+        try
+        {
+            result = AsyncStub.of(stub).call(
+                SlowInterface.class.getMethod("hold"));
+        }
+        finally
+        {
+            deadline.close();
+        }
+
+        try
+        {
+            result.get(10 * TIMEOUT, TimeUnit.MILLISECONDS);
+            throw new TestFailed("asynchronous call returned before the " +
+                                 "test released it");
+        }
+        catch(ExecutionException e)
+        {
+            if(!(e.getCause() instanceof DeadlineExceededException))
+                throw new TestFailed("asynchronous call did not time out",
+                                     e.getCause());
+        }
+
+        if(!server.awaitInterrupted(2))
+            throw new TestFailed("method of a timed out asynchronous call " +
+                                 "not interrupted");
+    }
+
+    /** Stops the skeleton and lets held calls return. */
+    @Override
+    protected void clean()
+    {
+        server.hold(false);
+        skeleton.stop();
+        ConnectionPool.closeAll();
+    }
+}
@@ -0,0 +1,176 @@
+package rmi;
+
+import test.*;
+import java.net.*;
+
+/** Unit test for the draining of calls by a stopping skeleton.
+
+    <p>
+    The test stops a skeleton while one of its calls runs. <code>stop</code>
+    must return at once, the skeleton must stop accepting connections, and a
+    call made on the kept-alive connection must be refused, while the running
+    call must be answered once it returns. The skeleton must then be
+    restartable before the drain has ended. Finally, the test stops the
+    skeleton with a short drain timeout while a call never returns by itself:
+    the call must be interrupted, and the skeleton stopped.
+ */
+public class DrainTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking skeleton drain on stop";
+
+    /** Drain timeout of the last stop, in milliseconds. */
+    private static final int    DRAIN_TIMEOUT = 200;
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress       address;
+    /** Server object used by the skeleton. */
+    private HoldServer              server;
+    /** Skeleton used in the test. */
+    private Skeleton<HoldInterface> skeleton;
+
+    /** Starts the test skeleton. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7017);
+        server = new HoldServer();
+        skeleton = new Skeleton<HoldInterface>(HoldInterface.class, server,
+                                               address);
+
+        try
+        {
+            skeleton.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeleton", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        try
+        {
+            HoldInterface   stub = Stub.create(HoldInterface.class, address);
+
+            checkDrained(stub);
+            checkAborted(stub);
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when stopping the " +
+                                 "skeleton", t);
+        }
+    }
+
+    /** Stops the skeleton while a call runs, and lets the call return.
+
+        @throws TestFailed If the skeleton waits for the call before stopping
+                           to accept connections, serves new calls, or drops
+                           the running one.
+     */
+    private void checkDrained(HoldInterface stub) throws Throwable
+    {
+        HoldServer.Holder   holder = new HoldServer.Holder(stub);
+        holder.start();
+        server.awaitEntered(1);
+
+        long            start = System.currentTimeMillis();
+        skeleton.stop();
+        if(System.currentTimeMillis() - start > 1000)
+            throw new TestFailed("stop waited for the running call");
+
+        if(probe())
+            throw new TestFailed("skeleton accepts connections after stop");
+
+        try
+        {
+            stub.count();
+            throw new TestFailed("call served by a stopping skeleton");
+        }
+        catch(RMIException e) { }
+
+        if(skeleton.awaitStopped(100))
+            throw new TestFailed("skeleton stopped before its call returned");
+
+            // The port is free again, while the first run drains.
+        skeleton.start();
+
+        server.hold(false);
+        holder.join();
+        if(holder.error != null)
+            throw new TestFailed("running call not answered", holder.error);
+
+        if(!skeleton.awaitStopped(5000))
+            throw new TestFailed("skeleton did not stop once drained");
+    }
+
+    /** Stops the skeleton with a short drain timeout while a call never
+        returns by itself.
+
+        @throws TestFailed If the call is not interrupted, or the skeleton
+                           does not stop.
+     */
+    private void checkAborted(HoldInterface stub) throws Throwable
+    {
+        server.hold(true);
+        skeleton.setConfig(new SkeletonConfig()
+                                .setDrain_timeout(DRAIN_TIMEOUT));
+
+        HoldServer.Holder   holder = new HoldServer.Holder(stub);
+        holder.start();
+        server.awaitEntered(2);
+
+        skeleton.stop();
+        if(!skeleton.awaitStopped(10 * DRAIN_TIMEOUT))
+            throw new TestFailed("skeleton did not stop after its drain " +
+                                 "timeout");
+
+        holder.join();
+        if(holder.error == null)
+            throw new TestFailed("call of an aborted connection succeeded");
+
+        if(!server.awaitInterrupted(1))
+            throw new TestFailed("call outliving the drain timeout not " +
+                                 "interrupted");
+    }
+
+    /** Checks whether it is possible to connect to the skeleton. */
+    private boolean probe()
+    {
+        Socket      socket = new Socket();
+
+        try
+        {
+            socket.connect(address);
+        }
+        catch(Exception e)
+        {
+            return false;
+        }
+
+        try
+        {
+            socket.close();
+        }
+        catch(Exception e) { }
+
+        return true;
+    }
+
+    /** Stops the skeleton and lets held calls return. */
+    @Override
+    protected void clean()
+    {
+        server.hold(false);
+        skeleton.stop();
+        ConnectionPool.closeAll();
+    }
+}
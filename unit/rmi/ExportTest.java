@@ -0,0 +1,224 @@
+package rmi;
+
+import test.*;
+import java.net.*;
+
+/** Unit test for remote objects exported by a skeleton.
+
+    <p>
+    The test calls a factory method returning remote objects, and checks that
+    they are served by the factory's own skeleton, on its port, each under its
+    own object ID: calls on two returned objects reach two different server
+    objects, and their stubs are not equal. It checks that an object returned
+    several times is exported once, and that its stubs are equal. It then
+    checks that a call to an
+    object the skeleton never exported fails with an
+    <code>RMIException</code>, and that a <code>null</code> remote object is
+    returned as <code>null</code>.
+ */
+public class ExportTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking remote objects exported " +
+                                         "by a skeleton";
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress           address;
+    /** Skeleton used in the test. */
+    private Skeleton<FactoryInterface>  skeleton;
+
+    /** Remote interface of the returned objects. */
+    public interface CounterInterface
+    {
+        public int increment() throws RMIException;
+    }
+
+    /** Remote interface of the factory. */
+    public interface FactoryInterface
+    {
+        public CounterInterface counter(boolean create) throws RMIException;
+        public CounterInterface shared() throws RMIException;
+    }
+
+    /** Server object for <code>CounterInterface</code>. */
+    private static class CounterServer implements CounterInterface
+    {
+        /** Number of calls to <code>increment</code>. */
+        private int     count = 0;
+
+        @Override
+        public synchronized int increment()
+        {
+            return ++count;
+        }
+    }
+
+    /** Server object for <code>FactoryInterface</code>. */
+    private static class FactoryServer implements FactoryInterface
+    {
+        /** Object returned by every call to <code>shared</code>. */
+        private final CounterServer     shared = new CounterServer();
+
+        @Override
+        public CounterInterface shared()
+        {
+            return shared;
+        }
+
+        @Override
+        public CounterInterface counter(boolean create)
+        {
+            return create ? new CounterServer() : null;
+        }
+    }
+
+    /** Starts the test skeleton. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7012);
+        skeleton = new Skeleton<FactoryInterface>(FactoryInterface.class,
+                                                  new FactoryServer(),
+                                                  address);
+
+        try
+        {
+            skeleton.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeleton", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        try
+        {
+            FactoryInterface    factory =
+                Stub.create(FactoryInterface.class, address);
+
+            checkExported(factory);
+            checkShared(factory);
+            checkUnknown();
+            checkNull(factory);
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when calling " +
+                                 "exported objects", t);
+        }
+    }
+
+    /** Calls two objects returned by the factory.
+
+        @throws TestFailed If the objects are not served by the factory's
+                           skeleton, or are not distinct.
+     */
+    private void checkExported(FactoryInterface factory) throws Throwable
+    {
+        if(skeleton.getExported_objects() != 0)
+            throw new TestFailed("objects exported before any call");
+
+        CounterInterface    first = factory.counter(true);
+        CounterInterface    second = factory.counter(true);
+
+        if(skeleton.getExported_objects() != 2)
+            throw new TestFailed("returned objects not exported");
+
+        StubInvocationHandler<?>    handler = StubInvocationHandler.of(first);
+
+        if(handler.get_Address().getPort() != address.getPort())
+            throw new TestFailed("returned object not served on the " +
+                                 "skeleton's port");
+
+        if(handler.getObject_id() == 0 ||
+           handler.getObject_id() ==
+               StubInvocationHandler.of(second).getObject_id())
+        {
+            throw new TestFailed("returned objects share an object ID");
+        }
+
+        if(first.increment() != 1 || first.increment() != 2 ||
+           second.increment() != 1)
+        {
+            throw new TestFailed("calls did not reach the returned objects");
+        }
+
+        if(first.equals(second) || !first.equals(first))
+            throw new TestFailed("stubs of exported objects compare wrongly");
+    }
+
+    /** Returns the same object several times.
+
+        @throws TestFailed If the object is exported more than once, or its
+                           stubs are not equal.
+     */
+    private void checkShared(FactoryInterface factory) throws Throwable
+    {
+        int                 exported = skeleton.getExported_objects();
+        CounterInterface    first = factory.shared();
+        CounterInterface    second = factory.shared();
+
+        if(skeleton.getExported_objects() != exported + 1)
+            throw new TestFailed("object returned twice exported twice");
+
+        if(StubInvocationHandler.of(first).getObject_id() !=
+               StubInvocationHandler.of(second).getObject_id())
+        {
+            throw new TestFailed("object returned twice has two object IDs");
+        }
+
+        if(!first.equals(second) || first.hashCode() != second.hashCode())
+            throw new TestFailed("stubs of the same object are not equal");
+
+        if(first.increment() != 1 || second.increment() != 2)
+            throw new TestFailed("calls did not reach the same object");
+    }
+
+    /** Calls an object the skeleton never exported.
+
+        @throws TestFailed If the call succeeds.
+     */
+    private void checkUnknown() throws TestFailed
+    {
+        CounterInterface    unknown =
+            Stub.create(CounterInterface.class, address, 1000);
+
+        try
+        {
+            unknown.increment();
+            throw new TestFailed("call to an unknown object succeeded");
+        }
+        catch(RMIException e) { }
+    }
+
+    /** Returns a <code>null</code> remote object.
+
+        @throws TestFailed If a stub is returned, or an object is exported.
+     */
+    private void checkNull(FactoryInterface factory) throws Throwable
+    {
+        int     exported = skeleton.getExported_objects();
+
+        if(factory.counter(false) != null)
+            throw new TestFailed("null remote object returned as a stub");
+
+        if(skeleton.getExported_objects() != exported)
+            throw new TestFailed("null remote object exported");
+    }
+
+    /** Stops the skeleton. */
+    @Override
+    protected void clean()
+    {
+        skeleton.stop();
+        ConnectionPool.closeAll();
+    }
+}
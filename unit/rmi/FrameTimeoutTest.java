@@ -0,0 +1,161 @@
+package rmi;
+
+import test.*;
+import java.io.*;
+import java.net.*;
+import java.util.Arrays;
+
+/** Unit test for frames read across socket timeouts.
+
+    <p>
+    The test writes a frame in three parts over a socket whose reading side has
+    a short timeout, pausing longer than the timeout after its first byte and
+    inside its body. The frame must be read whole, and a read before any byte
+    of the next frame has arrived must time out without consuming anything.
+    A frame which stalls midway for longer than the frame timeout must fail
+    the read with an error other than a socket timeout.
+ */
+public class FrameTimeoutTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking frames read across " +
+                                         "socket timeouts";
+
+    /** Socket timeout of the reading side, in milliseconds. */
+    private static final int    TIMEOUT = 50;
+
+    /** Listening socket the reading side is accepted from. */
+    private ServerSocket    listening;
+    /** Writing side of the connection. */
+    private Socket          writer;
+    /** Reading side of the connection. */
+    private Socket          reader;
+
+    /** Opens the connection. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        try
+        {
+            listening = new ServerSocket(0, 1,
+                                         InetAddress.getByName("127.0.0.1"));
+            writer = new Socket("127.0.0.1", listening.getLocalPort());
+            writer.setTcpNoDelay(true);
+            reader = listening.accept();
+            reader.setSoTimeout(TIMEOUT);
+        }
+        catch(IOException e)
+        {
+            throw new TestFailed("unable to open a connection", e);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        try
+        {
+            byte[]          body = new byte[64];
+            Arrays.fill(body, (byte)7);
+
+            ByteArrayOutputStream   bytes = new ByteArrayOutputStream();
+            Protocol.writeFrame(new DataOutputStream(bytes), Protocol.CALL, 9,
+                                body);
+            final byte[]    frame = bytes.toByteArray();
+
+            Thread          sender = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        OutputStream    out = writer.getOutputStream();
+
+                        out.write(frame, 0, 1);
+                        out.flush();
+                        Thread.sleep(3 * TIMEOUT);
+                        out.write(frame, 1, 20);
+                        out.flush();
+                        Thread.sleep(3 * TIMEOUT);
+                        out.write(frame, 21, frame.length - 21);
+                        out.flush();
+                    }
+                    catch(Exception e) { }
+                }
+            };
+
+            DataInputStream in = new DataInputStream(
+                new BufferedInputStream(reader.getInputStream()));
+
+            sender.start();
+
+                // Nothing has arrived yet: the read may time out.
+            Frame           read = null;
+            while(read == null)
+            {
+                try
+                {
+                    read = Protocol.readFrame(in);
+                }
+                catch(SocketTimeoutException e) { }
+            }
+
+            sender.join();
+
+            if(read.type != Protocol.CALL || read.call_id != 9 ||
+               !Arrays.equals(read.body, body))
+            {
+                throw new TestFailed("frame corrupted by a socket timeout");
+            }
+
+            try
+            {
+                Protocol.readFrame(in);
+                throw new TestFailed("read of an absent frame did not time " +
+                                     "out");
+            }
+            catch(SocketTimeoutException e) { }
+
+                // Send a frame's first bytes only: its read must give up.
+            writer.getOutputStream().write(frame, 0, 7);
+            writer.getOutputStream().flush();
+
+            try
+            {
+                Protocol.readFrame(in, 4 * TIMEOUT);
+                throw new TestFailed("read of a stalled frame did not fail");
+            }
+            catch(SocketTimeoutException e)
+            {
+                throw new TestFailed("stalled frame reported as absent", e);
+            }
+            catch(IOException e) { }
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when reading a frame",
+                                 t);
+        }
+    }
+
+    /** Closes the connection. */
+    @Override
+    protected void clean()
+    {
+        for(Closeable closeable : new Closeable[] {writer, reader, listening})
+        {
+            try
+            {
+                if(closeable != null)
+                    closeable.close();
+            }
+            catch(IOException e) { }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package rmi;
+
+/** Remote interface of <code>HoldServer</code>. */
+public interface HoldInterface
+{
+    /** Returns once the test releases the call, or once it is interrupted. */
+    public void hold() throws RMIException;
+
+    /** Returns the number of calls to <code>count</code> so far, including
+        this one. */
+    public int count() throws RMIException;
+
+    /** Sleeps for <code>millis</code> milliseconds, then returns the number of
+        calls to <code>sleep</code> in progress when it started, including
+        this one. */
+    public int sleep(long millis) throws RMIException;
+}
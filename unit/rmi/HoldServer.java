@@ -0,0 +1,176 @@
+package rmi;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Server object holding calls until the test releases them.
+
+    <p>
+    Tests use it to keep a skeleton's workers busy for as long as they need:
+    calls to <code>hold</code> wait until the server is released, or until
+    they are interrupted. The server counts the calls which entered
+    <code>hold</code> and the calls which were interrupted, so that a test can
+    wait for them. Servers of other interfaces may extend it and call
+    <code>hold</code> from their own blocking methods. Benchmarks use
+    <code>sleep</code> instead, which holds calls for a given time without
+    serializing them, and records the highest number of calls it ran at once.
+ */
+public class HoldServer implements HoldInterface
+{
+    /** Number of calls to <code>count</code>. */
+    private int         counted = 0;
+    /** Number of calls which entered <code>hold</code>. */
+    private int         entered = 0;
+    /** Number of calls to <code>hold</code> which were interrupted. */
+    private int         interrupted = 0;
+    /** Whether calls to <code>hold</code> may return. */
+    private boolean     released = false;
+
+    /** Number of calls to <code>sleep</code> in progress. */
+    private final AtomicInteger     sleeping = new AtomicInteger();
+    /** Highest number of calls to <code>sleep</code> in progress at once. */
+    private final AtomicInteger     peak = new AtomicInteger();
+
+    @Override
+    public synchronized void hold()
+    {
+        ++entered;
+        notifyAll();
+
+        while(!released)
+        {
+            try
+            {
+                wait();
+            }
+            catch(InterruptedException e)
+            {
+                ++interrupted;
+                notifyAll();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public synchronized int count()
+    {
+        return ++counted;
+    }
+
+    @Override
+    public int sleep(long millis)
+    {
+        int     now = sleeping.incrementAndGet();
+        int     seen;
+
+        while(now > (seen = peak.get()) && !peak.compareAndSet(seen, now))
+        {
+            // Retry until the peak is at least now.
+        }
+
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            sleeping.decrementAndGet();
+        }
+
+        return now;
+    }
+
+    /** Returns the highest number of calls to <code>sleep</code> in progress
+        at once since the last call, and starts counting again. */
+    public int resetPeak()
+    {
+        return peak.getAndSet(0);
+    }
+
+    /** Waits until <code>count</code> calls entered <code>hold</code>. */
+    public synchronized void awaitEntered(int count)
+        throws InterruptedException
+    {
+        while(entered < count)
+            wait();
+    }
+
+    /** Waits until <code>count</code> calls were interrupted, or for at most
+        one second.
+
+        @return <code>true</code> if the calls were interrupted.
+     */
+    public synchronized boolean awaitInterrupted(int count)
+        throws InterruptedException
+    {
+        long    end = System.currentTimeMillis() + 1000;
+
+        while(interrupted < count && System.currentTimeMillis() < end)
+            wait(end - System.currentTimeMillis());
+
+        return interrupted >= count;
+    }
+
+    /** Makes the next calls to <code>hold</code> wait, or lets held calls
+        return. */
+    public synchronized void hold(boolean held)
+    {
+        released = !held;
+        notifyAll();
+    }
+
+    /** Lets held calls return. */
+    public void release()
+    {
+        hold(false);
+    }
+
+    /** Thread making one call, remembering how it ended.
+
+        <p>
+        The thread calls <code>hold</code> on the stub it is given. Tests
+        making other calls override <code>call</code>.
+     */
+    static class Holder extends Thread
+    {
+        private final HoldInterface     stub;
+        /** Exception raised by the call, <code>null</code> if it succeeded. */
+        volatile Throwable              error;
+
+        /** Creates a thread calling <code>hold</code> on <code>stub</code>. */
+        Holder(HoldInterface stub)
+        {
+            this.stub = stub;
+        }
+
+        /** Creates a thread making the call of an overriding
+            <code>call</code>. */
+        Holder()
+        {
+            this(null);
+        }
+
+        /** Makes the call. */
+        protected void call() throws Throwable
+        {
+            stub.hold();
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                call();
+            }
+            catch(Throwable t)
+            {
+                error = t;
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package rmi;
+
+import test.*;
+import java.io.*;
+import java.net.*;
+
+/** Unit test for the leases held on exported remote objects.
+
+    <p>
+    The test uses a skeleton granting short leases. It checks that an object
+    returned to the test stays exported, and callable, for several lease
+    durations while the test holds its stub, and that it is unexported once the
+    stub has been garbage collected. It then checks that an object no client
+    holds a lease on is unexported once its first lease expires, after which
+    calls to it fail with an <code>RMIException</code>. Finally, it checks that
+    an object returned on two connections is not unexported when the client of
+    one of them drops its lease, before the other client has leased it.
+ */
+public class LeaseTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking leases on exported objects";
+
+    /** Lease duration granted by the test skeleton, in milliseconds. */
+    private static final int    LEASE = 400;
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress           address;
+    /** Skeleton used in the test. */
+    private Skeleton<FactoryInterface>  skeleton;
+
+    /** Remote interface of the returned objects. */
+    public interface CounterInterface
+    {
+        public int increment() throws RMIException;
+    }
+
+    /** Remote interface of the factory. */
+    public interface FactoryInterface
+    {
+        public CounterInterface counter() throws RMIException;
+    }
+
+    /** Server object for <code>CounterInterface</code>. */
+    private static class CounterServer implements CounterInterface
+    {
+        /** Number of calls to <code>increment</code>. */
+        private int     count = 0;
+
+        @Override
+        public synchronized int increment()
+        {
+            return ++count;
+        }
+    }
+
+    /** Server object for <code>FactoryInterface</code>. */
+    private static class FactoryServer implements FactoryInterface
+    {
+        @Override
+        public CounterInterface counter()
+        {
+            return new CounterServer();
+        }
+    }
+
+    /** Connection an object is returned on, which never sends anything. */
+    private static class SilentConnection implements ServerConnection
+    {
+        @Override
+        public void reply(int call_id, byte[] body) { }
+
+        @Override
+        public void invalidate(int object_id) { }
+
+        @Override
+        public void endCall() { }
+
+        @Override
+        public InetSocketAddress getLocal_address()
+        {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getRemote_address()
+        {
+            return null;
+        }
+
+        @Override
+        public CallTable getCalls()
+        {
+            return null;
+        }
+
+        @Override
+        public boolean isClosing()
+        {
+            return false;
+        }
+    }
+
+    /** Starts the test skeleton. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7013);
+        skeleton = new Skeleton<FactoryInterface>(FactoryInterface.class,
+                                                  new FactoryServer(),
+                                                  address);
+
+        skeleton.getConfig().setLease_duration(LEASE);
+
+        try
+        {
+            skeleton.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeleton", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        try
+        {
+            FactoryInterface    factory =
+                Stub.create(FactoryInterface.class, address);
+
+            checkRenewed(factory);
+            checkDropped();
+            checkExpired();
+            checkReturned();
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when leasing", t);
+        }
+    }
+
+    /** Holds the stub of a returned object for several lease durations.
+
+        <p>
+        The stub is not kept once this method returns.
+
+        @throws TestFailed If the object is unexported while its stub is held.
+     */
+    private void checkRenewed(FactoryInterface factory) throws Throwable
+    {
+        CounterInterface    counter = factory.counter();
+
+        for(int i = 1; i <= 4; ++i)
+        {
+            Thread.sleep(LEASE);
+
+            if(skeleton.getExported_objects() != 1)
+                throw new TestFailed("object unexported while its stub is held");
+
+            if(counter.increment() != i)
+                throw new TestFailed("calls did not reach the leased object");
+        }
+
+        if(LeaseRenewer.getLeased_objects() < 1)
+            throw new TestFailed("no lease held for a received stub");
+    }
+
+    /** Waits for the object returned by <code>checkRenewed</code> to be
+        unexported, once its stub has been garbage collected.
+
+        @throws TestFailed If the object stays exported.
+     */
+    private void checkDropped() throws Throwable
+    {
+        for(int i = 0; i < 100 && skeleton.getExported_objects() != 0; ++i)
+        {
+            System.gc();
+            Thread.sleep(100);
+        }
+
+        if(skeleton.getExported_objects() != 0)
+            throw new TestFailed("object still exported after its stub was " +
+                                 "collected");
+
+        if(skeleton.getUnexported_objects() != 1)
+            throw new TestFailed("unexported object not counted");
+    }
+
+    /** Exports an object no client holds a lease on.
+
+        @throws TestFailed If the object is not unexported, or can still be
+                           called.
+     */
+    private void checkExpired() throws Throwable
+    {
+        ExportTable.Export  export =
+            skeleton.exports.export(CounterInterface.class,
+                                    new CounterServer(),
+                                    new SilentConnection());
+            // Not received: this stub holds no lease.
+        CounterInterface    counter =
+            Stub.create(CounterInterface.class, address, export.object_id);
+
+        if(counter.increment() != 1)
+            throw new TestFailed("exported object cannot be called");
+
+        for(int i = 0; i < 50 && skeleton.getExported_objects() != 0; ++i)
+            Thread.sleep(100);
+
+        if(skeleton.getExported_objects() != 0)
+            throw new TestFailed("object still exported after its lease " +
+                                 "expired");
+
+        try
+        {
+            counter.increment();
+            throw new TestFailed("call to an unexported object succeeded");
+        }
+        catch(RMIException e) { }
+    }
+
+    /** Returns an object on two connections, then leases and drops it from
+        the first one only.
+
+        @throws TestFailed If the first client's lease takes over the lease of
+                           the call which returned the object to the second
+                           client.
+     */
+    private void checkReturned() throws Throwable
+    {
+        ServerConnection    first = new SilentConnection();
+        ServerConnection    second = new SilentConnection();
+        CounterServer       server = new CounterServer();
+        ExportTable.Export  export =
+            skeleton.exports.export(CounterInterface.class, server, first);
+        skeleton.exports.export(CounterInterface.class, server, second);
+
+        int[]               ids = new int[] {export.object_id};
+        int[]               none = new int[0];
+
+        lease(Protocol.encodeLease(1, ids, none), first);
+        lease(Protocol.encodeLease(1, none, ids), first);
+
+        if(skeleton.exports.get(export.object_id) != export)
+            throw new TestFailed("object unexported before its second client " +
+                                 "leased it");
+
+        lease(Protocol.encodeLease(2, ids, none), second);
+        lease(Protocol.encodeLease(2, none, ids), second);
+
+        if(skeleton.exports.get(export.object_id) != null)
+            throw new TestFailed("object still exported after every lease " +
+                                 "was dropped");
+    }
+
+    /** Sends the body of a LEASE frame on <code>connection</code>. */
+    private void lease(byte[] body, ServerConnection connection)
+        throws IOException, TestFailed
+    {
+        byte[]  reply = skeleton.exports.lease(body, connection);
+
+        if(reply[0] != Protocol.SUCCEEDED)
+            throw new TestFailed("lease refused");
+    }
+
+    /** Stops the skeleton. */
+    @Override
+    protected void clean()
+    {
+        skeleton.stop();
+        ConnectionPool.closeAll();
+    }
+}
@@ -0,0 +1,124 @@
+package rmi;
+
+import test.*;
+import java.net.*;
+
+/** Unit test for method ID tables and the connection handshake.
+
+    <p>
+    The test checks that method IDs follow the sorted signatures, and that a
+    stub whose interface does not match the skeleton's is refused before its
+    first call, while a matching stub on the same connection pool is served.
+ */
+public class MethodTableTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking method tables and handshake";
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress       address;
+    /** Skeleton used in the test. */
+    private Skeleton<EchoInterface> skeleton;
+
+    /** Remote interface served by the skeleton. */
+    public interface EchoInterface
+    {
+        public String echo(String message) throws RMIException;
+
+        public int add(int a, int b) throws RMIException;
+    }
+
+    /** Remote interface with the same method names, but other types. */
+    public interface OtherInterface
+    {
+        public String echo(Object message) throws RMIException;
+    }
+
+    /** Server object for <code>EchoInterface</code>. */
+    private static class EchoServer implements EchoInterface
+    {
+        @Override
+        public String echo(String message)
+        {
+            return message;
+        }
+
+        @Override
+        public int add(int a, int b)
+        {
+            return a + b;
+        }
+    }
+
+    /** Starts the test skeleton. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7004);
+        skeleton = new Skeleton<EchoInterface>(EchoInterface.class,
+                                               new EchoServer(), address);
+
+        try
+        {
+            skeleton.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeleton", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        try
+        {
+            MethodTable table = MethodTable.of(EchoInterface.class);
+
+            if(table.idOf(EchoInterface.class.getMethod("add", int.class,
+                                                        int.class)) != 0 ||
+               table.idOf(EchoInterface.class.getMethod("echo",
+                                                        String.class)) != 1)
+            {
+                throw new TestFailed("method IDs do not follow signatures");
+            }
+
+            if(table.getFingerprint() ==
+               MethodTable.of(OtherInterface.class).getFingerprint())
+            {
+                throw new TestFailed("different interfaces share fingerprint");
+            }
+
+            OtherInterface  other = Stub.create(OtherInterface.class, address);
+
+            try
+            {
+                other.echo("refused");
+                throw new TestFailed("call of mismatched interface served");
+            }
+            catch(RMIException e) { }
+
+            EchoInterface   stub = Stub.create(EchoInterface.class, address);
+
+            if(!"served".equals(stub.echo("served")) || stub.add(2, 3) != 5)
+                throw new TestFailed("incorrect result from matching stub");
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when using stub", t);
+        }
+    }
+
+    /** Stops the skeleton. */
+    @Override
+    protected void clean()
+    {
+        skeleton.stop();
+        ConnectionPool.closeAll();
+    }
+}
@@ -0,0 +1,174 @@
+package rmi;
+
+import test.*;
+import java.net.*;
+
+/** Unit test for near-cache stubs and server-driven invalidation.
+
+    <p>
+    The test reads a counter through a near-cache stub, and checks that
+    repeated reads are served from the cache, that the stub reads its own
+    writes, and that a one-way write (which the client does not see complete)
+    makes the skeleton tell the client to drop its replies. Reads through a
+    plain stub must always reach the server, and replies must be dropped once
+    the connection which watched the object is closed.
+ */
+public class NearCacheTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking near-cache stubs";
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress           address;
+    /** Server object used by the skeleton. */
+    private CounterServer               server;
+    /** Skeleton used in the test. */
+    private Skeleton<CounterInterface>  skeleton;
+    /** Cache of the skeleton's address. */
+    private ResultCache                 cache;
+
+    /** Remote interface used by the test. */
+    public interface CounterInterface
+    {
+        @ReadOnly
+        public int value() throws RMIException;
+
+        public void add(int amount) throws RMIException;
+
+        @OneWay
+        public void addLater(int amount) throws RMIException;
+    }
+
+    /** Server object for <code>CounterInterface</code>. */
+    private static class CounterServer implements CounterInterface
+    {
+        /** Current value of the counter. */
+        private int     value = 0;
+        /** Number of calls to <code>value</code>. */
+        private int     reads = 0;
+
+        @Override
+        public synchronized int value()
+        {
+            ++reads;
+            return value;
+        }
+
+        @Override
+        public synchronized void add(int amount)
+        {
+            value += amount;
+        }
+
+        @Override
+        public synchronized void addLater(int amount)
+        {
+            value += amount;
+        }
+
+        synchronized int reads()
+        {
+            return reads;
+        }
+    }
+
+    /** Starts the test skeleton. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7020);
+        server = new CounterServer();
+        skeleton = new Skeleton<CounterInterface>(CounterInterface.class,
+                                                  server, address);
+        cache = ResultCache.get(address);
+
+        try
+        {
+            skeleton.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeleton", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        CounterInterface    plain = Stub.create(CounterInterface.class,
+                                                address);
+        CounterInterface    near = Stub.withNearCache(plain);
+
+        try
+        {
+                // Repeated reads are served from the cache.
+            expect(near.value(), 0, 1);
+            expect(near.value(), 0, 1);
+
+                // Reads of a plain stub reach the server.
+            expect(plain.value(), 0, 2);
+
+                // The writer reads its own write.
+            near.add(5);
+            expect(near.value(), 5, 3);
+            expect(near.value(), 5, 3);
+
+            if(skeleton.getSent_invalidations() < 1)
+                throw new TestFailed("watching client not told of a write");
+
+                // A one-way write is only noticed through the skeleton.
+            long            invalidations = cache.getInvalidations();
+            near.addLater(2);
+
+            for(int i = 0; i < 100 &&
+                           cache.getInvalidations() == invalidations; ++i)
+            {
+                Thread.sleep(10);
+            }
+
+            if(cache.getInvalidations() == invalidations)
+                throw new TestFailed("client not told of a one-way write");
+
+            expect(near.value(), 7, 4);
+            expect(near.value(), 7, 4);
+
+                // Replies are dropped once the watching connection is lost.
+            ConnectionPool.closeAll();
+            for(int i = 0; i < 100 && cache.getSize() != 0; ++i)
+                Thread.sleep(10);
+
+            expect(near.value(), 7, 5);
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when calling a " +
+                                 "near-cache stub", t);
+        }
+    }
+
+    /** Checks the value read, and the number of reads the server has
+        served. */
+    private void expect(int value, int expected, int reads) throws TestFailed
+    {
+        if(value != expected)
+            throw new TestFailed("read " + value + " instead of " + expected);
+
+        if(server.reads() != reads)
+            throw new TestFailed("server read " + server.reads() +
+                                 " times instead of " + reads);
+    }
+
+    /** Stops the skeleton and clears the cache. */
+    @Override
+    protected void clean()
+    {
+        skeleton.stop();
+        cache.invalidateAll();
+        ConnectionPool.closeAll();
+    }
+}
@@ -0,0 +1,168 @@
+package rmi;
+
+import test.*;
+import java.net.*;
+import java.util.Arrays;
+
+/** Unit test for the NIO skeleton engine.
+
+    <p>
+    The test runs a skeleton configured with
+    <code>SkeletonConfig.Engine.NIO</code> and checks that small and large
+    calls are answered, that concurrent calls on one connection are served
+    together by the worker pool, and that the skeleton stops and restarts.
+ */
+public class NioEngineTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking NIO skeleton engine";
+
+    /** Number of threads calling <code>gather</code> concurrently. */
+    private static final int        CALLERS = 6;
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress       address;
+    /** Skeleton used in the test. */
+    private Skeleton<DataInterface> skeleton;
+
+    /** Remote interface used by the test. */
+    public interface DataInterface
+    {
+        public byte[] reverse(byte[] data) throws RMIException;
+
+        public void gather() throws RMIException;
+    }
+
+    /** Server object for <code>DataInterface</code>. */
+    private static class DataServer implements DataInterface
+    {
+        /** Number of callers still expected by <code>gather</code>. */
+        private int     missing = CALLERS;
+
+        @Override
+        public byte[] reverse(byte[] data)
+        {
+            byte[]  reversed = new byte[data.length];
+
+            for(int i = 0; i < data.length; ++i)
+                reversed[i] = data[data.length - 1 - i];
+
+            return reversed;
+        }
+
+        /** Returns once <code>CALLERS</code> threads are inside the method. */
+        @Override
+        public synchronized void gather()
+        {
+            --missing;
+            notifyAll();
+
+            while(missing > 0)
+            {
+                try
+                {
+                    wait();
+                }
+                catch(InterruptedException e) { }
+            }
+        }
+    }
+
+    /** Starts the test skeleton on the NIO engine. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7002);
+        skeleton = new Skeleton<DataInterface>(DataInterface.class,
+                                               new DataServer(), address);
+        skeleton.setConfig(new SkeletonConfig()
+                               .setEngine(SkeletonConfig.Engine.NIO)
+                               .setReactor_threads(2)
+                               .setWorker_threads(CALLERS));
+
+        try
+        {
+            skeleton.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeleton", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        final DataInterface stub = Stub.create(DataInterface.class, address);
+
+        try
+        {
+            // A small call, then one larger than the reactor's read buffer.
+            checkReverse(stub, 16);
+            checkReverse(stub, 200000);
+
+            Thread[]    callers = new Thread[CALLERS - 1];
+
+            for(int i = 0; i < callers.length; ++i)
+            {
+                callers[i] = new Thread(new Runnable() {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            stub.gather();
+                        }
+                        catch(Throwable t)
+                        {
+                            failure(new TestFailed("concurrent call failed",
+                                                   t));
+                        }
+                    }
+                });
+                callers[i].start();
+            }
+
+            stub.gather();
+
+            for(Thread caller : callers)
+                caller.join();
+
+            skeleton.stop();
+            skeleton.start();
+
+            checkReverse(stub, 64);
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when using stub", t);
+        }
+    }
+
+    /** Checks that the stub reverses an array of the given length. */
+    private void checkReverse(DataInterface stub, int length) throws Throwable
+    {
+        byte[]  data = new byte[length];
+
+        for(int i = 0; i < length; ++i)
+            data[i] = (byte)i;
+
+        byte[]  twice = stub.reverse(stub.reverse(data));
+
+        if(!Arrays.equals(data, twice))
+            throw new TestFailed("incorrect result for " + length + " bytes");
+    }
+
+    /** Stops the skeleton. */
+    @Override
+    protected void clean()
+    {
+        skeleton.stop();
+        ConnectionPool.closeAll();
+    }
+}
@@ -0,0 +1,195 @@
+package rmi;
+
+import test.*;
+import java.lang.reflect.Proxy;
+import java.net.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Unit test for one-way remote methods.
+
+    <p>
+    The test checks that one-way calls, made through a generated stub and a
+    proxy stub, return without waiting for the server, that all of them are
+    run, and that the exception of a one-way call is reported by the skeleton
+    instead of the stub.
+ */
+public class OneWayTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking one-way remote methods";
+
+    /** Number of one-way calls made through each stub. */
+    private static final int    CALLS = 500;
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress               address;
+    /** Skeleton used in the test. */
+    private TestSkeleton                    skeleton;
+    /** Server object used by the skeleton. */
+    private CounterServer                   server;
+
+    /** Remote interface used by the test. */
+    @Remote
+    public interface CounterInterface
+    {
+        @OneWay
+        public void add(int value) throws RMIException;
+
+        @OneWay
+        public void block() throws RMIException;
+
+        @OneWay
+        public void fail() throws RMIException;
+
+        public int total() throws RMIException;
+    }
+
+    /** Server object for <code>CounterInterface</code>. */
+    private static class CounterServer implements CounterInterface
+    {
+        /** Sum of the values added. */
+        private final AtomicInteger     total = new AtomicInteger();
+        /** Released by the test once one-way calls have returned. */
+        private final CountDownLatch    release = new CountDownLatch(1);
+
+        @Override
+        public void add(int value)
+        {
+            total.addAndGet(value);
+        }
+
+        @Override
+        public void block()
+        {
+            try
+            {
+                release.await(10, TimeUnit.SECONDS);
+            }
+            catch(InterruptedException e) { }
+        }
+
+        @Override
+        public void fail()
+        {
+            throw new IllegalStateException("one-way failure");
+        }
+
+        @Override
+        public int total()
+        {
+            return total.get();
+        }
+    }
+
+    /** Skeleton recording the errors it reports. */
+    private static class TestSkeleton extends Skeleton<CounterInterface>
+    {
+        /** Exception reported for the failing one-way call. */
+        private final CompletableFuture<Throwable>  failure =
+            new CompletableFuture<Throwable>();
+
+        TestSkeleton(CounterInterface server, InetSocketAddress address)
+        {
+            super(CounterInterface.class, server, address);
+        }
+
+        @Override
+        protected void service_error(RMIException exception)
+        {
+            failure.complete(exception.getCause());
+        }
+    }
+
+    /** Starts the test skeleton. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7008);
+        server = new CounterServer();
+        skeleton = new TestSkeleton(server, address);
+
+        try
+        {
+            skeleton.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeleton", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        try
+        {
+            CounterInterface    stub = Stub.create(CounterInterface.class,
+                                                   address);
+            CounterInterface    proxy = (CounterInterface)
+                Proxy.newProxyInstance(
+                    CounterInterface.class.getClassLoader(),
+                    new Class<?>[] {CounterInterface.class},
+                    new StubInvocationHandler<CounterInterface>(
+                        CounterInterface.class, address));
+
+            long    start = System.currentTimeMillis();
+
+            stub.block();
+            proxy.block();
+
+            if(System.currentTimeMillis() - start > 5000)
+                throw new TestFailed("one-way call waited for the server");
+
+            server.release.countDown();
+
+            for(int i = 0; i < CALLS; ++i)
+            {
+                stub.add(1);
+                proxy.add(2);
+            }
+
+            long    deadline = System.currentTimeMillis() + 10000;
+
+            while(stub.total() != 3 * CALLS)
+            {
+                if(System.currentTimeMillis() > deadline)
+                    throw new TestFailed("one-way calls lost: total is " +
+                                         stub.total());
+
+                Thread.sleep(10);
+            }
+
+            stub.fail();
+
+            Throwable   failure =
+                skeleton.failure.get(10, TimeUnit.SECONDS);
+
+            if(!(failure instanceof IllegalStateException))
+                throw new TestFailed("one-way exception not reported",
+                                     failure);
+        }
+        catch(TestFailed e) { throw e; }
+        catch(TimeoutException e)
+        {
+            throw new TestFailed("one-way exception not reported", e);
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when using stub", t);
+        }
+    }
+
+    /** Stops the skeleton. */
+    @Override
+    protected void clean()
+    {
+        server.release.countDown();
+        skeleton.stop();
+        ConnectionPool.closeAll();
+    }
+}
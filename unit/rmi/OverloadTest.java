@@ -0,0 +1,146 @@
+package rmi;
+
+import test.*;
+import java.net.*;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/** Unit test for the skeleton's admission control.
+
+    <p>
+    The test runs a skeleton with a single worker and a queue of one call.
+    While the worker is busy and the queue is full, a further call must be
+    refused with an <code>OverloadException</code> under the
+    <code>REJECT</code> policy, and must displace the queued call under the
+    <code>SHED_OLDEST</code> policy.
+ */
+public class OverloadTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking skeleton overload policies";
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress       address;
+    /** Server object used by the skeleton. */
+    private HoldServer              server;
+    /** Skeleton used in the test. */
+    private Skeleton<HoldInterface> skeleton;
+
+    /** Creates the test skeleton. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7003);
+        server = new HoldServer();
+        skeleton = new Skeleton<HoldInterface>(HoldInterface.class, server,
+                                               address);
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        HoldInterface   stub = Stub.create(HoldInterface.class, address);
+
+        try
+        {
+            // REJECT: the third call is refused at once.
+            start(SkeletonConfig.OverloadPolicy.REJECT);
+
+            HoldServer.Holder   running = call(stub);
+            server.awaitEntered(1);
+            HoldServer.Holder   queued = call(stub);
+            awaitQueued();
+
+            try
+            {
+                stub.hold();
+                throw new TestFailed("call accepted by saturated skeleton");
+            }
+            catch(OverloadException e) { }
+
+            if(skeleton.getRejected_calls() != 1)
+                throw new TestFailed("refused call not counted");
+
+            server.release();
+            running.join();
+            queued.join();
+
+            if(running.error != null || queued.error != null)
+                throw new TestFailed("admitted call failed");
+
+            skeleton.stop();
+            server.hold(true);
+
+            // SHED_OLDEST: the queued call is dropped for the newest one.
+            start(SkeletonConfig.OverloadPolicy.SHED_OLDEST);
+
+            running = call(stub);
+            server.awaitEntered(3);
+            queued = call(stub);
+            awaitQueued();
+            HoldServer.Holder   newest = call(stub);
+
+            queued.join();
+            if(!(queued.error instanceof OverloadException))
+                throw new TestFailed("oldest queued call not shed",
+                                     queued.error);
+
+            server.release();
+            running.join();
+            newest.join();
+
+            if(running.error != null || newest.error != null)
+                throw new TestFailed("admitted call failed");
+
+            if(skeleton.getShed_calls() != 1)
+                throw new TestFailed("shed call not counted");
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when using stub", t);
+        }
+    }
+
+    /** Starts the skeleton with one worker, one queued call and
+        <code>policy</code>. */
+    private void start(SkeletonConfig.OverloadPolicy policy) throws RMIException
+    {
+        skeleton.setConfig(new SkeletonConfig()
+                               .setWorker_threads(1)
+                               .setQueue_capacity(1)
+                               .setOverload_policy(policy));
+        skeleton.start();
+    }
+
+    /** Starts a thread calling <code>hold</code>. */
+    private HoldServer.Holder call(HoldInterface stub)
+    {
+        HoldServer.Holder   holder = new HoldServer.Holder(stub);
+
+        holder.start();
+        return holder;
+    }
+
+    /** Waits until a call waits in the skeleton's queue. */
+    private void awaitQueued() throws InterruptedException
+    {
+        ThreadPoolExecutor  executor =
+            (ThreadPoolExecutor)skeleton.call_executor;
+
+        while(executor.getQueue().isEmpty())
+            Thread.sleep(10);
+    }
+
+    /** Stops the skeleton and lets held calls return. */
+    @Override
+    protected void clean()
+    {
+        server.release();
+        skeleton.stop();
+        ConnectionPool.closeAll();
+    }
+}
@@ -0,0 +1,299 @@
+package rmi;
+
+import test.*;
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.*;
+
+/** Unit test for promise pipelining.
+
+    <p>
+    The test pipelines calls on the account a factory call returns, while the
+    factory method is still running, and checks that they run on that account
+    once it is returned, and that a call on the promise gives up at its
+    deadline. It then checks that calls on a promise whose call failed raise an
+    <code>RMIException</code> caused by the failure, and that only calls
+    returning a remote interface can be pipelined.
+ */
+public class PipelineTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking promise pipelining";
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress           address;
+    /** Skeleton used in the test. */
+    private Skeleton<BankInterface>     skeleton;
+    /** Server object, released by the test. */
+    private BankServer                  bank;
+
+    /** Remote interface of the accounts. */
+    public interface AccountInterface
+    {
+        public String owner() throws RMIException;
+
+        public int deposit(int amount) throws RMIException;
+    }
+
+    /** Remote interface of the factory. */
+    public interface BankInterface
+    {
+        public AccountInterface open(String owner)
+            throws RMIException, FileNotFoundException;
+
+        public int count() throws RMIException;
+    }
+
+    /** Server object for <code>AccountInterface</code>. */
+    private static class AccountServer implements AccountInterface
+    {
+        /** Name given when the account was opened. */
+        private final String    owner;
+        /** Sum of the deposits. */
+        private int             balance = 0;
+
+        AccountServer(String owner)
+        {
+            this.owner = owner;
+        }
+
+        @Override
+        public String owner()
+        {
+            return owner;
+        }
+
+        @Override
+        public synchronized int deposit(int amount)
+        {
+            balance += amount;
+            return balance;
+        }
+    }
+
+    /** Server object for <code>BankInterface</code>. */
+    private static class BankServer implements BankInterface
+    {
+        /** Released by the test once it has pipelined its calls. */
+        private final CountDownLatch    released = new CountDownLatch(1);
+        /** Number of accounts opened. */
+        private int                     count = 0;
+
+        @Override
+        public AccountInterface open(String owner) throws FileNotFoundException
+        {
+            if(owner.isEmpty())
+                throw new FileNotFoundException("no owner");
+
+            try
+            {
+                if(!released.await(10, TimeUnit.SECONDS))
+                    owner = "late";
+            }
+            catch(InterruptedException e)
+            {
+                owner = "interrupted";
+            }
+
+            synchronized(this)
+            {
+                ++count;
+            }
+
+            return new AccountServer(owner);
+        }
+
+        @Override
+        public synchronized int count()
+        {
+            return count;
+        }
+    }
+
+    /** Starts the test skeleton. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7011);
+        bank = new BankServer();
+        skeleton = new Skeleton<BankInterface>(BankInterface.class, bank,
+                                               address);
+
+        try
+        {
+            skeleton.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeleton", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        try
+        {
+            AsyncStub<BankInterface>    async =
+                Stub.createAsync(BankInterface.class, address);
+
+            checkPipelined(async);
+            checkBroken(async);
+            checkNotRemote(async);
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when pipelining", t);
+        }
+    }
+
+    /** Pipelines calls on an account while it is being opened.
+
+        @throws TestFailed If a result is incorrect.
+     */
+    private void checkPipelined(AsyncStub<BankInterface> async)
+        throws Throwable
+    {
+            // The factory method blocks until released: the promise must be
+            // given without waiting for it.
+        final AccountInterface  account = async.pipeline(
+            new AsyncStub.Call<BankInterface, AccountInterface>()
+            {
+                @Override
+                public AccountInterface invoke(BankInterface remote)
+                    throws Throwable
+                {
+                    return remote.open("ann");
+                }
+            });
+        final int[]             deposited = new int[1];
+        final Throwable[]       failure = new Throwable[1];
+        Thread                  depositor = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    deposited[0] = account.deposit(5);
+                }
+                catch(Throwable t)
+                {
+                    failure[0] = t;
+                }
+            }
+        };
+
+        depositor.start();
+        Thread.sleep(200);
+
+        if(bank.count() != 0)
+            throw new TestFailed("pipelined call waited for its promise");
+
+            // A call on the promise gives up at its deadline.
+        Deadline                deadline = Deadline.after(100);
+
+        try
+        {
+            account.owner();
+            throw new TestFailed("call on a pending promise outlived its " +
+                                 "deadline");
+        }
+        catch(DeadlineExceededException e)
+        {
+            if(System.currentTimeMillis() < deadline.getTime())
+                throw new TestFailed("call on a pending promise given up " +
+                                     "before its deadline");
+        }
+        finally
+        {
+            deadline.close();
+        }
+
+        bank.released.countDown();
+        depositor.join();
+
+        if(failure[0] != null)
+            throw new TestFailed("pipelined call failed", failure[0]);
+
+        if(deposited[0] != 5)
+            throw new TestFailed("incorrect result from pipelined call");
+
+        if(!"ann".equals(account.owner()) || account.deposit(2) != 7)
+            throw new TestFailed("calls did not run on the promised object");
+
+        if(!account.equals(account) ||
+           !account.toString().startsWith("Promise"))
+        {
+            throw new TestFailed("promise stub is not a local object");
+        }
+    }
+
+    /** Calls a promise whose call raised an exception.
+
+        @throws TestFailed If the call does not fail as expected.
+     */
+    private void checkBroken(AsyncStub<BankInterface> async) throws Throwable
+    {
+        AccountInterface    account = async.pipeline(
+            new AsyncStub.Call<BankInterface, AccountInterface>()
+            {
+                @Override
+                public AccountInterface invoke(BankInterface remote)
+                    throws Throwable
+                {
+                    return remote.open("");
+                }
+            });
+
+        try
+        {
+            account.owner();
+            throw new TestFailed("call on a broken promise succeeded");
+        }
+        catch(RMIException e)
+        {
+            if(!(e.getCause() instanceof FileNotFoundException))
+                throw new TestFailed("wrong cause of broken promise", e);
+        }
+    }
+
+    /** Pipelines a call which does not return a remote interface.
+
+        @throws TestFailed If the call is accepted.
+     */
+    private void checkNotRemote(AsyncStub<BankInterface> async)
+        throws TestFailed
+    {
+        try
+        {
+            async.pipeline(new AsyncStub.Call<BankInterface, Integer>()
+            {
+                @Override
+                public Integer invoke(BankInterface remote) throws Throwable
+                {
+                    return remote.count();
+                }
+            });
+            throw new TestFailed("call returning a value was pipelined");
+        }
+        catch(IllegalArgumentException e) { }
+        catch(RMIException e)
+        {
+            throw new TestFailed("call returning a value was sent", e);
+        }
+    }
+
+    /** Stops the skeleton. */
+    @Override
+    protected void clean()
+    {
+        skeleton.stop();
+        ConnectionPool.closeAll();
+    }
+}
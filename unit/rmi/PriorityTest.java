@@ -0,0 +1,212 @@
+package rmi;
+
+import test.*;
+import java.net.*;
+import java.util.*;
+
+/** Unit test for the scheduling of queued calls by priority class and
+    deadline.
+
+    <p>
+    The test runs a skeleton with a single worker, and holds it with a slow
+    call. It then queues, in this order, a bulk call, a normal call without a
+    deadline, a normal call with a deadline and an interactive call. Once the
+    worker is free, the calls must run by class, the normal call with a
+    deadline before the one without, and the scheduler must have counted the
+    calls of each class and their waits.
+ */
+public class PriorityTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking call priority scheduling";
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress           address;
+    /** Server object used by the skeleton. */
+    private OrderServer                 server;
+    /** Skeleton used in the test. */
+    private Skeleton<OrderInterface>    skeleton;
+
+    /** Remote interface used by the test. */
+    public interface OrderInterface
+    {
+        public void hold() throws RMIException;
+        public void record(String tag) throws RMIException;
+    }
+
+    /** Server object for <code>OrderInterface</code>, recording the order in
+        which calls run. */
+    private static class OrderServer extends HoldServer
+        implements OrderInterface
+    {
+        /** Tags of the calls to <code>record</code>, in the order they ran. */
+        private final List<String>  order = new ArrayList<String>();
+
+        @Override
+        public synchronized void record(String tag)
+        {
+            order.add(tag);
+        }
+
+        /** Returns the tags recorded so far. */
+        synchronized List<String> order()
+        {
+            return new ArrayList<String>(order);
+        }
+    }
+
+    /** Starts the test skeleton. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7016);
+        server = new OrderServer();
+        skeleton = new Skeleton<OrderInterface>(OrderInterface.class, server,
+                                                address);
+        skeleton.setConfig(new SkeletonConfig().setWorker_threads(1));
+
+        try
+        {
+            skeleton.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeleton", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        OrderInterface  stub = Stub.create(OrderInterface.class, address);
+        OrderInterface  bulk = Stub.withPriority(stub, Priority.BULK);
+        OrderInterface  interactive = Stub.withPriority(stub,
+                                                        Priority.INTERACTIVE);
+        CallScheduler   scheduler = skeleton.getScheduler();
+
+        if(!bulk.equals(stub))
+            throw new TestFailed("stub with a priority not equal to its " +
+                                 "original");
+
+        try
+        {
+            HoldServer.Holder   holder = hold(stub);
+            server.awaitEntered(1);
+
+            HoldServer.Holder[] callers = new HoldServer.Holder[] {
+                record(bulk, "bulk", false),
+                record(stub, "normal", false),
+                record(stub, "deadline", true),
+                record(interactive, "interactive", false)};
+
+                // Queue the calls one after the other.
+            for(int i = 0; i < callers.length; ++i)
+            {
+                callers[i].start();
+                while(scheduler.size() < i + 1)
+                    Thread.sleep(10);
+            }
+
+            if(scheduler.getQueued(Priority.BULK) != 1 ||
+               scheduler.getQueued(Priority.NORMAL) != 2 ||
+               scheduler.getQueued(Priority.INTERACTIVE) != 1)
+            {
+                throw new TestFailed("queued calls not counted by class");
+            }
+
+            server.release();
+            holder.join();
+            for(HoldServer.Holder caller : callers)
+            {
+                caller.join();
+                if(caller.error != null)
+                    throw new TestFailed("queued call failed", caller.error);
+            }
+
+            List<String>    expected = Arrays.asList("interactive", "deadline",
+                                                     "normal", "bulk");
+            if(!server.order().equals(expected))
+                throw new TestFailed("calls run in order " + server.order() +
+                                     " instead of " + expected);
+
+            if(scheduler.size() != 0 ||
+               scheduler.getScheduled_calls(Priority.BULK) != 1 ||
+               scheduler.getScheduled_calls(Priority.INTERACTIVE) != 1)
+            {
+                throw new TestFailed("scheduled calls not counted by class");
+            }
+
+            if(scheduler.getMean_wait(Priority.BULK) <
+               scheduler.getMean_wait(Priority.INTERACTIVE) ||
+               scheduler.getMax_wait(Priority.BULK) <= 0)
+            {
+                throw new TestFailed("queue waits not measured");
+            }
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when making calls " +
+                                 "with priorities", t);
+        }
+    }
+
+    /** Starts a thread calling <code>hold</code>. */
+    private HoldServer.Holder hold(final OrderInterface stub)
+    {
+        HoldServer.Holder   holder = new HoldServer.Holder()
+        {
+            @Override
+            protected void call() throws Throwable
+            {
+                stub.hold();
+            }
+        };
+
+        holder.start();
+        return holder;
+    }
+
+    /** Creates a thread calling <code>record</code> with <code>tag</code>,
+        within a deadline if <code>timed</code>. */
+    private HoldServer.Holder record(final OrderInterface stub,
+                                     final String tag, final boolean timed)
+    {
+        return new HoldServer.Holder()
+        {
+            @Override
+            protected void call() throws Throwable
+            {
+                if(!timed)
+                {
+                    stub.record(tag);
+                    return;
+                }
+
+                Deadline    deadline = Deadline.after(60000);
+
+                try
+                {
+                    stub.record(tag);
+                }
+                finally
+                {
+                    deadline.close();
+                }
+            }
+        };
+    }
+
+    /** Stops the skeleton and lets held calls return. */
+    @Override
+    protected void clean()
+    {
+        server.release();
+        skeleton.stop();
+        ConnectionPool.closeAll();
+    }
+}
@@ -0,0 +1,190 @@
+package rmi;
+
+import test.*;
+import java.io.*;
+import java.lang.reflect.Proxy;
+import java.net.*;
+
+/** Unit test for the classes generated by the annotation processor.
+
+    <p>
+    The test checks that a <code>@Remote</code> interface has a stub class and
+    a skeleton dispatcher generated at compile time, that both are used, and
+    that they interoperate with proxy stubs, and that generated stubs
+    survive serialization.
+ */
+public class RemoteProcessorTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice =
+        "checking stubs and dispatchers generated at compile time";
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress           address;
+    /** Skeleton used in the test. */
+    private Skeleton<TallyInterface>    skeleton;
+
+    /** Remote interface used by the test. */
+    @Remote
+    public interface TallyInterface
+    {
+        public long add(long total, int count, double weight)
+            throws RMIException;
+
+        public String add(String total, char suffix) throws RMIException;
+
+        public int[] reverse(int[] values) throws RMIException;
+
+        public void reset(boolean fail) throws RMIException,
+                                               FileNotFoundException;
+    }
+
+    /** Server object for <code>TallyInterface</code>. */
+    private static class TallyServer implements TallyInterface
+    {
+        @Override
+        public long add(long total, int count, double weight)
+        {
+            return total + (long)(count * weight);
+        }
+
+        @Override
+        public String add(String total, char suffix)
+        {
+            return total + suffix;
+        }
+
+        @Override
+        public int[] reverse(int[] values)
+        {
+            int[]   reversed = new int[values.length];
+
+            for(int i = 0; i < values.length; ++i)
+                reversed[i] = values[values.length - 1 - i];
+
+            return reversed;
+        }
+
+        @Override
+        public void reset(boolean fail) throws FileNotFoundException
+        {
+            if(fail)
+                throw new FileNotFoundException("reset");
+        }
+    }
+
+    /** Starts the test skeleton. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7006);
+        skeleton = new Skeleton<TallyInterface>(TallyInterface.class,
+                                                new TallyServer(), address);
+
+        try
+        {
+            skeleton.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeleton", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        if(RemoteClasses.dispatcher(TallyInterface.class) == null)
+            throw new TestFailed("dispatcher not generated");
+
+        try
+        {
+            Class<?>        stub_class = Class.forName(
+                RemoteClasses.generatedName(TallyInterface.class, "_Stub"));
+            TallyInterface  stub = Stub.create(TallyInterface.class, address);
+
+            if(stub.getClass() != stub_class)
+                throw new TestFailed("stub is not an instance of the " +
+                                     "generated class");
+
+            check(stub);
+
+            TallyInterface  proxy = (TallyInterface)Proxy.newProxyInstance(
+                TallyInterface.class.getClassLoader(),
+                new Class<?>[] {TallyInterface.class},
+                new StubInvocationHandler<TallyInterface>(
+                    TallyInterface.class, address));
+
+            check(proxy);
+
+            if(!stub.equals(proxy) || !proxy.equals(stub) ||
+               stub.hashCode() != proxy.hashCode() ||
+               !stub.toString().equals(proxy.toString()))
+            {
+                throw new TestFailed("generated stub and proxy stub differ");
+            }
+
+            ByteArrayOutputStream   bytes = new ByteArrayOutputStream();
+            ObjectOutputStream      out = new ObjectOutputStream(bytes);
+            out.writeObject(stub);
+            out.close();
+
+            ObjectInputStream       in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()));
+            TallyInterface          copy = (TallyInterface)in.readObject();
+
+            if(copy.getClass() != stub_class || !copy.equals(stub))
+                throw new TestFailed("deserialized stub differs");
+
+            check(copy);
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when using stub", t);
+        }
+    }
+
+    /** Calls every method through the given stub.
+
+        @throws TestFailed If a result is incorrect.
+     */
+    private void check(TallyInterface stub) throws Throwable
+    {
+        if(stub.add(40L, 4, 0.5) != 42L)
+            throw new TestFailed("incorrect result from primitive method");
+
+        if(!"ab".equals(stub.add("a", 'b')))
+            throw new TestFailed("incorrect result from overloaded method");
+
+        int[]   reversed = stub.reverse(new int[] {1, 2, 3});
+
+        if(reversed.length != 3 || reversed[0] != 3 || reversed[2] != 1)
+            throw new TestFailed("incorrect result from array method");
+
+        stub.reset(false);
+
+        try
+        {
+            stub.reset(true);
+            throw new TestFailed("remote exception not raised");
+        }
+        catch(FileNotFoundException e)
+        {
+            if(!"reset".equals(e.getMessage()))
+                throw new TestFailed("wrong remote exception raised");
+        }
+    }
+
+    /** Stops the skeleton. */
+    @Override
+    protected void clean()
+    {
+        skeleton.stop();
+        ConnectionPool.closeAll();
+    }
+}
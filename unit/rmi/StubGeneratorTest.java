@@ -0,0 +1,162 @@
+package rmi;
+
+import test.*;
+import java.io.*;
+import java.lang.reflect.Proxy;
+import java.net.*;
+
+/** Unit test for generated stub classes.
+
+    <p>
+    The test checks that stubs of a remote interface without compile-time
+    classes are instances of a class generated at run time, that they call the
+    skeleton (with arguments and results of every width), raise the remote method's exceptions, compare
+    equal to proxy stubs for the same skeleton, and survive serialization.
+ */
+public class StubGeneratorTest extends Test
+{
+    /** Test notice. */
+    public static final String  notice = "checking generated stub classes";
+
+    /** Address at which the test skeleton will run. */
+    private InetSocketAddress       address;
+    /** Skeleton used in the test. */
+    private Skeleton<CalcInterface> skeleton;
+
+    /** Remote interface used by the test. */
+    public interface CalcInterface
+    {
+        public int add(int a, int b) throws RMIException;
+
+        public long[] range(long from, int count) throws RMIException;
+
+        public double scale(double factor, long value, char unit)
+            throws RMIException;
+
+        public void fail(String message) throws RMIException,
+                                                FileNotFoundException;
+    }
+
+    /** Server object for <code>CalcInterface</code>. */
+    private static class CalcServer implements CalcInterface
+    {
+        @Override
+        public int add(int a, int b)
+        {
+            return a + b;
+        }
+
+        @Override
+        public long[] range(long from, int count)
+        {
+            long[]  range = new long[count];
+
+            for(int i = 0; i < count; ++i)
+                range[i] = from + i;
+
+            return range;
+        }
+
+        @Override
+        public double scale(double factor, long value, char unit)
+        {
+            return unit == 'k' ? factor * value * 1000 : factor * value;
+        }
+
+        @Override
+        public void fail(String message) throws FileNotFoundException
+        {
+            throw new FileNotFoundException(message);
+        }
+    }
+
+    /** Starts the test skeleton. */
+    @Override
+    protected void initialize() throws TestFailed
+    {
+        address = new InetSocketAddress("127.0.0.1", 7005);
+        skeleton = new Skeleton<CalcInterface>(CalcInterface.class,
+                                               new CalcServer(), address);
+
+        try
+        {
+            skeleton.start();
+        }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unable to start skeleton", t);
+        }
+    }
+
+    /** Performs the test.
+
+        @throws TestFailed If the test fails.
+     */
+    @Override
+    protected void perform() throws TestFailed
+    {
+        try
+        {
+            CalcInterface   stub = Stub.create(CalcInterface.class, address);
+
+            if(!(stub instanceof GeneratedStub))
+                throw new TestFailed("stub is not an instance of the " +
+                                     "generated class");
+
+            if(stub.add(2, 3) != 5 || stub.range(7, 3)[2] != 9 ||
+               stub.scale(0.5, 6L, 'k') != 3000.0)
+            {
+                throw new TestFailed("incorrect result from generated stub");
+            }
+
+            try
+            {
+                stub.fail("missing");
+                throw new TestFailed("remote exception not raised");
+            }
+            catch(FileNotFoundException e)
+            {
+                if(!"missing".equals(e.getMessage()))
+                    throw new TestFailed("wrong remote exception raised");
+            }
+
+            Object          proxy = Proxy.newProxyInstance(
+                CalcInterface.class.getClassLoader(),
+                new Class<?>[] {CalcInterface.class},
+                new StubInvocationHandler<CalcInterface>(CalcInterface.class,
+                                                         address));
+
+            if(!stub.equals(proxy) || !proxy.equals(stub) ||
+               stub.hashCode() != proxy.hashCode() ||
+               !stub.toString().equals(proxy.toString()))
+            {
+                throw new TestFailed("generated stub and proxy stub differ");
+            }
+
+            ByteArrayOutputStream   bytes = new ByteArrayOutputStream();
+            ObjectOutputStream      out = new ObjectOutputStream(bytes);
+            out.writeObject(stub);
+            out.close();
+
+            ObjectInputStream       in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()));
+            CalcInterface           copy = (CalcInterface)in.readObject();
+
+            if(!copy.equals(stub) || copy.add(1, 1) != 2)
+                throw new TestFailed("deserialized stub differs");
+        }
+        catch(TestFailed e) { throw e; }
+        catch(Throwable t)
+        {
+            throw new TestFailed("unexpected exception when using stub", t);
+        }
+    }
+
+    /** Stops the skeleton. */
+    @Override
+    protected void clean()
+    {
+        skeleton.stop();
+        ConnectionPool.closeAll();
+    }
+}